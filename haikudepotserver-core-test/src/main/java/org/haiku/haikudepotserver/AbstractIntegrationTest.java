@@ -18,8 +18,12 @@ import org.apache.cayenne.map.ObjEntity;
 import org.haiku.haikudepotserver.dataobjects.User;
 import org.haiku.haikudepotserver.dataobjects.UserUsageConditions;
 import org.haiku.haikudepotserver.job.model.JobService;
+import org.haiku.haikudepotserver.naturallanguage.NaturalLanguageUseBatcher;
 import org.haiku.haikudepotserver.naturallanguage.model.NaturalLanguageService;
+import org.haiku.haikudepotserver.pkg.PkgVersionViewCounterBatcher;
 import org.haiku.haikudepotserver.security.UserAuthentication;
+import org.haiku.haikudepotserver.security.AuthorizationPkgRuleCache;
+import org.haiku.haikudepotserver.security.VerifiedTokenCache;
 import org.haiku.haikudepotserver.security.model.UserAuthenticationService;
 import org.haiku.haikudepotserver.support.TestDatabase;
 import org.junit.jupiter.api.AfterEach;
@@ -94,6 +98,18 @@ public abstract class AbstractIntegrationTest {
     @Resource
     protected IntegrationTestSupportService integrationTestSupportService;
 
+    @Resource
+    protected VerifiedTokenCache verifiedTokenCache;
+
+    @Resource
+    protected AuthorizationPkgRuleCache authorizationPkgRuleCache;
+
+    @Resource
+    protected PkgVersionViewCounterBatcher pkgVersionViewCounterBatcher;
+
+    @Resource
+    protected NaturalLanguageUseBatcher naturalLanguageUseBatcher;
+
     @Resource
     protected CapturingMailSender mailSender;
 
@@ -179,6 +195,10 @@ public abstract class AbstractIntegrationTest {
     protected void clearCaches() {
         serverRuntime.getDataDomain().getQueryCache().clear();
         serverRuntime.getDataDomain().getSharedSnapshotCache().clear();
+        verifiedTokenCache.clear();
+        authorizationPkgRuleCache.clear();
+        pkgVersionViewCounterBatcher.clear();
+        naturalLanguageUseBatcher.clear();
         LOGGER.debug("prep; have cleared out caches");
     }
 
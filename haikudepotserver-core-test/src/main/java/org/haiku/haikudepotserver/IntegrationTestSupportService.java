@@ -464,6 +464,44 @@ public class IntegrationTestSupportService {
         context.commitChanges();
     }
 
+    /**
+     * <p>This will create a development package <code>pkg1_devel</code> and a package
+     * <code>pkgsrc</code> that only has a version for the source architecture. This method
+     * expected that the standard test data has already been introduced into the environment
+     * prior.</p>
+     */
+
+    public void createDevelopmentPkgs() {
+
+        ObjectContext context = serverRuntime.newContext();
+        RepositorySource repositorySource = RepositorySource.getByCode(context, "testreposrc_xyz");
+
+        {
+            PkgVersion pkgVersion = context.newObject(PkgVersion.class);
+            pkgVersion.setActive(Boolean.TRUE);
+            pkgVersion.setArchitecture(Architecture.getByCode(context, "x86_64"));
+            pkgVersion.setMajor("1");
+            pkgVersion.setMicro("2");
+            pkgVersion.setRevision(4);
+            pkgVersion.setIsLatest(true);
+            pkgVersion.setPkg(createPkg(context, "pkg1_devel"));
+            pkgVersion.setRepositorySource(repositorySource);
+        }
+
+        {
+            PkgVersion pkgVersion = context.newObject(PkgVersion.class);
+            pkgVersion.setActive(Boolean.TRUE);
+            pkgVersion.setArchitecture(Architecture.getByCode(context, "source"));
+            pkgVersion.setMajor("3");
+            pkgVersion.setRevision(1);
+            pkgVersion.setIsLatest(true);
+            pkgVersion.setPkg(createPkg(context, "pkgsrc"));
+            pkgVersion.setRepositorySource(repositorySource);
+        }
+
+        context.commitChanges();
+    }
+
     /**
      * <p>This class is a container that carries some basic test-case data.</p>
      */
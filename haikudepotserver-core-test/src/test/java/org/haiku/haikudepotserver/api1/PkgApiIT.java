@@ -1,5 +1,5 @@
 /*
- * Copyright 2018-2023, Andrew Lindesay
+ * Copyright 2018-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
@@ -59,6 +59,9 @@ public class PkgApiIT extends AbstractIntegrationTest {
         IncrementViewCounterResult result = pkgApi.incrementViewCounter(request);
         // ------------------------------------
 
+        // the views are written to the database in the background.
+        pkgVersionViewCounterBatcher.flush();
+
         Assertions.assertThat(result).isNotNull();
 
         {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2018-2024, Andrew Lindesay
+ * Copyright 2018-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
@@ -926,6 +926,9 @@ das Zimmer"""
         pkgApiService.incrementViewCounter(request);
         // ------------------------------------
 
+        // the views are written to the database in the background.
+        pkgVersionViewCounterBatcher.flush();
+
         {
             ObjectContext context = serverRuntime.newContext();
             Pkg pkg1 = Pkg.getByName(context, "pkg1");
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.api2.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.fest.assertions.Assertions;
+import org.haiku.haikudepotserver.dataobjects.HaikuDepot;
+import org.haiku.haikudepotserver.metrics.MetricsConstants;
+import org.haiku.haikudepotserver.support.cayenne.QueryCacheGroupVersions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ApiResponseCacheTest {
+
+    private final static List<HaikuDepot.CacheGroup> CACHE_GROUPS = List.of(HaikuDepot.CacheGroup.PKG);
+
+    @Test
+    public void testGet_hit() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ApiResponseCache cache = new ApiResponseCache(new QueryCacheGroupVersions(), meterRegistry, true, 10, 60);
+        AtomicInteger calls = new AtomicInteger();
+
+        // ---------------------------------
+        String first = cache.get("test", Map.of("b", 2, "a", 1), CACHE_GROUPS, () -> "R" + calls.incrementAndGet());
+        String second = cache.get("test", Map.of("a", 1, "b", 2), CACHE_GROUPS, () -> "R" + calls.incrementAndGet());
+        // ---------------------------------
+
+        Assertions.assertThat(first).isEqualTo("R1");
+        Assertions.assertThat(second).isEqualTo("R1");
+        Assertions.assertThat(calls.get()).isEqualTo(1);
+        Assertions.assertThat(meterRegistry.get(MetricsConstants.COUNTER_NAME_API2_RESPONSE_CACHE_REQUESTS)
+                .tag(MetricsConstants.TAG_NAME_RESULT, "hit").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void testGet_groupVersionChanged() {
+        QueryCacheGroupVersions groupVersions = new QueryCacheGroupVersions();
+        ApiResponseCache cache = new ApiResponseCache(groupVersions, new SimpleMeterRegistry(), true, 10, 60);
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.get("test", Map.of("a", 1), CACHE_GROUPS, () -> "R" + calls.incrementAndGet());
+        groupVersions.incrementGroup(HaikuDepot.CacheGroup.PKG.name());
+
+        // ---------------------------------
+        String result = cache.get("test", Map.of("a", 1), CACHE_GROUPS, () -> "R" + calls.incrementAndGet());
+        // ---------------------------------
+
+        Assertions.assertThat(result).isEqualTo("R2");
+    }
+
+    @Test
+    public void testGet_unrelatedGroupVersionChanged() {
+        QueryCacheGroupVersions groupVersions = new QueryCacheGroupVersions();
+        ApiResponseCache cache = new ApiResponseCache(groupVersions, new SimpleMeterRegistry(), true, 10, 60);
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.get("test", Map.of("a", 1), CACHE_GROUPS, () -> "R" + calls.incrementAndGet());
+        groupVersions.incrementGroup(HaikuDepot.CacheGroup.USER.name());
+
+        // ---------------------------------
+        String result = cache.get("test", Map.of("a", 1), CACHE_GROUPS, () -> "R" + calls.incrementAndGet());
+        // ---------------------------------
+
+        Assertions.assertThat(result).isEqualTo("R1");
+    }
+
+    @Test
+    public void testGet_exceptionNotCached() {
+        ApiResponseCache cache = new ApiResponseCache(new QueryCacheGroupVersions(), new SimpleMeterRegistry(), true, 10, 60);
+
+        org.junit.jupiter.api.Assertions.assertThrows(IllegalStateException.class, () -> {
+            cache.get("test", Map.of("a", 1), CACHE_GROUPS, () -> {
+                throw new IllegalStateException("failure");
+            });
+        });
+
+        // ---------------------------------
+        String result = cache.get("test", Map.of("a", 1), CACHE_GROUPS, () -> "R");
+        // ---------------------------------
+
+        Assertions.assertThat(result).isEqualTo("R");
+    }
+
+}
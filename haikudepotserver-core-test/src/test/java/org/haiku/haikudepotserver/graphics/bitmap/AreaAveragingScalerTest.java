@@ -0,0 +1,70 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.graphics.bitmap;
+
+import org.fest.assertions.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class AreaAveragingScalerTest {
+
+    private final static int WHITE = RgbaImage.argb(0xff, 0xff, 0xff, 0xff);
+    private final static int BLACK = RgbaImage.argb(0xff, 0, 0, 0);
+    private final static int TRANSPARENT_RED = RgbaImage.argb(0, 0xff, 0, 0);
+
+    @Test
+    public void testScale_averagesArea() {
+        AreaAveragingScaler scaler = new AreaAveragingScaler(4, 2, 2, 1);
+
+        // ---------------------------------
+        scaler.addRow(new int[] { WHITE, BLACK, WHITE, WHITE });
+        scaler.addRow(new int[] { WHITE, BLACK, WHITE, WHITE });
+        RgbaImage result = scaler.toImage();
+        // ---------------------------------
+
+        Assertions.assertThat(result.width()).isEqualTo(2);
+        Assertions.assertThat(result.height()).isEqualTo(1);
+        Assertions.assertThat(RgbaImage.red(result.pixels()[0])).isEqualTo(0x80);
+        Assertions.assertThat(result.pixels()[1]).isEqualTo(WHITE);
+    }
+
+    @Test
+    public void testScale_fractionalCoverage() {
+        AreaAveragingScaler scaler = new AreaAveragingScaler(3, 1, 2, 1);
+
+        // ---------------------------------
+        scaler.addRow(new int[] { WHITE, BLACK, BLACK });
+        RgbaImage result = scaler.toImage();
+        // ---------------------------------
+
+        // the first target pixel covers all of the first source pixel and half of the second.
+        Assertions.assertThat(RgbaImage.red(result.pixels()[0])).isEqualTo(0xaa);
+        Assertions.assertThat(result.pixels()[1]).isEqualTo(BLACK);
+    }
+
+    @Test
+    public void testScale_transparentColourIgnored() {
+        AreaAveragingScaler scaler = new AreaAveragingScaler(2, 1, 1, 1);
+
+        // ---------------------------------
+        scaler.addRow(new int[] { TRANSPARENT_RED, WHITE });
+        RgbaImage result = scaler.toImage();
+        // ---------------------------------
+
+        int pixel = result.pixels()[0];
+        Assertions.assertThat(RgbaImage.alpha(pixel)).isEqualTo(0x80);
+        Assertions.assertThat(RgbaImage.green(pixel)).isEqualTo(0xff);
+    }
+
+    @Test
+    public void testDeriveTargetSize() {
+        // ---------------------------------
+        int[] result = AreaAveragingScaler.deriveTargetSize(320, 240, 160, 160);
+        // ---------------------------------
+
+        Assertions.assertThat(result).isEqualTo(new int[] { 160, 120 });
+    }
+
+}
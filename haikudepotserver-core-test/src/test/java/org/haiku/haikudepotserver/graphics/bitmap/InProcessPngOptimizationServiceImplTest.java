@@ -0,0 +1,47 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.graphics.bitmap;
+
+import org.fest.assertions.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+public class InProcessPngOptimizationServiceImplTest {
+
+    /**
+     * <p>Without quantization, the optimization must not change the pixels of the image.</p>
+     */
+
+    @Test
+    public void testOptimize_lossless() throws IOException {
+        byte[] originalData = InProcessPngThumbnailServiceImplTest.getData("/sample-320x240-c.png");
+        PngOptimizationService service = new InProcessPngOptimizationServiceImpl(false);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // ---------------------------------
+        service.optimize(new ByteArrayInputStream(originalData), outputStream);
+        // ---------------------------------
+
+        RgbaImage original = PngCodec.read(new ByteArrayInputStream(originalData));
+        RgbaImage optimized = PngCodec.read(new ByteArrayInputStream(outputStream.toByteArray()));
+        Assertions.assertThat(optimized.width()).isEqualTo(original.width());
+        Assertions.assertThat(optimized.height()).isEqualTo(original.height());
+
+        for (int i = 0; i < original.pixels().length; i++) {
+            int originalPixel = original.pixels()[i];
+            int optimizedPixel = optimized.pixels()[i];
+
+            // the colour of a fully transparent pixel is not significant.
+            if (0 != RgbaImage.alpha(originalPixel) || 0 != RgbaImage.alpha(optimizedPixel)) {
+                Assertions.assertThat(optimizedPixel).isEqualTo(originalPixel);
+            }
+        }
+    }
+
+}
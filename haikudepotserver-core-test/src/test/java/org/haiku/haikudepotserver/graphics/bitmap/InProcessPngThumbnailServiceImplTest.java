@@ -0,0 +1,66 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.graphics.bitmap;
+
+import com.google.common.io.ByteStreams;
+import org.fest.assertions.Assertions;
+import org.haiku.haikudepotserver.graphics.ImageHelper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class InProcessPngThumbnailServiceImplTest {
+
+    static byte[] getData(String leafname) throws IOException {
+        try (InputStream inputStream = InProcessPngThumbnailServiceImplTest.class.getResourceAsStream(leafname)) {
+            if (null == inputStream) {
+                throw new IllegalStateException("unable to find image for; " + leafname);
+            }
+
+            return ByteStreams.toByteArray(inputStream);
+        }
+    }
+
+    @Test
+    public void testThumbnail() throws IOException {
+        PngThumbnailService service = new InProcessPngThumbnailServiceImpl(false);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // ---------------------------------
+        service.thumbnail(
+                new ByteArrayInputStream(getData("/sample-320x240-a.png")),
+                outputStream,
+                160, 160);
+        // ---------------------------------
+
+        ImageHelper.Size size = new ImageHelper().derivePngSize(outputStream.toByteArray());
+        Assertions.assertThat(size).isNotNull();
+        Assertions.assertThat(size.width).isEqualTo(160);
+        Assertions.assertThat(size.height).isEqualTo(120);
+    }
+
+    @Test
+    public void testThumbnail_quantized() throws IOException {
+        PngThumbnailService service = new InProcessPngThumbnailServiceImpl(true);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // ---------------------------------
+        service.thumbnail(
+                new ByteArrayInputStream(getData("/sample-240x320-b.png")),
+                outputStream,
+                60, 60);
+        // ---------------------------------
+
+        ImageHelper.Size size = new ImageHelper().derivePngSize(outputStream.toByteArray());
+        Assertions.assertThat(size).isNotNull();
+        Assertions.assertThat(size.width).isEqualTo(45);
+        Assertions.assertThat(size.height).isEqualTo(60);
+    }
+
+}
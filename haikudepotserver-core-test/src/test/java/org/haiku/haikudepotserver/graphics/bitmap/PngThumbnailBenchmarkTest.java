@@ -0,0 +1,110 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.graphics.bitmap;
+
+import com.google.common.io.ByteStreams;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.haiku.haikudepotserver.graphics.GraphicsServerClient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * <p>Compares the time taken to thumbnail and optimize images in-process with the time taken
+ * by the graphics server.  This is not run as part of the normal build; to run it, start the
+ * graphics server and supply its base URI as a system property;</p>
+ *
+ * <pre>
+ * ./mvnw -pl haikudepotserver-core-test test \
+ *   -Dtest=PngThumbnailBenchmarkTest \
+ *   -Dhds.benchmark.graphics-server.base-uri=http://localhost:8085
+ * </pre>
+ */
+
+@EnabledIfSystemProperty(named = PngThumbnailBenchmarkTest.PROPERTY_BASE_URI, matches = ".+")
+public class PngThumbnailBenchmarkTest {
+
+    protected final static Logger LOGGER = LoggerFactory.getLogger(PngThumbnailBenchmarkTest.class);
+
+    final static String PROPERTY_BASE_URI = "hds.benchmark.graphics-server.base-uri";
+
+    private final static int WARMUP_ITERATIONS = 10;
+
+    private final static int ITERATIONS = 50;
+
+    private final static List<String> LEAFNAMES = List.of(
+            "/sample-320x240-a.png",
+            "/sample-240x320-b.png",
+            "/sample-320x180-d.png");
+
+    private interface Operation {
+        void run(byte[] data) throws IOException;
+    }
+
+    private static GraphicsServerClient createGraphicsServerClient() {
+        return new GraphicsServerClient(
+                System.getProperty(PROPERTY_BASE_URI),
+                Duration.ofSeconds(5),
+                Duration.ofSeconds(30),
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void testThumbnail() throws IOException {
+        PngThumbnailService server = new ServerPngThumbnailService(createGraphicsServerClient());
+        PngThumbnailService inProcess = new InProcessPngThumbnailServiceImpl(false);
+
+        for (String leafname : LEAFNAMES) {
+            byte[] data = InProcessPngThumbnailServiceImplTest.getData(leafname);
+            Operation serverOperation = d -> server.thumbnail(new ByteArrayInputStream(d), ByteStreams.nullOutputStream(), 64, 64);
+            Operation inProcessOperation = d -> inProcess.thumbnail(new ByteArrayInputStream(d), ByteStreams.nullOutputStream(), 64, 64);
+            report("thumbnail", leafname, measure(serverOperation, data), measure(inProcessOperation, data));
+        }
+    }
+
+    @Test
+    public void testOptimize() throws IOException {
+        PngOptimizationService server = new ServerOptimizationServiceImpl(createGraphicsServerClient());
+        PngOptimizationService inProcess = new InProcessPngOptimizationServiceImpl(false);
+
+        for (String leafname : LEAFNAMES) {
+            byte[] data = InProcessPngThumbnailServiceImplTest.getData(leafname);
+            Operation serverOperation = d -> server.optimize(new ByteArrayInputStream(d), ByteStreams.nullOutputStream());
+            Operation inProcessOperation = d -> inProcess.optimize(new ByteArrayInputStream(d), ByteStreams.nullOutputStream());
+            report("optimize", leafname, measure(serverOperation, data), measure(inProcessOperation, data));
+        }
+    }
+
+    private static double measure(Operation operation, byte[] data) throws IOException {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.run(data);
+        }
+
+        long startNanos = System.nanoTime();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.run(data);
+        }
+
+        return (System.nanoTime() - startNanos) / (ITERATIONS * 1_000_000.0);
+    }
+
+    private static void report(String operation, String leafname, double serverMillis, double inProcessMillis) {
+        LOGGER.info(
+                "{} [{}]; server {}ms/op, in-process {}ms/op",
+                operation,
+                leafname,
+                String.format("%.2f", serverMillis),
+                String.format("%.2f", inProcessMillis));
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.graphics.hvif;
+
+import com.google.common.io.ByteStreams;
+import org.fest.assertions.Assertions;
+import org.haiku.haikudepotserver.graphics.bitmap.RgbaImage;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+public class HvifRendererTest {
+
+    private final static int ORANGE = 0xffffaa00;
+
+    static byte[] getData(String leafname) throws IOException {
+        try (InputStream inputStream = HvifRendererTest.class.getResourceAsStream(leafname)) {
+            if (null == inputStream) {
+                throw new IllegalStateException("unable to find icon for; " + leafname);
+            }
+
+            return ByteStreams.toByteArray(inputStream);
+        }
+    }
+
+    private static int pixel(RgbaImage image, int x, int y) {
+        return image.pixels()[y * image.width() + x];
+    }
+
+    /**
+     * <p>A square from 16 to 48 in the icon's coordinate space which is only visible at a scale
+     * of 1.0 or more.</p>
+     */
+
+    private static HvifIcon createSquareIconWithLevelOfDetail() {
+        List<HvifIcon.PathPoint> points = List.of(
+                new HvifIcon.PathPoint(16, 16, 16, 16, 16, 16),
+                new HvifIcon.PathPoint(48, 16, 48, 16, 48, 16),
+                new HvifIcon.PathPoint(48, 48, 48, 48, 48, 48),
+                new HvifIcon.PathPoint(16, 48, 16, 48, 16, 48));
+        return new HvifIcon(
+                List.of(new HvifIcon.SolidStyle(ORANGE)),
+                List.of(new HvifIcon.Path(points, true)),
+                List.of(new HvifIcon.Shape(
+                        0, List.of(0), Optional.empty(), false, 1.0, HvifIcon.Shape.MAX_SCALE, List.of())));
+    }
+
+    @Test
+    public void testParse() throws IOException {
+
+        // ---------------------------------
+        HvifIcon icon = HvifParser.parse(getData("/sample.hvif"));
+        // ---------------------------------
+
+        Assertions.assertThat(icon.styles()).containsOnly(new HvifIcon.SolidStyle(ORANGE));
+        Assertions.assertThat(icon.paths()).hasSize(1);
+        Assertions.assertThat(icon.paths().getFirst().closed()).isTrue();
+        Assertions.assertThat(icon.paths().getFirst().points()).hasSize(7);
+        Assertions.assertThat(icon.shapes()).hasSize(1);
+    }
+
+    @Test
+    public void testParse_badMagic() {
+        byte[] data = new byte[] { 'n', 'o', 'p', 'e', 0, 0, 0 };
+
+        // ---------------------------------
+        org.junit.jupiter.api.Assertions.assertThrows(IOException.class, () -> HvifParser.parse(data));
+        // ---------------------------------
+    }
+
+    @Test
+    public void testParse_truncated() throws IOException {
+        byte[] data = getData("/sample.hvif");
+        byte[] truncated = Arrays.copyOf(data, data.length - 4);
+
+        // ---------------------------------
+        org.junit.jupiter.api.Assertions.assertThrows(IOException.class, () -> HvifParser.parse(truncated));
+        // ---------------------------------
+    }
+
+    @Test
+    public void testRender() throws IOException {
+        HvifIcon icon = HvifParser.parse(getData("/sample.hvif"));
+
+        for (int size : new int[] { 16, 32, 64 }) {
+
+            // ---------------------------------
+            RgbaImage image = HvifRenderer.render(icon, size);
+            // ---------------------------------
+
+            Assertions.assertThat(image.width()).isEqualTo(size);
+            Assertions.assertThat(image.height()).isEqualTo(size);
+            Assertions.assertThat(pixel(image, size / 2, size / 2)).isEqualTo(ORANGE);
+            Assertions.assertThat(pixel(image, 0, 0)).isEqualTo(0);
+        }
+    }
+
+    /**
+     * <p>The generic icon uses gradients, strokes and level-of-detail so this checks that these
+     * render without error and cover a reasonable part of the image.</p>
+     */
+
+    @Test
+    public void testRender_generic() throws IOException {
+        HvifIcon icon = HvifParser.parse(getData("/sample-generic.hvif"));
+
+        for (int size : new int[] { 16, 32, 64, 128 }) {
+
+            // ---------------------------------
+            RgbaImage image = HvifRenderer.render(icon, size);
+            // ---------------------------------
+
+            long opaque = Arrays.stream(image.pixels())
+                    .filter(p -> 0xff == RgbaImage.alpha(p))
+                    .count();
+            Assertions.assertThat(opaque).isGreaterThan((long) (size * size) / 3);
+            Assertions.assertThat(pixel(image, 0, 0)).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void testRender_levelOfDetail() {
+        HvifIcon icon = createSquareIconWithLevelOfDetail();
+
+        // ---------------------------------
+        RgbaImage small = HvifRenderer.render(icon, 32);
+        RgbaImage large = HvifRenderer.render(icon, 64);
+        // ---------------------------------
+
+        Assertions.assertThat(pixel(small, 16, 16)).isEqualTo(0);
+        Assertions.assertThat(pixel(large, 32, 32)).isEqualTo(ORANGE);
+
+        // the edges of the square fall on pixel boundaries so there are no partly covered pixels.
+
+        Assertions.assertThat(RgbaImage.alpha(pixel(large, 15, 32))).isEqualTo(0);
+        Assertions.assertThat(RgbaImage.alpha(pixel(large, 16, 32))).isEqualTo(0xff);
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.graphics.hvif;
+
+import org.fest.assertions.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public class HvifRenderingBatcherTest {
+
+    private static HvifRenderRequest createRequest(byte value) {
+        return new HvifRenderRequest(new byte[] { value }, Set.of(16, 32));
+    }
+
+    /**
+     * <p>Pretends to render each request by producing data that is the input followed by the
+     * size.</p>
+     */
+
+    private static List<HvifRenderResult> fakeRenderBatch(List<HvifRenderRequest> requests) {
+        return requests.stream()
+                .map(r -> new HvifRenderResult(
+                        r.sizes().stream().collect(Collectors.toMap(
+                                s -> s,
+                                s -> new byte[] { r.input()[0], s.byteValue() })),
+                        Map.of()))
+                .toList();
+    }
+
+    /**
+     * <p>While the first request is being rendered, the following requests should queue up and
+     * then be rendered together in a single batch.</p>
+     */
+
+    @Test
+    public void testSubmit_batched() throws Exception {
+        CountDownLatch firstBatchStartedLatch = new CountDownLatch(1);
+        CountDownLatch firstBatchReleaseLatch = new CountDownLatch(1);
+        HvifRenderingService hvifRenderingService = Mockito.mock(HvifRenderingService.class);
+        Mockito.when(hvifRenderingService.renderBatch(Mockito.anyList())).thenAnswer(invocation -> {
+            List<HvifRenderRequest> requests = invocation.getArgument(0);
+            if (firstBatchStartedLatch.getCount() > 0) {
+                firstBatchStartedLatch.countDown();
+                firstBatchReleaseLatch.await(10, TimeUnit.SECONDS);
+            }
+            return fakeRenderBatch(requests);
+        });
+
+        try (HvifRenderingBatcher batcher = new HvifRenderingBatcher(hvifRenderingService, 10, 100)) {
+
+            // ---------------------------------
+            CompletableFuture<HvifRenderResult> future1 = batcher.submit(createRequest((byte) 1)).orElseThrow();
+            Assertions.assertThat(firstBatchStartedLatch.await(10, TimeUnit.SECONDS)).isTrue();
+            CompletableFuture<HvifRenderResult> future2 = batcher.submit(createRequest((byte) 2)).orElseThrow();
+            CompletableFuture<HvifRenderResult> future3 = batcher.submit(createRequest((byte) 3)).orElseThrow();
+            firstBatchReleaseLatch.countDown();
+            HvifRenderResult result1 = future1.get(10, TimeUnit.SECONDS);
+            HvifRenderResult result2 = future2.get(10, TimeUnit.SECONDS);
+            HvifRenderResult result3 = future3.get(10, TimeUnit.SECONDS);
+            // ---------------------------------
+
+            Assertions.assertThat(result1.renders().get(16)).isEqualTo(new byte[] { 1, 16 });
+            Assertions.assertThat(result2.renders().get(32)).isEqualTo(new byte[] { 2, 32 });
+            Assertions.assertThat(result3.renders().get(16)).isEqualTo(new byte[] { 3, 16 });
+
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<List<HvifRenderRequest>> captor = ArgumentCaptor.forClass(List.class);
+            Mockito.verify(hvifRenderingService, Mockito.times(2)).renderBatch(captor.capture());
+            Assertions.assertThat(captor.getAllValues().get(0)).hasSize(1);
+            Assertions.assertThat(captor.getAllValues().get(1)).hasSize(2);
+        }
+    }
+
+    /**
+     * <p>If one of the requests in a batch could not be rendered then the other requests in the
+     * same batch should still complete with their renders.</p>
+     */
+
+    @Test
+    public void testSubmit_failureIsolated() throws Exception {
+        CountDownLatch firstBatchStartedLatch = new CountDownLatch(1);
+        CountDownLatch firstBatchReleaseLatch = new CountDownLatch(1);
+        HvifRenderingService hvifRenderingService = Mockito.mock(HvifRenderingService.class);
+        Mockito.when(hvifRenderingService.renderBatch(Mockito.anyList())).thenAnswer(invocation -> {
+            List<HvifRenderRequest> requests = invocation.getArgument(0);
+            if (firstBatchStartedLatch.getCount() > 0) {
+                firstBatchStartedLatch.countDown();
+                firstBatchReleaseLatch.await(10, TimeUnit.SECONDS);
+            }
+            return requests.stream()
+                    .map(r -> 2 == r.input()[0]
+                            ? new HvifRenderResult(Map.of(), Map.of(16, "bad icon", 32, "bad icon"))
+                            : fakeRenderBatch(List.of(r)).getFirst())
+                    .toList();
+        });
+
+        try (HvifRenderingBatcher batcher = new HvifRenderingBatcher(hvifRenderingService, 10, 100)) {
+
+            // ---------------------------------
+            CompletableFuture<HvifRenderResult> future1 = batcher.submit(createRequest((byte) 1)).orElseThrow();
+            Assertions.assertThat(firstBatchStartedLatch.await(10, TimeUnit.SECONDS)).isTrue();
+            CompletableFuture<HvifRenderResult> future2 = batcher.submit(createRequest((byte) 2)).orElseThrow();
+            CompletableFuture<HvifRenderResult> future3 = batcher.submit(createRequest((byte) 3)).orElseThrow();
+            firstBatchReleaseLatch.countDown();
+            HvifRenderResult result2 = future2.get(10, TimeUnit.SECONDS);
+            HvifRenderResult result3 = future3.get(10, TimeUnit.SECONDS);
+            // ---------------------------------
+
+            Assertions.assertThat(future1.get(10, TimeUnit.SECONDS).renders()).hasSize(2);
+            Assertions.assertThat(result2.renders()).isEmpty();
+            Assertions.assertThat(result2.failures().keySet()).containsOnly(16, 32);
+            Assertions.assertThat(result3.renders().get(32)).isEqualTo(new byte[] { 3, 32 });
+            Assertions.assertThat(result3.failures()).isEmpty();
+        }
+    }
+
+    @Test
+    public void testSubmit_failed() throws Exception {
+        HvifRenderingService hvifRenderingService = Mockito.mock(HvifRenderingService.class);
+        Mockito.when(hvifRenderingService.renderBatch(Mockito.anyList())).thenThrow(new IOException("test"));
+
+        try (HvifRenderingBatcher batcher = new HvifRenderingBatcher(hvifRenderingService, 10, 100)) {
+
+            // ---------------------------------
+            CompletableFuture<HvifRenderResult> future = batcher.submit(createRequest((byte) 1)).orElseThrow();
+            // ---------------------------------
+
+            org.junit.jupiter.api.Assertions.assertThrows(
+                    ExecutionException.class,
+                    () -> future.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+}
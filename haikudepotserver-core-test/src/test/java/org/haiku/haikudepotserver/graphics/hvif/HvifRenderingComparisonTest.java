@@ -0,0 +1,140 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.graphics.hvif;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.fest.assertions.Assertions;
+import org.haiku.haikudepotserver.graphics.GraphicsServerClient;
+import org.haiku.haikudepotserver.graphics.bitmap.PngCodec;
+import org.haiku.haikudepotserver.graphics.bitmap.RgbaImage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * <p>Compares the in-process rendering of HVIF icons with the rendering by the
+ * <code>hvif2png</code> tool on the graphics server.  The anti-aliasing of the two renderers is
+ * not identical so the images are compared within a tolerance.  This is not run as part of the
+ * normal build; to run it, start the graphics server and supply its base URI as a system
+ * property;</p>
+ *
+ * <pre>
+ * ./mvnw -pl haikudepotserver-core-test test \
+ *   -Dtest=HvifRenderingComparisonTest \
+ *   -Dhds.benchmark.graphics-server.base-uri=http://localhost:8085
+ * </pre>
+ */
+
+@EnabledIfSystemProperty(named = HvifRenderingComparisonTest.PROPERTY_BASE_URI, matches = ".+")
+public class HvifRenderingComparisonTest {
+
+    protected final static Logger LOGGER = LoggerFactory.getLogger(HvifRenderingComparisonTest.class);
+
+    final static String PROPERTY_BASE_URI = "hds.benchmark.graphics-server.base-uri";
+
+    private final static List<String> LEAFNAMES = List.of("/sample.hvif", "/sample-generic.hvif");
+
+    private final static int[] SIZES = new int[] { 16, 32, 64, 128 };
+
+    /**
+     * <p>The mean difference of each component across the whole image.</p>
+     */
+
+    private final static double MAX_MEAN_DIFFERENCE = 2.0;
+
+    /**
+     * <p>A pixel is considered different if any component differs by more than this.</p>
+     */
+
+    private final static int PIXEL_DIFFERENCE_THRESHOLD = 32;
+
+    /**
+     * <p>The proportion of pixels that may be different; these will be on the edges of the
+     * shapes.</p>
+     */
+
+    private final static double MAX_DIFFERENT_PIXELS_RATIO = 0.02;
+
+    @Test
+    public void testCompare() throws IOException {
+        HvifRenderingService server = new ServerHvifRenderingServiceImpl(new GraphicsServerClient(
+                System.getProperty(PROPERTY_BASE_URI),
+                Duration.ofSeconds(5),
+                Duration.ofSeconds(30),
+                new SimpleMeterRegistry()));
+        HvifRenderingService inProcess = new InProcessHvifRenderingServiceImpl();
+
+        for (String leafname : LEAFNAMES) {
+            byte[] data = HvifRendererTest.getData(leafname);
+
+            for (int size : SIZES) {
+
+                // ---------------------------------
+                RgbaImage expected = PngCodec.read(new ByteArrayInputStream(server.render(size, data)));
+                RgbaImage actual = PngCodec.read(new ByteArrayInputStream(inProcess.render(size, data)));
+                // ---------------------------------
+
+                Assertions.assertThat(actual.width()).isEqualTo(expected.width());
+                Assertions.assertThat(actual.height()).isEqualTo(expected.height());
+
+                long totalDifference = 0;
+                int differentPixels = 0;
+
+                for (int i = 0; i < expected.pixels().length; i++) {
+                    int[] differences = differences(expected.pixels()[i], actual.pixels()[i]);
+                    int maxDifference = 0;
+
+                    for (int difference : differences) {
+                        totalDifference += difference;
+                        maxDifference = Math.max(maxDifference, difference);
+                    }
+
+                    if (maxDifference > PIXEL_DIFFERENCE_THRESHOLD) {
+                        differentPixels++;
+                    }
+                }
+
+                int pixelCount = expected.pixels().length;
+                double meanDifference = (double) totalDifference / (pixelCount * 4.0);
+                double differentPixelsRatio = (double) differentPixels / pixelCount;
+
+                LOGGER.info("[{}] at {}px; mean difference {}, different pixels {}",
+                        leafname, size,
+                        String.format("%.3f", meanDifference),
+                        String.format("%.3f", differentPixelsRatio));
+
+                Assertions.assertThat(meanDifference).isLessThanOrEqualTo(MAX_MEAN_DIFFERENCE);
+                Assertions.assertThat(differentPixelsRatio).isLessThanOrEqualTo(MAX_DIFFERENT_PIXELS_RATIO);
+            }
+        }
+    }
+
+    /**
+     * <p>The colour of a fully transparent pixel is not visible so it is not compared.</p>
+     */
+
+    private static int[] differences(int expected, int actual) {
+        int alphaDifference = Math.abs(RgbaImage.alpha(expected) - RgbaImage.alpha(actual));
+
+        if (0 == RgbaImage.alpha(expected) || 0 == RgbaImage.alpha(actual)) {
+            return new int[] { alphaDifference };
+        }
+
+        return new int[] {
+                alphaDifference,
+                Math.abs(RgbaImage.red(expected) - RgbaImage.red(actual)),
+                Math.abs(RgbaImage.green(expected) - RgbaImage.green(actual)),
+                Math.abs(RgbaImage.blue(expected) - RgbaImage.blue(actual))
+        };
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.graphics.hvif;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.fest.assertions.Assertions;
+import org.haiku.haikudepotserver.graphics.GraphicsServerClient;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+public class ServerHvifRenderingServiceImplTest {
+
+    private static byte[] createTar(String... namesAndContents) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try (TarArchiveOutputStream tarOutputStream = new TarArchiveOutputStream(outputStream)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                byte[] data = namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8);
+                TarArchiveEntry entry = new TarArchiveEntry(namesAndContents[i]);
+                entry.setSize(data.length);
+                tarOutputStream.putArchiveEntry(entry);
+                tarOutputStream.write(data);
+                tarOutputStream.closeArchiveEntry();
+            }
+
+            tarOutputStream.finish();
+        }
+
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testReadBatchResponseData_mixed() throws Exception {
+        byte[] responseData = createTar(
+                "0/32.png", "png-0-32",
+                "0/64.error", "bad icon",
+                "1/32.png", "png-1-32",
+                "2/16.error", "bad icon");
+
+        // ---------------------------------
+        List<HvifRenderResult> results = ServerHvifRenderingServiceImpl.readBatchResponseData(
+                new ByteArrayInputStream(responseData), 3);
+        // ---------------------------------
+
+        Assertions.assertThat(results).hasSize(3);
+
+        Assertions.assertThat(results.get(0).renders().keySet()).containsOnly(32);
+        Assertions.assertThat(results.get(0).renders().get(32)).isEqualTo(bytes("png-0-32"));
+        Assertions.assertThat(results.get(0).failures().keySet()).containsOnly(64);
+        Assertions.assertThat(results.get(0).failures().get(64)).isEqualTo("bad icon");
+
+        Assertions.assertThat(results.get(1).renders().get(32)).isEqualTo(bytes("png-1-32"));
+        Assertions.assertThat(results.get(1).failures()).isEmpty();
+
+        Assertions.assertThat(results.get(2).renders()).isEmpty();
+        Assertions.assertThat(results.get(2).failures().keySet()).containsOnly(16);
+    }
+
+    @Test
+    public void testReadBatchResponseData_badIndex() throws Exception {
+        byte[] responseData = createTar("3/32.png", "png-3-32");
+
+        org.junit.jupiter.api.Assertions.assertThrows(
+                IOException.class,
+                () -> ServerHvifRenderingServiceImpl.readBatchResponseData(new ByteArrayInputStream(responseData), 3));
+    }
+
+    /**
+     * <p>A size that the graphics server reported as failed should not be sent again but a size
+     * that is missing from the response should be rendered on its own. A failure of that render
+     * should only affect its own request.</p>
+     */
+
+    @Test
+    public void testRenderBatch_failuresNotRetried() throws Exception {
+        GraphicsServerClient graphicsServerClient = Mockito.mock(GraphicsServerClient.class);
+        Mockito.when(graphicsServerClient.uriBuilder(Mockito.any(String[].class)))
+                .thenAnswer(invocation -> UriComponentsBuilder.fromUriString("http://localhost/__gfx/test"));
+        Mockito.when(graphicsServerClient.post(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(createTar(
+                        "0/16.png", "png-0-16",
+                        "0/32.error", "bad icon",
+                        "1/16.png", "png-1-16"));
+        Mockito.when(graphicsServerClient.postAsync(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("unavailable")));
+
+        ServerHvifRenderingServiceImpl service = new ServerHvifRenderingServiceImpl(graphicsServerClient);
+
+        // ---------------------------------
+        List<HvifRenderResult> results = service.renderBatch(List.of(
+                new HvifRenderRequest(bytes("hvif-0"), Set.of(16, 32)),
+                new HvifRenderRequest(bytes("hvif-1"), Set.of(16, 32))));
+        // ---------------------------------
+
+        Assertions.assertThat(results.get(0).renders().keySet()).containsOnly(16);
+        Assertions.assertThat(results.get(0).failures().get(32)).isEqualTo("bad icon");
+        Assertions.assertThat(results.get(1).renders().keySet()).containsOnly(16);
+        Assertions.assertThat(results.get(1).failures().get(32)).isEqualTo("unavailable");
+
+        // only the missing size of the second request is rendered again.
+        Mockito.verify(graphicsServerClient, Mockito.times(1)).postAsync(
+                Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.any());
+        Mockito.verify(graphicsServerClient).postAsync(
+                Mockito.anyString(),
+                Mockito.argThat((URI uri) -> uri.toString().endsWith("sz=32")),
+                Mockito.any(),
+                Mockito.any());
+    }
+
+}
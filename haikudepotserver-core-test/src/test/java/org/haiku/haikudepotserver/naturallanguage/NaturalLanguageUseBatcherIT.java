@@ -0,0 +1,109 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.naturallanguage;
+
+import org.apache.cayenne.ObjectContext;
+import org.fest.assertions.Assertions;
+import org.haiku.haikudepotserver.AbstractIntegrationTest;
+import org.haiku.haikudepotserver.config.TestConfig;
+import org.haiku.haikudepotserver.dataobjects.NaturalLanguage;
+import org.haiku.haikudepotserver.dataobjects.NaturalLanguageUse;
+import org.haiku.haikudepotserver.naturallanguage.model.NaturalLanguageCoordinates;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+
+@ContextConfiguration(classes = TestConfig.class)
+public class NaturalLanguageUseBatcherIT extends AbstractIntegrationTest {
+
+    /**
+     * <p>The uses that have not yet been written are still reported as recent uses.</p>
+     */
+
+    @Test
+    public void testNaturalLanguagesUsedSince_notWritten() {
+        Instant since = Instant.now().minus(Duration.ofMinutes(1));
+
+        // ------------------------------------
+        naturalLanguageService.updateUse(NaturalLanguageCoordinates.fromCode("mi"));
+        Set<NaturalLanguageCoordinates> result = naturalLanguageService.naturalLanguagesUsedSince(since);
+        // ------------------------------------
+
+        Assertions.assertThat(result).containsOnly(NaturalLanguageCoordinates.fromCode("mi"));
+    }
+
+    /**
+     * <p>The natural language comes from the request and so may not be known; a use of an
+     * unknown natural language should not be retained.</p>
+     */
+
+    @Test
+    public void testNaturalLanguagesUsedSince_unknown() {
+        Instant since = Instant.now().minus(Duration.ofMinutes(1));
+
+        // ------------------------------------
+        naturalLanguageService.updateUse(NaturalLanguageCoordinates.fromCode("zz"));
+        Set<NaturalLanguageCoordinates> result = naturalLanguageService.naturalLanguagesUsedSince(since);
+        // ------------------------------------
+
+        Assertions.assertThat(result).isEmpty();
+    }
+
+    /**
+     * <p>A use of a natural language with an existing use is added to it and a use of a natural
+     * language without one creates it.</p>
+     */
+
+    @Test
+    public void testFlush() {
+        {
+            ObjectContext context = serverRuntime.newContext();
+            NaturalLanguageUse maoriUse = context.newObject(NaturalLanguageUse.class);
+            maoriUse.setNaturalLanguage(NaturalLanguage.getByCode(context, "mi"));
+            maoriUse.setCount(6L);
+            maoriUse.setLastUseTimestamp(new java.sql.Timestamp(Instant.now().minus(Duration.ofDays(3)).toEpochMilli()));
+            context.commitChanges();
+        }
+
+        naturalLanguageService.updateUse(NaturalLanguageCoordinates.fromCode("mi"));
+        naturalLanguageService.updateUse(NaturalLanguageCoordinates.fromCode("mi"));
+        naturalLanguageService.updateUse(NaturalLanguageCoordinates.fromCode("de"));
+
+        // ------------------------------------
+        naturalLanguageUseBatcher.flush();
+        // ------------------------------------
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            Instant recently = Instant.now().minus(Duration.ofMinutes(1));
+
+            NaturalLanguageUse maoriUse = NaturalLanguageUse.getForNaturalLanguage(
+                    context, NaturalLanguage.getByCode(context, "mi"));
+            Assertions.assertThat(maoriUse.getCount()).isEqualTo(8L);
+            Assertions.assertThat(maoriUse.getLastUseTimestamp().toInstant().isAfter(recently)).isTrue();
+
+            NaturalLanguageUse germanUse = NaturalLanguageUse.getForNaturalLanguage(
+                    context, NaturalLanguage.getByCode(context, "de"));
+            Assertions.assertThat(germanUse.getCount()).isEqualTo(1L);
+            Assertions.assertThat(germanUse.getLastUseTimestamp().toInstant().isAfter(recently)).isTrue();
+        }
+
+        // once written, the uses are not written again.
+
+        naturalLanguageUseBatcher.flush();
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            NaturalLanguageUse maoriUse = NaturalLanguageUse.getForNaturalLanguage(
+                    context, NaturalLanguage.getByCode(context, "mi"));
+            Assertions.assertThat(maoriUse.getCount()).isEqualTo(8L);
+        }
+    }
+
+}
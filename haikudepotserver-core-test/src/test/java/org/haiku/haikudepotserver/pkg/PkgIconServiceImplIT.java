@@ -1,5 +1,5 @@
 /*
- * Copyright 2018-2024, Andrew Lindesay
+ * Copyright 2018-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
@@ -206,6 +206,56 @@ public class PkgIconServiceImplIT extends AbstractIntegrationTest {
 
     }
 
+    /**
+     * <p>When the same icon is stored for a second package, the image data should be shared
+     * with the first package rather than being stored again.</p>
+     */
+
+    @Test
+    public void testStorePkgIconImage_sameDataShared() throws Exception {
+
+        integrationTestSupportService.createStandardTestData();
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            org.haiku.haikudepotserver.dataobjects.Pkg pkg2 =
+                    org.haiku.haikudepotserver.dataobjects.Pkg.getByName(context, "pkg2");
+            MediaType pngMediaType = MediaType.getByCode(context, com.google.common.net.MediaType.PNG.toString());
+
+            try(InputStream inputStream = Resources.asByteSource(Resources.getResource("sample-32x32.png")).openStream()) {
+
+                // ---------------------------------
+                pkgIconService.storePkgIconImage(
+                        inputStream,
+                        pngMediaType,
+                        32,
+                        context,
+                        new UserPkgSupplementModificationAgent(null),
+                        pkg2.getPkgSupplement());
+                // ---------------------------------
+
+            }
+
+            context.commitChanges();
+        }
+
+        // now verify that both packages' icons refer to the same image data.
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            MediaType pngMediaType = MediaType.getByCode(context, com.google.common.net.MediaType.PNG.toString());
+            PkgIconImage pkg1PkgIconImage = org.haiku.haikudepotserver.dataobjects.Pkg.getByName(context, "pkg1")
+                    .getPkgSupplement().getPkgIcon(pngMediaType, 32).getPkgIconImage();
+            PkgIconImage pkg2PkgIconImage = org.haiku.haikudepotserver.dataobjects.Pkg.getByName(context, "pkg2")
+                    .getPkgSupplement().getPkgIcon(pngMediaType, 32).getPkgIconImage();
+
+            Assertions.assertThat(pkg2PkgIconImage.getImageBlob()).isSameAs(pkg1PkgIconImage.getImageBlob());
+            Assertions.assertThat(pkg2PkgIconImage.getHashSha256())
+                    .isEqualTo("da4d440ca6667857d5c2fd7414160b854a93bbbb38a52324000c4275e1850b43");
+        }
+
+    }
+
     /**
      * <p>When a "_devel" package exists and an update is made to the icon of the parent
      * package then the icon should be visible from the "_devel" package too. The `pkg1` and
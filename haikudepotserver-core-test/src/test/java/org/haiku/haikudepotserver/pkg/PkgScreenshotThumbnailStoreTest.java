@@ -0,0 +1,115 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.pkg;
+
+import com.google.common.io.ByteSink;
+import org.fest.assertions.Assertions;
+import org.haiku.haikudepotserver.storage.model.DataStorageService;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PkgScreenshotThumbnailStoreTest {
+
+    private final static String CODE = "a7b8c2e1-5d1f-4b8e-9c11-3e0f7f3b7a10";
+
+    private final static String HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    private final static byte[] PNG_DATA = new byte[] { 4, 5, 6 };
+
+    private final static List<String> STANDARD_SIZES = List.of("160x120", "640x480");
+
+    @Test
+    public void testGet_thumbnailedOnce() throws Exception {
+        DataStorageService dataStorageService = Mockito.mock(DataStorageService.class);
+        String key = PkgScreenshotThumbnailStore.createKey(CODE, HASH, 160, 120);
+        ByteArrayOutputStream storedOutputStream = new ByteArrayOutputStream();
+        Mockito.doReturn(Optional.empty()).when(dataStorageService).get(key);
+        Mockito.when(dataStorageService.put(key)).thenReturn(new ByteSink() {
+            @Override
+            public ByteArrayOutputStream openStream() {
+                return storedOutputStream;
+            }
+        });
+        PkgScreenshotThumbnailStore store = new PkgScreenshotThumbnailStore(dataStorageService, 1024L * 1024L, STANDARD_SIZES);
+        AtomicInteger thumbnailCount = new AtomicInteger();
+
+        // ---------------------------------
+        store.get(CODE, HASH, 160, 120, () -> { thumbnailCount.incrementAndGet(); return PNG_DATA; });
+        byte[] result = store.get(CODE, HASH, 160, 120, () -> { thumbnailCount.incrementAndGet(); return PNG_DATA; });
+        // ---------------------------------
+
+        Assertions.assertThat(result).isEqualTo(PNG_DATA);
+        Assertions.assertThat(thumbnailCount.get()).isEqualTo(1);
+        Assertions.assertThat(storedOutputStream.toByteArray()).isEqualTo(PNG_DATA);
+    }
+
+    /**
+     * <p>Thumbnails at sizes other than the standard sizes are held in memory but are not
+     * stored.</p>
+     */
+
+    @Test
+    public void testGet_nonStandardSizeNotStored() throws Exception {
+        DataStorageService dataStorageService = Mockito.mock(DataStorageService.class);
+        PkgScreenshotThumbnailStore store = new PkgScreenshotThumbnailStore(dataStorageService, 1024L * 1024L, STANDARD_SIZES);
+        AtomicInteger thumbnailCount = new AtomicInteger();
+
+        // ---------------------------------
+        store.get(CODE, HASH, 161, 121, () -> { thumbnailCount.incrementAndGet(); return PNG_DATA; });
+        byte[] result = store.get(CODE, HASH, 161, 121, () -> { thumbnailCount.incrementAndGet(); return PNG_DATA; });
+        // ---------------------------------
+
+        Assertions.assertThat(result).isEqualTo(PNG_DATA);
+        Assertions.assertThat(thumbnailCount.get()).isEqualTo(1);
+        Mockito.verify(dataStorageService, Mockito.never()).get(Mockito.anyString());
+        Mockito.verify(dataStorageService, Mockito.never()).put(Mockito.anyString());
+    }
+
+    @Test
+    public void testGet_evicted() throws Exception {
+        DataStorageService dataStorageService = Mockito.mock(DataStorageService.class);
+        Mockito.doReturn(Optional.empty()).when(dataStorageService).get(Mockito.anyString());
+        PkgScreenshotThumbnailStore store = new PkgScreenshotThumbnailStore(dataStorageService, 1024L * 1024L, STANDARD_SIZES);
+        AtomicInteger thumbnailCount = new AtomicInteger();
+        store.get(CODE, HASH, 160, 120, () -> { thumbnailCount.incrementAndGet(); return PNG_DATA; });
+
+        // ---------------------------------
+        store.evict(CODE);
+        // ---------------------------------
+
+        store.get(CODE, HASH, 160, 120, () -> { thumbnailCount.incrementAndGet(); return PNG_DATA; });
+        Assertions.assertThat(thumbnailCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testTryGetCodeAndHashFromKey() {
+        String key = PkgScreenshotThumbnailStore.createKey(CODE, HASH, 640, 480);
+
+        // ---------------------------------
+        Optional<String> result = PkgScreenshotThumbnailStore.tryGetCodeAndHashFromKey(key);
+        // ---------------------------------
+
+        Assertions.assertThat(result.orElseThrow()).isEqualTo(PkgScreenshotThumbnailStore.createCodeAndHash(CODE, HASH));
+        Assertions.assertThat(PkgScreenshotThumbnailStore.tryGetCodeAndHashFromKey("f1bd4e0c-job-data").isPresent()).isFalse();
+    }
+
+    @Test
+    public void testTryGetSizeFromKey() {
+        String key = PkgScreenshotThumbnailStore.createKey(CODE, HASH, 640, 480);
+
+        // ---------------------------------
+        Optional<PkgScreenshotThumbnailStore.Size> result = PkgScreenshotThumbnailStore.tryGetSizeFromKey(key);
+        // ---------------------------------
+
+        Assertions.assertThat(result.orElseThrow()).isEqualTo(new PkgScreenshotThumbnailStore.Size(640, 480));
+        Assertions.assertThat(PkgScreenshotThumbnailStore.tryGetSizeFromKey("f1bd4e0c-job-data").isPresent()).isFalse();
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.pkg;
+
+import jakarta.annotation.Resource;
+import org.apache.cayenne.ObjectContext;
+import org.apache.cayenne.ObjectId;
+import org.apache.cayenne.query.SelectById;
+import org.fest.assertions.Assertions;
+import org.haiku.haikudepotserver.AbstractIntegrationTest;
+import org.haiku.haikudepotserver.IntegrationTestSupportService;
+import org.haiku.haikudepotserver.config.TestConfig;
+import org.haiku.haikudepotserver.dataobjects.PkgVersion;
+import org.haiku.haikudepotserver.pkg.model.PkgService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@ContextConfiguration(classes = TestConfig.class)
+public class PkgVersionViewCounterBatcherIT extends AbstractIntegrationTest {
+
+    private final static int THREADS = 8;
+
+    private final static int VIEWS_PER_THREAD = 2500;
+
+    @Resource
+    private PkgService pkgService;
+
+    @Resource
+    private IntegrationTestSupportService integrationTestSupportService;
+
+    /**
+     * <p>Many threads view two package versions while the views are being written to the
+     * database at the same time. None of the views should be lost.</p>
+     */
+
+    @Test
+    public void testIncrementViewCounter_concurrent() throws Exception {
+        IntegrationTestSupportService.StandardTestData data = integrationTestSupportService.createStandardTestData();
+        ObjectId pkgVersionOid1 = data.pkg1Version1x86_64.getObjectId();
+        ObjectId pkgVersionOid2 = data.pkg2Version1.getObjectId();
+
+        CountDownLatch startLatch = new CountDownLatch(1);
+        AtomicBoolean viewing = new AtomicBoolean(true);
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS + 1);
+
+        try {
+            Future<?> flushFuture = executorService.submit(() -> {
+                while (viewing.get()) {
+                    pkgVersionViewCounterBatcher.flush();
+                }
+            });
+
+            List<Future<?>> viewFutures = new ArrayList<>();
+
+            for (int t = 0; t < THREADS; t++) {
+                viewFutures.add(executorService.submit(() -> {
+                    startLatch.await();
+
+                    for (int i = 0; i < VIEWS_PER_THREAD; i++) {
+                        pkgService.incrementViewCounter(0 == i % 2 ? pkgVersionOid1 : pkgVersionOid2);
+                    }
+
+                    return null;
+                }));
+            }
+
+            // ------------------------------------
+            startLatch.countDown();
+
+            for (Future<?> viewFuture : viewFutures) {
+                viewFuture.get(1, TimeUnit.MINUTES);
+            }
+
+            viewing.set(false);
+            flushFuture.get(1, TimeUnit.MINUTES);
+            pkgVersionViewCounterBatcher.flush();
+            // ------------------------------------
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            long expected = (THREADS * VIEWS_PER_THREAD) / 2;
+            Assertions.assertThat(SelectById.query(PkgVersion.class, pkgVersionOid1).selectOne(context).getViewCounter()).isEqualTo(expected);
+            Assertions.assertThat(SelectById.query(PkgVersion.class, pkgVersionOid2).selectOne(context).getViewCounter()).isEqualTo(expected);
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.pkg;
+
+import com.google.common.io.ByteSink;
+import com.google.common.io.ByteSource;
+import org.fest.assertions.Assertions;
+import org.haiku.haikudepotserver.graphics.hvif.HvifRenderingService;
+import org.haiku.haikudepotserver.storage.model.DataStorageService;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Optional;
+
+public class RenderedPkgIconStoreTest {
+
+    private final static byte[] HVIF_DATA = new byte[] { 'n', 'c', 'i', 'f', 1, 2, 3 };
+
+    private final static byte[] PNG_DATA = new byte[] { 4, 5, 6 };
+
+    @Test
+    public void testRender_stored() throws Exception {
+        HvifRenderingService hvifRenderingService = Mockito.mock(HvifRenderingService.class);
+        DataStorageService dataStorageService = Mockito.mock(DataStorageService.class);
+        String key = RenderedPkgIconStore.createKey(RenderedPkgIconStore.createHash(HVIF_DATA), 64);
+        Mockito.doReturn(Optional.of(ByteSource.wrap(PNG_DATA))).when(dataStorageService).get(key);
+        RenderedPkgIconStore store = new RenderedPkgIconStore(hvifRenderingService, dataStorageService, List.of(32), 3);
+
+        // ---------------------------------
+        byte[] result = store.render(64, HVIF_DATA);
+        // ---------------------------------
+
+        Assertions.assertThat(result).isEqualTo(PNG_DATA);
+        Mockito.verifyNoInteractions(hvifRenderingService);
+        store.tearDown();
+    }
+
+    @Test
+    public void testRender_notStored() throws Exception {
+        HvifRenderingService hvifRenderingService = Mockito.mock(HvifRenderingService.class);
+        Mockito.when(hvifRenderingService.render(64, HVIF_DATA)).thenReturn(PNG_DATA);
+        DataStorageService dataStorageService = Mockito.mock(DataStorageService.class);
+        String key = RenderedPkgIconStore.createKey(RenderedPkgIconStore.createHash(HVIF_DATA), 64);
+        ByteArrayOutputStream storedOutputStream = new ByteArrayOutputStream();
+        Mockito.doReturn(Optional.empty()).when(dataStorageService).get(key);
+        Mockito.when(dataStorageService.put(key)).thenReturn(new ByteSink() {
+            @Override
+            public ByteArrayOutputStream openStream() {
+                return storedOutputStream;
+            }
+        });
+        RenderedPkgIconStore store = new RenderedPkgIconStore(hvifRenderingService, dataStorageService, List.of(32), 3);
+
+        // ---------------------------------
+        byte[] result = store.render(64, HVIF_DATA);
+        // ---------------------------------
+
+        Assertions.assertThat(result).isEqualTo(PNG_DATA);
+        Assertions.assertThat(storedOutputStream.toByteArray()).isEqualTo(PNG_DATA);
+        Assertions.assertThat(store.getPrewarmSizes()).isEqualTo(List.of(64));
+        store.tearDown();
+    }
+
+    @Test
+    public void testTryGetHashFromKey() {
+        String hash = RenderedPkgIconStore.createHash(HVIF_DATA);
+
+        // ---------------------------------
+        Optional<String> result = RenderedPkgIconStore.tryGetHashFromKey(RenderedPkgIconStore.createKey(hash, 32));
+        // ---------------------------------
+
+        Assertions.assertThat(result.orElseThrow()).isEqualTo(hash);
+        Assertions.assertThat(RenderedPkgIconStore.tryGetHashFromKey("f1bd4e0c-job-data").isPresent()).isFalse();
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.pkg.job;
+
+import jakarta.annotation.Resource;
+import org.apache.cayenne.ObjectContext;
+import org.fest.assertions.Assertions;
+import org.haiku.haikudepotserver.AbstractIntegrationTest;
+import org.haiku.haikudepotserver.config.TestConfig;
+import org.haiku.haikudepotserver.dataobjects.ImageBlob;
+import org.haiku.haikudepotserver.job.model.JobService;
+import org.haiku.haikudepotserver.pkg.model.ImageBlobGarbageCollectionJobSpecification;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+
+@ContextConfiguration(classes = TestConfig.class)
+public class ImageBlobGarbageCollectionJobRunnerIT extends AbstractIntegrationTest {
+
+    @Resource
+    private JobService jobService;
+
+    /**
+     * <p>A blob is stored before anything that refers to it is committed so a recently created
+     * blob should be left alone; an older one with no references should be deleted.</p>
+     */
+
+    @Test
+    public void testRun() {
+        byte[] recentData = "recent".getBytes(StandardCharsets.UTF_8);
+        byte[] oldData = "old".getBytes(StandardCharsets.UTF_8);
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            ImageBlob.getOrCreate(context, recentData);
+            ImageBlob oldImageBlob = ImageBlob.getOrCreate(context, oldData);
+            oldImageBlob.setCreateTimestamp(new Timestamp(Clock.systemUTC().millis() - Duration.ofDays(1).toMillis()));
+            context.commitChanges();
+        }
+
+        // ------------------------------------
+        jobService.immediate(new ImageBlobGarbageCollectionJobSpecification(), false);
+        // ------------------------------------
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            Assertions.assertThat(ImageBlob.tryGetByHashSha256(context, ImageBlob.createHashSha256(recentData)).isPresent()).isTrue();
+            Assertions.assertThat(ImageBlob.tryGetByHashSha256(context, ImageBlob.createHashSha256(oldData)).isPresent()).isFalse();
+        }
+    }
+
+    /**
+     * <p>An old blob with no references that is used again should be left alone while the
+     * context using it is committed.</p>
+     */
+
+    @Test
+    public void testRun_oldBlobReused() {
+        byte[] data = "reused".getBytes(StandardCharsets.UTF_8);
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            ImageBlob imageBlob = ImageBlob.getOrCreate(context, data);
+            imageBlob.setCreateTimestamp(new Timestamp(Clock.systemUTC().millis() - Duration.ofDays(1).toMillis()));
+            context.commitChanges();
+        }
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            ImageBlob.getOrCreate(context, data);
+        }
+
+        // ------------------------------------
+        jobService.immediate(new ImageBlobGarbageCollectionJobSpecification(), false);
+        // ------------------------------------
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            Assertions.assertThat(ImageBlob.tryGetByHashSha256(context, ImageBlob.createHashSha256(data)).isPresent()).isTrue();
+        }
+    }
+
+    /**
+     * <p>The same data stored from two contexts should result in a single blob even though
+     * neither context has been committed.</p>
+     */
+
+    @Test
+    public void testGetOrCreate_sameDataInTwoContexts() {
+        byte[] data = "shared".getBytes(StandardCharsets.UTF_8);
+        ObjectContext context1 = serverRuntime.newContext();
+        ObjectContext context2 = serverRuntime.newContext();
+
+        // ------------------------------------
+        ImageBlob imageBlob1 = ImageBlob.getOrCreate(context1, data);
+        ImageBlob imageBlob2 = ImageBlob.getOrCreate(context2, data);
+        // ------------------------------------
+
+        Assertions.assertThat(imageBlob2.getObjectId()).isEqualTo(imageBlob1.getObjectId());
+    }
+
+}
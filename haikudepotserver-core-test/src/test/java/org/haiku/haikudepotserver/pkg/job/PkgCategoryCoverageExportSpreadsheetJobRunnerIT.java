@@ -1,5 +1,5 @@
 /*
- * Copyright 2018-2025, Andrew Lindesay
+ * Copyright 2018-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
@@ -22,6 +22,7 @@ import org.springframework.test.context.ContextConfiguration;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Optional;
 
 @ContextConfiguration(classes = TestConfig.class)
@@ -71,4 +72,43 @@ public class PkgCategoryCoverageExportSpreadsheetJobRunnerIT extends AbstractInt
 
     }
 
+    /**
+     * <p>The spreadsheet is later imported again so the development package and the package that only has a
+     * version for the source architecture should be exported as well.</p>
+     */
+
+    @Test
+    public void testRun_developmentPkgs() throws IOException {
+
+        integrationTestSupportService.createStandardTestData();
+        integrationTestSupportService.createDevelopmentPkgs();
+
+        // ------------------------------------
+        String guid = jobService.submit(
+                new PkgCategoryCoverageExportSpreadsheetJobSpecification(),
+                JobSnapshot.COALESCE_STATUSES_NONE);
+        // ------------------------------------
+
+        jobService.awaitJobFinishedUninterruptibly(guid, 10000);
+        Optional<? extends JobSnapshot> snapshotOptional = jobService.tryGetJob(guid);
+        Assertions.assertThat(snapshotOptional.get().getStatus()).isEqualTo(JobSnapshot.Status.FINISHED);
+
+        String dataGuid = snapshotOptional
+                .get()
+                .getGeneratedDataGuids()
+                .stream()
+                .collect(SingleCollector.single());
+
+        List<String> pkgNameCells = jobService.tryObtainData(dataGuid).get()
+                .getByteSource()
+                .asCharSource(StandardCharsets.UTF_8)
+                .readLines()
+                .stream()
+                .map(line -> line.substring(0, line.indexOf(',')))
+                .toList();
+
+        Assertions.assertThat(pkgNameCells).isEqualTo(List.of(
+                "\"pkg-name\"", "\"pkg1\"", "\"pkg1_devel\"", "\"pkg2\"", "\"pkg3\"", "\"pkgany\"", "\"pkgsrc\""));
+    }
+
 }
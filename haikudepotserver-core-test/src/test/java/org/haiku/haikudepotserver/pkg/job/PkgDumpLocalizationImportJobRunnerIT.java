@@ -1,5 +1,5 @@
 /*
- * Copyright 2024, Andrew Lindesay
+ * Copyright 2024-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 package org.haiku.haikudepotserver.pkg.job;
@@ -395,6 +395,78 @@ public class PkgDumpLocalizationImportJobRunnerIT extends AbstractIntegrationTes
 
     }
 
+    /**
+     * <p>The items are imported together. Those items which are unable to be imported are reported as such
+     * while the others are still written.</p>
+     */
+
+    @Test
+    public void testRun_multiplePkgs() throws IOException {
+
+        integrationTestSupportService.createStandardTestData();
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            User user = integrationTestSupportService.createBasicUser(context, "samuel", "1c6002fb-bd4e-441f-bac7-7a4cc6b1e232");
+            Pkg pkgBlue = integrationTestSupportService.createPkg(context, "bluesky");
+            integrationTestSupportService.createPkg(context, "redsky");
+            Pkg pkgGreen = integrationTestSupportService.createPkg(context, "greensky");
+            integrationTestSupportService.agreeToUserUsageConditions(context, user);
+
+            // note; no permission set for redsky.
+
+            Stream.of(pkgBlue, pkgGreen).forEach(p -> createPermissionForPkg(context, user, p));
+            context.commitChanges();
+        }
+
+        PkgDumpLocalizationImportJobSpecification spec = new PkgDumpLocalizationImportJobSpecification();
+        spec.setOriginSystemDescription("flamingo");
+        spec.setOwnerUserNickname("samuel");
+        spec.setInputDataGuid(jobService.storeSuppliedData(
+                "input",
+                MediaType.CSV_UTF_8.toString(),
+                JobDataEncoding.NONE,
+                getResourceByteSource("pkg/job/pkgdumplocalizationimport/sample-multiple-pkg-change.json")
+        ).getGuid());
+
+        // ------------------------------------
+        String guid = jobService.submit(
+                spec,
+                JobSnapshot.COALESCE_STATUSES_NONE);
+        // ------------------------------------
+
+        jobService.awaitJobFinishedUninterruptibly(guid, 10000);
+        JobSnapshot snapshot = jobService.tryGetJob(guid).orElseThrow();
+        Assertions.assertThat(snapshot.getStatus()).isEqualTo(JobSnapshot.Status.FINISHED);
+        JsonNode generatedJsonNode = getOutputTreeForSnapshot(snapshot);
+
+        // the results are in the same order as the items in the input.
+
+        Assertions.assertThat(generatedJsonNode.at("/items/0/pkgName").asText()).isEqualTo("bluesky");
+        Assertions.assertThat(generatedJsonNode.at("/items/0/status").asText()).isEqualTo("UPDATED");
+        Assertions.assertThat(generatedJsonNode.at("/items/1/pkgName").asText()).isEqualTo("doesnotexist");
+        Assertions.assertThat(generatedJsonNode.at("/items/1/status").asText()).isEqualTo("NOTFOUND");
+        Assertions.assertThat(generatedJsonNode.at("/items/2/pkgName").asText()).isEqualTo("redsky");
+        Assertions.assertThat(generatedJsonNode.at("/items/2/status").asText()).isEqualTo("ERROR");
+        Assertions.assertThat(generatedJsonNode.at("/items/3/pkgName").asText()).isEqualTo("greensky");
+        Assertions.assertThat(generatedJsonNode.at("/items/3/status").asText()).isEqualTo("UPDATED");
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            NaturalLanguageCoordinates german = NaturalLanguageCoordinates.fromCode("de");
+
+            Assertions.assertThat(Pkg.getByName(context, "bluesky").getPkgSupplement()
+                    .getPkgLocalization(german).orElseThrow().getTitle()).isEqualTo("Blauer Himmel");
+            Assertions.assertThat(Pkg.getByName(context, "greensky").getPkgSupplement()
+                    .getPkgLocalization(german).orElseThrow().getSummary()).isEqualTo("Gruener Himmel");
+
+            Pkg pkgRed = Pkg.getByName(context, "redsky");
+            Assertions.assertThat(pkgRed.getPkgSupplement().getPkgLocalizations()).isEmpty();
+            Assertions.assertThat(PkgSupplementModification.findForPkg(context, pkgRed)).isEmpty();
+        }
+
+    }
+
     private void createPermissionForPkg(ObjectContext context, User user, Pkg pkg) {
         PermissionUserPkg permissionUserPkg = context.newObject(PermissionUserPkg.class);
         permissionUserPkg.setPkg(pkg);
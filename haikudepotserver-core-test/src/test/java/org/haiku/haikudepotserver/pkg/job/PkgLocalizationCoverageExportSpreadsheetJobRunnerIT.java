@@ -0,0 +1,62 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.pkg.job;
+
+import com.google.common.io.ByteSource;
+import org.fest.assertions.Assertions;
+import org.haiku.haikudepotserver.AbstractIntegrationTest;
+import org.haiku.haikudepotserver.config.TestConfig;
+import org.haiku.haikudepotserver.job.model.JobDataWithByteSource;
+import org.haiku.haikudepotserver.job.model.JobSnapshot;
+import org.haiku.haikudepotserver.pkg.model.PkgLocalizationCoverageExportSpreadsheetJobSpecification;
+import org.haiku.haikudepotserver.support.SingleCollector;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+@ContextConfiguration(classes = TestConfig.class)
+public class PkgLocalizationCoverageExportSpreadsheetJobRunnerIT extends AbstractIntegrationTest {
+
+    /**
+     * <p>Uses the sample data and checks that the output from the report matches a captured, sensible-looking
+     * previous run. The packages span a number of pages.</p>
+     */
+
+    @Test
+    public void testRun() throws IOException {
+
+        integrationTestSupportService.createStandardTestData();
+
+        // ------------------------------------
+        String guid = jobService.submit(
+                new PkgLocalizationCoverageExportSpreadsheetJobSpecification(),
+                JobSnapshot.COALESCE_STATUSES_NONE);
+        // ------------------------------------
+
+        jobService.awaitJobFinishedUninterruptibly(guid, 10000);
+        Optional<? extends JobSnapshot> snapshotOptional = jobService.tryGetJob(guid);
+        Assertions.assertThat(snapshotOptional.get().getStatus()).isEqualTo(JobSnapshot.Status.FINISHED);
+
+        String dataGuid = snapshotOptional.get().getGeneratedDataGuids()
+                .stream()
+                .collect(SingleCollector.single());
+        JobDataWithByteSource jobSource = jobService.tryObtainData(dataGuid).get();
+        ByteSource expectedByteSource = getResourceByteSource("sample-pkglocalizationcoverageexportspreadsheet-generated.csv");
+
+        try(
+                BufferedReader jobReader = jobSource.getByteSource().asCharSource(StandardCharsets.UTF_8).openBufferedStream();
+                BufferedReader sampleReader = expectedByteSource.asCharSource(StandardCharsets.UTF_8).openBufferedStream()
+        ) {
+            assertEqualsLineByLine(sampleReader, jobReader);
+        }
+
+    }
+
+}
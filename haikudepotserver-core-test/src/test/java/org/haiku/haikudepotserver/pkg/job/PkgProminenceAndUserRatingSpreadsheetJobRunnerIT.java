@@ -0,0 +1,89 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.pkg.job;
+
+import com.google.common.io.ByteSource;
+import org.fest.assertions.Assertions;
+import org.haiku.haikudepotserver.AbstractIntegrationTest;
+import org.haiku.haikudepotserver.config.TestConfig;
+import org.haiku.haikudepotserver.job.model.JobDataWithByteSource;
+import org.haiku.haikudepotserver.job.model.JobSnapshot;
+import org.haiku.haikudepotserver.pkg.model.PkgProminenceAndUserRatingSpreadsheetJobSpecification;
+import org.haiku.haikudepotserver.support.SingleCollector;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+@ContextConfiguration(classes = TestConfig.class)
+public class PkgProminenceAndUserRatingSpreadsheetJobRunnerIT extends AbstractIntegrationTest {
+
+    /**
+     * <p>Uses the sample data and checks that the output from the report matches a captured, sensible-looking
+     * previous run. The packages fill a number of pages exactly.</p>
+     */
+
+    @Test
+    public void testRun() throws IOException {
+
+        integrationTestSupportService.createStandardTestData();
+
+        // ------------------------------------
+        String dataGuid = runJob();
+        // ------------------------------------
+
+        assertDataMatches(dataGuid, "sample-pkgprominenceanduserratingspreadsheet-generated.csv");
+    }
+
+    /**
+     * <p>The development package and the package that only has a version for the source architecture are
+     * exported as well. There are then more packages than fill the pages exactly so the last page is only
+     * partially filled.</p>
+     */
+
+    @Test
+    public void testRun_developmentPkgs() throws IOException {
+
+        integrationTestSupportService.createStandardTestData();
+        integrationTestSupportService.createDevelopmentPkgs();
+
+        // ------------------------------------
+        String dataGuid = runJob();
+        // ------------------------------------
+
+        assertDataMatches(dataGuid, "sample-pkgprominenceanduserratingspreadsheet-development-generated.csv");
+    }
+
+    private String runJob() {
+        String guid = jobService.submit(
+                new PkgProminenceAndUserRatingSpreadsheetJobSpecification(),
+                JobSnapshot.COALESCE_STATUSES_NONE);
+
+        jobService.awaitJobFinishedUninterruptibly(guid, 10000);
+        Optional<? extends JobSnapshot> snapshotOptional = jobService.tryGetJob(guid);
+        Assertions.assertThat(snapshotOptional.get().getStatus()).isEqualTo(JobSnapshot.Status.FINISHED);
+
+        return snapshotOptional.get().getGeneratedDataGuids()
+                .stream()
+                .collect(SingleCollector.single());
+    }
+
+    private void assertDataMatches(String dataGuid, String expectedResourcePath) throws IOException {
+        JobDataWithByteSource jobSource = jobService.tryObtainData(dataGuid).get();
+        ByteSource expectedByteSource = getResourceByteSource(expectedResourcePath);
+
+        try(
+                BufferedReader jobReader = jobSource.getByteSource().asCharSource(StandardCharsets.UTF_8).openBufferedStream();
+                BufferedReader sampleReader = expectedByteSource.asCharSource(StandardCharsets.UTF_8).openBufferedStream()
+        ) {
+            assertEqualsLineByLine(sampleReader, jobReader);
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.pkg.job;
+
+import jakarta.annotation.Resource;
+import org.apache.cayenne.ObjectContext;
+import org.fest.assertions.Assertions;
+import org.haiku.haikudepotserver.AbstractIntegrationTest;
+import org.haiku.haikudepotserver.IntegrationTestSupportService;
+import org.haiku.haikudepotserver.config.TestConfig;
+import org.haiku.haikudepotserver.dataobjects.Pkg;
+import org.haiku.haikudepotserver.dataobjects.PkgScreenshot;
+import org.haiku.haikudepotserver.job.model.JobService;
+import org.haiku.haikudepotserver.job.model.JobSnapshot;
+import org.haiku.haikudepotserver.pkg.PkgScreenshotThumbnailStore;
+import org.haiku.haikudepotserver.pkg.model.PkgScreenshotThumbnailJobSpecification;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.Set;
+
+@ContextConfiguration(classes = TestConfig.class)
+public class PkgScreenshotThumbnailJobRunnerIT extends AbstractIntegrationTest {
+
+    @Resource
+    private IntegrationTestSupportService integrationTestSupportService;
+
+    @Resource
+    private JobService jobService;
+
+    @Resource
+    private PkgScreenshotThumbnailStore pkgScreenshotThumbnailStore;
+
+    /**
+     * <p>After the job has run, the thumbnails at the standard sizes are stored so that they can
+     * be served without the screenshot being thumbnailed again; even once they are no longer
+     * held in memory.</p>
+     */
+
+    @Test
+    public void testRun() throws Exception {
+        integrationTestSupportService.createStandardTestData();
+
+        String code;
+        String hashSha256;
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            PkgScreenshot pkgScreenshot = Pkg.getByName(context, "pkg1").getPkgSupplement().getSortedPkgScreenshots().getFirst();
+            code = pkgScreenshot.getCode();
+            hashSha256 = pkgScreenshot.getHashSha256();
+        }
+
+        Assertions.assertThat(pkgScreenshotThumbnailStore.getStandardSizes()).isNotEmpty();
+
+        // ------------------------------------
+        String guid = jobService.immediate(new PkgScreenshotThumbnailJobSpecification(Set.of(code)), false);
+        // ------------------------------------
+
+        Assertions.assertThat(jobService.tryGetJob(guid).get().getStatus()).isEqualTo(JobSnapshot.Status.FINISHED);
+
+        // only the stored thumbnails are now available.
+
+        pkgScreenshotThumbnailStore.evict(code);
+
+        for (PkgScreenshotThumbnailStore.Size size : pkgScreenshotThumbnailStore.getStandardSizes()) {
+            byte[] data = pkgScreenshotThumbnailStore.get(
+                    code, hashSha256, size.width(), size.height(),
+                    () -> {
+                        throw new IllegalStateException("the screenshot should not be thumbnailed again");
+                    });
+            Assertions.assertThat(data.length).isGreaterThan(0);
+        }
+    }
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.security;
+
+import jakarta.annotation.Resource;
+import org.apache.cayenne.ObjectContext;
+import org.apache.cayenne.ObjectId;
+import org.fest.assertions.Assertions;
+import org.haiku.haikudepotserver.AbstractIntegrationTest;
+import org.haiku.haikudepotserver.config.TestConfig;
+import org.haiku.haikudepotserver.dataobjects.Pkg;
+import org.haiku.haikudepotserver.dataobjects.User;
+import org.haiku.haikudepotserver.security.model.AuthorizationPkgRuleService;
+import org.haiku.haikudepotserver.security.model.Permission;
+import org.haiku.haikudepotserver.security.model.TargetType;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@ContextConfiguration(classes = TestConfig.class)
+public class PermissionEvaluatorIT extends AbstractIntegrationTest {
+
+    @Resource
+    private PermissionEvaluator permissionEvaluator;
+
+    @Resource
+    private AuthorizationPkgRuleService authorizationPkgRuleService;
+
+    /**
+     * <p>Within a request, a decision is remembered and so a rule that is created part way through
+     * the request is not seen until the next request.  Outside of a request, the decision is made
+     * each time.</p>
+     */
+
+    @Test
+    public void testHasPermission_rememberedWithinRequest() {
+        integrationTestSupportService.createStandardTestData();
+        Authentication authentication;
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            User user = integrationTestSupportService.createBasicUser(context, "testuser", "guwfwef67");
+            integrationTestSupportService.agreeToUserUsageConditions(context, user);
+            authentication = createAuthentication(user.getObjectId());
+        }
+
+        boolean resultInRequestBeforeCreate;
+        boolean resultInRequestAfterCreate;
+
+        RequestContextHolder.setRequestAttributes(new TestRequestAttributes());
+
+        try {
+            resultInRequestBeforeCreate = hasPermissionEditIconPkg1(authentication);
+            createRuleEditIconPkg1();
+
+            // ---------------------------------
+            resultInRequestAfterCreate = hasPermissionEditIconPkg1(authentication);
+            // ---------------------------------
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+
+        Assertions.assertThat(resultInRequestBeforeCreate).isFalse();
+        Assertions.assertThat(resultInRequestAfterCreate).isFalse();
+
+        // ---------------------------------
+        boolean resultOutsideRequest = hasPermissionEditIconPkg1(authentication);
+        // ---------------------------------
+
+        Assertions.assertThat(resultOutsideRequest).isTrue();
+    }
+
+    /**
+     * <p>A decision remembered for one user should not be used for another user in the same
+     * request.</p>
+     */
+
+    @Test
+    public void testHasPermission_rememberedForPrincipal() {
+        integrationTestSupportService.createStandardTestData();
+        Authentication authentication1;
+        Authentication authentication2;
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            User user1 = integrationTestSupportService.createBasicUser(context, "testuser", "guwfwef67");
+            integrationTestSupportService.agreeToUserUsageConditions(context, user1);
+            User user2 = integrationTestSupportService.createBasicUser(context, "testuser2", "guwfwef67");
+            integrationTestSupportService.agreeToUserUsageConditions(context, user2);
+            authentication1 = createAuthentication(user1.getObjectId());
+            authentication2 = createAuthentication(user2.getObjectId());
+        }
+
+        createRuleEditIconPkg1();
+
+        boolean result1;
+        boolean result2;
+
+        RequestContextHolder.setRequestAttributes(new TestRequestAttributes());
+
+        try {
+            // ---------------------------------
+            result1 = hasPermissionEditIconPkg1(authentication1);
+            result2 = hasPermissionEditIconPkg1(authentication2);
+            // ---------------------------------
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+
+        Assertions.assertThat(result1).isTrue();
+        Assertions.assertThat(result2).isFalse();
+    }
+
+    private boolean hasPermissionEditIconPkg1(Authentication authentication) {
+        return permissionEvaluator.hasPermission(
+                authentication, "pkg1", TargetType.PKG.name(), Permission.PKG_EDITICON);
+    }
+
+    private void createRuleEditIconPkg1() {
+        ObjectContext context = serverRuntime.newContext();
+        authorizationPkgRuleService.create(
+                context,
+                User.getByNickname(context, "testuser"),
+                org.haiku.haikudepotserver.dataobjects.Permission.getByCode(context, "pkg_editicon"),
+                Pkg.getByName(context, "pkg1"));
+        context.commitChanges();
+    }
+
+    private static Authentication createAuthentication(ObjectId userObjectId) {
+        UserAuthentication authentication = new UserAuthentication(userObjectId);
+        authentication.setAuthenticated(true);
+        return authentication;
+    }
+
+    /**
+     * <p>Stands in for the attributes of a request being handled.</p>
+     */
+
+    private static class TestRequestAttributes implements RequestAttributes {
+
+        private final Map<String, Object> attributes = new HashMap<>();
+
+        @Override
+        public Object getAttribute(String name, int scope) {
+            return attributes.get(name);
+        }
+
+        @Override
+        public void setAttribute(String name, Object value, int scope) {
+            attributes.put(name, value);
+        }
+
+        @Override
+        public void removeAttribute(String name, int scope) {
+            attributes.remove(name);
+        }
+
+        @Override
+        public String[] getAttributeNames(int scope) {
+            return attributes.keySet().toArray(new String[0]);
+        }
+
+        @Override
+        public void registerDestructionCallback(String name, Runnable callback, int scope) {
+        }
+
+        @Override
+        public Object resolveReference(String key) {
+            return null;
+        }
+
+        @Override
+        public String getSessionId() {
+            return "test";
+        }
+
+        @Override
+        public Object getSessionMutex() {
+            return this;
+        }
+
+    }
+
+}
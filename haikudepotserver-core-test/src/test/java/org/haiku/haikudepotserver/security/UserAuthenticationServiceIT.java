@@ -1,5 +1,5 @@
 /*
- * Copyright 2018-2023, Andrew Lindesay
+ * Copyright 2018-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
@@ -17,6 +17,8 @@ import org.junit.jupiter.api.Test;
 import org.springframework.test.context.ContextConfiguration;
 
 import jakarta.annotation.Resource;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Optional;
 
 @ContextConfiguration(classes = TestConfig.class)
@@ -52,6 +54,103 @@ public class UserAuthenticationServiceIT extends AbstractIntegrationTest {
         }
     }
 
+    /**
+     * <p>The token is remembered once it has been verified, but the user's later deactivation
+     * should mean that the token is no longer accepted.</p>
+     */
+
+    @Test
+    public void testAuthenticateByToken_deactivatedAfterVerification() {
+        String token;
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            User user = integrationTestSupportService.createBasicUser(
+                    context, "gertrude", "FidgetSpinn3rs");
+            token = userAuthenticationService.generateToken(user);
+        }
+
+        Assertions.assertThat(userAuthenticationService.authenticateByToken(token).isPresent()).isTrue();
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            User user = User.getByNickname(context, "gertrude");
+            user.setActive(false);
+            context.commitChanges();
+        }
+
+        // ---------------------------------
+        Optional<ObjectId> result = userAuthenticationService.authenticateByToken(token);
+        // ---------------------------------
+
+        Assertions.assertThat(result.isPresent()).isFalse();
+    }
+
+    /**
+     * <p>The user may be deactivated after the user has been read in order to verify a token but
+     * before the outcome has been remembered. The out-of-date outcome should not be retained.</p>
+     */
+
+    @Test
+    public void testAuthenticateByToken_deactivatedDuringVerification() {
+        String token;
+        ObjectId userObjectId;
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            User user = integrationTestSupportService.createBasicUser(
+                    context, "ingrid", "FidgetSpinn3rs");
+            token = userAuthenticationService.generateToken(user);
+            userObjectId = user.getObjectId();
+        }
+
+        long generation = verifiedTokenCache.getGeneration("ingrid");
+        VerifiedTokenCache.VerifiedToken verifiedToken = new VerifiedTokenCache.VerifiedToken(
+                userObjectId, "ingrid", true, Instant.now().plus(Duration.ofHours(1)));
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            User user = User.getByNickname(context, "ingrid");
+            user.setActive(false);
+            context.commitChanges();
+        }
+
+        // ---------------------------------
+        boolean retained = verifiedTokenCache.put(token, verifiedToken, generation);
+        // ---------------------------------
+
+        Assertions.assertThat(retained).isFalse();
+        Assertions.assertThat(verifiedTokenCache.tryGet(token).isPresent()).isFalse();
+        Assertions.assertThat(userAuthenticationService.authenticateByToken(token).isPresent()).isFalse();
+    }
+
+    /**
+     * <p>Authenticating updates the user but does not change how the user authenticates so the
+     * remembered token should be retained.</p>
+     */
+
+    @Test
+    public void testAuthenticateByToken_retainedAfterUnrelatedUpdate() {
+        String token;
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            User user = integrationTestSupportService.createBasicUser(
+                    context, "harold", "FidgetSpinn3rs");
+            token = userAuthenticationService.generateToken(user);
+        }
+
+        Assertions.assertThat(userAuthenticationService.authenticateByToken(token).isPresent()).isTrue();
+
+        // ---------------------------------
+        Optional<ObjectId> result = userAuthenticationService
+                .authenticateByNicknameAndPassword("harold", "FidgetSpinn3rs");
+        // ---------------------------------
+
+        Assertions.assertThat(result.isPresent()).isTrue();
+        Assertions.assertThat(verifiedTokenCache.tryGet(token).isPresent()).isTrue();
+    }
+
     @Test
     public void testHashPassword() {
         User user = new User();
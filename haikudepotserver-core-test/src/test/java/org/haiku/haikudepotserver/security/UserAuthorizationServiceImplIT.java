@@ -1,5 +1,5 @@
 /*
- * Copyright 2019-2023, Andrew Lindesay
+ * Copyright 2019-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
@@ -13,6 +13,7 @@ import org.haiku.haikudepotserver.config.TestConfig;
 import org.haiku.haikudepotserver.dataobjects.Pkg;
 import org.haiku.haikudepotserver.dataobjects.User;
 import org.haiku.haikudepotserver.dataobjects.UserUsageConditions;
+import org.haiku.haikudepotserver.security.model.AuthorizationPkgRuleService;
 import org.haiku.haikudepotserver.security.model.Permission;
 import org.haiku.haikudepotserver.security.model.UserAuthorizationService;
 import org.junit.jupiter.api.Test;
@@ -30,6 +31,9 @@ public class UserAuthorizationServiceImplIT extends AbstractIntegrationTest {
     @Resource
     private IntegrationTestSupportService integrationTestSupportService;
 
+    @Resource
+    private AuthorizationPkgRuleService authorizationPkgRuleService;
+
     /**
      * <p>An authorization check has to be performed in the context of an
      * authenticated entity against some target object and a permission.
@@ -279,4 +283,101 @@ public class UserAuthorizationServiceImplIT extends AbstractIntegrationTest {
         Assertions.assertThat(result).isFalse();
     }
 
+    /**
+     * <p>The rules of a user are cached, but once a rule is created or removed, the change is
+     * seen in the next check.</p>
+     */
+
+    @Test
+    public void testCheckWithPkgRuleCreatedAndRemoved() {
+        integrationTestSupportService.createStandardTestData();
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            User user = integrationTestSupportService
+                    .createBasicUser(context, "testuser", "guwfwef67");
+            integrationTestSupportService.agreeToUserUsageConditions(context, user);
+        }
+
+        Assertions.assertThat(checkTestUserEditIconPkg1()).isFalse();
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            authorizationPkgRuleService.create(
+                    context,
+                    User.getByNickname(context, "testuser"),
+                    org.haiku.haikudepotserver.dataobjects.Permission.getByCode(context, "pkg_editicon"),
+                    Pkg.getByName(context, "pkg1"));
+            context.commitChanges();
+        }
+
+        // ---------------------------------
+        boolean resultAfterCreate = checkTestUserEditIconPkg1();
+        // ---------------------------------
+
+        Assertions.assertThat(resultAfterCreate).isTrue();
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            authorizationPkgRuleService.remove(
+                    context,
+                    User.getByNickname(context, "testuser"),
+                    org.haiku.haikudepotserver.dataobjects.Permission.getByCode(context, "pkg_editicon"),
+                    Pkg.getByName(context, "pkg1"));
+            context.commitChanges();
+        }
+
+        // ---------------------------------
+        boolean resultAfterRemove = checkTestUserEditIconPkg1();
+        // ---------------------------------
+
+        Assertions.assertThat(resultAfterRemove).isFalse();
+    }
+
+    /**
+     * <p>A check that is made while a rule is being created, but before it has been committed,
+     * will remember the rules without the new rule.  Once the rule is committed, the rules should
+     * be fetched again.</p>
+     */
+
+    @Test
+    public void testCheckWithPkgRuleCheckedBeforeCommit() {
+        integrationTestSupportService.createStandardTestData();
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            User user = integrationTestSupportService
+                    .createBasicUser(context, "testuser", "guwfwef67");
+            integrationTestSupportService.agreeToUserUsageConditions(context, user);
+        }
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            authorizationPkgRuleService.create(
+                    context,
+                    User.getByNickname(context, "testuser"),
+                    org.haiku.haikudepotserver.dataobjects.Permission.getByCode(context, "pkg_editicon"),
+                    Pkg.getByName(context, "pkg1"));
+
+            Assertions.assertThat(checkTestUserEditIconPkg1()).isFalse();
+
+            context.commitChanges();
+        }
+
+        // ---------------------------------
+        boolean result = checkTestUserEditIconPkg1();
+        // ---------------------------------
+
+        Assertions.assertThat(result).isTrue();
+    }
+
+    private boolean checkTestUserEditIconPkg1() {
+        ObjectContext context = serverRuntime.newContext();
+        return userAuthorizationService.check(
+                context,
+                User.getByNickname(context, "testuser"),
+                Pkg.getByName(context, "pkg1"),
+                Permission.PKG_EDITICON);
+    }
+
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.support;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.fest.assertions.Assertions;
+import org.haiku.haikudepotserver.metrics.MetricsConstants;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ScheduledTaskRunnerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ThreadPoolTaskScheduler taskScheduler;
+
+    private ScheduledTaskRunner runner;
+
+    @BeforeEach
+    public void setUp() {
+        taskScheduler = new ThreadPoolTaskScheduler();
+        taskScheduler.setPoolSize(2);
+        taskScheduler.initialize();
+        runner = new ScheduledTaskRunner(taskScheduler, meterRegistry);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        taskScheduler.shutdown();
+    }
+
+    /**
+     * <p>While a task is running, a further request to run the same task is skipped but a
+     * different task is still able to run alongside it.</p>
+     */
+
+    @Test
+    public void testSubmit_overlapSkipped() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch otherDone = new CountDownLatch(1);
+
+        Assertions.assertThat(runner.submit("test", "slow", () -> {
+            started.countDown();
+            awaitQuietly(release);
+        })).isTrue();
+        Assertions.assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // ---------------------------------
+        boolean overlapSubmitted = runner.submit("test", "slow", () -> {});
+        boolean otherSubmitted = runner.submit("test", "other", otherDone::countDown);
+        // ---------------------------------
+
+        Assertions.assertThat(overlapSubmitted).isFalse();
+        Assertions.assertThat(otherSubmitted).isTrue();
+        Assertions.assertThat(otherDone.await(10, TimeUnit.SECONDS)).isTrue();
+        Assertions.assertThat(meterRegistry.get(MetricsConstants.COUNTER_NAME_SCHEDULED_TASKS_SKIPPED)
+                .tag(MetricsConstants.TAG_NAME_TASK, "slow")
+                .counter().count()).isEqualTo(1.0);
+
+        release.countDown();
+        awaitInactive("test", "slow");
+
+        // once the earlier run has finished the task is able to run again.
+
+        Assertions.assertThat(runner.submit("test", "slow", () -> {})).isTrue();
+    }
+
+    @Test
+    public void testSubmit_timersRecorded() throws Exception {
+
+        // ---------------------------------
+        runner.submit("test", "ok", () -> {});
+        runner.submit("test", "broken", () -> {
+            throw new IllegalStateException("intentional failure");
+        });
+        // ---------------------------------
+
+        awaitInactive("test", "ok");
+        awaitInactive("test", "broken");
+
+        Assertions.assertThat(getTimer(MetricsConstants.TIMER_NAME_SCHEDULED_TASK_LAG, "ok").count()).isEqualTo(1L);
+        Assertions.assertThat(meterRegistry.get(MetricsConstants.TIMER_NAME_SCHEDULED_TASK_DURATION)
+                .tag(MetricsConstants.TAG_NAME_TASK, "ok")
+                .tag(MetricsConstants.TAG_NAME_RESULT, "success")
+                .timer().count()).isEqualTo(1L);
+        Assertions.assertThat(meterRegistry.get(MetricsConstants.TIMER_NAME_SCHEDULED_TASK_DURATION)
+                .tag(MetricsConstants.TAG_NAME_TASK, "broken")
+                .tag(MetricsConstants.TAG_NAME_RESULT, "failure")
+                .timer().count()).isEqualTo(1L);
+
+        // a failed task does not prevent the task from being run again.
+
+        Assertions.assertThat(runner.submit("test", "broken", () -> {})).isTrue();
+    }
+
+    private Timer getTimer(String name, String task) {
+        return meterRegistry.get(name)
+                .tag(MetricsConstants.TAG_NAME_GROUP, "test")
+                .tag(MetricsConstants.TAG_NAME_TASK, task)
+                .timer();
+    }
+
+    private void awaitInactive(String group, String name) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+
+        while (runner.isActive(group, name)) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("the task [" + name + "] did not finish");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
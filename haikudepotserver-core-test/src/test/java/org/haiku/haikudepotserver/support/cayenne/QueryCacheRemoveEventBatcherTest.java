@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.support.cayenne;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.fest.assertions.Assertions;
+import org.haiku.haikudepotserver.support.eventing.model.InterProcessEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class QueryCacheRemoveEventBatcherTest {
+
+    private final List<InterProcessEvent> publishedEvents = new ArrayList<>();
+
+    private QueryCacheRemoveEventBatcher batcher;
+
+    @BeforeEach
+    public void setUp() {
+        // the window is long so that the test controls when the flush happens.
+        batcher = new QueryCacheRemoveEventBatcher(publishedEvents::add, new SimpleMeterRegistry(), 60_000L, 2);
+        batcher.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        batcher.tearDown();
+    }
+
+    @Test
+    public void testFlush_duplicatesCoalesced() {
+        batcher.add(new QueryCacheRemoveEvent.GroupRemove("PKG"));
+        batcher.add(new QueryCacheRemoveEvent.GroupRemove("PKG"));
+        batcher.add(new QueryCacheRemoveEvent.GroupRemove("USER"));
+
+        // ---------------------------------
+        batcher.flush();
+        // ---------------------------------
+
+        Assertions.assertThat(publishedEvents).hasSize(1);
+        Assertions.assertThat(((QueryCacheRemoveEvent) publishedEvents.getFirst()).getRemoves()).isEqualTo(List.of(
+                new QueryCacheRemoveEvent.GroupRemove("PKG"),
+                new QueryCacheRemoveEvent.GroupRemove("USER")));
+    }
+
+    @Test
+    public void testFlush_partitioned() {
+        batcher.add(new QueryCacheRemoveEvent.GroupRemove("A"));
+        batcher.add(new QueryCacheRemoveEvent.GroupRemove("B"));
+        batcher.add(new QueryCacheRemoveEvent.GroupRemove("C"));
+
+        // ---------------------------------
+        batcher.flush();
+        // ---------------------------------
+
+        Assertions.assertThat(publishedEvents).hasSize(2);
+    }
+
+    @Test
+    public void testFlush_clearSupersedes() {
+        batcher.add(new QueryCacheRemoveEvent.GroupRemove("PKG"));
+        batcher.add(new QueryCacheRemoveEvent.ClearRemove());
+
+        // ---------------------------------
+        batcher.flush();
+        // ---------------------------------
+
+        Assertions.assertThat(publishedEvents).hasSize(1);
+        Assertions.assertThat(((QueryCacheRemoveEvent) publishedEvents.getFirst()).getRemoves())
+                .isEqualTo(List.of(new QueryCacheRemoveEvent.ClearRemove()));
+    }
+
+    /**
+     * <p>If sending fails then the removes which were not sent are sent on the next flush.</p>
+     */
+
+    @Test
+    public void testFlush_failedRemovesRetained() {
+        List<InterProcessEvent> failingPublishedEvents = new ArrayList<>();
+        AtomicInteger publishCount = new AtomicInteger();
+        QueryCacheRemoveEventBatcher failingBatcher = new QueryCacheRemoveEventBatcher(
+                event -> {
+                    // the second event fails to be sent.
+                    if (2 == publishCount.incrementAndGet()) {
+                        throw new IllegalStateException("unable to send");
+                    }
+                    failingPublishedEvents.add(event);
+                },
+                new SimpleMeterRegistry(), 60_000L, 2);
+        failingBatcher.init();
+
+        try {
+            failingBatcher.add(new QueryCacheRemoveEvent.GroupRemove("A"));
+            failingBatcher.add(new QueryCacheRemoveEvent.GroupRemove("B"));
+            failingBatcher.add(new QueryCacheRemoveEvent.GroupRemove("C"));
+
+            // ---------------------------------
+            org.junit.jupiter.api.Assertions.assertThrows(IllegalStateException.class, failingBatcher::flush);
+            failingBatcher.flush();
+            // ---------------------------------
+
+            Assertions.assertThat(failingPublishedEvents).hasSize(2);
+            Assertions.assertThat(((QueryCacheRemoveEvent) failingPublishedEvents.get(0)).getRemoves()).isEqualTo(List.of(
+                    new QueryCacheRemoveEvent.GroupRemove("A"),
+                    new QueryCacheRemoveEvent.GroupRemove("B")));
+            Assertions.assertThat(((QueryCacheRemoveEvent) failingPublishedEvents.get(1)).getRemoves()).isEqualTo(List.of(
+                    new QueryCacheRemoveEvent.GroupRemove("C")));
+        } finally {
+            failingBatcher.tearDown();
+        }
+    }
+
+    @Test
+    public void testTearDown_pendingFlushed() {
+        batcher.add(new QueryCacheRemoveEvent.GroupRemove("PKG"));
+
+        // ---------------------------------
+        batcher.tearDown();
+        // ---------------------------------
+
+        Assertions.assertThat(publishedEvents).hasSize(1);
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.support.cayenne;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.cayenne.DataRow;
+import org.apache.cayenne.query.QueryMetadata;
+import org.fest.assertions.Assertions;
+import org.haiku.haikudepotserver.metrics.MetricsConstants;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.Map;
+
+public class WeighingQueryCacheTest {
+
+    private static QueryMetadata createMetadata(String cacheKey, String cacheGroup) {
+        QueryMetadata metadata = Mockito.mock(QueryMetadata.class);
+        Mockito.when(metadata.getCacheKey()).thenReturn(cacheKey);
+        Mockito.when(metadata.getCacheGroup()).thenReturn(cacheGroup);
+        return metadata;
+    }
+
+    private static WeighingQueryCache createCache(SimpleMeterRegistry meterRegistry) {
+        return new WeighingQueryCache(
+                meterRegistry,
+                new QueryCacheGroupSpecification(1024L * 1024L, 0L),
+                Map.of("SMALL", new QueryCacheGroupSpecification(64L, 0L)));
+    }
+
+    @Test
+    public void testRemoveGroup_otherGroupsRetained() {
+        WeighingQueryCache cache = createCache(new SimpleMeterRegistry());
+        QueryMetadata metadataA = createMetadata("k1", "A");
+        QueryMetadata metadataB = createMetadata("k2", "B");
+        cache.put(metadataA, List.of("a"));
+        cache.put(metadataB, List.of("b"));
+
+        // ---------------------------------
+        cache.removeGroup("A");
+        // ---------------------------------
+
+        Assertions.assertThat(cache.get(metadataA)).isNull();
+        Assertions.assertThat(cache.get(metadataB)).isEqualTo(List.of("b"));
+    }
+
+    @Test
+    public void testGet_factoryUsedOnlyOnMiss() {
+        WeighingQueryCache cache = createCache(new SimpleMeterRegistry());
+        QueryMetadata metadata = createMetadata("k1", null);
+        cache.put(metadata, List.of("cached"));
+
+        // ---------------------------------
+        List<?> result = cache.get(metadata, () -> List.of("created"));
+        // ---------------------------------
+
+        Assertions.assertThat(result).isEqualTo(List.of("cached"));
+    }
+
+    @Test
+    public void testPut_groupMetricsRegistered() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        WeighingQueryCache cache = createCache(meterRegistry);
+        QueryMetadata metadata = createMetadata("k1", "SMALL");
+
+        // ---------------------------------
+        cache.put(metadata, List.of("a"));
+        // ---------------------------------
+
+        Assertions.assertThat(meterRegistry.find("cache.gets")
+                .tag("cache", MetricsConstants.CACHE_NAME_CAYENNE_QUERY)
+                .tag(MetricsConstants.TAG_NAME_GROUP, "SMALL")
+                .meters()).isNotEmpty();
+    }
+
+    @Test
+    public void testWeigh() {
+        DataRow dataRow = new DataRow(1);
+        dataRow.put("data", new byte[1000]);
+
+        // ---------------------------------
+        int weight = WeighingQueryCache.weigh(List.of(dataRow));
+        // ---------------------------------
+
+        Assertions.assertThat(weight).isGreaterThan(1000);
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2018-2024, Andrew Lindesay
+ * Copyright 2018-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
@@ -7,6 +7,7 @@ package org.haiku.haikudepotserver.userrating;
 
 import com.google.common.util.concurrent.Uninterruptibles;
 import org.apache.cayenne.ObjectContext;
+import org.apache.cayenne.query.ObjectSelect;
 import org.fest.assertions.Assertions;
 import org.haiku.haikudepotserver.AbstractIntegrationTest;
 import org.haiku.haikudepotserver.config.TestConfig;
@@ -14,6 +15,7 @@ import org.haiku.haikudepotserver.dataobjects.Architecture;
 import org.haiku.haikudepotserver.dataobjects.NaturalLanguage;
 import org.haiku.haikudepotserver.dataobjects.Pkg;
 import org.haiku.haikudepotserver.dataobjects.PkgVersion;
+import org.haiku.haikudepotserver.dataobjects.PkgUserRatingAggregate;
 import org.haiku.haikudepotserver.dataobjects.Prominence;
 import org.haiku.haikudepotserver.dataobjects.Repository;
 import org.haiku.haikudepotserver.dataobjects.RepositorySource;
@@ -26,6 +28,8 @@ import org.junit.jupiter.api.Test;
 import org.springframework.test.context.ContextConfiguration;
 
 import jakarta.annotation.Resource;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
@@ -104,14 +108,7 @@ public class UserRatingOrchestrationServiceIT extends AbstractIntegrationTest {
         return userRatingTestData;
     }
 
-    // -------------------
-    // TESTS
-
-    @Test
-    public void testUserRatingDerivation_mixed() {
-
-        integrationTestSupportService.createStandardTestData();
-        ObjectContext context = serverRuntime.newContext();
+    private UserRatingTestData createTestUserRatingDataWithMixedRatings(ObjectContext context) {
         UserRatingTestData userRatingData = createTestUserRatingData(context);
         context.commitChanges();
 
@@ -131,6 +128,19 @@ public class UserRatingOrchestrationServiceIT extends AbstractIntegrationTest {
         createUserRating(context, userRatingData.pkgVersion_1_0_2__x86_64, userRatingData.user1, (short) 1);
         context.commitChanges();
 
+        return userRatingData;
+    }
+
+    // -------------------
+    // TESTS
+
+    @Test
+    public void testUserRatingDerivation_mixed() {
+
+        integrationTestSupportService.createStandardTestData();
+        ObjectContext context = serverRuntime.newContext();
+        UserRatingTestData userRatingData = createTestUserRatingDataWithMixedRatings(context);
+
         // ----------------------------
         Optional<DerivedUserRating> result = userRatingServiceImpl.tryCreateUserRatingDerivation(
                 context,
@@ -144,6 +154,271 @@ public class UserRatingOrchestrationServiceIT extends AbstractIntegrationTest {
 
     }
 
+    /**
+     * <p>The derivation of many packages at once should produce the same result as deriving
+     * each package one at a time.</p>
+     */
+
+    @Test
+    public void testDeriveUserRatings_parity() {
+
+        integrationTestSupportService.createStandardTestData();
+        ObjectContext context = serverRuntime.newContext();
+        UserRatingTestData userRatingData = createTestUserRatingDataWithMixedRatings(context);
+        Repository repository = Repository.tryGetByCode(context, "testrepo").get();
+
+        // a user whose latest rating has no value is not counted and an inactive user is not counted.
+
+        createUserRating(context, userRatingData.pkgVersion_1_0_2__x86_gcc2, userRatingData.user3, null);
+        userRatingData.user5.setActive(false);
+        context.commitChanges();
+
+        List<Pkg> pkgs = List.of(
+                userRatingData.pkg,
+                Pkg.getByName(context, "pkg1"),
+                Pkg.getByName(context, "pkg2"));
+
+        // ----------------------------
+        Map<UserRatingDerivationEngine.PkgRepository, DerivedUserRating> result =
+                userRatingServiceImpl.deriveUserRatings(context, pkgs.stream().map(Pkg::getName).toList());
+        // ----------------------------
+
+        for (Pkg pkg : pkgs) {
+            Optional<DerivedUserRating> expected = userRatingServiceImpl.tryCreateUserRatingDerivation(
+                    context, pkg, repository);
+            DerivedUserRating actual = result.get(
+                    new UserRatingDerivationEngine.PkgRepository(pkg.getName(), repository.getCode()));
+
+            if (expected.isPresent()) {
+                Assertions.assertThat(actual).isNotNull();
+                Assertions.assertThat(actual.rating()).isEqualTo(expected.get().rating());
+                Assertions.assertThat(actual.sampleSize()).isEqualTo(expected.get().sampleSize());
+                Assertions.assertThat(actual.ratingDistribution()).isEqualTo(expected.get().ratingDistribution());
+            } else {
+                Assertions.assertThat(actual).isNull();
+            }
+        }
+
+        Assertions.assertThat(result.get(new UserRatingDerivationEngine.PkgRepository(
+                userRatingData.pkg.getName(), repository.getCode())).sampleSize()).isEqualTo(3);
+    }
+
+    /**
+     * <p>The versions in an inactive repository are not considered when deriving a rating one
+     * package at a time and so no rating is derived for an inactive repository when many
+     * packages are derived at once either; any stored rating for it is removed.</p>
+     */
+
+    @Test
+    public void testDeriveUserRatings_parityInactiveRepository() {
+
+        integrationTestSupportService.createStandardTestData();
+        ObjectContext context = serverRuntime.newContext();
+        UserRatingTestData userRatingData = createTestUserRatingDataWithMixedRatings(context);
+        jobService.awaitAllJobsFinishedUninterruptibly(TimeUnit.SECONDS.toMillis(10));
+        Repository repository = Repository.tryGetByCode(context, "testrepo").get();
+
+        userRatingServiceImpl.updateUserRatingDerivationsForPkg(userRatingData.pkg.getName());
+
+        {
+            ObjectContext checkContext = serverRuntime.newContext();
+            Assertions.assertThat(Pkg.getByName(checkContext, "urtestpkg")
+                    .getPkgUserRatingAggregate(Repository.tryGetByCode(checkContext, "testrepo").get())
+                    .isPresent()).isTrue();
+        }
+
+        repository.setActive(false);
+        context.commitChanges();
+
+        // ----------------------------
+        Map<UserRatingDerivationEngine.PkgRepository, DerivedUserRating> result =
+                userRatingServiceImpl.deriveUserRatings(context, List.of(userRatingData.pkg.getName()));
+        userRatingServiceImpl.updateUserRatingDerivationsForPkg(userRatingData.pkg.getName());
+        // ----------------------------
+
+        Assertions.assertThat(userRatingServiceImpl.tryCreateUserRatingDerivation(
+                context, userRatingData.pkg, repository).isPresent()).isFalse();
+        Assertions.assertThat(result).isEmpty();
+
+        {
+            ObjectContext checkContext = serverRuntime.newContext();
+            Assertions.assertThat(Pkg.getByName(checkContext, "urtestpkg")
+                    .getPkgUserRatingAggregate(Repository.tryGetByCode(checkContext, "testrepo").get())
+                    .isPresent()).isFalse();
+        }
+    }
+
+    /**
+     * <p>The derived rating is stored and is then removed once it can no longer be derived.</p>
+     */
+
+    @Test
+    public void testUpdateUserRatingDerivationsForAllPkgs() {
+
+        integrationTestSupportService.createStandardTestData();
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            createTestUserRatingDataWithMixedRatings(context);
+        }
+
+        // ----------------------------
+        userRatingServiceImpl.updateUserRatingDerivationsForAllPkgs();
+        // ----------------------------
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            Pkg pkg = Pkg.getByName(context, "urtestpkg");
+            Repository repository = Repository.tryGetByCode(context, "testrepo").get();
+            PkgUserRatingAggregate aggregate = pkg.getPkgUserRatingAggregate(repository).get();
+            Assertions.assertThat(aggregate.getDerivedRating()).isEqualTo(1.75f);
+            Assertions.assertThat(aggregate.getDerivedRatingSampleSize()).isEqualTo(4);
+
+            ObjectSelect.query(UserRating.class)
+                    .where(UserRating.PKG_VERSION.dot(PkgVersion.PKG).eq(pkg))
+                    .select(context)
+                    .forEach(ur -> ur.setActive(false));
+            context.commitChanges();
+        }
+
+        userRatingServiceImpl.updateUserRatingDerivationsForAllPkgs();
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            Pkg pkg = Pkg.getByName(context, "urtestpkg");
+            Repository repository = Repository.tryGetByCode(context, "testrepo").get();
+            Assertions.assertThat(pkg.getPkgUserRatingAggregate(repository).isPresent()).isFalse();
+        }
+    }
+
+    /**
+     * <p>Only those packages which have been marked as dirty are derived and, no matter how many
+     * times a package was marked, it is derived once.</p>
+     */
+
+    @Test
+    public void testUpdateUserRatingDerivationsForDirtyPkgs() {
+
+        integrationTestSupportService.createStandardTestData();
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            createTestUserRatingDataWithMixedRatings(context);
+        }
+
+        // the changes to the ratings will have triggered derivations; let those finish and then
+        // remove the result so that it is possible to see the derivation happen again.
+
+        jobService.awaitAllJobsFinishedUninterruptibly(TimeUnit.SECONDS.toMillis(10));
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            ObjectSelect.query(PkgUserRatingAggregate.class)
+                    .select(context)
+                    .forEach(context::deleteObject);
+            context.commitChanges();
+        }
+
+        userRatingServiceImpl.markUserRatingDerivationsDirty(List.of("urtestpkg", "pkg1"));
+        userRatingServiceImpl.markUserRatingDerivationsDirty(List.of("urtestpkg"));
+
+        // ----------------------------
+        userRatingServiceImpl.updateUserRatingDerivationsForDirtyPkgs();
+        // ----------------------------
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            Repository repository = Repository.tryGetByCode(context, "testrepo").get();
+            PkgUserRatingAggregate aggregate = Pkg.getByName(context, "urtestpkg")
+                    .getPkgUserRatingAggregate(repository).get();
+            Assertions.assertThat(aggregate.getDerivedRating()).isEqualTo(1.75f);
+            Assertions.assertThat(aggregate.getDerivedRatingSampleSize()).isEqualTo(4);
+        }
+
+        // once derived, the packages are no longer dirty.
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            ObjectSelect.query(PkgUserRatingAggregate.class)
+                    .select(context)
+                    .forEach(context::deleteObject);
+            context.commitChanges();
+        }
+
+        userRatingServiceImpl.updateUserRatingDerivationsForDirtyPkgs();
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            Assertions.assertThat(ObjectSelect.query(PkgUserRatingAggregate.class).selectCount(context)).isEqualTo(0L);
+        }
+    }
+
+    /**
+     * <p>A change to a package version should only mark the package as dirty if the change is
+     * one that could affect the derived user rating.</p>
+     */
+
+    @Test
+    public void testPkgVersionUpdate_marksDirtyOnlyForRelevantChange() {
+
+        integrationTestSupportService.createStandardTestData();
+        UserRatingTestData userRatingData;
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            userRatingData = createTestUserRatingDataWithMixedRatings(context);
+        }
+
+        jobService.awaitAllJobsFinishedUninterruptibly(TimeUnit.SECONDS.toMillis(10));
+        userRatingServiceImpl.updateUserRatingDerivationsForDirtyPkgs();
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            ObjectSelect.query(PkgUserRatingAggregate.class)
+                    .select(context)
+                    .forEach(context::deleteObject);
+            context.commitChanges();
+        }
+
+        // a change that cannot affect the derived rating.
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            PkgVersion pkgVersion = context.localObject(userRatingData.pkgVersion_0_0_9__x86_gcc2);
+            pkgVersion.setPayloadLength(1234L);
+            context.commitChanges();
+        }
+
+        // ----------------------------
+        userRatingServiceImpl.updateUserRatingDerivationsForDirtyPkgs();
+        // ----------------------------
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            Assertions.assertThat(ObjectSelect.query(PkgUserRatingAggregate.class).selectCount(context)).isEqualTo(0L);
+        }
+
+        // a change that can affect the derived rating.
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            PkgVersion pkgVersion = context.localObject(userRatingData.pkgVersion_0_0_9__x86_gcc2);
+            pkgVersion.setActive(false);
+            context.commitChanges();
+        }
+
+        // ----------------------------
+        userRatingServiceImpl.updateUserRatingDerivationsForDirtyPkgs();
+        // ----------------------------
+
+        {
+            ObjectContext context = serverRuntime.newContext();
+            Repository repository = Repository.tryGetByCode(context, "testrepo").get();
+            Assertions.assertThat(Pkg.getByName(context, "urtestpkg")
+                    .getPkgUserRatingAggregate(repository).isPresent()).isTrue();
+        }
+    }
+
     public static class UserRatingTestData {
 
         public Pkg pkg;
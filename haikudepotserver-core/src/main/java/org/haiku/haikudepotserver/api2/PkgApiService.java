@@ -1,5 +1,5 @@
 /*
- * Copyright 2022-2025, Andrew Lindesay
+ * Copyright 2022-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 package org.haiku.haikudepotserver.api2;
@@ -177,6 +177,18 @@ public class PkgApiService extends AbstractApiService {
         }
     }
 
+    /**
+     * <p>Returns a timestamp which moves each time that the data for the package changes. This
+     * is used to produce entity tags for conditional responses.</p>
+     */
+
+    public Optional<Date> tryGetPkgRevision(String pkgName) {
+        if (StringUtils.isBlank(pkgName)) {
+            return Optional.empty();
+        }
+        return pkgService.tryGetPkgLastModifyTimestampSecondAccuracy(serverRuntime.newContext(), pkgName);
+    }
+
     public GetPkgResult getPkg(GetPkgRequestEnvelope request) {
         Preconditions.checkNotNull(request);
         Preconditions.checkState(StringUtils.isNotBlank(request.getName()), "request pkg name is required");
@@ -903,6 +915,7 @@ public class PkgApiService extends AbstractApiService {
                 repository);
 
         pkgProminence.setProminence(prominence);
+        pkg.setModifyTimestamp();
         context.commitChanges();
 
         LOGGER.info("the prominence for {} has been set to; {}", pkg, prominence);
@@ -952,7 +965,7 @@ public class PkgApiService extends AbstractApiService {
      */
 
     private void incrementCounter(PkgVersion pkgVersion) {
-        pkgService.incrementViewCounter(serverRuntime, pkgVersion.getObjectId());
+        pkgService.incrementViewCounter(pkgVersion.getObjectId());
     }
 
 }
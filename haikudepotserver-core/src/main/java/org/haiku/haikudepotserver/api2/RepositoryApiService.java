@@ -54,6 +54,7 @@ import org.haiku.haikudepotserver.repository.model.RepositoryHpkrIngressJobSpeci
 import org.haiku.haikudepotserver.repository.model.RepositorySearchSpecification;
 import org.haiku.haikudepotserver.repository.model.RepositoryService;
 import org.haiku.haikudepotserver.security.model.Permission;
+import org.haiku.haikudepotserver.support.cayenne.GeneralQueryHelper;
 import org.haiku.haikudepotserver.support.exception.ObjectNotFoundException;
 import org.haiku.haikudepotserver.support.exception.ValidationException;
 import org.haiku.haikudepotserver.support.exception.ValidationFailure;
@@ -236,6 +237,15 @@ public class RepositoryApiService extends AbstractApiService {
                 .map(PersistentObject::getObjectId);
     }
 
+    /**
+     * <p>Returns a timestamp which moves each time that any repository changes. This is used
+     * to produce entity tags for conditional responses.</p>
+     */
+
+    public Date getRepositoriesRevision() {
+        return GeneralQueryHelper.getLastModifyTimestampSecondAccuracy(serverRuntime.newContext(), Repository.class);
+    }
+
     public GetRepositoriesResult getRepositories(GetRepositoriesRequestEnvelope request) {
         Preconditions.checkArgument(null != request);
         return new GetRepositoriesResult()
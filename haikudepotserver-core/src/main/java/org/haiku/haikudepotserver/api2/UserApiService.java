@@ -27,6 +27,7 @@ import org.haiku.haikudepotserver.support.exception.*;
 import org.haiku.haikudepotserver.user.model.UserSearchSpecification;
 import org.haiku.haikudepotserver.user.model.UserService;
 import org.haiku.haikudepotserver.userrating.model.UserRatingDerivationJobSpecification;
+import org.haiku.haikudepotserver.userrating.model.UserRatingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.access.AccessDeniedException;
@@ -52,6 +53,7 @@ public class UserApiService extends AbstractApiService {
     private final UserService userService;
     private final PasswordResetService passwordResetService;
     private final JobService jobService;
+    private final UserRatingService userRatingService;
 
     public UserApiService(
             ServerRuntime serverRuntime,
@@ -60,7 +62,8 @@ public class UserApiService extends AbstractApiService {
             UserAuthenticationService userAuthenticationService,
             UserService userService,
             PasswordResetService passwordResetService,
-            JobService jobService) {
+            JobService jobService,
+            UserRatingService userRatingService) {
         this.serverRuntime = Preconditions.checkNotNull(serverRuntime);
         this.permissionEvaluator = Preconditions.checkNotNull(permissionEvaluator);
         this.captchaService = Preconditions.checkNotNull(captchaService);
@@ -68,6 +71,7 @@ public class UserApiService extends AbstractApiService {
         this.userService = Preconditions.checkNotNull(userService);
         this.passwordResetService = Preconditions.checkNotNull(passwordResetService);
         this.jobService = Preconditions.checkNotNull(jobService);
+        this.userRatingService = Preconditions.checkNotNull(userRatingService);
     }
 
     public void agreeUserUsageConditions(AgreeUserUsageConditionsRequestEnvelope request) {
@@ -446,8 +450,10 @@ public class UserApiService extends AbstractApiService {
             // if a user is made active or inactive will have some impact on the user-ratings.
 
             if (activeDidChange) {
+                userRatingService.markUserRatingDerivationsDirty(
+                        userRatingService.pkgNamesEffectedByUserActiveStateChange(context, user));
                 UserRatingDerivationJobSpecification specification = new UserRatingDerivationJobSpecification();
-                specification.setUserNickname(user.getNickname());
+                specification.setDirtyPkgs(true);
                 jobService.submit(specification, JobSnapshot.COALESCE_STATUSES_QUEUED);
             }
 
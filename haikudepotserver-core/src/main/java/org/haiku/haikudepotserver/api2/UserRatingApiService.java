@@ -365,8 +365,9 @@ public class UserRatingApiService extends AbstractApiService {
         // no longer possible to find out the package that was attached to the
         // user rating.
 
+        userRatingService.markUserRatingDerivationsDirty(List.of(pkgName));
         UserRatingDerivationJobSpecification specification = new UserRatingDerivationJobSpecification();
-        specification.setPkgName(pkgName);
+        specification.setDirtyPkgs(true);
         jobService.submit(specification, JobSnapshot.COALESCE_STATUSES_QUEUED);
     }
 
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.api2.support;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+import org.apache.commons.lang3.StringUtils;
+import org.haiku.haikudepotserver.config.ObjectMapperFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * <p>Helpers for working with the request objects of the API.</p>
+ */
+
+public class ApiRequestHelper {
+
+    private final static ObjectMapper CANONICAL_OBJECT_MAPPER = createCanonicalObjectMapper();
+
+    private static ObjectMapper createCanonicalObjectMapper() {
+        ObjectMapper objectMapper = new ObjectMapperFactory().getObject();
+        objectMapper.configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true);
+        objectMapper.configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+        return objectMapper;
+    }
+
+    /**
+     * <p>Renders the request as a JSON string where the properties are in a stable order
+     * so that two requests which are logically the same have the same string.</p>
+     */
+
+    public static String toCanonicalString(Object request) {
+        Preconditions.checkArgument(null != request, "the request must be supplied");
+        try {
+            return CANONICAL_OBJECT_MAPPER.writeValueAsString(request);
+        } catch (JsonProcessingException jpe) {
+            throw new IllegalStateException("unable to create the canonical form of a request", jpe);
+        }
+    }
+
+    /**
+     * <p>Creates a weak HTTP entity tag for the result of a request to an endpoint where the
+     * data for the result was last modified at the revision timestamp. The tag is weak
+     * because some incidental values in results, such as view counters, are not covered
+     * by the revision timestamp.</p>
+     */
+
+    public static String createEntityTag(String endpoint, Object request, Date revision) {
+        Preconditions.checkArgument(StringUtils.isNotBlank(endpoint), "the endpoint must be supplied");
+        Preconditions.checkArgument(null != revision, "the revision must be supplied");
+        String hash = Hashing.sha256()
+                .hashString(
+                        endpoint + "|" + toCanonicalString(request) + "|" + revision.getTime(),
+                        StandardCharsets.UTF_8)
+                .toString();
+        return "W/\"" + hash + "\"";
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.api2.support;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import org.apache.cayenne.ObjectId;
+import org.apache.commons.lang3.StringUtils;
+import org.haiku.haikudepotserver.dataobjects.HaikuDepot;
+import org.haiku.haikudepotserver.metrics.MetricsConstants;
+import org.haiku.haikudepotserver.support.cayenne.QueryCacheGroupVersions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * <p>This cache holds the results of read-only API calls that are made by anonymous
+ * clients. When the desktop application starts up, many clients will be making the
+ * same requests at about the same time and this cache means that those requests can
+ * be served from memory.</p>
+ *
+ * <p>The key of an entry in the cache is made up of the name of the endpoint, a
+ * canonical form of the request and the versions of the query cache groups that the
+ * endpoint's data depends on. When the data changes, the query cache groups are
+ * removed; locally or via a notification from another instance. This moves the
+ * version of the group so that subsequent requests will no longer find the stale
+ * entries. Stale entries will eventually be evicted by the size-bound or the expiry
+ * which also limits the staleness of data that is not covered by a cache group.</p>
+ */
+
+@Component
+public class ApiResponseCache {
+
+    private final static String RESULT_HIT = "hit";
+
+    private final static String RESULT_MISS = "miss";
+
+    private final static String RESULT_BYPASS = "bypass";
+
+    private final boolean enabled;
+
+    private final QueryCacheGroupVersions groupVersions;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Cache<String, Object> cache;
+
+    public ApiResponseCache(
+            QueryCacheGroupVersions groupVersions,
+            MeterRegistry meterRegistry,
+            @Value("${hds.api2.response-cache.enabled:true}") boolean enabled,
+            @Value("${hds.api2.response-cache.max-size:2048}") long maxSize,
+            @Value("${hds.api2.response-cache.expiry-seconds:300}") long expirySeconds) {
+        Preconditions.checkArgument(maxSize > 0, "the max size must be positive");
+        Preconditions.checkArgument(expirySeconds > 0, "the expiry seconds must be positive");
+        this.groupVersions = Preconditions.checkNotNull(groupVersions);
+        this.meterRegistry = Preconditions.checkNotNull(meterRegistry);
+        this.enabled = enabled;
+
+        cache = CacheBuilder
+                .newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expirySeconds, TimeUnit.SECONDS)
+                .build();
+
+        meterRegistry.gauge(MetricsConstants.GUAGE_API2_RESPONSE_CACHE_SIZE, cache, Cache::size);
+    }
+
+    /**
+     * <p>Returns the result of the endpoint for the supplied request. If the result is
+     * already in the cache then it will be returned from there. If not then the
+     * supplier is used to obtain the result and it is stored in the cache. If the
+     * request is from an authenticated user then the cache is bypassed because the
+     * result may be specific to that user.</p>
+     *
+     * <p>Concurrent requests for the same key will only compute the result once. An
+     * exception from the supplier is not cached; it is re-thrown to the caller.</p>
+     *
+     * @param endpoint is a name for the endpoint such as <code>getPkg</code>.
+     * @param request is the request object; it will be rendered into a canonical form for the key.
+     * @param cacheGroups are the query cache groups which are able to signal that the data has changed.
+     */
+
+    public <T> T get(
+            String endpoint,
+            Object request,
+            Collection<HaikuDepot.CacheGroup> cacheGroups,
+            Supplier<T> supplier) {
+        Preconditions.checkArgument(StringUtils.isNotBlank(endpoint), "the endpoint must be supplied");
+        Preconditions.checkArgument(null != request, "the request must be supplied");
+        Preconditions.checkArgument(null != cacheGroups, "the cache groups must be supplied");
+        Preconditions.checkArgument(null != supplier, "the supplier must be supplied");
+
+        if (!enabled || isAuthenticated()) {
+            incrementCounter(endpoint, RESULT_BYPASS);
+            return supplier.get();
+        }
+
+        String key = createKey(endpoint, request, cacheGroups);
+        AtomicBoolean didMiss = new AtomicBoolean(false);
+
+        try {
+            @SuppressWarnings("unchecked")
+            T result = (T) cache.get(key, () -> {
+                didMiss.set(true);
+                return supplier.get();
+            });
+            incrementCounter(endpoint, didMiss.get() ? RESULT_MISS : RESULT_HIT);
+            return result;
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            incrementCounter(endpoint, RESULT_MISS);
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException("unable to obtain the result for [" + endpoint + "]", e.getCause());
+        }
+    }
+
+    private String createKey(String endpoint, Object request, Collection<HaikuDepot.CacheGroup> cacheGroups) {
+        return endpoint
+                + "|" + ApiRequestHelper.toCanonicalString(request)
+                + "|" + groupVersions.getVersionsDescription(cacheGroups.stream().map(Enum::name).toList());
+    }
+
+    /**
+     * <p>Follows the same logic as {@link org.haiku.haikudepotserver.security.AbstractUserAuthenticationAware}
+     * to determine if there is an authenticated user; an anonymous authentication does not count.</p>
+     */
+
+    private static boolean isAuthenticated() {
+        return Optional.ofNullable(SecurityContextHolder.getContext().getAuthentication())
+                .filter(Authentication::isAuthenticated)
+                .map(Authentication::getPrincipal)
+                .filter(p -> p instanceof ObjectId)
+                .isPresent();
+    }
+
+    private void incrementCounter(String endpoint, String result) {
+        meterRegistry.counter(
+                        MetricsConstants.COUNTER_NAME_API2_RESPONSE_CACHE_REQUESTS,
+                        Set.of(
+                                Tag.of(MetricsConstants.TAG_NAME_ENDPOINT, endpoint),
+                                Tag.of(MetricsConstants.TAG_NAME_RESULT, result)))
+                .increment();
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2018-2025, Andrew Lindesay
+ * Copyright 2018-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
@@ -7,12 +7,14 @@ package org.haiku.haikudepotserver.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import freemarker.template.Configuration;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.cayenne.configuration.server.ServerRuntime;
 import org.haiku.haikudepotserver.captcha.CaptchaServiceImpl;
 import org.haiku.haikudepotserver.captcha.DatabaseCaptchaRepository;
 import org.haiku.haikudepotserver.captcha.SimpleMathProblemCaptchaAlgorithm;
 import org.haiku.haikudepotserver.captcha.model.CaptchaRepository;
 import org.haiku.haikudepotserver.captcha.model.CaptchaService;
+import org.haiku.haikudepotserver.graphics.GraphicsServerClient;
 import org.haiku.haikudepotserver.graphics.bitmap.PngOptimizationService;
 import org.haiku.haikudepotserver.graphics.bitmap.PngOptimizationServiceFactory;
 import org.haiku.haikudepotserver.graphics.bitmap.PngThumbnailService;
@@ -21,6 +23,8 @@ import org.haiku.haikudepotserver.graphics.hvif.HvifRenderingService;
 import org.haiku.haikudepotserver.graphics.hvif.HvifRenderingServiceFactory;
 import org.haiku.haikudepotserver.security.PasswordEncoder;
 import org.haiku.haikudepotserver.support.RuntimeInformationService;
+import org.haiku.haikudepotserver.support.cayenne.QueryCacheGroupVersions;
+import org.haiku.haikudepotserver.support.cayenne.QueryCacheRemoveEventBatcher;
 import org.haiku.haikudepotserver.support.cayenne.QueryCacheRemoveEventConsumer;
 import org.haiku.haikudepotserver.support.cayenne.QueryCacheRemoveEventNotifyControl;
 import org.haiku.haikudepotserver.support.eventing.InterProcessEventPgConfig;
@@ -28,6 +32,7 @@ import org.haiku.haikudepotserver.support.eventing.InterProcessEventPgListenServ
 import org.haiku.haikudepotserver.support.eventing.InterProcessEventPgNotifyService;
 import org.haiku.haikudepotserver.support.eventing.model.InterProcessApplicationEvent;
 import org.haiku.haikudepotserver.support.eventing.model.InterProcessEvent;
+import org.haiku.haikudepotserver.support.eventing.model.NotifyService;
 import org.haiku.haikudepotserver.support.freemarker.LocalizedTemplateLoader;
 import org.haiku.haikudepotserver.support.logging.LoggingSetupOrchestration;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -45,6 +50,7 @@ import org.springframework.stereotype.Controller;
 
 import javax.sql.DataSource;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
 import java.util.function.Consumer;
 
@@ -70,23 +76,41 @@ public class BasicConfig {
         return new ObjectMapperFactory().getObject();
     }
 
+    @Bean(destroyMethod = "close")
+    public GraphicsServerClient graphicsServerClient(
+            @Value("${hds.graphics-server.base-uri:}") String graphicsServerBaseUri,
+            @Value("${hds.graphics-server.connect-timeout-millis:5000}") long connectTimeoutMillis,
+            @Value("${hds.graphics-server.request-timeout-millis:30000}") long requestTimeoutMillis,
+            MeterRegistry meterRegistry) {
+        return new GraphicsServerClient(
+                graphicsServerBaseUri,
+                Duration.ofMillis(connectTimeoutMillis),
+                Duration.ofMillis(requestTimeoutMillis),
+                meterRegistry);
+    }
+
     @Bean
     public PngThumbnailService pngThumbnailService(
-            @Value("${hds.graphics-server.base-uri:}") String graphicsServerBaseUri) {
-        return new PngThumbnailServiceFactory(graphicsServerBaseUri).getObject();
+            GraphicsServerClient graphicsServerClient,
+            @Value("${hds.graphics.bitmap.in-process:false}") boolean inProcess,
+            @Value("${hds.graphics.bitmap.quantize:false}") boolean quantize) {
+        return new PngThumbnailServiceFactory(graphicsServerClient, inProcess, quantize).getObject();
     }
 
     @Bean
     public PngOptimizationService pngOptimizationService(
-            @Value("${hds.graphics-server.base-uri:}") String graphicsServerBaseUri) {
+            GraphicsServerClient graphicsServerClient,
+            @Value("${hds.graphics.bitmap.in-process:false}") boolean inProcess,
+            @Value("${hds.graphics.bitmap.quantize:false}") boolean quantize) {
         return new PngOptimizationServiceFactory(
-                graphicsServerBaseUri).getObject();
+                graphicsServerClient, inProcess, quantize).getObject();
     }
 
     @Bean
     public HvifRenderingService hvifRenderingService(
-            @Value("${hds.graphics-server.base-uri:}") String graphicsServerBaseUri) throws Exception {
-        return new HvifRenderingServiceFactory(graphicsServerBaseUri).getObject();
+            GraphicsServerClient graphicsServerClient,
+            @Value("${hds.graphics.hvif.in-process:false}") boolean inProcess) throws Exception {
+        return new HvifRenderingServiceFactory(graphicsServerClient, inProcess).getObject();
     }
 
     @Bean
@@ -166,6 +190,21 @@ public class BasicConfig {
         return new QueryCacheRemoveEventNotifyControl();
     }
 
+    @Bean
+    public QueryCacheGroupVersions queryCacheGroupVersions() {
+        return new QueryCacheGroupVersions();
+    }
+
+    @Bean
+    public QueryCacheRemoveEventBatcher queryCacheRemoveEventBatcher(
+            NotifyService notifyService,
+            MeterRegistry meterRegistry,
+            @Value("${hds.query-cache.remove-notify.window-millis:250}") Long windowMillis,
+            @Value("${hds.query-cache.remove-notify.max-removes-per-event:25}") Integer maxRemovesPerEvent
+    ) {
+        return new QueryCacheRemoveEventBatcher(notifyService, meterRegistry, windowMillis, maxRemovesPerEvent);
+    }
+
     @Bean
     public InterProcessEventPgListenService interProcessEventPgListenService(
             ObjectMapper objectMapper,
@@ -173,9 +212,11 @@ public class BasicConfig {
             InterProcessEventPgConfig config,
             ApplicationEventPublisher applicationEventPublisher,
             ServerRuntime serverRuntime,
-            QueryCacheRemoveEventNotifyControl notifyControl
+            QueryCacheRemoveEventNotifyControl notifyControl,
+            MeterRegistry meterRegistry
     ) {
-        QueryCacheRemoveEventConsumer queryCacheRemoveEventConsumer = new QueryCacheRemoveEventConsumer(serverRuntime, notifyControl);
+        QueryCacheRemoveEventConsumer queryCacheRemoveEventConsumer = new QueryCacheRemoveEventConsumer(
+                serverRuntime, notifyControl, meterRegistry);
         Consumer<InterProcessEvent>  applicationEventConsumer =  (event) -> {
             if (event instanceof InterProcessApplicationEvent interProcessApplicationEvent) {
                 applicationEventPublisher.publishEvent(interProcessApplicationEvent);
@@ -7,6 +7,7 @@ package org.haiku.haikudepotserver.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.cayenne.DataChannelFilter;
 import org.apache.cayenne.LifecycleListener;
 import org.apache.cayenne.cache.QueryCache;
@@ -16,17 +17,25 @@ import org.apache.cayenne.configuration.server.ServerRuntime;
 import org.apache.cayenne.di.MapBuilder;
 import org.haiku.haikudepotserver.dataobjects.*;
 import org.haiku.haikudepotserver.support.cayenne.NotifyingQueryCache;
+import org.haiku.haikudepotserver.support.cayenne.QueryCacheGroupSpecification;
+import org.haiku.haikudepotserver.support.cayenne.QueryCacheGroupVersions;
+import org.haiku.haikudepotserver.support.cayenne.QueryCacheRemoveEventBatcher;
 import org.haiku.haikudepotserver.support.cayenne.QueryCacheRemoveEventNotifyControl;
 import org.haiku.haikudepotserver.support.cayenne.QueryCacheRemoveGroupDataChannelFilter;
 import org.haiku.haikudepotserver.support.cayenne.QueryCacheRemoveGroupListener;
+import org.haiku.haikudepotserver.support.cayenne.WeighingQueryCache;
 import org.haiku.haikudepotserver.support.db.UserUsageConditionsInitializer;
-import org.haiku.haikudepotserver.support.eventing.model.NotifyService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
 import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
 
 import javax.sql.DataSource;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 public class PersistenceConfig {
 
@@ -41,13 +50,47 @@ public class PersistenceConfig {
     // -------------------------------------
     // CAYENNE CORE
 
+    /**
+     * <p>Each of the query cache groups can have its own max weight and expiry configured
+     * with properties such as <code>cayenne.query.cache.groups.PKG.max-weight</code>. If
+     * a group is not specifically configured then the defaults are used.</p>
+     */
+
+    @Bean
+    public WeighingQueryCache weighingQueryCache(
+            MeterRegistry meterRegistry,
+            Environment environment,
+            @Value("${cayenne.query.cache.max-weight:8388608}") Long defaultMaxWeight,
+            @Value("${cayenne.query.cache.expiry-seconds:3600}") Long defaultExpirySeconds
+    ) {
+        QueryCacheGroupSpecification defaultSpecification = new QueryCacheGroupSpecification(
+                defaultMaxWeight, defaultExpirySeconds);
+
+        Map<String, QueryCacheGroupSpecification> groupSpecifications = Arrays.stream(HaikuDepot.CacheGroup.values())
+                .map(Enum::name)
+                .collect(Collectors.toMap(
+                        Function.identity(),
+                        gk -> new QueryCacheGroupSpecification(
+                                environment.getProperty(
+                                        "cayenne.query.cache.groups." + gk + ".max-weight",
+                                        Long.class,
+                                        defaultMaxWeight),
+                                environment.getProperty(
+                                        "cayenne.query.cache.groups." + gk + ".expiry-seconds",
+                                        Long.class,
+                                        defaultExpirySeconds))));
+
+        return new WeighingQueryCache(meterRegistry, defaultSpecification, groupSpecifications);
+    }
+
     @Bean
     @DependsOnDatabaseInitialization
     public ServerRuntime serverRuntime(
             DataSource dataSource,
-            @Value("${cayenne.query.cache.size:250}") Integer queryCacheSize,
-            NotifyService notifyService,
-            QueryCacheRemoveEventNotifyControl notifyControl
+            WeighingQueryCache weighingQueryCache,
+            QueryCacheRemoveEventBatcher removeEventBatcher,
+            QueryCacheRemoveEventNotifyControl notifyControl,
+            QueryCacheGroupVersions groupVersions
     ) {
         // This is the Cayenne-bespoke dependency injection framework interfacing with the Spring one. The
         // Cayenne one works a little bit like Juice.
@@ -59,8 +102,14 @@ public class PersistenceConfig {
                         .bind(QueryCacheRemoveEventNotifyControl.class)
                         .toInstance(notifyControl))
                 .addModule(binder -> binder
-                        .bind(NotifyService.class)
-                        .toInstance(notifyService))
+                        .bind(QueryCacheGroupVersions.class)
+                        .toInstance(groupVersions))
+                .addModule(binder -> binder
+                        .bind(QueryCacheRemoveEventBatcher.class)
+                        .toInstance(removeEventBatcher))
+                .addModule(binder -> binder
+                        .bind(QueryCache.class)
+                        .toInstance(weighingQueryCache))
                 .addModule(binder -> binder
                         .decorate(QueryCache.class)
                         .after(NotifyingQueryCache.class))
@@ -68,7 +117,6 @@ public class PersistenceConfig {
                     MapBuilder<Object> props = binder.bindMap(Object.class, Constants.PROPERTIES_MAP);
                     props.put(Constants.SERVER_OBJECT_RETAIN_STRATEGY_PROPERTY, "weak"); // hard|soft|weak
                     props.put(Constants.SERVER_CONTEXTS_SYNC_PROPERTY, "true");
-                    props.put(Constants.QUERY_CACHE_SIZE_PROPERTY, queryCacheSize.toString());
                 })
                 .build();
     }
@@ -118,10 +166,25 @@ public class PersistenceConfig {
                 ImmutableList.of(
                         Pkg.class,
                         PkgVersion.class,
-                        PkgSupplement.class),
+                        PkgSupplement.class,
+                        PkgPkgCategory.class,
+                        PkgProminence.class),
                 Collections.singletonList(HaikuDepot.CacheGroup.PKG.name()));
     }
 
+    @Bean
+    public LifecycleListener pkgScreenshotQueryCacheRemoveGroupListener(ServerRuntime serverRuntime) {
+        return new QueryCacheRemoveGroupListener(serverRuntime,
+                ImmutableList.of(PkgScreenshot.class, PkgScreenshotImage.class),
+                Collections.singletonList(HaikuDepot.CacheGroup.PKG_SCREENSHOT.name()));
+    }
+
+    @Bean
+    public LifecycleListener userRatingQueryCacheRemoveGroupListener(ServerRuntime serverRuntime) {
+        return new QueryCacheRemoveGroupListener(serverRuntime, UserRating.class,
+                HaikuDepot.CacheGroup.USER_RATING.name());
+    }
+
     @Bean
     public LifecycleListener repositoryQueryCacheRemoveGroupListener(ServerRuntime serverRuntime) {
         return new QueryCacheRemoveGroupListener(
@@ -1,24 +1,38 @@
 /*
- * Copyright 2025, Andrew Lindesay
+ * Copyright 2025-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 package org.haiku.haikudepotserver.config;
 
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.EnableScheduling;
-import org.springframework.scheduling.concurrent.ConcurrentTaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
-import java.util.concurrent.Executors;
+/**
+ * <p>The periodic work of the application is run on a pool of threads so that a slow task does not
+ * delay the others.  See {@link org.haiku.haikudepotserver.support.ScheduledTaskRunner}.</p>
+ */
 
 @Configuration
 @EnableScheduling
 public class ScheduleConfig {
 
+    protected static final Logger LOGGER = LoggerFactory.getLogger(ScheduleConfig.class);
+
     @Bean
-    public TaskScheduler taskScheduler() {
-        return new ConcurrentTaskScheduler(Executors.newSingleThreadScheduledExecutor());
+    public TaskScheduler taskScheduler(@Value("${hds.scheduler.pool-size:4}") int poolSize) {
+        Preconditions.checkArgument(poolSize > 0, "the pool size must be positive");
+        ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+        taskScheduler.setPoolSize(poolSize);
+        taskScheduler.setThreadNamePrefix("hds-scheduler-");
+        taskScheduler.setErrorHandler(th -> LOGGER.error("a scheduled task has failed", th));
+        return taskScheduler;
     }
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2013-2015, Andrew Lindesay
+ * Copyright 2013-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
@@ -14,7 +14,9 @@ public class HaikuDepot extends _HaikuDepot {
         PKG_LOCALIZATION,
         PKG_ICON,
         PKG,
+        PKG_SCREENSHOT,
         PKG_USER_RATING_AGGREGATE,
+        USER_RATING,
         USER,
         USER_USAGE_CONDITIONS,
         REPOSITORY,
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.dataobjects;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+import org.apache.cayenne.ObjectContext;
+import org.apache.cayenne.query.MappedExec;
+import org.apache.cayenne.query.ObjectSelect;
+import org.haiku.haikudepotserver.dataobjects.auto._HaikuDepot;
+import org.haiku.haikudepotserver.dataobjects.auto._ImageBlob;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * <p>The data of an icon or screenshot image. The data is keyed by its SHA-256 hash so that
+ * images which are the same are only stored once even if they are used by many packages.
+ * When no image refers to the blob any longer then it is removed later by the
+ * {@link org.haiku.haikudepotserver.pkg.model.ImageBlobGarbageCollectionJobSpecification}.</p>
+ */
+
+public class ImageBlob extends _ImageBlob {
+
+    public static String createHashSha256(byte[] data) {
+        Preconditions.checkArgument(null != data, "the data must be supplied");
+        return Hashing.sha256().hashBytes(data).toString();
+    }
+
+    public static Optional<ImageBlob> tryGetByHashSha256(ObjectContext context, String hashSha256) {
+        Preconditions.checkArgument(null != context, "the context must be supplied");
+        Preconditions.checkArgument(null != hashSha256, "the hash must be supplied");
+        return Optional.ofNullable(ObjectSelect.query(ImageBlob.class)
+                .where(HASH_SHA256.eq(hashSha256))
+                .selectOne(context));
+    }
+
+    /**
+     * <p>Returns the blob for the data. If a blob with the same data is already stored then
+     * that blob is returned.</p>
+     *
+     * <p>The blob is stored straight away rather than when the context is committed. This is
+     * so that two transactions storing the same data at the same time do not both try to insert
+     * it and have one fail on the unique hash; instead the second one finds the blob from the
+     * first. Should the context not be committed then the blob is left without references and
+     * is later removed by the
+     * {@link org.haiku.haikudepotserver.pkg.model.ImageBlobGarbageCollectionJobSpecification}
+     * which leaves recently created blobs alone for this reason.</p>
+     *
+     * <p>A blob that was already stored may have had no references for some time; for example
+     * if an icon is put back after having been replaced. Its create timestamp is brought up to
+     * date so that it too is left alone while the context that uses it is committed.</p>
+     */
+
+    public static ImageBlob getOrCreate(ObjectContext context, byte[] data) {
+        Preconditions.checkArgument(null != context, "the context must be supplied");
+        Preconditions.checkArgument(null != data && data.length > 0, "the data must be supplied");
+        String hashSha256 = createHashSha256(data);
+
+        MappedExec.query(_HaikuDepot.UPSERT_IMAGE_BLOB_QUERYNAME)
+                .params(Map.of(
+                        "hashSha256", hashSha256,
+                        "length", data.length,
+                        "data", data,
+                        "now", new Timestamp(Clock.systemUTC().millis())))
+                .update(context);
+
+        return tryGetByHashSha256(context, hashSha256)
+                .orElseThrow(() -> new IllegalStateException(
+                        "the image blob [" + hashSha256 + "] was not able to be found after it was stored"));
+    }
+
+}
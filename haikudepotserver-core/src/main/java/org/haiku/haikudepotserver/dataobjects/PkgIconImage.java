@@ -1,5 +1,5 @@
 /*
- * Copyright 2013-2019, Andrew Lindesay
+ * Copyright 2013-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
@@ -28,4 +28,12 @@ public class PkgIconImage extends _PkgIconImage {
                 .select(context);
     }
 
+    public byte[] getData() {
+        return getImageBlob().getData();
+    }
+
+    public String getHashSha256() {
+        return getImageBlob().getHashSha256();
+    }
+
 }
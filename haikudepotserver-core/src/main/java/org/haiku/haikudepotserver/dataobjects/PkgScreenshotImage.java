@@ -1,5 +1,5 @@
 /*
- * Copyright 2013, Andrew Lindesay
+ * Copyright 2013-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
@@ -9,4 +9,8 @@ import org.haiku.haikudepotserver.dataobjects.auto._PkgScreenshotImage;
 
 public class PkgScreenshotImage extends _PkgScreenshotImage {
 
+    public byte[] getData() {
+        return getImageBlob().getData();
+    }
+
 }
@@ -34,12 +34,4 @@ public class PkgVersionInteraction extends _PkgVersionInteraction {
 
     }
 
-    public void incrementViewCounter() {
-        if (null == getViewCounter()) {
-            setViewCounter(1L);
-        } else {
-            setViewCounter(getViewCounter() + 1);
-        }
-    }
-
 }
@@ -22,9 +22,21 @@ public class _HaikuDepot {
 
     public static final String ALL_PKG_SCREENSHOTS_QUERYNAME = "AllPkgScreenshots";
 
+    public static final String DELETE_UNREFERENCED_IMAGE_BLOBS_QUERYNAME = "DeleteUnreferencedImageBlobs";
+
+    public static final String INCREMENT_PKG_VERSION_VIEW_COUNTERS_QUERYNAME = "IncrementPkgVersionViewCounters";
+
+    public static final String MARK_USER_RATING_DERIVATION_DIRTY_PKGS_QUERYNAME = "MarkUserRatingDerivationDirtyPkgs";
+
+    public static final String MERGE_NATURAL_LANGUAGE_USES_QUERYNAME = "MergeNaturalLanguageUses";
+
     public static final String PKG_NAMES_FOR_REPOSITORY_SOURCE_QUERYNAME = "PkgNamesForRepositorySource";
 
     public static final String SEARCH_PKG_VERSIONS_QUERYNAME = "SearchPkgVersions";
+
+    public static final String TAKE_USER_RATING_DERIVATION_DIRTY_PKGS_QUERYNAME = "TakeUserRatingDerivationDirtyPkgs";
+
+    public static final String UPSERT_IMAGE_BLOB_QUERYNAME = "UpsertImageBlob";
     public QueryResult<?> performAllActivePkgNames(ObjectContext context, Map<String, ?> parameters) {
         MappedExec query = MappedExec.query(ALL_ACTIVE_PKG_NAMES_QUERYNAME).params(parameters);
         return query.execute(context);
@@ -45,6 +57,26 @@ public class _HaikuDepot {
         return query.execute(context);
     }
 
+    public QueryResult<?> performDeleteUnreferencedImageBlobs(ObjectContext context, Map<String, ?> parameters) {
+        MappedExec query = MappedExec.query(DELETE_UNREFERENCED_IMAGE_BLOBS_QUERYNAME).params(parameters);
+        return query.execute(context);
+    }
+
+    public QueryResult<?> performIncrementPkgVersionViewCounters(ObjectContext context, Map<String, ?> parameters) {
+        MappedExec query = MappedExec.query(INCREMENT_PKG_VERSION_VIEW_COUNTERS_QUERYNAME).params(parameters);
+        return query.execute(context);
+    }
+
+    public QueryResult<?> performMarkUserRatingDerivationDirtyPkgs(ObjectContext context, Map<String, ?> parameters) {
+        MappedExec query = MappedExec.query(MARK_USER_RATING_DERIVATION_DIRTY_PKGS_QUERYNAME).params(parameters);
+        return query.execute(context);
+    }
+
+    public QueryResult<?> performMergeNaturalLanguageUses(ObjectContext context, Map<String, ?> parameters) {
+        MappedExec query = MappedExec.query(MERGE_NATURAL_LANGUAGE_USES_QUERYNAME).params(parameters);
+        return query.execute(context);
+    }
+
     public QueryResult<?> performPkgNamesForRepositorySource(ObjectContext context, Map<String, ?> parameters) {
         MappedExec query = MappedExec.query(PKG_NAMES_FOR_REPOSITORY_SOURCE_QUERYNAME).params(parameters);
         return query.execute(context);
@@ -55,4 +87,14 @@ public class _HaikuDepot {
         return query.execute(context);
     }
 
+    public QueryResult<?> performTakeUserRatingDerivationDirtyPkgs(ObjectContext context, Map<String, ?> parameters) {
+        MappedExec query = MappedExec.query(TAKE_USER_RATING_DERIVATION_DIRTY_PKGS_QUERYNAME).params(parameters);
+        return query.execute(context);
+    }
+
+    public QueryResult<?> performUpsertImageBlob(ObjectContext context, Map<String, ?> parameters) {
+        MappedExec query = MappedExec.query(UPSERT_IMAGE_BLOB_QUERYNAME).params(parameters);
+        return query.execute(context);
+    }
+
 }
\ No newline at end of file
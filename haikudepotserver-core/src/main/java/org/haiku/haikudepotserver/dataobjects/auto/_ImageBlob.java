@@ -0,0 +1,148 @@
+package org.haiku.haikudepotserver.dataobjects.auto;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.sql.Timestamp;
+
+import org.apache.cayenne.exp.property.BaseProperty;
+import org.apache.cayenne.exp.property.DateProperty;
+import org.apache.cayenne.exp.property.NumericProperty;
+import org.apache.cayenne.exp.property.PropertyFactory;
+import org.apache.cayenne.exp.property.StringProperty;
+import org.haiku.haikudepotserver.dataobjects.support.AbstractDataObject;
+
+/**
+ * Class _ImageBlob was generated by Cayenne.
+ * It is probably a good idea to avoid changing this class manually,
+ * since it may be overwritten next time code is regenerated.
+ * If you need to make any customizations, please use subclass.
+ */
+public abstract class _ImageBlob extends AbstractDataObject {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String ID_PK_COLUMN = "id";
+
+    public static final DateProperty<Timestamp> CREATE_TIMESTAMP = PropertyFactory.createDate("createTimestamp", Timestamp.class);
+    public static final BaseProperty<byte[]> DATA = PropertyFactory.createBase("data", byte[].class);
+    public static final StringProperty<String> HASH_SHA256 = PropertyFactory.createString("hashSha256", String.class);
+    public static final NumericProperty<Integer> LENGTH = PropertyFactory.createNumeric("length", Integer.class);
+
+    protected Timestamp createTimestamp;
+    protected byte[] data;
+    protected String hashSha256;
+    protected Integer length;
+
+
+    public void setCreateTimestamp(Timestamp createTimestamp) {
+        beforePropertyWrite("createTimestamp", this.createTimestamp, createTimestamp);
+        this.createTimestamp = createTimestamp;
+    }
+
+    public Timestamp getCreateTimestamp() {
+        beforePropertyRead("createTimestamp");
+        return this.createTimestamp;
+    }
+
+    public void setData(byte[] data) {
+        beforePropertyWrite("data", this.data, data);
+        this.data = data;
+    }
+
+    public byte[] getData() {
+        beforePropertyRead("data");
+        return this.data;
+    }
+
+    public void setHashSha256(String hashSha256) {
+        beforePropertyWrite("hashSha256", this.hashSha256, hashSha256);
+        this.hashSha256 = hashSha256;
+    }
+
+    public String getHashSha256() {
+        beforePropertyRead("hashSha256");
+        return this.hashSha256;
+    }
+
+    public void setLength(Integer length) {
+        beforePropertyWrite("length", this.length, length);
+        this.length = length;
+    }
+
+    public Integer getLength() {
+        beforePropertyRead("length");
+        return this.length;
+    }
+
+    @Override
+    public Object readPropertyDirectly(String propName) {
+        if(propName == null) {
+            throw new IllegalArgumentException();
+        }
+
+        switch(propName) {
+            case "createTimestamp":
+                return this.createTimestamp;
+            case "data":
+                return this.data;
+            case "hashSha256":
+                return this.hashSha256;
+            case "length":
+                return this.length;
+            default:
+                return super.readPropertyDirectly(propName);
+        }
+    }
+
+    @Override
+    public void writePropertyDirectly(String propName, Object val) {
+        if(propName == null) {
+            throw new IllegalArgumentException();
+        }
+
+        switch (propName) {
+            case "createTimestamp":
+                this.createTimestamp = (Timestamp)val;
+                break;
+            case "data":
+                this.data = (byte[])val;
+                break;
+            case "hashSha256":
+                this.hashSha256 = (String)val;
+                break;
+            case "length":
+                this.length = (Integer)val;
+                break;
+            default:
+                super.writePropertyDirectly(propName, val);
+        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        writeSerialized(out);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        readSerialized(in);
+    }
+
+    @Override
+    protected void writeState(ObjectOutputStream out) throws IOException {
+        super.writeState(out);
+        out.writeObject(this.createTimestamp);
+        out.writeObject(this.data);
+        out.writeObject(this.hashSha256);
+        out.writeObject(this.length);
+    }
+
+    @Override
+    protected void readState(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        super.readState(in);
+        this.createTimestamp = (Timestamp)in.readObject();
+        this.data = (byte[])in.readObject();
+        this.hashSha256 = (String)in.readObject();
+        this.length = (Integer)in.readObject();
+    }
+
+}
@@ -4,9 +4,9 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 
-import org.apache.cayenne.exp.property.BaseProperty;
 import org.apache.cayenne.exp.property.EntityProperty;
 import org.apache.cayenne.exp.property.PropertyFactory;
+import org.haiku.haikudepotserver.dataobjects.ImageBlob;
 import org.haiku.haikudepotserver.dataobjects.PkgIcon;
 import org.haiku.haikudepotserver.dataobjects.support.AbstractDataObject;
 
@@ -22,21 +22,19 @@ public abstract class _PkgIconImage extends AbstractDataObject {
 
     public static final String ID_PK_COLUMN = "id";
 
-    public static final BaseProperty<byte[]> DATA = PropertyFactory.createBase("data", byte[].class);
+    public static final EntityProperty<ImageBlob> IMAGE_BLOB = PropertyFactory.createEntity("imageBlob", ImageBlob.class);
     public static final EntityProperty<PkgIcon> PKG_ICON = PropertyFactory.createEntity("pkgIcon", PkgIcon.class);
 
-    protected byte[] data;
 
+    protected Object imageBlob;
     protected Object pkgIcon;
 
-    public void setData(byte[] data) {
-        beforePropertyWrite("data", this.data, data);
-        this.data = data;
+    public void setImageBlob(ImageBlob imageBlob) {
+        setToOneTarget("imageBlob", imageBlob, true);
     }
 
-    public byte[] getData() {
-        beforePropertyRead("data");
-        return this.data;
+    public ImageBlob getImageBlob() {
+        return (ImageBlob)readProperty("imageBlob");
     }
 
     public void setPkgIcon(PkgIcon pkgIcon) {
@@ -54,8 +52,8 @@ public abstract class _PkgIconImage extends AbstractDataObject {
         }
 
         switch(propName) {
-            case "data":
-                return this.data;
+            case "imageBlob":
+                return this.imageBlob;
             case "pkgIcon":
                 return this.pkgIcon;
             default:
@@ -70,8 +68,8 @@ public abstract class _PkgIconImage extends AbstractDataObject {
         }
 
         switch (propName) {
-            case "data":
-                this.data = (byte[])val;
+            case "imageBlob":
+                this.imageBlob = val;
                 break;
             case "pkgIcon":
                 this.pkgIcon = val;
@@ -92,14 +90,14 @@ public abstract class _PkgIconImage extends AbstractDataObject {
     @Override
     protected void writeState(ObjectOutputStream out) throws IOException {
         super.writeState(out);
-        out.writeObject(this.data);
+        out.writeObject(this.imageBlob);
         out.writeObject(this.pkgIcon);
     }
 
     @Override
     protected void readState(ObjectInputStream in) throws IOException, ClassNotFoundException {
         super.readState(in);
-        this.data = (byte[])in.readObject();
+        this.imageBlob = in.readObject();
         this.pkgIcon = in.readObject();
     }
 
@@ -34,6 +34,7 @@ public abstract class _PkgScreenshot extends AbstractDataObject {
     public static final NumericProperty<Integer> HEIGHT = PropertyFactory.createNumeric("height", Integer.class);
     public static final NumericProperty<Integer> LENGTH = PropertyFactory.createNumeric("length", Integer.class);
     public static final DateProperty<Timestamp> MODIFY_TIMESTAMP = PropertyFactory.createDate("modifyTimestamp", Timestamp.class);
+    public static final DateProperty<Timestamp> OPTIMIZATION_TIMESTAMP = PropertyFactory.createDate("optimizationTimestamp", Timestamp.class);
     public static final NumericProperty<Integer> ORDERING = PropertyFactory.createNumeric("ordering", Integer.class);
     public static final NumericProperty<Integer> WIDTH = PropertyFactory.createNumeric("width", Integer.class);
     public static final ListProperty<PkgScreenshotImage> PKG_SCREENSHOT_IMAGES = PropertyFactory.createList("pkgScreenshotImages", PkgScreenshotImage.class);
@@ -45,6 +46,7 @@ public abstract class _PkgScreenshot extends AbstractDataObject {
     protected Integer height;
     protected Integer length;
     protected Timestamp modifyTimestamp;
+    protected Timestamp optimizationTimestamp;
     protected Integer ordering;
     protected Integer width;
 
@@ -111,6 +113,16 @@ public abstract class _PkgScreenshot extends AbstractDataObject {
         return this.modifyTimestamp;
     }
 
+    public void setOptimizationTimestamp(Timestamp optimizationTimestamp) {
+        beforePropertyWrite("optimizationTimestamp", this.optimizationTimestamp, optimizationTimestamp);
+        this.optimizationTimestamp = optimizationTimestamp;
+    }
+
+    public Timestamp getOptimizationTimestamp() {
+        beforePropertyRead("optimizationTimestamp");
+        return this.optimizationTimestamp;
+    }
+
     public void setOrdering(Integer ordering) {
         beforePropertyWrite("ordering", this.ordering, ordering);
         this.ordering = ordering;
@@ -171,6 +183,8 @@ public abstract class _PkgScreenshot extends AbstractDataObject {
                 return this.length;
             case "modifyTimestamp":
                 return this.modifyTimestamp;
+            case "optimizationTimestamp":
+                return this.optimizationTimestamp;
             case "ordering":
                 return this.ordering;
             case "width":
@@ -209,6 +223,9 @@ public abstract class _PkgScreenshot extends AbstractDataObject {
             case "modifyTimestamp":
                 this.modifyTimestamp = (Timestamp)val;
                 break;
+            case "optimizationTimestamp":
+                this.optimizationTimestamp = (Timestamp)val;
+                break;
             case "ordering":
                 this.ordering = (Integer)val;
                 break;
@@ -243,6 +260,7 @@ public abstract class _PkgScreenshot extends AbstractDataObject {
         out.writeObject(this.height);
         out.writeObject(this.length);
         out.writeObject(this.modifyTimestamp);
+        out.writeObject(this.optimizationTimestamp);
         out.writeObject(this.ordering);
         out.writeObject(this.width);
         out.writeObject(this.pkgScreenshotImages);
@@ -258,6 +276,7 @@ public abstract class _PkgScreenshot extends AbstractDataObject {
         this.height = (Integer)in.readObject();
         this.length = (Integer)in.readObject();
         this.modifyTimestamp = (Timestamp)in.readObject();
+        this.optimizationTimestamp = (Timestamp)in.readObject();
         this.ordering = (Integer)in.readObject();
         this.width = (Integer)in.readObject();
         this.pkgScreenshotImages = in.readObject();
@@ -4,9 +4,9 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 
-import org.apache.cayenne.exp.property.BaseProperty;
 import org.apache.cayenne.exp.property.EntityProperty;
 import org.apache.cayenne.exp.property.PropertyFactory;
+import org.haiku.haikudepotserver.dataobjects.ImageBlob;
 import org.haiku.haikudepotserver.dataobjects.MediaType;
 import org.haiku.haikudepotserver.dataobjects.PkgScreenshot;
 import org.haiku.haikudepotserver.dataobjects.support.AbstractDataObject;
@@ -23,23 +23,21 @@ public abstract class _PkgScreenshotImage extends AbstractDataObject {
 
     public static final String ID_PK_COLUMN = "id";
 
-    public static final BaseProperty<byte[]> DATA = PropertyFactory.createBase("data", byte[].class);
+    public static final EntityProperty<ImageBlob> IMAGE_BLOB = PropertyFactory.createEntity("imageBlob", ImageBlob.class);
     public static final EntityProperty<MediaType> MEDIA_TYPE = PropertyFactory.createEntity("mediaType", MediaType.class);
     public static final EntityProperty<PkgScreenshot> PKG_SCREENSHOT = PropertyFactory.createEntity("pkgScreenshot", PkgScreenshot.class);
 
-    protected byte[] data;
 
+    protected Object imageBlob;
     protected Object mediaType;
     protected Object pkgScreenshot;
 
-    public void setData(byte[] data) {
-        beforePropertyWrite("data", this.data, data);
-        this.data = data;
+    public void setImageBlob(ImageBlob imageBlob) {
+        setToOneTarget("imageBlob", imageBlob, true);
     }
 
-    public byte[] getData() {
-        beforePropertyRead("data");
-        return this.data;
+    public ImageBlob getImageBlob() {
+        return (ImageBlob)readProperty("imageBlob");
     }
 
     public void setMediaType(MediaType mediaType) {
@@ -65,8 +63,8 @@ public abstract class _PkgScreenshotImage extends AbstractDataObject {
         }
 
         switch(propName) {
-            case "data":
-                return this.data;
+            case "imageBlob":
+                return this.imageBlob;
             case "mediaType":
                 return this.mediaType;
             case "pkgScreenshot":
@@ -83,8 +81,8 @@ public abstract class _PkgScreenshotImage extends AbstractDataObject {
         }
 
         switch (propName) {
-            case "data":
-                this.data = (byte[])val;
+            case "imageBlob":
+                this.imageBlob = val;
                 break;
             case "mediaType":
                 this.mediaType = val;
@@ -108,7 +106,7 @@ public abstract class _PkgScreenshotImage extends AbstractDataObject {
     @Override
     protected void writeState(ObjectOutputStream out) throws IOException {
         super.writeState(out);
-        out.writeObject(this.data);
+        out.writeObject(this.imageBlob);
         out.writeObject(this.mediaType);
         out.writeObject(this.pkgScreenshot);
     }
@@ -116,7 +114,7 @@ public abstract class _PkgScreenshotImage extends AbstractDataObject {
     @Override
     protected void readState(ObjectInputStream in) throws IOException, ClassNotFoundException {
         super.readState(in);
-        this.data = (byte[])in.readObject();
+        this.imageBlob = in.readObject();
         this.mediaType = in.readObject();
         this.pkgScreenshot = in.readObject();
     }
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.graphics;
+
+import com.google.common.base.Preconditions;
+import com.google.common.net.HttpHeaders;
+import com.google.common.net.MediaType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.lang3.StringUtils;
+import org.haiku.haikudepotserver.metrics.MetricsConstants;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * <p>A single HTTP client that is shared by all of the services which call out to the graphics
+ * server; see <code>haikudepotserver-server-graphics</code>. Sharing the client means that the
+ * connections to the graphics server are pooled and reused between the services. HTTP/2 is
+ * preferred but the client will fall back to HTTP/1.1 with persistent connections if the
+ * graphics server does not support it.</p>
+ *
+ * <p>Requests may be made asynchronously so that the caller does not need to hold a thread
+ * while the graphics server is working. The duration of each request is recorded in a timer
+ * for the operation so that the latency of each kind of graphics operation can be seen.</p>
+ */
+
+public class GraphicsServerClient implements AutoCloseable {
+
+    private final static String RESULT_SUCCESS = "success";
+    private final static String RESULT_FAILURE = "failure";
+
+    private final String baseUri;
+
+    private final Duration requestTimeout;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ExecutorService executorService;
+
+    private final HttpClient httpClient;
+
+    public GraphicsServerClient(
+            String baseUri,
+            Duration connectTimeout,
+            Duration requestTimeout,
+            MeterRegistry meterRegistry) {
+        Preconditions.checkArgument(null != connectTimeout, "the connect timeout must be supplied");
+        Preconditions.checkArgument(null != requestTimeout, "the request timeout must be supplied");
+        this.baseUri = StringUtils.trimToEmpty(baseUri);
+        this.requestTimeout = requestTimeout;
+        this.meterRegistry = Preconditions.checkNotNull(meterRegistry);
+        this.executorService = Executors.newVirtualThreadPerTaskExecutor();
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .executor(executorService)
+                .build();
+    }
+
+    /**
+     * <p>Returns true if there is a graphics server configured to make requests to.</p>
+     */
+
+    public boolean isConfigured() {
+        return StringUtils.isNotBlank(baseUri);
+    }
+
+    public String getBaseUri() {
+        return baseUri;
+    }
+
+    @Override
+    public void close() {
+        httpClient.close();
+        executorService.close();
+    }
+
+    /**
+     * <p>Produces a builder for a URI on the graphics server with the supplied path.</p>
+     */
+
+    public UriComponentsBuilder uriBuilder(String... pathComponents) {
+        Preconditions.checkState(isConfigured(), "the graphics server is not configured");
+        return UriComponentsBuilder.fromUriString(baseUri).pathSegment(pathComponents);
+    }
+
+    /**
+     * <p>POSTs the data to the graphics server and provides the response data once it is
+     * available.</p>
+     *
+     * @param operation is a short name for the kind of request used to record its duration.
+     * @return a future that completes with the response data or fails with an
+     * {@link IOException} if the graphics server does not succeed.
+     */
+
+    public CompletableFuture<byte[]> postAsync(
+            String operation,
+            URI uri,
+            MediaType contentType,
+            HttpRequest.BodyPublisher bodyPublisher) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        return httpClient.sendAsync(createPostRequest(uri, contentType, bodyPublisher), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> {
+                    if (!HttpStatusCode.valueOf(response.statusCode()).is2xxSuccessful()) {
+                        throw new CompletionException(createBadStatusException(operation, response.statusCode()));
+                    }
+                    return response.body();
+                })
+                .whenComplete((data, throwable) -> sample.stop(getTimer(operation, null == throwable)));
+    }
+
+    /**
+     * <p>As {@link #postAsync} but waits for the response data.</p>
+     */
+
+    public byte[] post(
+            String operation,
+            URI uri,
+            MediaType contentType,
+            HttpRequest.BodyPublisher bodyPublisher) throws IOException {
+        try {
+            return postAsync(operation, uri, contentType, bodyPublisher).get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("the request to the graphics server for [" + operation + "] was cancelled", ie);
+        } catch (ExecutionException ee) {
+            throw toIOException(operation, ee.getCause());
+        }
+    }
+
+    /**
+     * <p>POSTs the data to the graphics server and streams the response data to the supplied
+     * output so that the whole of the response is not held in memory.</p>
+     */
+
+    public void post(
+            String operation,
+            URI uri,
+            MediaType contentType,
+            HttpRequest.BodyPublisher bodyPublisher,
+            OutputStream output) throws IOException {
+        Preconditions.checkArgument(null != output, "expected the output data to be provided");
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean success = false;
+
+        try {
+            HttpResponse<InputStream> response = httpClient.send(
+                    createPostRequest(uri, contentType, bodyPublisher),
+                    HttpResponse.BodyHandlers.ofInputStream());
+
+            try (InputStream responseStream = response.body()) {
+                if (!HttpStatusCode.valueOf(response.statusCode()).is2xxSuccessful()) {
+                    throw createBadStatusException(operation, response.statusCode());
+                }
+
+                responseStream.transferTo(output);
+            }
+
+            success = true;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("the request to the graphics server for [" + operation + "] was cancelled", ie);
+        } finally {
+            sample.stop(getTimer(operation, success));
+        }
+    }
+
+    private HttpRequest createPostRequest(URI uri, MediaType contentType, HttpRequest.BodyPublisher bodyPublisher) {
+        Preconditions.checkArgument(null != uri, "the uri must be supplied");
+        Preconditions.checkArgument(null != contentType, "the content type must be supplied");
+        Preconditions.checkArgument(null != bodyPublisher, "the body must be supplied");
+
+        return HttpRequest.newBuilder()
+                .uri(uri)
+                .timeout(requestTimeout)
+                .header(HttpHeaders.CONTENT_TYPE, contentType.toString())
+                .POST(bodyPublisher)
+                .build();
+    }
+
+    private static IOException createBadStatusException(String operation, int statusCode) {
+        return new IOException("the request to the graphics server for [" + operation
+                + "] returns [" + statusCode + "]");
+    }
+
+    private static IOException toIOException(String operation, Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+
+        return switch (cause) {
+            case IOException ioe -> ioe;
+            case UncheckedIOException uioe -> uioe.getCause();
+            default -> new IOException("the request to the graphics server for [" + operation + "] failed", cause);
+        };
+    }
+
+    private Timer getTimer(String operation, boolean success) {
+        return Timer.builder(MetricsConstants.TIMER_NAME_GRAPHICS_SERVER_REQUESTS)
+                .tags(Set.of(
+                        Tag.of(MetricsConstants.TAG_NAME_OPERATION, operation),
+                        Tag.of(MetricsConstants.TAG_NAME_RESULT, success ? RESULT_SUCCESS : RESULT_FAILURE)))
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+}
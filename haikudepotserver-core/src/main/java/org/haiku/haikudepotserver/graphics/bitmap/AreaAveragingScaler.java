@@ -0,0 +1,194 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.graphics.bitmap;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * <p>Reduces the size of an image by averaging the area of the source image that each pixel of
+ * the target image covers.  The rows of the source image are supplied one at a time so that the
+ * whole of the source image does not need to be held in memory.  Only two rows of the target
+ * image are being accumulated at any one time.</p>
+ *
+ * <p>The colour values are weighted by the alpha so that fully transparent pixels, which may
+ * have any colour, do not bleed into the visible pixels.</p>
+ */
+
+class AreaAveragingScaler {
+
+    /**
+     * <p>The number of values accumulated for each target pixel; red, green and blue multiplied
+     * by alpha, alpha and the total weight.</p>
+     */
+
+    private static final int ACCUMULATOR_STRIDE = 5;
+
+    private final int sourceWidth;
+    private final int sourceHeight;
+    private final int targetWidth;
+    private final int targetHeight;
+
+    private final double yRatio;
+
+    /**
+     * <p>For each source column, the first target column that it contributes to.</p>
+     */
+
+    private final int[] xTargets;
+
+    /**
+     * <p>For each source column, the proportion of the source column that contributes to the
+     * first target column.  The remainder contributes to the following target column.</p>
+     */
+
+    private final double[] xWeights;
+
+    private double[] currentRowAccumulator;
+    private double[] nextRowAccumulator;
+
+    private int currentTargetRow = 0;
+    private int sourceRow = 0;
+
+    private final int[] targetPixels;
+
+    AreaAveragingScaler(int sourceWidth, int sourceHeight, int targetWidth, int targetHeight) {
+        Preconditions.checkArgument(targetWidth > 0 && targetWidth <= sourceWidth, "bad target width");
+        Preconditions.checkArgument(targetHeight > 0 && targetHeight <= sourceHeight, "bad target height");
+        this.sourceWidth = sourceWidth;
+        this.sourceHeight = sourceHeight;
+        this.targetWidth = targetWidth;
+        this.targetHeight = targetHeight;
+        this.yRatio = (double) sourceHeight / (double) targetHeight;
+        this.targetPixels = new int[targetWidth * targetHeight];
+        this.currentRowAccumulator = new double[targetWidth * ACCUMULATOR_STRIDE];
+        this.nextRowAccumulator = new double[targetWidth * ACCUMULATOR_STRIDE];
+
+        double xRatio = (double) sourceWidth / (double) targetWidth;
+        xTargets = new int[sourceWidth];
+        xWeights = new double[sourceWidth];
+
+        for (int x = 0; x < sourceWidth; x++) {
+            int target = Math.min((int) (x / xRatio), targetWidth - 1);
+            double boundary = (target + 1) * xRatio;
+            xTargets[x] = target;
+            xWeights[x] = (x + 1 <= boundary || target == targetWidth - 1) ? 1.0 : boundary - x;
+        }
+    }
+
+    /**
+     * <p>Derives the size of the target image such that it fits into the box with the same
+     * aspect ratio as the source image.</p>
+     */
+
+    static int[] deriveTargetSize(int sourceWidth, int sourceHeight, int boxWidth, int boxHeight) {
+        double scale = Math.min(
+                (double) boxWidth / (double) sourceWidth,
+                (double) boxHeight / (double) sourceHeight);
+        return new int[] {
+                Math.clamp(Math.round(sourceWidth * scale), 1, boxWidth),
+                Math.clamp(Math.round(sourceHeight * scale), 1, boxHeight)
+        };
+    }
+
+    /**
+     * <p>Supplies the next row of the source image as ARGB values.</p>
+     */
+
+    void addRow(int[] argbs) {
+        Preconditions.checkState(sourceRow < sourceHeight, "all of the source rows have already been supplied");
+        Preconditions.checkArgument(argbs.length >= sourceWidth, "the row is too short");
+
+        int target = Math.min((int) (sourceRow / yRatio), targetHeight - 1);
+
+        while (target > currentTargetRow) {
+            emitCurrentRow();
+        }
+
+        double boundary = (target + 1) * yRatio;
+
+        if (sourceRow + 1 <= boundary || target == targetHeight - 1) {
+            accumulate(currentRowAccumulator, argbs, 1.0);
+        } else {
+            double weight = boundary - sourceRow;
+            accumulate(currentRowAccumulator, argbs, weight);
+            accumulate(nextRowAccumulator, argbs, 1.0 - weight);
+        }
+
+        sourceRow++;
+    }
+
+    /**
+     * <p>Once all of the source rows have been supplied, this method will return the target
+     * image.</p>
+     */
+
+    RgbaImage toImage() {
+        Preconditions.checkState(sourceRow == sourceHeight, "not all of the source rows have been supplied");
+
+        while (currentTargetRow < targetHeight) {
+            emitCurrentRow();
+        }
+
+        return new RgbaImage(targetWidth, targetHeight, targetPixels);
+    }
+
+    private void accumulate(double[] accumulator, int[] argbs, double yWeight) {
+        for (int x = 0; x < sourceWidth; x++) {
+            int argb = argbs[x];
+            int target = xTargets[x];
+            double xWeight = xWeights[x];
+
+            accumulatePixel(accumulator, target, argb, xWeight * yWeight);
+
+            if (xWeight < 1.0) {
+                accumulatePixel(accumulator, target + 1, argb, (1.0 - xWeight) * yWeight);
+            }
+        }
+    }
+
+    private static void accumulatePixel(double[] accumulator, int target, int argb, double weight) {
+        int offset = target * ACCUMULATOR_STRIDE;
+        double alphaWeight = RgbaImage.alpha(argb) * weight;
+        accumulator[offset] += RgbaImage.red(argb) * alphaWeight;
+        accumulator[offset + 1] += RgbaImage.green(argb) * alphaWeight;
+        accumulator[offset + 2] += RgbaImage.blue(argb) * alphaWeight;
+        accumulator[offset + 3] += alphaWeight;
+        accumulator[offset + 4] += weight;
+    }
+
+    private void emitCurrentRow() {
+        int rowOffset = currentTargetRow * targetWidth;
+
+        for (int x = 0; x < targetWidth; x++) {
+            int offset = x * ACCUMULATOR_STRIDE;
+            double alphaTotal = currentRowAccumulator[offset + 3];
+            double weightTotal = currentRowAccumulator[offset + 4];
+
+            if (alphaTotal <= 0.0 || weightTotal <= 0.0) {
+                targetPixels[rowOffset + x] = 0;
+            } else {
+                targetPixels[rowOffset + x] = RgbaImage.argb(
+                        toComponent(alphaTotal / weightTotal),
+                        toComponent(currentRowAccumulator[offset] / alphaTotal),
+                        toComponent(currentRowAccumulator[offset + 1] / alphaTotal),
+                        toComponent(currentRowAccumulator[offset + 2] / alphaTotal));
+            }
+        }
+
+        double[] swap = currentRowAccumulator;
+        currentRowAccumulator = nextRowAccumulator;
+        nextRowAccumulator = swap;
+        Arrays.fill(nextRowAccumulator, 0.0);
+        currentTargetRow++;
+    }
+
+    private static int toComponent(double value) {
+        return Math.clamp(Math.round(value), 0, 255);
+    }
+
+}
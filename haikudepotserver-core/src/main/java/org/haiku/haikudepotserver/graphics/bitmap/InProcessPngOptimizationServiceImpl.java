@@ -0,0 +1,67 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.graphics.bitmap;
+
+import ar.com.hjg.pngj.FilterType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * <p>Optimizes PNG images in-process rather than calling out to the graphics server.  The image
+ * is re-written with the most compact colour type; a palette is used where the image has few
+ * enough colours.  The image data is compressed with a number of filter types and the smallest
+ * result is kept.  If quantization is enabled then images with many colours may be reduced to a
+ * palette providing that the result is close enough to the original.</p>
+ *
+ * <p>The caller is expected to keep the original image if the optimized image is not smaller.</p>
+ */
+
+class InProcessPngOptimizationServiceImpl implements PngOptimizationService {
+
+    /**
+     * <p>Optimization happens in the background so it is worth trying a number of filter
+     * types to find the smallest output.</p>
+     */
+
+    private static final List<FilterType> FILTER_TYPES = List.of(
+            FilterType.FILTER_NONE,
+            FilterType.FILTER_ADAPTIVE_FULL,
+            FilterType.FILTER_SUPER_ADAPTIVE);
+
+    private static final int QUANTIZE_MAX_COLORS = 256;
+
+    /**
+     * <p>This limit keeps the quantization to images, such as screenshots of user interfaces,
+     * where the loss would not be obvious.</p>
+     */
+
+    private static final double QUANTIZE_MAX_ROOT_MEAN_SQUARE_ERROR = 4.0;
+
+    private final Optional<MedianCutQuantizer> quantizerOptional;
+
+    InProcessPngOptimizationServiceImpl(boolean quantize) {
+        this.quantizerOptional = quantize ? Optional.of(createQuantizer()) : Optional.empty();
+    }
+
+    static MedianCutQuantizer createQuantizer() {
+        return new MedianCutQuantizer(QUANTIZE_MAX_COLORS, QUANTIZE_MAX_ROOT_MEAN_SQUARE_ERROR);
+    }
+
+    @Override
+    public boolean identityOptimization() {
+        return false;
+    }
+
+    @Override
+    public void optimize(InputStream input, OutputStream output) throws IOException {
+        PngCodec.write(PngCodec.read(input), output, quantizerOptional, FILTER_TYPES);
+    }
+
+}
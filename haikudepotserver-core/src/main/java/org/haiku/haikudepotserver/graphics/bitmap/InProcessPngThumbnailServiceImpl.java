@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.graphics.bitmap;
+
+import ar.com.hjg.pngj.FilterType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * <p>An implementation of {@link PngThumbnailService} which produces the thumbnail in-process
+ * rather than calling out to the graphics server.  This avoids the cost of the HTTP request and
+ * of starting the external tools which, for small images, is greater than the cost of the
+ * scaling itself.  The source image is scaled by area-averaging as it is read so that the whole
+ * of the source image is not held in memory.</p>
+ */
+
+public class InProcessPngThumbnailServiceImpl extends AbstractThumbnailServiceImpl {
+
+    /**
+     * <p>A thumbnail is produced on demand so only a single, fast, filter type is tried.</p>
+     */
+
+    private static final List<FilterType> FILTER_TYPES = List.of(FilterType.FILTER_ADAPTIVE_FAST);
+
+    private final Optional<MedianCutQuantizer> quantizerOptional;
+
+    public InProcessPngThumbnailServiceImpl(boolean quantize) {
+        this.quantizerOptional = quantize ? Optional.of(InProcessPngOptimizationServiceImpl.createQuantizer()) : Optional.empty();
+    }
+
+    @Override
+    protected void thumbnailIgnoringExistingSizes(InputStream input, OutputStream output, int width, int height) throws IOException {
+        ScalingRowConsumer consumer = new ScalingRowConsumer(width, height);
+        PngCodec.read(input, consumer);
+        PngCodec.write(consumer.toImage(), output, quantizerOptional, FILTER_TYPES);
+    }
+
+    private static final class ScalingRowConsumer implements PngCodec.RowConsumer {
+
+        private final int boxWidth;
+        private final int boxHeight;
+        private AreaAveragingScaler scaler;
+
+        ScalingRowConsumer(int boxWidth, int boxHeight) {
+            this.boxWidth = boxWidth;
+            this.boxHeight = boxHeight;
+        }
+
+        @Override
+        public void begin(int width, int height) {
+            int[] targetSize = AreaAveragingScaler.deriveTargetSize(width, height, boxWidth, boxHeight);
+            scaler = new AreaAveragingScaler(width, height, targetSize[0], targetSize[1]);
+        }
+
+        @Override
+        public void row(int[] argbs) {
+            scaler.addRow(argbs);
+        }
+
+        RgbaImage toImage() {
+            return scaler.toImage();
+        }
+
+    }
+
+}
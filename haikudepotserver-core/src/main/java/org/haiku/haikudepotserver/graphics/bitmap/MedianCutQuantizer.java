@@ -0,0 +1,261 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.graphics.bitmap;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * <p>Reduces the colours of an image to a palette using the median-cut algorithm.  The colours
+ * are first reduced to 5 bits per component so that the histogram is of a bounded size.  Boxes
+ * of colours are then repeatedly split at the median of their widest component until there are
+ * enough boxes for the palette.  Each palette entry is the average of the actual colours of the
+ * pixels that fall in its box.</p>
+ *
+ * <p>If the resulting image differs too much from the original then no result is produced; this
+ * is similar to the quality limit of <code>pngquant</code>.</p>
+ */
+
+class MedianCutQuantizer {
+
+    private static final int BITS = 5;
+    private static final int SHIFT = 8 - BITS;
+    private static final int COMPONENT_MASK = (1 << BITS) - 1;
+    private static final int BUCKET_COUNT = 1 << (BITS * 4);
+
+    private final int maxColors;
+
+    private final double maxRootMeanSquareError;
+
+    /**
+     * @param maxColors is the maximum number of entries in the palette.
+     * @param maxRootMeanSquareError is the largest permissible root mean square difference
+     *                               between the components of the original image and the
+     *                               quantized image.
+     */
+
+    MedianCutQuantizer(int maxColors, double maxRootMeanSquareError) {
+        Preconditions.checkArgument(maxColors >= 2 && maxColors <= 256, "bad max colors");
+        Preconditions.checkArgument(maxRootMeanSquareError >= 0.0, "bad max error");
+        this.maxColors = maxColors;
+        this.maxRootMeanSquareError = maxRootMeanSquareError;
+    }
+
+    /**
+     * @param palette is the ARGB value of each entry.
+     * @param indexes is the index into the palette of each pixel of the image.
+     */
+
+    record Result(int[] palette, int[] indexes) {
+    }
+
+    Optional<Result> quantize(RgbaImage image) {
+        int[] pixels = image.pixels();
+        int[] histogram = new int[BUCKET_COUNT];
+
+        for (int argb : pixels) {
+            histogram[toBucket(argb)]++;
+        }
+
+        int[] buckets = collectBuckets(histogram);
+        List<Box> boxes = new ArrayList<>();
+        boxes.add(new Box(buckets, 0, buckets.length));
+
+        while (boxes.size() < maxColors) {
+            Box widest = boxes.stream()
+                    .filter(Box::isSplittable)
+                    .max(Comparator.comparingInt(Box::widestRange))
+                    .orElse(null);
+
+            if (null == widest) {
+                break;
+            }
+
+            boxes.remove(widest);
+            boxes.addAll(widest.split(buckets, histogram));
+        }
+
+        int[] bucketToPaletteIndex = new int[BUCKET_COUNT];
+
+        for (int i = 0; i < boxes.size(); i++) {
+            Box box = boxes.get(i);
+            for (int j = box.from; j < box.to; j++) {
+                bucketToPaletteIndex[buckets[j]] = i;
+            }
+        }
+
+        // the palette entries are the average of the actual colours in each box.
+
+        long[] sums = new long[boxes.size() * 4];
+        long[] counts = new long[boxes.size()];
+        int[] indexes = new int[pixels.length];
+
+        for (int i = 0; i < pixels.length; i++) {
+            int argb = pixels[i];
+            int index = bucketToPaletteIndex[toBucket(argb)];
+            indexes[i] = index;
+            sums[index * 4] += RgbaImage.alpha(argb);
+            sums[index * 4 + 1] += RgbaImage.red(argb);
+            sums[index * 4 + 2] += RgbaImage.green(argb);
+            sums[index * 4 + 3] += RgbaImage.blue(argb);
+            counts[index]++;
+        }
+
+        int[] palette = new int[boxes.size()];
+
+        for (int i = 0; i < palette.length; i++) {
+            long count = Math.max(1L, counts[i]);
+            palette[i] = RgbaImage.argb(
+                    (int) Math.round((double) sums[i * 4] / count),
+                    (int) Math.round((double) sums[i * 4 + 1] / count),
+                    (int) Math.round((double) sums[i * 4 + 2] / count),
+                    (int) Math.round((double) sums[i * 4 + 3] / count));
+        }
+
+        if (rootMeanSquareError(pixels, indexes, palette) > maxRootMeanSquareError) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new Result(palette, indexes));
+    }
+
+    private static int[] collectBuckets(int[] histogram) {
+        int count = 0;
+        for (int c : histogram) {
+            if (c > 0) {
+                count++;
+            }
+        }
+        int[] result = new int[count];
+        int j = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] > 0) {
+                result[j++] = i;
+            }
+        }
+        return result;
+    }
+
+    private static double rootMeanSquareError(int[] pixels, int[] indexes, int[] palette) {
+        double total = 0.0;
+
+        for (int i = 0; i < pixels.length; i++) {
+            int original = pixels[i];
+            int quantized = palette[indexes[i]];
+            total += square(RgbaImage.alpha(original) - RgbaImage.alpha(quantized))
+                    + square(RgbaImage.red(original) - RgbaImage.red(quantized))
+                    + square(RgbaImage.green(original) - RgbaImage.green(quantized))
+                    + square(RgbaImage.blue(original) - RgbaImage.blue(quantized));
+        }
+
+        return Math.sqrt(total / (pixels.length * 4.0));
+    }
+
+    private static double square(int value) {
+        return (double) value * value;
+    }
+
+    private static int toBucket(int argb) {
+        return (RgbaImage.alpha(argb) >> SHIFT) << (BITS * 3)
+                | (RgbaImage.red(argb) >> SHIFT) << (BITS * 2)
+                | (RgbaImage.green(argb) >> SHIFT) << BITS
+                | (RgbaImage.blue(argb) >> SHIFT);
+    }
+
+    private static int component(int bucket, int component) {
+        return (bucket >> (BITS * (3 - component))) & COMPONENT_MASK;
+    }
+
+    /**
+     * <p>A range of the sorted buckets.</p>
+     */
+
+    private static class Box {
+
+        private final int from;
+        private final int to;
+        private final int[] mins = new int[4];
+        private final int[] maxs = new int[4];
+
+        Box(int[] buckets, int from, int to) {
+            this.from = from;
+            this.to = to;
+            Arrays.fill(mins, Integer.MAX_VALUE);
+            Arrays.fill(maxs, Integer.MIN_VALUE);
+
+            for (int i = from; i < to; i++) {
+                for (int c = 0; c < 4; c++) {
+                    int value = component(buckets[i], c);
+                    mins[c] = Math.min(mins[c], value);
+                    maxs[c] = Math.max(maxs[c], value);
+                }
+            }
+        }
+
+        boolean isSplittable() {
+            return to - from > 1;
+        }
+
+        int widestComponent() {
+            int result = 0;
+            for (int c = 1; c < 4; c++) {
+                if (maxs[c] - mins[c] > maxs[result] - mins[result]) {
+                    result = c;
+                }
+            }
+            return result;
+        }
+
+        int widestRange() {
+            int c = widestComponent();
+            return maxs[c] - mins[c];
+        }
+
+        /**
+         * <p>Sorts the buckets in the box by the widest component and then splits the box
+         * where half of the pixels are on each side.</p>
+         */
+
+        List<Box> split(int[] buckets, int[] histogram) {
+            int c = widestComponent();
+            int shift = BITS * 4;
+
+            for (int i = from; i < to; i++) {
+                buckets[i] = (component(buckets[i], c) << shift) | buckets[i];
+            }
+
+            Arrays.sort(buckets, from, to);
+
+            long total = 0;
+            for (int i = from; i < to; i++) {
+                buckets[i] = buckets[i] & (BUCKET_COUNT - 1);
+                total += histogram[buckets[i]];
+            }
+
+            long running = 0;
+            int split = from + 1;
+
+            for (int i = from; i < to - 1; i++) {
+                running += histogram[buckets[i]];
+                split = i + 1;
+                if (running * 2 >= total) {
+                    break;
+                }
+            }
+
+            return List.of(
+                    new Box(buckets, from, split),
+                    new Box(buckets, split, to));
+        }
+
+    }
+
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.graphics.bitmap;
+
+import ar.com.hjg.pngj.FilterType;
+import ar.com.hjg.pngj.ImageInfo;
+import ar.com.hjg.pngj.ImageLineInt;
+import ar.com.hjg.pngj.PngReader;
+import ar.com.hjg.pngj.PngWriter;
+import ar.com.hjg.pngj.PngjException;
+import ar.com.hjg.pngj.chunks.PngChunkPLTE;
+import ar.com.hjg.pngj.chunks.PngChunkTRNS;
+import com.google.common.base.Preconditions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * <p>Reads and writes PNG images in-process using the <code>pngj</code> library.  Images of any
+ * PNG colour type and bit depth are read as 8-bit ARGB.  When writing, the most compact colour
+ * type is chosen and the image is compressed with each of the supplied filter types so that the
+ * smallest result can be kept.</p>
+ */
+
+public final class PngCodec {
+
+    private static final int COMPRESSION_LEVEL = 9;
+
+    private static final int MAX_PALETTE_SIZE = 256;
+
+    private static final List<FilterType> DEFAULT_FILTER_TYPES = List.of(FilterType.FILTER_ADAPTIVE_FULL);
+
+    private PngCodec() {
+    }
+
+    /**
+     * <p>Receives the rows of an image as they are read.</p>
+     */
+
+    interface RowConsumer {
+
+        void begin(int width, int height);
+
+        /**
+         * @param argbs is reused between rows so must not be retained.
+         */
+
+        void row(int[] argbs);
+
+    }
+
+    public static RgbaImage read(InputStream input) throws IOException {
+        ImageCollector collector = new ImageCollector();
+        read(input, collector);
+        return new RgbaImage(collector.width, collector.height, collector.pixels);
+    }
+
+    static void read(InputStream input, RowConsumer consumer) throws IOException {
+        Preconditions.checkArgument(null != input, "the input must be supplied");
+        Preconditions.checkArgument(null != consumer, "the consumer must be supplied");
+
+        PngReader reader = null;
+
+        try {
+            reader = new PngReader(input);
+            reader.setShouldCloseStream(false);
+
+            ImageInfo imageInfo = reader.imgInfo;
+            PngChunkPLTE palette = reader.getMetadata().getPLTE();
+            PngChunkTRNS transparency = reader.getMetadata().getTRNS();
+            int[] argbs = new int[imageInfo.cols];
+
+            if (imageInfo.indexed && null == palette) {
+                throw new IOException("the indexed png image has no palette");
+            }
+
+            consumer.begin(imageInfo.cols, imageInfo.rows);
+
+            while (reader.hasMoreRows()) {
+                ImageLineInt line = (ImageLineInt) reader.readRow();
+                toArgbs(imageInfo, palette, transparency, line.getScanline(), argbs);
+                consumer.row(argbs);
+            }
+
+            reader.end();
+        } catch (PngjException pe) {
+            throw new IOException("unable to read the png image", pe);
+        } finally {
+            if (null != reader) {
+                reader.close();
+            }
+        }
+    }
+
+    private static void toArgbs(
+            ImageInfo imageInfo,
+            PngChunkPLTE palette,
+            PngChunkTRNS transparency,
+            int[] samples,
+            int[] argbs) {
+        int channels = imageInfo.channels;
+        int maxSample = (1 << imageInfo.bitDepth) - 1;
+
+        if (imageInfo.indexed) {
+            int[] paletteAlphas = null == transparency ? new int[0] : transparency.getPalletteAlpha();
+
+            for (int x = 0; x < imageInfo.cols; x++) {
+                int index = samples[x];
+                int rgb = palette.getEntry(index);
+                int alpha = index < paletteAlphas.length ? paletteAlphas[index] : 0xff;
+                argbs[x] = (alpha << 24) | (rgb & 0xffffff);
+            }
+
+            return;
+        }
+
+        if (imageInfo.greyscale) {
+            int transparentGrey = (!imageInfo.alpha && null != transparency) ? transparency.getGray() : -1;
+
+            for (int x = 0; x < imageInfo.cols; x++) {
+                int grey = samples[x * channels];
+                int alpha;
+
+                if (imageInfo.alpha) {
+                    alpha = to8Bit(samples[x * channels + 1], maxSample);
+                } else {
+                    alpha = grey == transparentGrey ? 0 : 0xff;
+                }
+
+                int grey8 = to8Bit(grey, maxSample);
+                argbs[x] = RgbaImage.argb(alpha, grey8, grey8, grey8);
+            }
+
+            return;
+        }
+
+        int[] transparentRgb = (!imageInfo.alpha && null != transparency) ? transparency.getRGB() : null;
+
+        for (int x = 0; x < imageInfo.cols; x++) {
+            int offset = x * channels;
+            int red = samples[offset];
+            int green = samples[offset + 1];
+            int blue = samples[offset + 2];
+            int alpha;
+
+            if (imageInfo.alpha) {
+                alpha = to8Bit(samples[offset + 3], maxSample);
+            } else if (null != transparentRgb
+                    && red == transparentRgb[0] && green == transparentRgb[1] && blue == transparentRgb[2]) {
+                alpha = 0;
+            } else {
+                alpha = 0xff;
+            }
+
+            argbs[x] = RgbaImage.argb(alpha, to8Bit(red, maxSample), to8Bit(green, maxSample), to8Bit(blue, maxSample));
+        }
+    }
+
+    private static int to8Bit(int sample, int maxSample) {
+        if (0xff == maxSample) {
+            return sample;
+        }
+        return (sample * 0xff + maxSample / 2) / maxSample;
+    }
+
+    /**
+     * <p>Writes the image without any loss choosing the most compact representation.</p>
+     */
+
+    public static void write(RgbaImage image, OutputStream output) throws IOException {
+        write(image, output, Optional.empty(), DEFAULT_FILTER_TYPES);
+    }
+
+    /**
+     * <p>Writes the image choosing the most compact representation.  If the image has no more
+     * than 256 colours then it is written with a palette.  Otherwise, if a quantizer is supplied
+     * then the image's colours may be reduced to a palette.  The image is compressed with each
+     * of the filter types and the smallest is written to the output.</p>
+     */
+
+    static void write(
+            RgbaImage image,
+            OutputStream output,
+            Optional<MedianCutQuantizer> quantizerOptional,
+            List<FilterType> filterTypes) throws IOException {
+        Preconditions.checkArgument(null != image, "the image must be supplied");
+        Preconditions.checkArgument(null != output, "the output must be supplied");
+        Preconditions.checkArgument(null != filterTypes && !filterTypes.isEmpty(), "the filter types must be supplied");
+
+        Optional<MedianCutQuantizer.Result> indexedOptional = tryCreateExactPalette(image)
+                .or(() -> quantizerOptional.flatMap(q -> q.quantize(image)));
+
+        byte[] smallest = null;
+
+        for (FilterType filterType : filterTypes) {
+            ByteArrayOutputStream candidate = new ByteArrayOutputStream();
+
+            try {
+                if (indexedOptional.isPresent()) {
+                    writeIndexed(image, indexedOptional.get(), candidate, filterType);
+                } else {
+                    writeTrueColor(image, candidate, filterType);
+                }
+            } catch (PngjException pe) {
+                throw new IOException("unable to write the png image", pe);
+            }
+
+            if (null == smallest || candidate.size() < smallest.length) {
+                smallest = candidate.toByteArray();
+            }
+        }
+
+        output.write(smallest);
+    }
+
+    /**
+     * <p>If the image has few enough colours then it can be represented with a palette without
+     * any loss.</p>
+     */
+
+    private static Optional<MedianCutQuantizer.Result> tryCreateExactPalette(RgbaImage image) {
+        int[] pixels = image.pixels();
+        Map<Integer, Integer> colorToIndex = new HashMap<>();
+        int[] indexes = new int[pixels.length];
+
+        for (int i = 0; i < pixels.length; i++) {
+            int argb = normalizeTransparent(pixels[i]);
+            Integer index = colorToIndex.get(argb);
+
+            if (null == index) {
+                if (colorToIndex.size() == MAX_PALETTE_SIZE) {
+                    return Optional.empty();
+                }
+                index = colorToIndex.size();
+                colorToIndex.put(argb, index);
+            }
+
+            indexes[i] = index;
+        }
+
+        int[] palette = new int[colorToIndex.size()];
+        colorToIndex.forEach((argb, index) -> palette[index] = argb);
+        return Optional.of(new MedianCutQuantizer.Result(palette, indexes));
+    }
+
+    /**
+     * <p>The colour of a fully transparent pixel is not visible so all such pixels are treated
+     * as the same colour.</p>
+     */
+
+    private static int normalizeTransparent(int argb) {
+        return 0 == RgbaImage.alpha(argb) ? 0 : argb;
+    }
+
+    private static int deriveIndexedBitDepth(int paletteSize) {
+        if (paletteSize <= 2) {
+            return 1;
+        }
+        if (paletteSize <= 4) {
+            return 2;
+        }
+        if (paletteSize <= 16) {
+            return 4;
+        }
+        return 8;
+    }
+
+    private static void writeIndexed(
+            RgbaImage image,
+            MedianCutQuantizer.Result indexed,
+            OutputStream output,
+            FilterType filterType) {
+        int[] palette = indexed.palette();
+        ImageInfo imageInfo = new ImageInfo(
+                image.width(), image.height(),
+                deriveIndexedBitDepth(palette.length),
+                false, false, true);
+        PngWriter writer = createWriter(output, imageInfo, filterType);
+
+        PngChunkPLTE paletteChunk = writer.getMetadata().createPLTEChunk();
+        paletteChunk.setNentries(palette.length);
+
+        for (int i = 0; i < palette.length; i++) {
+            paletteChunk.setEntry(i, RgbaImage.red(palette[i]), RgbaImage.green(palette[i]), RgbaImage.blue(palette[i]));
+        }
+
+        // the transparency chunk need only extend as far as the last entry that is not opaque.
+
+        int lastTranslucent = -1;
+
+        for (int i = 0; i < palette.length; i++) {
+            if (0xff != RgbaImage.alpha(palette[i])) {
+                lastTranslucent = i;
+            }
+        }
+
+        if (-1 != lastTranslucent) {
+            int[] alphas = new int[lastTranslucent + 1];
+            for (int i = 0; i < alphas.length; i++) {
+                alphas[i] = RgbaImage.alpha(palette[i]);
+            }
+            writer.getMetadata().createTRNSChunk().setPalAlpha(alphas);
+        }
+
+        int[] indexes = indexed.indexes();
+        ImageLineInt line = new ImageLineInt(imageInfo);
+
+        for (int y = 0; y < image.height(); y++) {
+            System.arraycopy(indexes, y * image.width(), line.getScanline(), 0, image.width());
+            writer.writeRow(line);
+        }
+
+        writer.end();
+    }
+
+    private static void writeTrueColor(RgbaImage image, OutputStream output, FilterType filterType) {
+        int[] pixels = image.pixels();
+        boolean alpha = Arrays.stream(pixels).anyMatch(p -> 0xff != RgbaImage.alpha(p));
+        ImageInfo imageInfo = new ImageInfo(image.width(), image.height(), 8, alpha, false, false);
+        PngWriter writer = createWriter(output, imageInfo, filterType);
+        int channels = imageInfo.channels;
+        ImageLineInt line = new ImageLineInt(imageInfo);
+        int[] samples = line.getScanline();
+
+        for (int y = 0; y < image.height(); y++) {
+            for (int x = 0; x < image.width(); x++) {
+                int argb = pixels[y * image.width() + x];
+                int offset = x * channels;
+                samples[offset] = RgbaImage.red(argb);
+                samples[offset + 1] = RgbaImage.green(argb);
+                samples[offset + 2] = RgbaImage.blue(argb);
+                if (alpha) {
+                    samples[offset + 3] = RgbaImage.alpha(argb);
+                }
+            }
+            writer.writeRow(line);
+        }
+
+        writer.end();
+    }
+
+    private static PngWriter createWriter(OutputStream output, ImageInfo imageInfo, FilterType filterType) {
+        PngWriter writer = new PngWriter(output, imageInfo);
+        writer.setShouldCloseStream(false);
+        writer.setCompLevel(COMPRESSION_LEVEL);
+        writer.setFilterType(filterType);
+        return writer;
+    }
+
+    /**
+     * <p>Collects all of the rows of the image in memory.</p>
+     */
+
+    private static final class ImageCollector implements RowConsumer {
+
+        private int width;
+        private int height;
+        private int[] pixels;
+        private int row = 0;
+
+        @Override
+        public void begin(int width, int height) {
+            this.width = width;
+            this.height = height;
+            this.pixels = new int[width * height];
+        }
+
+        @Override
+        public void row(int[] argbs) {
+            System.arraycopy(argbs, 0, pixels, row * width, width);
+            row++;
+        }
+
+    }
+
+}
@@ -1,35 +1,50 @@
 /*
- * Copyright 2018-2025, Andrew Lindesay
+ * Copyright 2018-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
 package org.haiku.haikudepotserver.graphics.bitmap;
 
-import org.apache.commons.lang3.StringUtils;
+import org.haiku.haikudepotserver.graphics.GraphicsServerClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.FactoryBean;
 
 /**
- * <p>This will create a PNG optimization service based on the configuration.</p>
+ * <p>This will create a PNG optimization service based on the configuration.  If the in-process
+ * option is chosen then the optimization happens within the application server rather than
+ * by the graphics server.</p>
  */
 
 public class PngOptimizationServiceFactory implements FactoryBean<PngOptimizationService> {
 
     protected final static Logger LOGGER = LoggerFactory.getLogger(PngOptimizationServiceFactory.class);
 
-    private final String graphicsServerBaseUri;
+    private final GraphicsServerClient graphicsServerClient;
+
+    private final boolean inProcess;
+
+    private final boolean quantize;
 
     public PngOptimizationServiceFactory(
-            String graphicsServerBaseUri) {
-        this.graphicsServerBaseUri = graphicsServerBaseUri;
+            GraphicsServerClient graphicsServerClient,
+            boolean inProcess,
+            boolean quantize) {
+        this.graphicsServerClient = graphicsServerClient;
+        this.inProcess = inProcess;
+        this.quantize = quantize;
     }
 
     @Override
     public PngOptimizationService getObject() {
-        if (StringUtils.isNotBlank(graphicsServerBaseUri)) {
-            LOGGER.info("will use graphics server [{}]", graphicsServerBaseUri);
-            return new ServerOptimizationServiceImpl(graphicsServerBaseUri);
+        if (inProcess) {
+            LOGGER.info("will optimize png in-process");
+            return new InProcessPngOptimizationServiceImpl(quantize);
+        }
+
+        if (graphicsServerClient.isConfigured()) {
+            LOGGER.info("will use graphics server [{}]", graphicsServerClient.getBaseUri());
+            return new ServerOptimizationServiceImpl(graphicsServerClient);
         }
 
         LOGGER.info("will no-op png optimization");
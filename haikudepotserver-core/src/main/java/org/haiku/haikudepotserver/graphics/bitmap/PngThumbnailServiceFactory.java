@@ -1,29 +1,46 @@
 /*
- * Copyright 2024-2025, Andrew Lindesay
+ * Copyright 2024-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 package org.haiku.haikudepotserver.graphics.bitmap;
 
-import org.apache.commons.lang3.StringUtils;
+import org.haiku.haikudepotserver.graphics.GraphicsServerClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.FactoryBean;
 
+/**
+ * <p>This will create a PNG thumbnail service based on the configuration.  If the in-process
+ * option is chosen then the thumbnails are produced within the application server rather than
+ * by the graphics server.</p>
+ */
+
 public class PngThumbnailServiceFactory implements FactoryBean<PngThumbnailService> {
 
     protected final static Logger LOGGER = LoggerFactory.getLogger(PngThumbnailServiceFactory.class);
 
-    private final String graphicsServerBaseUri;
+    private final GraphicsServerClient graphicsServerClient;
+
+    private final boolean inProcess;
 
-    public PngThumbnailServiceFactory(String graphicsServerBaseUri) {
-        this.graphicsServerBaseUri = graphicsServerBaseUri;
+    private final boolean quantize;
+
+    public PngThumbnailServiceFactory(GraphicsServerClient graphicsServerClient, boolean inProcess, boolean quantize) {
+        this.graphicsServerClient = graphicsServerClient;
+        this.inProcess = inProcess;
+        this.quantize = quantize;
     }
 
     @Override
     public PngThumbnailService getObject() {
-        if (StringUtils.isNotBlank(graphicsServerBaseUri)) {
-            LOGGER.info("will use graphics server [{}]", graphicsServerBaseUri);
-            return new ServerPngThumbnailService(graphicsServerBaseUri);
+        if (inProcess) {
+            LOGGER.info("will thumbnail in-process");
+            return new InProcessPngThumbnailServiceImpl(quantize);
+        }
+
+        if (graphicsServerClient.isConfigured()) {
+            LOGGER.info("will use graphics server [{}]", graphicsServerClient.getBaseUri());
+            return new ServerPngThumbnailService(graphicsServerClient);
         }
 
         return new FallbackThumbnailServiceImpl();
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.graphics.bitmap;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>An image held in memory as 8-bit non-premultiplied ARGB values packed into an <code>int</code>
+ * for each pixel.  The pixels are stored row by row.</p>
+ */
+
+public record RgbaImage(int width, int height, int[] pixels) {
+
+    public RgbaImage {
+        Preconditions.checkArgument(width > 0, "the width must be positive");
+        Preconditions.checkArgument(height > 0, "the height must be positive");
+        Preconditions.checkArgument(null != pixels && pixels.length == width * height, "bad pixels length");
+    }
+
+    public static int alpha(int argb) {
+        return argb >>> 24;
+    }
+
+    public static int red(int argb) {
+        return (argb >> 16) & 0xff;
+    }
+
+    public static int green(int argb) {
+        return (argb >> 8) & 0xff;
+    }
+
+    public static int blue(int argb) {
+        return argb & 0xff;
+    }
+
+    public static int argb(int a, int r, int g, int b) {
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+}
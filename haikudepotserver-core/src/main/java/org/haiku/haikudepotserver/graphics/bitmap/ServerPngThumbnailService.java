@@ -1,25 +1,19 @@
 /*
- * Copyright 2024-2025, Andrew Lindesay
+ * Copyright 2024-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 package org.haiku.haikudepotserver.graphics.bitmap;
 
 import com.google.common.base.Preconditions;
-import com.google.common.io.ByteStreams;
-import com.google.common.net.HttpHeaders;
 import com.google.common.net.MediaType;
-import org.haiku.haikudepotserver.graphics.ImageHelper;
-import org.springframework.http.HttpStatusCode;
+import org.haiku.haikudepotserver.graphics.GraphicsServerClient;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.PushbackInputStream;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 
 /**
  * <p>An implementation of {@link PngThumbnailService} which will call out to a server to
@@ -30,19 +24,19 @@ public class ServerPngThumbnailService extends AbstractThumbnailServiceImpl {
 
     private final static String[] PATH_COMPONENTS = new String[] {"__gfx", "thumbnail"};
 
+    private final static String OPERATION = "thumbnail";
+
     private final static String KEY_HEIGHT = "h";
     private final static String KEY_WIDTH = "w";
 
+    private final GraphicsServerClient graphicsServerClient;
     private final URI uri;
-    private final HttpClient httpClient;
-    private final ImageHelper imageHelper = new ImageHelper();
 
-    public ServerPngThumbnailService(String baseUri) {
-        this.uri = UriComponentsBuilder.fromUriString(baseUri)
-                .pathSegment(PATH_COMPONENTS)
+    public ServerPngThumbnailService(GraphicsServerClient graphicsServerClient) {
+        this.graphicsServerClient = Preconditions.checkNotNull(graphicsServerClient);
+        this.uri = graphicsServerClient.uriBuilder(PATH_COMPONENTS)
                 .build()
                 .toUri();
-        httpClient = HttpClient.newHttpClient();
     }
 
     @Override
@@ -53,27 +47,12 @@ public class ServerPngThumbnailService extends AbstractThumbnailServiceImpl {
                 .queryParam(KEY_WIDTH, Integer.toString(width))
                 .build().toUri();
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(renderUri)
-                .header(HttpHeaders.CONTENT_TYPE, MediaType.PNG.toString())
-                .POST(HttpRequest.BodyPublishers.ofInputStream(() -> input))
-                .build();
-
-        try {
-            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
-
-            if (HttpStatusCode.valueOf(response.statusCode()).is2xxSuccessful()) {
-                try (InputStream responseStream = response.body()){
-                    responseStream.transferTo(output);
-                }
-            } else {
-                throw new IOException("the request to the server to produce the thumbnail returns ["
-                        + response.statusCode() + "]");
-            }
-        } catch (InterruptedException ie) {
-            Thread.currentThread().interrupt();
-            throw new IOException("optimization was cancelled", ie);
-        }
+        graphicsServerClient.post(
+                OPERATION,
+                renderUri,
+                MediaType.PNG,
+                HttpRequest.BodyPublishers.ofInputStream(() -> input),
+                output);
     }
 
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.graphics.hvif;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * <p>The parsed content of an HVIF (Haiku Vector Icon Format) file.  An icon consists of
+ * styles, paths and shapes.  Each shape fills the outline of some of the paths using one of the
+ * styles.  The coordinates of the icon are in a space that is 64 units square.</p>
+ */
+
+record HvifIcon(List<Style> styles, List<Path> paths, List<Shape> shapes) {
+
+    /**
+     * <p>The width and height of the icon's coordinate space.</p>
+     */
+
+    static final double ICON_SIZE = 64.0;
+
+    /**
+     * <p>Describes how the area of a shape is painted.</p>
+     */
+
+    sealed interface Style permits SolidStyle, GradientStyle {
+    }
+
+    /**
+     * @param argb is the non-premultiplied colour.
+     */
+
+    record SolidStyle(int argb) implements Style {
+    }
+
+    enum GradientType {
+        LINEAR,
+        CIRCULAR,
+        DIAMOND,
+        CONIC,
+        XY,
+        SQRT_XY
+    }
+
+    /**
+     * @param offset is in the range 0.0 to 1.0 along the gradient.
+     * @param argb is the non-premultiplied colour.
+     */
+
+    record GradientStop(double offset, int argb) {
+    }
+
+    /**
+     * @param matrix maps the gradient's own space into the space of the shape.
+     */
+
+    record GradientStyle(GradientType type, Optional<double[]> matrix, List<GradientStop> stops) implements Style {
+    }
+
+    /**
+     * <p>A point on a path together with the control points of the curves into and out of
+     * the point.  Where a path has no curves, the control points are the same as the point.</p>
+     */
+
+    record PathPoint(double x, double y, double inX, double inY, double outX, double outY) {
+    }
+
+    record Path(List<PathPoint> points, boolean closed) {
+    }
+
+    enum LineJoin {
+        MITER,
+        MITER_REVERT,
+        ROUND,
+        BEVEL,
+        MITER_ROUND
+    }
+
+    enum LineCap {
+        BUTT,
+        SQUARE,
+        ROUND
+    }
+
+    /**
+     * <p>Alters the outline of a shape before it is painted.</p>
+     */
+
+    sealed interface Transformer
+            permits AffineTransformer, PerspectiveTransformer, ContourTransformer, StrokeTransformer {
+    }
+
+    /**
+     * @param matrix is in the order; sx, shy, shx, sy, tx, ty.
+     */
+
+    record AffineTransformer(double[] matrix) implements Transformer {
+    }
+
+    /**
+     * @param matrix is in the order; sx, shy, w0, shx, sy, w1, tx, ty, w2.
+     */
+
+    record PerspectiveTransformer(double[] matrix) implements Transformer {
+    }
+
+    /**
+     * <p>Grows or, with a negative width, shrinks the outline.</p>
+     */
+
+    record ContourTransformer(double width, LineJoin lineJoin, double miterLimit) implements Transformer {
+    }
+
+    /**
+     * <p>Replaces the outline with the outline of a line drawn along it.</p>
+     */
+
+    record StrokeTransformer(double width, LineJoin lineJoin, LineCap lineCap, double miterLimit)
+            implements Transformer {
+    }
+
+    /**
+     * @param matrix maps the shape into the icon's space; in the order sx, shy, shx, sy, tx, ty.
+     * @param minVisibilityScale is the smallest scale at which the shape is drawn.
+     * @param maxVisibilityScale is the scale at and above which the shape is no longer drawn.
+     */
+
+    record Shape(
+            int styleIndex,
+            List<Integer> pathIndexes,
+            Optional<double[]> matrix,
+            boolean hinting,
+            double minVisibilityScale,
+            double maxVisibilityScale,
+            List<Transformer> transformers) {
+
+        /**
+         * <p>The largest scale that can be expressed in the file; a shape with this maximum is
+         * visible at any larger scale as well.</p>
+         */
+
+        static final double MAX_SCALE = 4.0;
+
+        boolean isVisible(double scale) {
+            return scale >= minVisibilityScale
+                    && (scale < maxVisibilityScale || maxVisibilityScale >= MAX_SCALE);
+        }
+
+    }
+
+}
@@ -0,0 +1,410 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.graphics.hvif;
+
+import com.google.common.base.Preconditions;
+import org.haiku.haikudepotserver.graphics.bitmap.RgbaImage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * <p>Parses the binary HVIF format into a {@link HvifIcon}.  The format is that written by the
+ * <code>FlatIconExporter</code> in the Haiku source code; it consists of the magic "ncif"
+ * followed by the styles, the paths and then the shapes.  Each section starts with a one byte
+ * count of the items in the section.</p>
+ */
+
+class HvifParser {
+
+    private static final byte[] MAGIC = new byte[] { 'n', 'c', 'i', 'f' };
+
+    private static final int STYLE_TYPE_SOLID_COLOR = 1;
+    private static final int STYLE_TYPE_GRADIENT = 2;
+    private static final int STYLE_TYPE_SOLID_COLOR_NO_ALPHA = 3;
+    private static final int STYLE_TYPE_SOLID_GRAY = 4;
+    private static final int STYLE_TYPE_SOLID_GRAY_NO_ALPHA = 5;
+
+    private static final int GRADIENT_FLAG_TRANSFORM = 1 << 1;
+    private static final int GRADIENT_FLAG_NO_ALPHA = 1 << 2;
+    private static final int GRADIENT_FLAG_GRAYS = 1 << 4;
+
+    private static final int PATH_FLAG_CLOSED = 1 << 1;
+    private static final int PATH_FLAG_USES_COMMANDS = 1 << 2;
+    private static final int PATH_FLAG_NO_CURVES = 1 << 3;
+
+    private static final int PATH_COMMAND_H_LINE = 0;
+    private static final int PATH_COMMAND_V_LINE = 1;
+    private static final int PATH_COMMAND_LINE = 2;
+
+    private static final int SHAPE_TYPE_PATH_SOURCE = 10;
+
+    private static final int SHAPE_FLAG_TRANSFORM = 1 << 1;
+    private static final int SHAPE_FLAG_HINTING = 1 << 2;
+    private static final int SHAPE_FLAG_LOD_SCALE = 1 << 3;
+    private static final int SHAPE_FLAG_HAS_TRANSFORMERS = 1 << 4;
+    private static final int SHAPE_FLAG_TRANSLATION = 1 << 5;
+
+    private static final int TRANSFORMER_TYPE_AFFINE = 20;
+    private static final int TRANSFORMER_TYPE_CONTOUR = 21;
+    private static final int TRANSFORMER_TYPE_PERSPECTIVE = 22;
+    private static final int TRANSFORMER_TYPE_STROKE = 23;
+
+    private static final int AFFINE_MATRIX_SIZE = 6;
+    private static final int PERSPECTIVE_MATRIX_SIZE = 9;
+
+    /**
+     * <p>The level-of-detail scales are stored as a byte where 255 is a scale of 4.</p>
+     */
+
+    private static final double LOD_SCALE_DIVISOR = 63.75;
+
+    private final byte[] data;
+
+    private int offset = 0;
+
+    private HvifParser(byte[] data) {
+        this.data = data;
+    }
+
+    static HvifIcon parse(byte[] data) throws IOException {
+        Preconditions.checkArgument(null != data, "the data must be supplied");
+        return new HvifParser(data).parseIcon();
+    }
+
+    private HvifIcon parseIcon() throws IOException {
+        for (byte b : MAGIC) {
+            if (readUint8() != b) {
+                throw new IOException("the data is not an hvif icon");
+            }
+        }
+
+        List<HvifIcon.Style> styles = parseStyles();
+        List<HvifIcon.Path> paths = parsePaths();
+        List<HvifIcon.Shape> shapes = parseShapes(styles.size(), paths.size());
+        return new HvifIcon(styles, paths, shapes);
+    }
+
+    // ------------------------------
+    // STYLES
+
+    private List<HvifIcon.Style> parseStyles() throws IOException {
+        int count = readUint8();
+        List<HvifIcon.Style> result = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            int styleType = readUint8();
+            result.add(switch (styleType) {
+                case STYLE_TYPE_SOLID_COLOR -> new HvifIcon.SolidStyle(readColor(true, false));
+                case STYLE_TYPE_SOLID_COLOR_NO_ALPHA -> new HvifIcon.SolidStyle(readColor(false, false));
+                case STYLE_TYPE_SOLID_GRAY -> new HvifIcon.SolidStyle(readColor(true, true));
+                case STYLE_TYPE_SOLID_GRAY_NO_ALPHA -> new HvifIcon.SolidStyle(readColor(false, true));
+                case STYLE_TYPE_GRADIENT -> parseGradient();
+                default -> throw new IOException("unknown style type [" + styleType + "]");
+            });
+        }
+
+        return result;
+    }
+
+    private HvifIcon.GradientStyle parseGradient() throws IOException {
+        int gradientTypeOrdinal = readUint8();
+        int flags = readUint8();
+        int stopCount = readUint8();
+
+        if (gradientTypeOrdinal >= HvifIcon.GradientType.values().length) {
+            throw new IOException("unknown gradient type [" + gradientTypeOrdinal + "]");
+        }
+
+        Optional<double[]> matrix = Optional.empty();
+
+        if (0 != (flags & GRADIENT_FLAG_TRANSFORM)) {
+            matrix = Optional.of(readMatrix(AFFINE_MATRIX_SIZE));
+        }
+
+        boolean alpha = 0 == (flags & GRADIENT_FLAG_NO_ALPHA);
+        boolean grays = 0 != (flags & GRADIENT_FLAG_GRAYS);
+        List<HvifIcon.GradientStop> stops = new ArrayList<>(stopCount);
+
+        for (int i = 0; i < stopCount; i++) {
+            double stopOffset = readUint8() / 255.0;
+            stops.add(new HvifIcon.GradientStop(stopOffset, readColor(alpha, grays)));
+        }
+
+        return new HvifIcon.GradientStyle(
+                HvifIcon.GradientType.values()[gradientTypeOrdinal],
+                matrix,
+                stops);
+    }
+
+    private int readColor(boolean alpha, boolean gray) throws IOException {
+        if (gray) {
+            int grey = readUint8();
+            return RgbaImage.argb(alpha ? readUint8() : 0xff, grey, grey, grey);
+        }
+
+        int red = readUint8();
+        int green = readUint8();
+        int blue = readUint8();
+        return RgbaImage.argb(alpha ? readUint8() : 0xff, red, green, blue);
+    }
+
+    // ------------------------------
+    // PATHS
+
+    private List<HvifIcon.Path> parsePaths() throws IOException {
+        int count = readUint8();
+        List<HvifIcon.Path> result = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            int flags = readUint8();
+            int pointCount = readUint8();
+            List<HvifIcon.PathPoint> points;
+
+            if (0 != (flags & PATH_FLAG_NO_CURVES)) {
+                points = readStraightPoints(pointCount);
+            } else if (0 != (flags & PATH_FLAG_USES_COMMANDS)) {
+                points = readCommandPoints(pointCount);
+            } else {
+                points = readCurvePoints(pointCount);
+            }
+
+            result.add(new HvifIcon.Path(points, 0 != (flags & PATH_FLAG_CLOSED)));
+        }
+
+        return result;
+    }
+
+    private List<HvifIcon.PathPoint> readStraightPoints(int pointCount) throws IOException {
+        List<HvifIcon.PathPoint> result = new ArrayList<>(pointCount);
+
+        for (int i = 0; i < pointCount; i++) {
+            result.add(createStraightPoint(readCoord(), readCoord()));
+        }
+
+        return result;
+    }
+
+    private List<HvifIcon.PathPoint> readCurvePoints(int pointCount) throws IOException {
+        List<HvifIcon.PathPoint> result = new ArrayList<>(pointCount);
+
+        for (int i = 0; i < pointCount; i++) {
+            result.add(new HvifIcon.PathPoint(
+                    readCoord(), readCoord(),
+                    readCoord(), readCoord(),
+                    readCoord(), readCoord()));
+        }
+
+        return result;
+    }
+
+    /**
+     * <p>Each point is preceded by a two bit command which allows horizontal and vertical lines
+     * to be stored with only one coordinate.  The commands are packed four to a byte ahead of
+     * the points.</p>
+     */
+
+    private List<HvifIcon.PathPoint> readCommandPoints(int pointCount) throws IOException {
+        int[] commandBytes = new int[(pointCount + 3) / 4];
+
+        for (int i = 0; i < commandBytes.length; i++) {
+            commandBytes[i] = readUint8();
+        }
+
+        List<HvifIcon.PathPoint> result = new ArrayList<>(pointCount);
+        double lastX = 0.0;
+        double lastY = 0.0;
+
+        for (int i = 0; i < pointCount; i++) {
+            int command = (commandBytes[i / 4] >> ((i % 4) * 2)) & 0x3;
+            HvifIcon.PathPoint point = switch (command) {
+                case PATH_COMMAND_H_LINE -> createStraightPoint(readCoord(), lastY);
+                case PATH_COMMAND_V_LINE -> createStraightPoint(lastX, readCoord());
+                case PATH_COMMAND_LINE -> createStraightPoint(readCoord(), readCoord());
+                default -> new HvifIcon.PathPoint(
+                        readCoord(), readCoord(),
+                        readCoord(), readCoord(),
+                        readCoord(), readCoord());
+            };
+            lastX = point.x();
+            lastY = point.y();
+            result.add(point);
+        }
+
+        return result;
+    }
+
+    private static HvifIcon.PathPoint createStraightPoint(double x, double y) {
+        return new HvifIcon.PathPoint(x, y, x, y, x, y);
+    }
+
+    /**
+     * <p>A coordinate is stored in one byte if it is a whole number in the range -32 to 95.
+     * Otherwise it is stored in two bytes with a precision of 1/102.</p>
+     */
+
+    private double readCoord() throws IOException {
+        int value = readUint8();
+
+        if (0 != (value & 0x80)) {
+            int lowValue = readUint8();
+            return (((value & 0x7f) << 8) | lowValue) / 102.0 - 128.0;
+        }
+
+        return value - 32.0;
+    }
+
+    // ------------------------------
+    // SHAPES
+
+    private List<HvifIcon.Shape> parseShapes(int styleCount, int pathCount) throws IOException {
+        int count = readUint8();
+        List<HvifIcon.Shape> result = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            int shapeType = readUint8();
+
+            if (SHAPE_TYPE_PATH_SOURCE != shapeType) {
+                throw new IOException("unknown shape type [" + shapeType + "]");
+            }
+
+            int styleIndex = readUint8();
+
+            if (styleIndex >= styleCount) {
+                throw new IOException("the shape refers to a missing style [" + styleIndex + "]");
+            }
+
+            int shapePathCount = readUint8();
+            List<Integer> pathIndexes = new ArrayList<>(shapePathCount);
+
+            for (int j = 0; j < shapePathCount; j++) {
+                int pathIndex = readUint8();
+
+                if (pathIndex >= pathCount) {
+                    throw new IOException("the shape refers to a missing path [" + pathIndex + "]");
+                }
+
+                pathIndexes.add(pathIndex);
+            }
+
+            int flags = readUint8();
+            Optional<double[]> matrix = Optional.empty();
+
+            if (0 != (flags & SHAPE_FLAG_TRANSFORM)) {
+                matrix = Optional.of(readMatrix(AFFINE_MATRIX_SIZE));
+            } else if (0 != (flags & SHAPE_FLAG_TRANSLATION)) {
+                matrix = Optional.of(new double[] { 1.0, 0.0, 0.0, 1.0, readCoord(), readCoord() });
+            }
+
+            double minVisibilityScale = 0.0;
+            double maxVisibilityScale = HvifIcon.Shape.MAX_SCALE;
+
+            if (0 != (flags & SHAPE_FLAG_LOD_SCALE)) {
+                minVisibilityScale = readUint8() / LOD_SCALE_DIVISOR;
+                maxVisibilityScale = readUint8() / LOD_SCALE_DIVISOR;
+            }
+
+            List<HvifIcon.Transformer> transformers = List.of();
+
+            if (0 != (flags & SHAPE_FLAG_HAS_TRANSFORMERS)) {
+                transformers = parseTransformers();
+            }
+
+            result.add(new HvifIcon.Shape(
+                    styleIndex,
+                    pathIndexes,
+                    matrix,
+                    0 != (flags & SHAPE_FLAG_HINTING),
+                    minVisibilityScale,
+                    maxVisibilityScale,
+                    transformers));
+        }
+
+        return result;
+    }
+
+    private List<HvifIcon.Transformer> parseTransformers() throws IOException {
+        int count = readUint8();
+        List<HvifIcon.Transformer> result = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            int transformerType = readUint8();
+            result.add(switch (transformerType) {
+                case TRANSFORMER_TYPE_AFFINE -> new HvifIcon.AffineTransformer(readMatrix(AFFINE_MATRIX_SIZE));
+                case TRANSFORMER_TYPE_PERSPECTIVE ->
+                        new HvifIcon.PerspectiveTransformer(readMatrix(PERSPECTIVE_MATRIX_SIZE));
+                case TRANSFORMER_TYPE_CONTOUR -> {
+                    double width = readUint8() - 128.0;
+                    HvifIcon.LineJoin lineJoin = toLineJoin(readUint8());
+                    yield new HvifIcon.ContourTransformer(width, lineJoin, readUint8());
+                }
+                case TRANSFORMER_TYPE_STROKE -> {
+                    double width = readUint8() - 128.0;
+                    int lineOptions = readUint8();
+                    yield new HvifIcon.StrokeTransformer(
+                            width,
+                            toLineJoin(lineOptions & 0xf),
+                            toLineCap(lineOptions >> 4),
+                            readUint8());
+                }
+                default -> throw new IOException("unknown transformer type [" + transformerType + "]");
+            });
+        }
+
+        return result;
+    }
+
+    private static HvifIcon.LineJoin toLineJoin(int value) {
+        HvifIcon.LineJoin[] values = HvifIcon.LineJoin.values();
+        return value < values.length ? values[value] : HvifIcon.LineJoin.MITER;
+    }
+
+    private static HvifIcon.LineCap toLineCap(int value) {
+        HvifIcon.LineCap[] values = HvifIcon.LineCap.values();
+        return value < values.length ? values[value] : HvifIcon.LineCap.BUTT;
+    }
+
+    // ------------------------------
+    // PRIMITIVES
+
+    private double[] readMatrix(int size) throws IOException {
+        double[] result = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            result[i] = readFloat24();
+        }
+
+        return result;
+    }
+
+    /**
+     * <p>Matrix values are stored as a 24 bit float; one sign bit, a six bit exponent biased
+     * by 32 and a 17 bit mantissa.  These are converted into a standard 32 bit float.</p>
+     */
+
+    private double readFloat24() throws IOException {
+        int value = (readUint8() << 16) | (readUint8() << 8) | readUint8();
+
+        if (0 == value) {
+            return 0.0;
+        }
+
+        int sign = (value & 0x800000) >> 23;
+        int exponent = ((value & 0x7e0000) >> 17) - 32;
+        int mantissa = (value & 0x01ffff) << 6;
+        return Float.intBitsToFloat((sign << 31) | ((exponent + 127) << 23) | mantissa);
+    }
+
+    private int readUint8() throws IOException {
+        if (offset >= data.length) {
+            throw new IOException("unexpected end of the hvif data at [" + offset + "]");
+        }
+        return data[offset++] & 0xff;
+    }
+
+}
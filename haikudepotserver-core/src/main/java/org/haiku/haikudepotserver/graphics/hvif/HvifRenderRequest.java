@@ -0,0 +1,24 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.graphics.hvif;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Set;
+
+/**
+ * <p>A request to render an HVIF icon at a number of sizes as part of a batch.</p>
+ */
+
+public record HvifRenderRequest(byte[] input, Set<Integer> sizes) {
+
+    public HvifRenderRequest {
+        Preconditions.checkArgument(null != input && input.length > 0, "the input must be supplied");
+        Preconditions.checkArgument(null != sizes && !sizes.isEmpty(), "the sizes must be supplied");
+        sizes = Set.copyOf(sizes);
+    }
+
+}
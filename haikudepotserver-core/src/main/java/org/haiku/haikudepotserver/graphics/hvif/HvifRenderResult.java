@@ -0,0 +1,30 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.graphics.hvif;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Map;
+
+/**
+ * <p>The outcome of rendering an {@link HvifRenderRequest} as part of a batch. Each of the
+ * requested sizes is either rendered or has failed; a failure at one size does not prevent the
+ * other sizes, or the other requests in the batch, from being rendered.</p>
+ *
+ * @param renders are the PNG bitmap images keyed by size.
+ * @param failures are descriptions of the problems keyed by the size that could not be rendered.
+ */
+
+public record HvifRenderResult(Map<Integer, byte[]> renders, Map<Integer, String> failures) {
+
+    public HvifRenderResult {
+        Preconditions.checkArgument(null != renders, "the renders must be supplied");
+        Preconditions.checkArgument(null != failures, "the failures must be supplied");
+        renders = Map.copyOf(renders);
+        failures = Map.copyOf(failures);
+    }
+
+}
@@ -0,0 +1,465 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.graphics.hvif;
+
+import com.google.common.base.Preconditions;
+import org.haiku.haikudepotserver.graphics.bitmap.RgbaImage;
+
+import java.awt.BasicStroke;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p>Renders a parsed {@link HvifIcon} into a square bitmap.  This follows the approach of the
+ * <code>IconRenderer</code> in the Haiku source code that is used by the <code>hvif2png</code>
+ * tool;</p>
+ *
+ * <ul>
+ *     <li>The icon's 64 unit coordinate space is scaled to the size of the bitmap.</li>
+ *     <li>Shapes whose level-of-detail range excludes the scale are not drawn.</li>
+ *     <li>The transformers of a shape are applied to its outline before the shape's own
+ *     transformation.</li>
+ *     <li>Colours are blended with a gamma of 2.2 and then converted back when the bitmap
+ *     is complete.</li>
+ * </ul>
+ *
+ * <p>The outlines are constructed and stroked using the <code>java.awt.geom</code> classes which
+ * do not require a display.</p>
+ */
+
+class HvifRenderer {
+
+    private static final double GAMMA = 2.2;
+
+    private static final int GRADIENT_COLOR_COUNT = 256;
+
+    /**
+     * <p>A linear gradient runs from -64 to 64 along the x-axis of the gradient's own space and
+     * the other gradients run from 0 to 64.</p>
+     */
+
+    private static final double GRADIENT_EXTENT = 64.0;
+
+    private static final double[] TO_LINEAR = createToLinear();
+
+    private static final int[] FROM_LINEAR = createFromLinear();
+
+    private final HvifIcon icon;
+
+    private final int size;
+
+    private final double scale;
+
+    /**
+     * <p>Premultiplied linear red, green, blue and alpha for each pixel.</p>
+     */
+
+    private final double[] canvas;
+
+    private final HvifRasterizer rasterizer;
+
+    private HvifRenderer(HvifIcon icon, int size) {
+        this.icon = icon;
+        this.size = size;
+        this.scale = size / HvifIcon.ICON_SIZE;
+        this.canvas = new double[size * size * 4];
+        this.rasterizer = new HvifRasterizer(size, size);
+    }
+
+    static RgbaImage render(HvifIcon icon, int size) {
+        Preconditions.checkArgument(null != icon, "the icon must be supplied");
+        Preconditions.checkArgument(size > 0, "the size must be positive");
+        HvifRenderer renderer = new HvifRenderer(icon, size);
+        icon.shapes().forEach(renderer::renderShape);
+        return renderer.toImage();
+    }
+
+    private void renderShape(HvifIcon.Shape shape) {
+        if (!shape.isVisible(scale)) {
+            return;
+        }
+
+        AffineTransform transform = AffineTransform.getScaleInstance(scale, scale);
+        shape.matrix().map(HvifRenderer::toAffineTransform).ifPresent(transform::concatenate);
+
+        Shape outline = transform.createTransformedShape(createOutline(shape));
+        double[] coverage = rasterizer.rasterize(outline, shape.hinting());
+
+        switch (icon.styles().get(shape.styleIndex())) {
+            case HvifIcon.SolidStyle solidStyle -> paintSolid(coverage, solidStyle);
+            case HvifIcon.GradientStyle gradientStyle -> paintGradient(coverage, gradientStyle, transform);
+        }
+    }
+
+    // ------------------------------
+    // OUTLINE
+
+    private Shape createOutline(HvifIcon.Shape shape) {
+        Path2D.Double result = new Path2D.Double(Path2D.WIND_NON_ZERO);
+
+        for (int pathIndex : shape.pathIndexes()) {
+            appendPath(result, icon.paths().get(pathIndex));
+        }
+
+        Shape outline = result;
+
+        for (HvifIcon.Transformer transformer : shape.transformers()) {
+            outline = switch (transformer) {
+                case HvifIcon.AffineTransformer affine ->
+                        toAffineTransform(affine.matrix()).createTransformedShape(outline);
+                case HvifIcon.PerspectiveTransformer perspective ->
+                        transformPerspective(outline, perspective.matrix());
+                case HvifIcon.StrokeTransformer stroke -> createStroke(
+                        stroke.width(), stroke.lineJoin(), stroke.lineCap(), stroke.miterLimit())
+                        .createStrokedShape(outline);
+                case HvifIcon.ContourTransformer contour -> createContour(outline, contour);
+            };
+        }
+
+        return outline;
+    }
+
+    /**
+     * <p>Each point is joined to the next by a cubic curve using the outbound control point of
+     * the first and the inbound control point of the second.</p>
+     */
+
+    private static void appendPath(Path2D.Double target, HvifIcon.Path path) {
+        List<HvifIcon.PathPoint> points = path.points();
+
+        if (points.isEmpty()) {
+            return;
+        }
+
+        HvifIcon.PathPoint first = points.getFirst();
+        target.moveTo(first.x(), first.y());
+
+        for (int i = 1; i < points.size(); i++) {
+            appendSegment(target, points.get(i - 1), points.get(i));
+        }
+
+        if (path.closed()) {
+            appendSegment(target, points.getLast(), first);
+            target.closePath();
+        }
+    }
+
+    private static void appendSegment(Path2D.Double target, HvifIcon.PathPoint from, HvifIcon.PathPoint to) {
+        boolean straight = from.outX() == from.x() && from.outY() == from.y()
+                && to.inX() == to.x() && to.inY() == to.y();
+
+        if (straight) {
+            target.lineTo(to.x(), to.y());
+        } else {
+            target.curveTo(from.outX(), from.outY(), to.inX(), to.inY(), to.x(), to.y());
+        }
+    }
+
+    private Shape transformPerspective(Shape outline, double[] matrix) {
+        Path2D.Double result = new Path2D.Double(Path2D.WIND_NON_ZERO);
+        double[] coords = new double[6];
+
+        for (PathIterator iterator = outline.getPathIterator(null, HvifRasterizer.FLATNESS / scale);
+             !iterator.isDone();
+             iterator.next()) {
+            int segmentType = iterator.currentSegment(coords);
+
+            if (PathIterator.SEG_CLOSE == segmentType) {
+                result.closePath();
+            } else {
+                double x = coords[0];
+                double y = coords[1];
+                double w = x * matrix[2] + y * matrix[5] + matrix[8];
+                double tx = (x * matrix[0] + y * matrix[3] + matrix[6]) / w;
+                double ty = (x * matrix[1] + y * matrix[4] + matrix[7]) / w;
+
+                if (PathIterator.SEG_MOVETO == segmentType) {
+                    result.moveTo(tx, ty);
+                } else {
+                    result.lineTo(tx, ty);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * <p>A contour moves the edge of the outline outwards or, with a negative width, inwards.
+     * This is achieved by adding or subtracting a stroke along the edge that is twice the
+     * width of the contour.</p>
+     */
+
+    private static Shape createContour(Shape outline, HvifIcon.ContourTransformer contour) {
+        if (0.0 == contour.width()) {
+            return outline;
+        }
+
+        Area result = new Area(outline);
+        Area edge = new Area(createStroke(
+                contour.width() * 2.0, contour.lineJoin(), HvifIcon.LineCap.BUTT, contour.miterLimit())
+                .createStrokedShape(closeSubpaths(outline)));
+
+        if (contour.width() > 0.0) {
+            result.add(edge);
+        } else {
+            result.subtract(edge);
+        }
+
+        return result;
+    }
+
+    private static Shape closeSubpaths(Shape outline) {
+        Path2D.Double result = new Path2D.Double(Path2D.WIND_NON_ZERO);
+        double[] coords = new double[6];
+        boolean open = false;
+
+        for (PathIterator iterator = outline.getPathIterator(null); !iterator.isDone(); iterator.next()) {
+            switch (iterator.currentSegment(coords)) {
+                case PathIterator.SEG_MOVETO -> {
+                    if (open) {
+                        result.closePath();
+                    }
+                    result.moveTo(coords[0], coords[1]);
+                    open = true;
+                }
+                case PathIterator.SEG_LINETO -> result.lineTo(coords[0], coords[1]);
+                case PathIterator.SEG_QUADTO -> result.quadTo(coords[0], coords[1], coords[2], coords[3]);
+                case PathIterator.SEG_CUBICTO -> result.curveTo(
+                        coords[0], coords[1], coords[2], coords[3], coords[4], coords[5]);
+                default -> {
+                    result.closePath();
+                    open = false;
+                }
+            }
+        }
+
+        if (open) {
+            result.closePath();
+        }
+
+        return result;
+    }
+
+    private static BasicStroke createStroke(
+            double width,
+            HvifIcon.LineJoin lineJoin,
+            HvifIcon.LineCap lineCap,
+            double miterLimit) {
+        int awtJoin = switch (lineJoin) {
+            case ROUND -> BasicStroke.JOIN_ROUND;
+            case BEVEL -> BasicStroke.JOIN_BEVEL;
+            case MITER, MITER_REVERT, MITER_ROUND -> BasicStroke.JOIN_MITER;
+        };
+        int awtCap = switch (lineCap) {
+            case BUTT -> BasicStroke.CAP_BUTT;
+            case SQUARE -> BasicStroke.CAP_SQUARE;
+            case ROUND -> BasicStroke.CAP_ROUND;
+        };
+        return new BasicStroke(
+                (float) Math.abs(width), awtCap, awtJoin, (float) Math.max(1.0, miterLimit));
+    }
+
+    // ------------------------------
+    // PAINT
+
+    private void paintSolid(double[] coverage, HvifIcon.SolidStyle style) {
+        double[] color = toLinearColor(style.argb());
+
+        for (int i = 0; i < coverage.length; i++) {
+            if (coverage[i] > 0.0) {
+                blend(i, color, coverage[i]);
+            }
+        }
+    }
+
+    private void paintGradient(
+            double[] coverage,
+            HvifIcon.GradientStyle style,
+            AffineTransform shapeTransform) {
+        if (style.stops().isEmpty()) {
+            return;
+        }
+
+        AffineTransform gradientTransform = new AffineTransform(shapeTransform);
+        style.matrix().map(HvifRenderer::toAffineTransform).ifPresent(gradientTransform::concatenate);
+        AffineTransform inverse;
+
+        try {
+            inverse = gradientTransform.createInverse();
+        } catch (NoninvertibleTransformException nte) {
+            return;
+        }
+
+        double[][] colors = createGradientColors(style.stops());
+        Point2D.Double point = new Point2D.Double();
+
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int i = y * size + x;
+
+                if (coverage[i] > 0.0) {
+                    point.setLocation(x + 0.5, y + 0.5);
+                    inverse.transform(point, point);
+                    double t = gradientValue(style.type(), point.x, point.y);
+                    int index = Math.clamp((int) Math.floor(t * GRADIENT_COLOR_COUNT), 0, GRADIENT_COLOR_COUNT - 1);
+                    blend(i, colors[index], coverage[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the position along the gradient where 0.0 is the start and 1.0 is the end.
+     */
+
+    private static double gradientValue(HvifIcon.GradientType type, double x, double y) {
+        return switch (type) {
+            case LINEAR -> (x + GRADIENT_EXTENT) / (GRADIENT_EXTENT * 2.0);
+            case CIRCULAR -> Math.hypot(x, y) / GRADIENT_EXTENT;
+            case DIAMOND -> Math.max(Math.abs(x), Math.abs(y)) / GRADIENT_EXTENT;
+            case CONIC -> Math.abs(Math.atan2(y, x)) / Math.PI;
+            case XY -> Math.abs(x) * Math.abs(y) / (GRADIENT_EXTENT * GRADIENT_EXTENT);
+            case SQRT_XY -> Math.sqrt(Math.abs(x) * Math.abs(y)) / GRADIENT_EXTENT;
+        };
+    }
+
+    /**
+     * <p>The colours of the gradient are interpolated between the stops before they are
+     * converted to linear values.</p>
+     */
+
+    private static double[][] createGradientColors(List<HvifIcon.GradientStop> unsortedStops) {
+        List<HvifIcon.GradientStop> stops = unsortedStops.stream()
+                .sorted(Comparator.comparingDouble(HvifIcon.GradientStop::offset))
+                .toList();
+        double[][] result = new double[GRADIENT_COLOR_COUNT][];
+
+        for (int i = 0; i < GRADIENT_COLOR_COUNT; i++) {
+            double t = (double) i / (GRADIENT_COLOR_COUNT - 1);
+            result[i] = toLinearColor(interpolateStops(stops, t));
+        }
+
+        return result;
+    }
+
+    private static int interpolateStops(List<HvifIcon.GradientStop> stops, double t) {
+        HvifIcon.GradientStop first = stops.getFirst();
+
+        if (t <= first.offset()) {
+            return first.argb();
+        }
+
+        for (int i = 1; i < stops.size(); i++) {
+            HvifIcon.GradientStop from = stops.get(i - 1);
+            HvifIcon.GradientStop to = stops.get(i);
+
+            if (t <= to.offset()) {
+                double span = to.offset() - from.offset();
+                double f = span <= 0.0 ? 1.0 : (t - from.offset()) / span;
+                return RgbaImage.argb(
+                        interpolateComponent(RgbaImage.alpha(from.argb()), RgbaImage.alpha(to.argb()), f),
+                        interpolateComponent(RgbaImage.red(from.argb()), RgbaImage.red(to.argb()), f),
+                        interpolateComponent(RgbaImage.green(from.argb()), RgbaImage.green(to.argb()), f),
+                        interpolateComponent(RgbaImage.blue(from.argb()), RgbaImage.blue(to.argb()), f));
+            }
+        }
+
+        return stops.getLast().argb();
+    }
+
+    private static int interpolateComponent(int from, int to, double f) {
+        return (int) Math.round(from + (to - from) * f);
+    }
+
+    /**
+     * @return the linear red, green and blue and the alpha; not premultiplied.
+     */
+
+    private static double[] toLinearColor(int argb) {
+        return new double[] {
+                TO_LINEAR[RgbaImage.red(argb)],
+                TO_LINEAR[RgbaImage.green(argb)],
+                TO_LINEAR[RgbaImage.blue(argb)],
+                RgbaImage.alpha(argb) / 255.0
+        };
+    }
+
+    private void blend(int pixel, double[] color, double coverage) {
+        int offset = pixel * 4;
+        double alpha = color[3] * coverage;
+        double remainder = 1.0 - alpha;
+        canvas[offset] = color[0] * alpha + canvas[offset] * remainder;
+        canvas[offset + 1] = color[1] * alpha + canvas[offset + 1] * remainder;
+        canvas[offset + 2] = color[2] * alpha + canvas[offset + 2] * remainder;
+        canvas[offset + 3] = alpha + canvas[offset + 3] * remainder;
+    }
+
+    private RgbaImage toImage() {
+        int[] pixels = new int[size * size];
+
+        for (int i = 0; i < pixels.length; i++) {
+            int offset = i * 4;
+            double alpha = canvas[offset + 3];
+            int alpha8 = toComponent(alpha);
+
+            if (0 != alpha8) {
+                pixels[i] = RgbaImage.argb(
+                        alpha8,
+                        FROM_LINEAR[toComponent(canvas[offset] / alpha)],
+                        FROM_LINEAR[toComponent(canvas[offset + 1] / alpha)],
+                        FROM_LINEAR[toComponent(canvas[offset + 2] / alpha)]);
+            }
+        }
+
+        return new RgbaImage(size, size, pixels);
+    }
+
+    private static int toComponent(double value) {
+        return Math.clamp(Math.round(value * 255.0), 0, 255);
+    }
+
+    // ------------------------------
+    // SUPPORT
+
+    /**
+     * @param matrix is in the order; sx, shy, shx, sy, tx, ty which is the same order as is
+     *               expected by {@link AffineTransform}.
+     */
+
+    private static AffineTransform toAffineTransform(double[] matrix) {
+        return new AffineTransform(matrix);
+    }
+
+    /**
+     * <p>The linear values are quantized to 8 bits, as they are in the Haiku renderer, so that
+     * the result is as close as possible to that of <code>hvif2png</code>.</p>
+     */
+
+    private static double[] createToLinear() {
+        double[] result = new double[256];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Math.round(Math.pow(i / 255.0, GAMMA) * 255.0) / 255.0;
+        }
+        return result;
+    }
+
+    private static int[] createFromLinear() {
+        int[] result = new int[256];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (int) Math.round(Math.pow(i / 255.0, 1.0 / GAMMA) * 255.0);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.graphics.hvif;
+
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * <p>Collects render requests from any number of callers and renders them together using
+ * {@link HvifRenderingService#renderBatch(List)} on a single background thread. While a batch
+ * is being rendered, further requests queue up and are then rendered together in the next
+ * batch. This means that a large number of renders, such as those arising from an import of
+ * icons, are made with few requests to the graphics server.</p>
+ *
+ * <p>Each request's future is completed with its own result so that an icon which cannot be
+ * rendered does not cause the other requests in the same batch to fail. Only if the batch as a
+ * whole could not be rendered do all of its requests fail.</p>
+ */
+
+public class HvifRenderingBatcher implements AutoCloseable {
+
+    protected static final Logger LOGGER = LoggerFactory.getLogger(HvifRenderingBatcher.class);
+
+    private final HvifRenderingService hvifRenderingService;
+
+    private final int maxBatchItems;
+
+    private final BlockingQueue<PendingRequest> queue;
+
+    private final ExecutorService executorService;
+
+    /**
+     * @param maxBatchItems is the largest number of requests that will be rendered together.
+     * @param maxQueuedItems is the largest number of requests that can be waiting to be
+     *                       rendered; further requests are rejected.
+     */
+
+    public HvifRenderingBatcher(
+            HvifRenderingService hvifRenderingService,
+            int maxBatchItems,
+            int maxQueuedItems) {
+        Preconditions.checkArgument(maxBatchItems > 0, "the max batch items must be positive");
+        Preconditions.checkArgument(maxQueuedItems > 0, "the max queued items must be positive");
+        this.hvifRenderingService = Preconditions.checkNotNull(hvifRenderingService);
+        this.maxBatchItems = maxBatchItems;
+        this.queue = new LinkedBlockingQueue<>(maxQueuedItems);
+        this.executorService = Executors.newSingleThreadExecutor();
+        this.executorService.execute(this::run);
+    }
+
+    private record PendingRequest(HvifRenderRequest request, CompletableFuture<HvifRenderResult> future) {
+    }
+
+    /**
+     * <p>Queues the request to be rendered with others.</p>
+     *
+     * @return a future for the result of rendering the request or an empty value if there are
+     * already too many requests queued.
+     */
+
+    public Optional<CompletableFuture<HvifRenderResult>> submit(HvifRenderRequest request) {
+        Preconditions.checkArgument(null != request, "the request must be supplied");
+        PendingRequest pendingRequest = new PendingRequest(request, new CompletableFuture<>());
+
+        if (!queue.offer(pendingRequest)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(pendingRequest.future());
+    }
+
+    @Override
+    public void close() {
+        executorService.shutdownNow();
+
+        List<PendingRequest> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        abandoned.forEach(p -> p.future().completeExceptionally(new CancellationException("the batcher was closed")));
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<PendingRequest> batch = new ArrayList<>();
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatchItems - 1);
+                renderBatch(batch);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void renderBatch(List<PendingRequest> batch) {
+        try {
+            List<HvifRenderResult> results = hvifRenderingService.renderBatch(
+                    batch.stream().map(PendingRequest::request).toList());
+
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future().complete(results.get(i));
+            }
+
+            LOGGER.debug("did render batch of {} hvif requests", batch.size());
+        } catch (Throwable th) {
+            LOGGER.warn("unable to render batch of {} hvif requests", batch.size(), th);
+            batch.forEach(p -> p.future().completeExceptionally(th));
+        }
+    }
+
+}
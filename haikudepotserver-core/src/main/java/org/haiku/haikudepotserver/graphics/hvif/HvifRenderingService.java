@@ -1,11 +1,16 @@
 /*
- * Copyright 2015-2016, Andrew Lindesay
+ * Copyright 2015-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
 package org.haiku.haikudepotserver.graphics.hvif;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * <p>This interface describes a service that is able to take HVIF vector icons and render them into
@@ -20,4 +25,49 @@ public interface HvifRenderingService {
 
     byte[] render(int size, byte[] input) throws IOException;
 
+    /**
+     * <p>As {@link #render(int, byte[])} but the result is provided asynchronously. An
+     * implementation which calls out to another server is able to do this without holding a
+     * thread while it waits.</p>
+     */
+
+    default CompletableFuture<byte[]> renderAsync(int size, byte[] input) {
+        try {
+            return CompletableFuture.completedFuture(render(size, input));
+        } catch (IOException ioe) {
+            return CompletableFuture.failedFuture(ioe);
+        }
+    }
+
+    /**
+     * <p>This method will render each of the requests at each of its sizes. Implementations may
+     * be able to do this more efficiently than rendering each separately. A size that cannot be
+     * rendered is recorded as a failure in the result for its request so that it does not
+     * prevent the other renders.</p>
+     *
+     * @return for each request, in the same order, the outcome of rendering it.
+     * @throws IOException if the batch as a whole could not be rendered.
+     */
+
+    default List<HvifRenderResult> renderBatch(List<HvifRenderRequest> requests) throws IOException {
+        List<HvifRenderResult> result = new ArrayList<>(requests.size());
+
+        for (HvifRenderRequest request : requests) {
+            Map<Integer, byte[]> renders = new HashMap<>();
+            Map<Integer, String> failures = new HashMap<>();
+
+            for (int size : request.sizes()) {
+                try {
+                    renders.put(size, render(size, request.input()));
+                } catch (IOException ioe) {
+                    failures.put(size, String.valueOf(ioe.getMessage()));
+                }
+            }
+
+            result.add(new HvifRenderResult(renders, failures));
+        }
+
+        return result;
+    }
+
 }
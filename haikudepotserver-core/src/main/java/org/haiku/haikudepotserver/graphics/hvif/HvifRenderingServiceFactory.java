@@ -1,11 +1,11 @@
 /*
- * Copyright 2018-2025, Andrew Lindesay
+ * Copyright 2018-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
 package org.haiku.haikudepotserver.graphics.hvif;
 
-import org.apache.commons.lang3.StringUtils;
+import org.haiku.haikudepotserver.graphics.GraphicsServerClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.FactoryBean;
@@ -18,18 +18,25 @@ public class HvifRenderingServiceFactory implements FactoryBean<HvifRenderingSer
 
     protected final static Logger LOGGER = LoggerFactory.getLogger(HvifRenderingServiceFactory.class);
 
-    private final String graphicsServerBaseUri;
+    private final GraphicsServerClient graphicsServerClient;
 
-    public HvifRenderingServiceFactory(String graphicsServerBaseUri
-    ) {
-        this.graphicsServerBaseUri = graphicsServerBaseUri;
+    private final boolean inProcess;
+
+    public HvifRenderingServiceFactory(GraphicsServerClient graphicsServerClient, boolean inProcess) {
+        this.graphicsServerClient = graphicsServerClient;
+        this.inProcess = inProcess;
     }
 
     @Override
     public HvifRenderingService getObject() throws Exception {
-        if (StringUtils.isNotBlank(graphicsServerBaseUri)) {
-            LOGGER.info("will use server hvif rendering [{}]", graphicsServerBaseUri);
-            return new ServerHvifRenderingServiceImpl(graphicsServerBaseUri);
+        if (inProcess) {
+            LOGGER.info("will use in-process hvif rendering");
+            return new InProcessHvifRenderingServiceImpl();
+        }
+
+        if (graphicsServerClient.isConfigured()) {
+            LOGGER.info("will use server hvif rendering [{}]", graphicsServerClient.getBaseUri());
+            return new ServerHvifRenderingServiceImpl(graphicsServerClient);
         }
 
         LOGGER.info("will fallback hvif rendering that produces generic images");
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.graphics.hvif;
+
+import com.google.common.base.Preconditions;
+import org.haiku.haikudepotserver.graphics.bitmap.PngCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * <p>Renders HVIF icons within the application server rather than calling out to the
+ * <code>hvif2png</code> tool on the graphics server.  This avoids an HTTP request and the
+ * start of a process for each render.</p>
+ */
+
+public class InProcessHvifRenderingServiceImpl implements HvifRenderingService {
+
+    /**
+     * <p>HVIF icons are small and this limit prevents a request from using an unreasonable
+     * amount of memory.</p>
+     */
+
+    private static final int MAX_SIZE = 1024;
+
+    @Override
+    public byte[] render(int size, byte[] input) throws IOException {
+        Preconditions.checkArgument(size > 0 && size <= MAX_SIZE, "bad size [" + size + "]");
+        Preconditions.checkArgument(null != input, "the input must be supplied");
+
+        try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            PngCodec.write(HvifRenderer.render(HvifParser.parse(input), size), output);
+            return output.toByteArray();
+        }
+    }
+
+}
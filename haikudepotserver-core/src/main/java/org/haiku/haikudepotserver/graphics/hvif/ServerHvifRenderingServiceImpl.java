@@ -1,62 +1,232 @@
 /*
- * Copyright 2024, Andrew Lindesay
+ * Copyright 2024-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 package org.haiku.haikudepotserver.graphics.hvif;
 
-import com.google.common.net.HttpHeaders;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import com.google.common.net.MediaType;
-import org.springframework.http.HttpStatusCode;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.haiku.haikudepotserver.graphics.GraphicsServerClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 public class ServerHvifRenderingServiceImpl implements HvifRenderingService {
 
+    protected final static Logger LOGGER = LoggerFactory.getLogger(ServerHvifRenderingServiceImpl.class);
+
     private final static String[] PATH_COMPONENTS = new String[] {"__gfx", "hvif2png"};
 
+    private final static String[] PATH_COMPONENTS_BATCH = new String[] {"__gfx", "hvif2png-batch"};
+
+    private final static String OPERATION = "hvif2png";
+
+    private final static String OPERATION_BATCH = "hvif2png-batch";
+
     private final static String KEY_SIZE = "sz";
 
+    /**
+     * <p>The graphics server limits the number of renders in a batch so the requests are split
+     * up into batches of this many icons.</p>
+     */
+
+    private final static int MAX_BATCH_ITEMS = 64;
+
+    private final static String SUFFIX_BATCH_HVIF = ".hvif";
+    private final static String SUFFIX_BATCH_PNG = ".png";
+    private final static String SUFFIX_BATCH_ERROR = ".error";
+
+    private final GraphicsServerClient graphicsServerClient;
     private final URI uri;
-    private final HttpClient httpClient;
+    private final URI batchUri;
 
-    public ServerHvifRenderingServiceImpl(String baseUri) {
-        this.uri = UriComponentsBuilder.fromUriString(baseUri)
-                .pathSegment(PATH_COMPONENTS)
+    public ServerHvifRenderingServiceImpl(GraphicsServerClient graphicsServerClient) {
+        this.graphicsServerClient = Preconditions.checkNotNull(graphicsServerClient);
+        this.uri = graphicsServerClient.uriBuilder(PATH_COMPONENTS)
+                .build()
+                .toUri();
+        this.batchUri = graphicsServerClient.uriBuilder(PATH_COMPONENTS_BATCH)
                 .build()
                 .toUri();
-        httpClient = HttpClient.newHttpClient();
     }
 
     @Override
     public byte[] render(int size, byte[] input) throws IOException {
-        URI renderUri = UriComponentsBuilder.fromUri(uri)
+        return graphicsServerClient.post(
+                OPERATION,
+                createRenderUri(size),
+                MediaType.PNG,
+                HttpRequest.BodyPublishers.ofByteArray(input));
+    }
+
+    @Override
+    public CompletableFuture<byte[]> renderAsync(int size, byte[] input) {
+        return graphicsServerClient.postAsync(
+                OPERATION,
+                createRenderUri(size),
+                MediaType.PNG,
+                HttpRequest.BodyPublishers.ofByteArray(input));
+    }
+
+    private URI createRenderUri(int size) {
+        return UriComponentsBuilder.fromUri(uri)
                 .queryParam(KEY_SIZE, Integer.toString(size))
                 .build().toUri();
+    }
+
+    /**
+     * <p>Sends the requests to the graphics server in batches so that there is only one HTTP
+     * request for many renders. A render that the graphics server reported as having failed is
+     * recorded as a failure and is not tried again. A render that is missing from the response
+     * altogether is tried again on its own; these are tried concurrently.</p>
+     */
+
+    @Override
+    public List<HvifRenderResult> renderBatch(List<HvifRenderRequest> requests) throws IOException {
+        List<CompletableFuture<HvifRenderResult>> futures = new ArrayList<>(requests.size());
+
+        for (List<HvifRenderRequest> batch : Lists.partition(requests, MAX_BATCH_ITEMS)) {
+            List<HvifRenderResult> batchResults = renderSingleBatch(batch);
+
+            for (int i = 0; i < batch.size(); i++) {
+                futures.add(renderMissingSizes(batch.get(i), batchResults.get(i)));
+            }
+        }
+
+        // the futures record failures rather than failing themselves so this will not throw.
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    private CompletableFuture<HvifRenderResult> renderMissingSizes(HvifRenderRequest request, HvifRenderResult result) {
+        List<Integer> missingSizes = request.sizes().stream()
+                .filter(size -> !result.renders().containsKey(size) && !result.failures().containsKey(size))
+                .toList();
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(renderUri)
-                .header(HttpHeaders.CONTENT_TYPE, MediaType.PNG.toString())
-                .POST(HttpRequest.BodyPublishers.ofByteArray(input))
-                .build();
+        if (missingSizes.isEmpty()) {
+            return CompletableFuture.completedFuture(result);
+        }
+
+        Map<Integer, byte[]> renders = new ConcurrentHashMap<>(result.renders());
+        Map<Integer, String> failures = new ConcurrentHashMap<>(result.failures());
+
+        return CompletableFuture.allOf(missingSizes.stream()
+                        .map(size -> renderAsync(size, request.input()).handle((data, throwable) -> {
+                            if (null != throwable) {
+                                Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                                LOGGER.warn("unable to render hvif at size {}", size, cause);
+                                failures.put(size, String.valueOf(cause.getMessage()));
+                            } else {
+                                renders.put(size, data);
+                            }
+                            return null;
+                        }))
+                        .toArray(CompletableFuture[]::new))
+                .thenApply(v -> new HvifRenderResult(renders, failures));
+    }
+
+    private List<HvifRenderResult> renderSingleBatch(List<HvifRenderRequest> batch) throws IOException {
+        byte[] responseData = graphicsServerClient.post(
+                OPERATION_BATCH,
+                batchUri,
+                MediaType.TAR,
+                HttpRequest.BodyPublishers.ofByteArray(createBatchRequestData(batch)));
+
+        return readBatchResponseData(new ByteArrayInputStream(responseData), batch.size());
+    }
 
-        try {
-            HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    /**
+     * <p>The key for each item is its index in the batch.</p>
+     */
 
-            if (HttpStatusCode.valueOf(response.statusCode()).is2xxSuccessful()) {
-                return response.body();
+    private static byte[] createBatchRequestData(List<HvifRenderRequest> batch) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try (TarArchiveOutputStream tarOutputStream = new TarArchiveOutputStream(outputStream)) {
+            for (int i = 0; i < batch.size(); i++) {
+                HvifRenderRequest renderRequest = batch.get(i);
+                String sizes = renderRequest.sizes().stream()
+                        .sorted()
+                        .map(String::valueOf)
+                        .collect(Collectors.joining(","));
+                TarArchiveEntry entry = new TarArchiveEntry(i + "/" + sizes + SUFFIX_BATCH_HVIF);
+                entry.setSize(renderRequest.input().length);
+                tarOutputStream.putArchiveEntry(entry);
+                tarOutputStream.write(renderRequest.input());
+                tarOutputStream.closeArchiveEntry();
             }
 
-            throw new IOException("the request to the server to produce the hvif returns ["
-                    + response.statusCode() + "]");
-        } catch (InterruptedException ie) {
-            Thread.currentThread().interrupt();
-            throw new IOException("hvif rendering was cancelled", ie);
+            tarOutputStream.finish();
         }
+
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * <p>Reads the renders and failures for each of the items in the batch from the graphics
+     * server's response.</p>
+     */
+
+    static List<HvifRenderResult> readBatchResponseData(InputStream inputStream, int itemCount)
+            throws IOException {
+        List<Map<Integer, byte[]>> renders = new ArrayList<>(itemCount);
+        List<Map<Integer, String>> failures = new ArrayList<>(itemCount);
+
+        for (int i = 0; i < itemCount; i++) {
+            renders.add(new HashMap<>());
+            failures.add(new HashMap<>());
+        }
+
+        TarArchiveInputStream tarInputStream = new TarArchiveInputStream(inputStream);
+        TarArchiveEntry entry;
+
+        while (null != (entry = tarInputStream.getNextEntry())) {
+            String name = entry.getName();
+            int index = Integer.parseInt(StringUtils.substringBefore(name, "/"));
+            String leafname = StringUtils.substringAfter(name, "/");
+
+            if (index < 0 || index >= itemCount) {
+                throw new IOException("the batch response entry [" + name + "] is not for an item in the batch");
+            }
+
+            if (leafname.endsWith(SUFFIX_BATCH_PNG)) {
+                int size = Integer.parseInt(StringUtils.removeEnd(leafname, SUFFIX_BATCH_PNG));
+                renders.get(index).put(size, tarInputStream.readAllBytes());
+            } else if (leafname.endsWith(SUFFIX_BATCH_ERROR)) {
+                int size = Integer.parseInt(StringUtils.removeEnd(leafname, SUFFIX_BATCH_ERROR));
+                String message = new String(tarInputStream.readAllBytes(), StandardCharsets.UTF_8);
+                LOGGER.warn("the server was unable to render batch item [{}]; {}", name, message);
+                failures.get(index).put(size, message);
+            }
+        }
+
+        List<HvifRenderResult> result = new ArrayList<>(itemCount);
+
+        for (int i = 0; i < itemCount; i++) {
+            result.add(new HvifRenderResult(renders.get(i), failures.get(i)));
+        }
+
+        return result;
     }
 
 }
@@ -7,6 +7,7 @@ package org.haiku.haikudepotserver.maintenance;
 
 import org.apache.cayenne.ObjectContext;
 import org.apache.cayenne.configuration.server.ServerRuntime;
+import org.apache.commons.lang3.StringUtils;
 import org.haiku.haikudepotserver.dataobjects.Repository;
 import org.haiku.haikudepotserver.dataobjects.UserPasswordResetToken;
 import org.haiku.haikudepotserver.job.model.BulkDataJobCoordinatorService;
@@ -14,17 +15,21 @@ import org.haiku.haikudepotserver.job.model.JobService;
 import org.haiku.haikudepotserver.job.model.JobSnapshot;
 import org.haiku.haikudepotserver.maintenance.model.MaintenanceService;
 import org.haiku.haikudepotserver.passwordreset.model.PasswordResetMaintenanceJobSpecification;
+import org.haiku.haikudepotserver.pkg.model.ImageBlobGarbageCollectionJobSpecification;
+import org.haiku.haikudepotserver.pkg.model.PkgScreenshotOptimizationJobSpecification;
 import org.haiku.haikudepotserver.repository.model.AlertRepositoryAbsentUpdateJobSpecification;
 import org.haiku.haikudepotserver.repository.model.RepositoryHpkrIngressJobSpecification;
 import org.haiku.haikudepotserver.storage.model.DataStorageGarbageCollectionJobSpecification;
+import org.haiku.haikudepotserver.support.ScheduledTaskRunner;
+import org.haiku.haikudepotserver.userrating.model.UserRatingDerivationJobSpecification;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.time.Instant;
+import java.util.Optional;
 
 /**
  * <p>Note that the exact (second, minute) of the timing of these expressions
@@ -42,21 +47,34 @@ public class MaintenanceServiceImpl implements MaintenanceService {
 
     protected static Logger LOGGER = LoggerFactory.getLogger(MaintenanceServiceImpl.class);
 
-    private final Executor executor = Executors.newSingleThreadExecutor(Thread.ofVirtual().factory());
-
-    private final AtomicBoolean amClearingExpiredJobs = new AtomicBoolean(false);
+    private final static String TASK_GROUP = "maintenance";
 
     private final ServerRuntime serverRuntime;
     private final JobService jobService;
     private final BulkDataJobCoordinatorService bulkDataJobCoordinatorService;
+    private final ScheduledTaskRunner scheduledTaskRunner;
+
+    /**
+     * <p>Screenshots that were last optimized before this time are optimized again by the daily
+     * maintenance. This is null if screenshots are only optimized once.</p>
+     */
+
+    private final Long pkgScreenshotOptimizedBeforeMillis;
 
     public MaintenanceServiceImpl(
             ServerRuntime serverRuntime,
             BulkDataJobCoordinatorService bulkDataJobCoordinatorService,
-            JobService jobService) {
+            JobService jobService,
+            ScheduledTaskRunner scheduledTaskRunner,
+            @Value("${hds.pkg-screenshot.optimization.optimized-before:}") String pkgScreenshotOptimizedBefore) {
         this.serverRuntime = serverRuntime;
         this.bulkDataJobCoordinatorService = bulkDataJobCoordinatorService;
         this.jobService = jobService;
+        this.scheduledTaskRunner = scheduledTaskRunner;
+        this.pkgScreenshotOptimizedBeforeMillis = Optional.ofNullable(StringUtils.trimToNull(pkgScreenshotOptimizedBefore))
+                .map(Instant::parse)
+                .map(Instant::toEpochMilli)
+                .orElse(null);
     }
 
     @Override
@@ -74,6 +92,16 @@ public class MaintenanceServiceImpl implements MaintenanceService {
             }
         }
 
+        // optimize any screenshots which have not yet been optimized; this will also carry on
+        // with any optimization of screenshots which was interrupted. If configured, those that
+        // were optimized before a given time, perhaps with an older optimizer, are done again.
+
+        {
+            PkgScreenshotOptimizationJobSpecification specification = new PkgScreenshotOptimizationJobSpecification();
+            specification.setOptimizedBeforeMillis(pkgScreenshotOptimizedBeforeMillis);
+            jobService.submit(specification, JobSnapshot.COALESCE_STATUSES_QUEUED_STARTED);
+        }
+
         // see if there appear to have been problems with importing HPKR files.
 
         jobService.submit(
@@ -91,25 +119,14 @@ public class MaintenanceServiceImpl implements MaintenanceService {
         // Remove any jobs which are too old and are no longer required. This will not run as a job because
         // it has been quite difficult to get the job clean up running as a job and at the sametime to not
         // end up in tricky edge cases where the clean-up is mutating the job clean up job's data. For this
-        // reason this logic happens in a separate executor.
-
-        if (amClearingExpiredJobs.get()) {
-            LOGGER.warn("am already clearing expired jobs --> will skip");
-        } else {
-            executor.execute(() -> {
-                String threadNamePrior = Thread.currentThread().getName();
-                try {
-                    Thread.currentThread().setName("clear-expired-jobs");
-                    LOGGER.warn("will clear expired jobs");
-                    amClearingExpiredJobs.set(true);
-                    jobService.clearExpiredJobs();
-                    LOGGER.warn("did clear expired jobs");
-                } finally {
-                    amClearingExpiredJobs.set(false);
-                    Thread.currentThread().setName(threadNamePrior);
-                }
-            });
-        }
+        // reason this logic happens as a scheduled task. The task will be skipped if the previous run
+        // is still underway.
+
+        scheduledTaskRunner.submit(TASK_GROUP, "clear-expired-jobs", () -> {
+            LOGGER.warn("will clear expired jobs");
+            jobService.clearExpiredJobs();
+            LOGGER.warn("did clear expired jobs");
+        });
 
         // remove any expired password reset tokens.
 
@@ -132,6 +149,21 @@ public class MaintenanceServiceImpl implements MaintenanceService {
             jobService.submit(specification, JobSnapshot.COALESCE_STATUSES_QUEUED_STARTED);
         }
 
+        // derive the user ratings of any packages which have changed but for which the derivation
+        // was not triggered.
+
+        {
+            UserRatingDerivationJobSpecification specification = new UserRatingDerivationJobSpecification();
+            specification.setDirtyPkgs(true);
+            jobService.submit(specification, JobSnapshot.COALESCE_STATUSES_QUEUED);
+        }
+
+        // remove any image data which is no longer used by an icon or screenshot.
+
+        jobService.submit(
+                new ImageBlobGarbageCollectionJobSpecification(),
+                JobSnapshot.COALESCE_STATUSES_QUEUED_STARTED);
+
         LOGGER.info("did trigger hourly maintenance");
     }
 
@@ -140,7 +172,7 @@ public class MaintenanceServiceImpl implements MaintenanceService {
 
         // check bulk data freshness.
 
-        executor.execute(() -> {
+        scheduledTaskRunner.submit(TASK_GROUP, "bulk-data-refresh", () -> {
             bulkDataJobCoordinatorService.clearExpiredJobs();
             bulkDataJobCoordinatorService.performRefresh();
         });
@@ -1,5 +1,5 @@
 /*
- * Copyright 2023-2025, Andrew Lindesay
+ * Copyright 2023-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 package org.haiku.haikudepotserver.metrics;
@@ -10,6 +10,50 @@ public class MetricsConstants {
 
     public static final String GUAGE_PG_DATA_STORAGE_MEGABYTE_PER_SECOND_TRANSFER = "hds.datastore.pg.mbpersectransfer";
 
+    public static final String COUNTER_NAME_API2_RESPONSE_CACHE_REQUESTS = "hds.api2.responsecache.requests";
+
+    public static final String GUAGE_API2_RESPONSE_CACHE_SIZE = "hds.api2.responsecache.size";
+
+    public static final String COUNTER_NAME_QUERY_CACHE_REMOVE_EVENTS_SENT = "hds.cayenne.querycache.removeevents.sent";
+
+    public static final String COUNTER_NAME_QUERY_CACHE_REMOVE_EVENTS_RECEIVED = "hds.cayenne.querycache.removeevents.received";
+
+    public static final String COUNTER_NAME_QUERY_CACHE_REMOVES_SENT = "hds.cayenne.querycache.removes.sent";
+
+    public static final String COUNTER_NAME_QUERY_CACHE_REMOVES_RECEIVED = "hds.cayenne.querycache.removes.received";
+
+    public static final String COUNTER_NAME_QUERY_CACHE_REMOVES_COALESCED = "hds.cayenne.querycache.removes.coalesced";
+
+    public static final String TIMER_NAME_GRAPHICS_SERVER_REQUESTS = "hds.graphicsserver.requests";
+
+    public static final String COUNTER_NAME_PKG_SCREENSHOT_OPTIMIZATIONS = "hds.pkgscreenshot.optimizations";
+
+    public static final String COUNTER_NAME_PKG_SCREENSHOT_OPTIMIZATION_BYTES_SAVED = "hds.pkgscreenshot.optimization.bytessaved";
+
+    public static final String COUNTER_NAME_PKG_VERSION_VIEWS_WRITTEN = "hds.pkgversion.views.written";
+
+    public static final String TIMER_NAME_SCHEDULED_TASK_DURATION = "hds.scheduledtask.duration";
+
+    public static final String TIMER_NAME_SCHEDULED_TASK_LAG = "hds.scheduledtask.lag";
+
+    public static final String COUNTER_NAME_SCHEDULED_TASKS_SKIPPED = "hds.scheduledtask.skipped";
+
+    public static final String CACHE_NAME_CAYENNE_QUERY = "hds.cayenne.querycache";
+
+    public static final String CACHE_NAME_VERIFIED_TOKENS = "hds.authentication.verifiedtokens";
+
+    public static final String CACHE_NAME_AUTHORIZATION_PKG_RULES = "hds.authorization.pkgrules";
+
     public static final String TAG_NAME_VERSION = "version";
 
+    public static final String TAG_NAME_ENDPOINT = "endpoint";
+
+    public static final String TAG_NAME_RESULT = "result";
+
+    public static final String TAG_NAME_GROUP = "group";
+
+    public static final String TAG_NAME_OPERATION = "operation";
+
+    public static final String TAG_NAME_TASK = "task";
+
 }
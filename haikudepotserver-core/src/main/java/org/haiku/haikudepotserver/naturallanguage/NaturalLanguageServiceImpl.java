@@ -36,6 +36,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * <p>This service is designed to help with more complex queries around natural languages.</p>
@@ -53,6 +54,8 @@ public class NaturalLanguageServiceImpl implements NaturalLanguageService {
 
     private final MessageSource messageSource;
 
+    private final NaturalLanguageUseBatcher naturalLanguageUseBatcher;
+
     private final Lock naturalLanguageCoordinatesWithLocalizationMessagesLock = new ReentrantLock();
 
     /**
@@ -71,10 +74,12 @@ public class NaturalLanguageServiceImpl implements NaturalLanguageService {
     public NaturalLanguageServiceImpl(
             ServerRuntime serverRuntime,
             MessageSource messageSource,
-            @Qualifier("messageSourceBaseNames") List<String> messageSourceBaseNames
+            @Qualifier("messageSourceBaseNames") List<String> messageSourceBaseNames,
+            NaturalLanguageUseBatcher naturalLanguageUseBatcher
     ) {
         this.serverRuntime = Preconditions.checkNotNull(serverRuntime);
         this.messageSource = Preconditions.checkNotNull(messageSource);
+        this.naturalLanguageUseBatcher = Preconditions.checkNotNull(naturalLanguageUseBatcher);
         this.messageSourceBaseNames = Preconditions.checkNotNull(messageSourceBaseNames);
 
         allLocalizationMessages = CacheBuilder
@@ -210,23 +215,17 @@ public class NaturalLanguageServiceImpl implements NaturalLanguageService {
     @Override
     public void updateUse(NaturalLanguageCoordinates naturalLanguageCoordinate) {
         Preconditions.checkArgument(naturalLanguageCoordinate != null);
-        ObjectContext context = serverRuntime.newContext();
-        NaturalLanguage naturalLanguage = NaturalLanguage.getByNaturalLanguage(context, naturalLanguageCoordinate);
-        NaturalLanguageUse use = NaturalLanguageUse.tryGetForNaturalLanguage(context, naturalLanguage)
-                .orElseGet(() -> {
-                    NaturalLanguageUse result = context.newObject(NaturalLanguageUse.class);
-                    result.setCount(0L);
-                    result.setNaturalLanguage(naturalLanguage);
-                    return result;
-                });
-
-        use.setCount(use.getCount() + 1);
-        use.setLastUseTimestamp(new java.sql.Timestamp(System.currentTimeMillis()));
-        context.commitChanges();
+        naturalLanguageUseBatcher.add(naturalLanguageCoordinate);
     }
 
+    /**
+     * <p>The uses stored in the database include those from the other instances.  The uses on
+     * this instance which are yet to be written are also included.</p>
+     */
+
     @Override
     public Set<NaturalLanguageCoordinates> naturalLanguagesUsedSince(Instant since) {
+        Preconditions.checkArgument(null != since, "the since instant must be supplied");
         ObjectContext context = serverRuntime.newContext();
 
         List<Object[]> rows = ObjectSelect.query(NaturalLanguageUse.class)
@@ -239,11 +238,13 @@ public class NaturalLanguageServiceImpl implements NaturalLanguageService {
                 )
                 .select(context);
 
-        return rows.stream()
-                .map(r -> new NaturalLanguageCoordinates(
-                        r[0].toString(),
-                        Optional.ofNullable(r[1]).map(Object::toString).orElse(null),
-                        Optional.ofNullable(r[2]).map(Object::toString).orElse(null)))
+        return Stream.concat(
+                    rows.stream()
+                            .map(r -> new NaturalLanguageCoordinates(
+                                    r[0].toString(),
+                                    Optional.ofNullable(r[1]).map(Object::toString).orElse(null),
+                                    Optional.ofNullable(r[2]).map(Object::toString).orElse(null))),
+                    naturalLanguageUseBatcher.naturalLanguagesUsedSince(since).stream())
                 .collect(Collectors.toUnmodifiableSet());
     }
 
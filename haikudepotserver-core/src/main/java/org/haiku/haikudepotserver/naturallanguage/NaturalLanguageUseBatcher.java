@@ -0,0 +1,278 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.naturallanguage;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.AbstractScheduledService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.cayenne.ObjectContext;
+import org.apache.cayenne.configuration.server.ServerRuntime;
+import org.apache.cayenne.query.MappedExec;
+import org.haiku.haikudepotserver.dataobjects.NaturalLanguage;
+import org.haiku.haikudepotserver.dataobjects.NaturalLanguageUse;
+import org.haiku.haikudepotserver.dataobjects.auto._HaikuDepot;
+import org.haiku.haikudepotserver.naturallanguage.model.NaturalLanguageCoordinates;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * <p>The use of a {@link NaturalLanguage} is recorded each time that a bulk data dump is
+ * requested for it. Rather than writing each use to the database as it happens, the uses
+ * are collected here and are periodically merged into the {@link NaturalLanguageUse}s with
+ * a single upsert.</p>
+ *
+ * <p>The time of the last use of each natural language is retained in memory so that the
+ * natural languages used recently on this instance are known even when the uses have not
+ * yet been written. Only uses of known natural languages are recorded and a natural language
+ * is forgotten once its uses have been written and it has not been used for the time that the
+ * bulk data is renewed for it, so the memory retained is small.</p>
+ *
+ * <p>Any uses which are still pending are written when the application stops. If the
+ * service is not running, for example during startup or shutdown, then the uses are
+ * written immediately.</p>
+ */
+
+@Component
+public class NaturalLanguageUseBatcher extends AbstractScheduledService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NaturalLanguageUseBatcher.class);
+
+    private final ServerRuntime serverRuntime;
+
+    private final long flushIntervalMillis;
+
+    /**
+     * <p>A natural language which has not been used for this long is no longer retained.</p>
+     */
+
+    private final Duration retainDuration;
+
+    private final ConcurrentMap<NaturalLanguageCoordinates, PendingUse> pendingUses = new ConcurrentHashMap<>();
+
+    /**
+     * <p>Prevents the scheduled flush from overlapping with one triggered from elsewhere.</p>
+     */
+
+    private final Object flushLock = new Object();
+
+    public NaturalLanguageUseBatcher(
+            ServerRuntime serverRuntime,
+            @Value("${hds.natural-language.use.flush-interval-millis:30000}") long flushIntervalMillis,
+            @Value("${hds.bulk-data.renew-for-natural-language-hours:48}") long retainHours) {
+        Preconditions.checkArgument(flushIntervalMillis > 0, "the flush interval millis must be positive");
+        Preconditions.checkArgument(retainHours > 0, "the retain hours must be positive");
+        this.serverRuntime = Preconditions.checkNotNull(serverRuntime);
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.retainDuration = Duration.ofHours(retainHours);
+    }
+
+    @PostConstruct
+    public void init() {
+        startAsync();
+        awaitRunning();
+    }
+
+    @PreDestroy
+    public void tearDown() {
+        stopAsync();
+        awaitTerminated();
+    }
+
+    /**
+     * <p>Records a use of the natural language. The natural language comes from the request and
+     * so a use of an unknown natural language is ignored.</p>
+     */
+
+    public void add(NaturalLanguageCoordinates naturalLanguageCoordinates) {
+        Preconditions.checkArgument(null != naturalLanguageCoordinates, "the natural language must be supplied");
+        Optional<NaturalLanguageCoordinates> knownCoordinatesOptional = NaturalLanguage.tryGetByNaturalLanguage(
+                        serverRuntime.newContext(), naturalLanguageCoordinates)
+                .map(NaturalLanguage::toCoordinates);
+
+        if (knownCoordinatesOptional.isEmpty()) {
+            LOGGER.debug("will not record the use of unknown natural language [{}]", naturalLanguageCoordinates);
+            return;
+        }
+
+        // the use is recorded inside the compute so that a flush is not able to forget the
+        // natural language part way through.
+
+        pendingUses.compute(knownCoordinatesOptional.get(), (k, pendingUse) -> {
+            PendingUse result = null == pendingUse ? new PendingUse() : pendingUse;
+
+            // the time is set before the count so that a flush which sees the count also sees the time.
+
+            result.lastUseMillis.accumulateAndGet(System.currentTimeMillis(), Math::max);
+            result.count.increment();
+            return result;
+        });
+
+        if (!isRunning()) {
+            flush();
+        }
+    }
+
+    /**
+     * <p>Returns those natural languages which have been used on this instance since the
+     * instant supplied whether the uses have been written or not.</p>
+     */
+
+    public Set<NaturalLanguageCoordinates> naturalLanguagesUsedSince(Instant since) {
+        Preconditions.checkArgument(null != since, "the since instant must be supplied");
+        long sinceMillis = since.toEpochMilli();
+        return pendingUses.entrySet()
+                .stream()
+                .filter(e -> e.getValue().lastUseMillis.get() > sinceMillis)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * <p>Discards any uses which have been recorded.</p>
+     */
+
+    public void clear() {
+        pendingUses.clear();
+    }
+
+    /**
+     * <p>Writes the uses recorded since the last time to the database.</p>
+     */
+
+    public void flush() {
+        synchronized (flushLock) {
+            Map<NaturalLanguageCoordinates, Use> uses = new HashMap<>();
+
+            pendingUses.forEach((naturalLanguageCoordinates, pendingUse) -> {
+                long count = pendingUse.count.sumThenReset();
+
+                if (count > 0) {
+                    uses.put(naturalLanguageCoordinates, new Use(count, pendingUse.lastUseMillis.get()));
+                }
+            });
+
+            forgetUnused();
+
+            if (uses.isEmpty()) {
+                return;
+            }
+
+            try {
+                write(uses);
+            } catch (RuntimeException re) {
+                // put back the uses so that they are tried again next time.
+                uses.forEach((naturalLanguageCoordinates, use) -> pendingUses
+                        .computeIfAbsent(naturalLanguageCoordinates, k -> new PendingUse())
+                        .count.add(use.count()));
+                throw re;
+            }
+        }
+    }
+
+    /**
+     * <p>Forgets those natural languages which have no uses left to write and which have not
+     * been used for a while.</p>
+     */
+
+    private void forgetUnused() {
+        long cutoffMillis = System.currentTimeMillis() - retainDuration.toMillis();
+
+        for (NaturalLanguageCoordinates naturalLanguageCoordinates : pendingUses.keySet()) {
+            pendingUses.computeIfPresent(
+                    naturalLanguageCoordinates,
+                    (k, pendingUse) -> 0 == pendingUse.count.sum() && pendingUse.lastUseMillis.get() < cutoffMillis
+                            ? null : pendingUse);
+        }
+    }
+
+    private void write(Map<NaturalLanguageCoordinates, Use> uses) {
+        ObjectContext context = serverRuntime.newContext();
+        List<Object> naturalLanguageIds = new ArrayList<>();
+        List<Timestamp> lastUseTimestamps = new ArrayList<>();
+        List<Long> counts = new ArrayList<>();
+
+        uses.forEach((naturalLanguageCoordinates, use) -> {
+            Optional<NaturalLanguage> naturalLanguageOptional = NaturalLanguage.tryGetByNaturalLanguage(
+                    context, naturalLanguageCoordinates);
+
+            if (naturalLanguageOptional.isEmpty()) {
+                LOGGER.warn("unable to record the use of unknown natural language [{}]", naturalLanguageCoordinates);
+                return;
+            }
+
+            naturalLanguageIds.add(naturalLanguageOptional.get().getObjectId().getIdSnapshot().get(NaturalLanguage.ID_PK_COLUMN));
+            lastUseTimestamps.add(new Timestamp(use.lastUseMillis()));
+            counts.add(use.count());
+        });
+
+        if (naturalLanguageIds.isEmpty()) {
+            return;
+        }
+
+        MappedExec.query(_HaikuDepot.MERGE_NATURAL_LANGUAGE_USES_QUERYNAME)
+                .params(Map.of(
+                        "now", new Timestamp(System.currentTimeMillis()),
+                        "naturalLanguageIds", naturalLanguageIds,
+                        "lastUseTimestamps", lastUseTimestamps,
+                        "counts", counts))
+                .update(context);
+
+        LOGGER.debug("did record the use of {} natural languages", naturalLanguageIds.size());
+    }
+
+    // --------------
+    // AbstractScheduledService
+
+    @Override
+    protected void runOneIteration() {
+        try {
+            flush();
+        } catch (Throwable th) {
+            // an exception here would stop the service so it is logged instead.
+            LOGGER.error("unable to record the use of natural languages", th);
+        }
+    }
+
+    @Override
+    protected void shutDown() {
+        flush();
+    }
+
+    @Override
+    protected Scheduler scheduler() {
+        return Scheduler.newFixedDelaySchedule(flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private record Use(long count, long lastUseMillis) {
+    }
+
+    private static class PendingUse {
+
+        private final LongAdder count = new LongAdder();
+
+        private final AtomicLong lastUseMillis = new AtomicLong(0);
+
+    }
+
+}
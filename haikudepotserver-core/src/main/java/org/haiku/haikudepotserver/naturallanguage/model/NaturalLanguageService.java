@@ -1,5 +1,5 @@
 /*
- * Copyright 2016-2024, Andrew Lindesay
+ * Copyright 2016-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
@@ -48,7 +48,8 @@ public interface NaturalLanguageService {
     Properties getAllLocalizationMessages(NaturalLanguageCoordinates naturalLanguageCoordinates);
 
     /**
-     * <p>Mark the {@link org.haiku.haikudepotserver.dataobjects.NaturalLanguage} as being in use.</p>
+     * <p>Mark the {@link org.haiku.haikudepotserver.dataobjects.NaturalLanguage} as being in use.  The
+     * use is written to the database a short time later together with other uses.</p>
      */
 
     void updateUse(NaturalLanguageCoordinates naturalLanguage);
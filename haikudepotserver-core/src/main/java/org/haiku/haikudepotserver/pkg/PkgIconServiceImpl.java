@@ -1,16 +1,16 @@
 /*
- * Copyright 2018-2025, Andrew Lindesay
+ * Copyright 2018-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
 package org.haiku.haikudepotserver.pkg;
 
 import com.google.common.base.Preconditions;
-import com.google.common.hash.Hashing;
 import com.google.common.io.ByteStreams;
 import org.apache.cayenne.DataObject;
 import org.apache.cayenne.ObjectContext;
 import org.apache.cayenne.query.ObjectSelect;
+import org.haiku.haikudepotserver.dataobjects.ImageBlob;
 import org.haiku.haikudepotserver.dataobjects.MediaType;
 import org.haiku.haikudepotserver.dataobjects.PkgIcon;
 import org.haiku.haikudepotserver.dataobjects.PkgIconImage;
@@ -157,12 +157,21 @@ public class PkgIconServiceImpl implements PkgIconService {
             pkgIconOptional = Optional.of(pkgIcon);
         }
 
-        if (pkgIconImage.getData() == null || !Arrays.equals(pkgIconImage.getData(), imageData)) {
-            pkgIconImage.setData(imageData);
+        // comparing the hashes means that the existing image data does not need to be loaded
+        // and if another package already has the same image then its data is shared.
+
+        String hashSha256 = ImageBlob.createHashSha256(imageData);
+
+        if (null == pkgIconImage.getImageBlob() || !pkgIconImage.getHashSha256().equals(hashSha256)) {
+            pkgIconImage.setImageBlob(ImageBlob.getOrCreate(context, imageData));
             pkgSupplement.setModifyTimestamp();
             pkgSupplement.setIconModifyTimestamp(new java.sql.Timestamp(Clock.systemUTC().millis()));
             renderedPkgIconRepository.evict(context, pkgSupplement);
 
+            if (MediaType.MEDIATYPE_HAIKUVECTORICONFILE.equals(mediaType.getCode())) {
+                renderedPkgIconRepository.prewarm(hashSha256, imageData);
+            }
+
             if (null != size) {
                 LOGGER.info("the icon {}px for package [{}] has been updated", size, pkgSupplement.getBasePkgName());
             } else {
@@ -177,7 +186,7 @@ public class PkgIconServiceImpl implements PkgIconService {
                             pkgSupplement.getBasePkgName(),
                             expectedSize,
                             mediaType.getCode(),
-                            Hashing.sha256().hashBytes(imageData)
+                            hashSha256
                     )
             );
         }
@@ -1,16 +1,15 @@
 /*
- * Copyright 2018-2025, Andrew Lindesay
+ * Copyright 2018-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
 package org.haiku.haikudepotserver.pkg;
 
 import com.google.common.base.Preconditions;
-import com.google.common.hash.HashFunction;
-import com.google.common.hash.Hashing;
 import com.google.common.io.ByteStreams;
 import org.apache.cayenne.ObjectContext;
 import org.apache.commons.io.input.BoundedInputStream;
+import org.haiku.haikudepotserver.dataobjects.ImageBlob;
 import org.haiku.haikudepotserver.dataobjects.MediaType;
 import org.haiku.haikudepotserver.dataobjects.PkgScreenshot;
 import org.haiku.haikudepotserver.dataobjects.PkgScreenshotImage;
@@ -28,6 +27,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
+import java.sql.Timestamp;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -36,20 +36,21 @@ public class PkgScreenshotServiceImpl implements PkgScreenshotService {
 
     protected final static Logger LOGGER = LoggerFactory.getLogger(PkgIconServiceImpl.class);
 
-    private static final HashFunction HASH_FUNCTION = Hashing.sha256();
-
     private final ImageHelper imageHelper;
     private final PngOptimizationService pngOptimizationService;
     private final PngThumbnailService pngThumbnailService;
+    private final PkgScreenshotThumbnailStore pkgScreenshotThumbnailStore;
 
     private final PkgSupplementModificationService pkgSupplementModificationService;
 
     public PkgScreenshotServiceImpl(
             PngOptimizationService pngOptimizationService,
             PngThumbnailService pngThumbnailService,
+            PkgScreenshotThumbnailStore pkgScreenshotThumbnailStore,
             PkgSupplementModificationService pkgSupplementModificationService) {
         this.pngOptimizationService = Preconditions.checkNotNull(pngOptimizationService);
         this.pngThumbnailService = Preconditions.checkNotNull(pngThumbnailService);
+        this.pkgScreenshotThumbnailStore = Preconditions.checkNotNull(pkgScreenshotThumbnailStore);
         this.pkgSupplementModificationService = Preconditions.checkNotNull(pkgSupplementModificationService);
         imageHelper = new ImageHelper();
     }
@@ -81,11 +82,15 @@ public class PkgScreenshotServiceImpl implements PkgScreenshotService {
                     optimizedData = output.toByteArray();
                 }
 
+                screenshot.setOptimizationTimestamp(new Timestamp(System.currentTimeMillis()));
+
                 if (optimizedData.length < originalImageData.length) {
-                    pkgScreenshotImage.setData(optimizedData);
+                    ImageBlob optimizedImageBlob = ImageBlob.getOrCreate(context, optimizedData);
+                    pkgScreenshotImage.setImageBlob(optimizedImageBlob);
                     screenshot.setLength(optimizedData.length);
                     screenshot.setModifyTimestamp();
-                    screenshot.setHashSha256(HASH_FUNCTION.hashBytes(optimizedData).toString());
+                    screenshot.setHashSha256(optimizedImageBlob.getHashSha256());
+                    pkgScreenshotThumbnailStore.evict(screenshot.getCode());
 
                     LOGGER.debug("did store optimized image for pkg screenshot [{}]", screenshot.getCode());
 
@@ -96,6 +101,7 @@ public class PkgScreenshotServiceImpl implements PkgScreenshotService {
                 }
 
             } else {
+                screenshot.setOptimizationTimestamp(new Timestamp(System.currentTimeMillis()));
                 LOGGER.warn(
                         "pkg screenshot '{}' in unknown image format '{}'; will ignore",
                         screenshot.getCode(),
@@ -120,13 +126,36 @@ public class PkgScreenshotServiceImpl implements PkgScreenshotService {
             PkgScreenshot screenshot,
             int targetWidth,
             int targetHeight) throws IOException {
-
         Preconditions.checkArgument(null != output, "the output stream must be provided");
+        output.write(getPkgScreenshotThumbnail(context, screenshot, targetWidth, targetHeight));
+    }
+
+    @Override
+    public byte[] getPkgScreenshotThumbnail(
+            ObjectContext context,
+            PkgScreenshot screenshot,
+            int targetWidth,
+            int targetHeight) throws IOException {
+
         Preconditions.checkArgument(null != context, "the context must be provided");
         Preconditions.checkArgument(null != screenshot, "the screenshot must be provided");
         Preconditions.checkArgument(targetHeight > 0, "the target height is <= 0");
         Preconditions.checkArgument(targetWidth > 0, "the target width is <= 0");
 
+        // the image data is only loaded if the thumbnail has not already been created.
+
+        return pkgScreenshotThumbnailStore.get(
+                screenshot.getCode(),
+                screenshot.getHashSha256(),
+                targetWidth,
+                targetHeight,
+                () -> createPkgScreenshotThumbnail(screenshot, targetWidth, targetHeight));
+    }
+
+    private byte[] createPkgScreenshotThumbnail(
+            PkgScreenshot screenshot,
+            int targetWidth,
+            int targetHeight) throws IOException {
         Optional<PkgScreenshotImage> pkgScreenshotImageOptional = screenshot.tryGetPkgScreenshotImage();
 
         if (pkgScreenshotImageOptional.isEmpty()) {
@@ -137,8 +166,11 @@ public class PkgScreenshotServiceImpl implements PkgScreenshotService {
             throw new IllegalStateException("the screenshot system only supports png images at the present time");
         }
 
-        try (InputStream inputStream = new ByteArrayInputStream(pkgScreenshotImageOptional.get().getData())) {
-            pngThumbnailService.thumbnail(inputStream, output, targetWidth, targetHeight);
+        try (
+                InputStream inputStream = new ByteArrayInputStream(pkgScreenshotImageOptional.get().getData());
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            pngThumbnailService.thumbnail(inputStream, outputStream, targetWidth, targetHeight);
+            return outputStream.toByteArray();
         }
     }
 
@@ -168,7 +200,7 @@ public class PkgScreenshotServiceImpl implements PkgScreenshotService {
                 .get();
         byte[] pngData = ByteStreams.toByteArray(boundedInputStream);
         ImageHelper.Size size = imageHelper.derivePngSize(pngData);
-        String hashSha256 = HASH_FUNCTION.hashBytes(pngData).toString();
+        String hashSha256 = ImageBlob.createHashSha256(pngData);
 
         if (null == size) {
             LOGGER.warn("attempt to store a screenshot image that is not a png");
@@ -210,7 +242,7 @@ public class PkgScreenshotServiceImpl implements PkgScreenshotService {
 
         PkgScreenshotImage screenshotImage = context.newObject(PkgScreenshotImage.class);
         screenshotImage.setMediaType(png);
-        screenshotImage.setData(pngData);
+        screenshotImage.setImageBlob(ImageBlob.getOrCreate(context, pngData));
         screenshot.addToManyTarget(PkgScreenshot.PKG_SCREENSHOT_IMAGES.getName(), screenshotImage, true);
 
         pkgSupplement.setModifyTimestamp();
@@ -240,6 +272,7 @@ public class PkgScreenshotServiceImpl implements PkgScreenshotService {
                 agent,
                 String.format("did delete screenshot [%s]; sha256 [%s]", screenshot.getCode(), screenshot.getHashSha256()));
 
+        pkgScreenshotThumbnailStore.evict(screenshot.getCode());
         screenshot.setPkgSupplement(null);
         Optional<PkgScreenshotImage> image = screenshot.tryGetPkgScreenshotImage();
         image.ifPresent(context::deleteObjects);
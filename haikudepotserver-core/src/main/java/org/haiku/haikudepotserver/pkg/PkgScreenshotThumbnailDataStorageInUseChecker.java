@@ -0,0 +1,66 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.pkg;
+
+import org.apache.cayenne.configuration.server.ServerRuntime;
+import org.apache.cayenne.query.ObjectSelect;
+import org.apache.commons.collections4.CollectionUtils;
+import org.haiku.haikudepotserver.dataobjects.PkgScreenshot;
+import org.haiku.haikudepotserver.storage.model.DataStorageInUseChecker;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Detects those screenshot thumbnails in the data storage that are for screenshots
+ * that still exist and still have the same image data and which are at one of the standard
+ * sizes. Thumbnails for screenshots which have been deleted or whose image data has since
+ * changed, or which are at sizes that are no longer standard, are not in use and can be
+ * removed.</p>
+ */
+
+@Component
+public class PkgScreenshotThumbnailDataStorageInUseChecker implements DataStorageInUseChecker {
+
+    private final ServerRuntime serverRuntime;
+
+    private final PkgScreenshotThumbnailStore pkgScreenshotThumbnailStore;
+
+    public PkgScreenshotThumbnailDataStorageInUseChecker(
+            ServerRuntime serverRuntime,
+            PkgScreenshotThumbnailStore pkgScreenshotThumbnailStore) {
+        this.serverRuntime = serverRuntime;
+        this.pkgScreenshotThumbnailStore = pkgScreenshotThumbnailStore;
+    }
+
+    @Override
+    public Set<String> inUse(Collection<String> codes) {
+        Set<String> thumbnailCodes = codes.stream()
+                .filter(c -> PkgScreenshotThumbnailStore.tryGetCodeAndHashFromKey(c).isPresent())
+                .filter(c -> PkgScreenshotThumbnailStore.tryGetSizeFromKey(c)
+                        .map(pkgScreenshotThumbnailStore::isStandardSize)
+                        .orElse(false))
+                .collect(Collectors.toSet());
+
+        if (CollectionUtils.isEmpty(thumbnailCodes)) {
+            return Set.of();
+        }
+
+        Set<String> inUseCodeAndHashes = ObjectSelect.columnQuery(
+                        PkgScreenshot.class, PkgScreenshot.CODE, PkgScreenshot.HASH_SHA256)
+                .select(serverRuntime.newContext())
+                .stream()
+                .map(r -> PkgScreenshotThumbnailStore.createCodeAndHash((String) r[0], (String) r[1]))
+                .collect(Collectors.toSet());
+
+        return thumbnailCodes.stream()
+                .filter(c -> PkgScreenshotThumbnailStore.tryGetCodeAndHashFromKey(c)
+                        .map(inUseCodeAndHashes::contains)
+                        .orElse(false))
+                .collect(Collectors.toSet());
+    }
+}
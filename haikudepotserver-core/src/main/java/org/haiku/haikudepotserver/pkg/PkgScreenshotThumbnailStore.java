@@ -0,0 +1,212 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.pkg;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.lang3.StringUtils;
+import org.haiku.haikudepotserver.storage.DerivedDataStorageHelper;
+import org.haiku.haikudepotserver.storage.model.DataStorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Holds thumbnails of package screenshots so that a screenshot does not need to be
+ * thumbnailed again each time that it is requested. The thumbnails are held in two tiers.
+ * The first is an in-memory cache which is bounded by the total size of the thumbnail data.
+ * The second is the {@link DataStorageService} so that the thumbnails survive a restart of
+ * the application server and are shared between the instances. Only thumbnails at the
+ * configured standard sizes are kept in the data storage; the target size is chosen by the
+ * client so thumbnails at any other size are held in memory only so that the storage used
+ * does not grow with the number of different sizes requested.</p>
+ *
+ * <p>The thumbnails are keyed by the screenshot's code, the hash of the screenshot's image
+ * data and the target size. If the screenshot's image data is replaced, for example when
+ * it is optimized, then the hash changes and the old thumbnails are simply no longer used.
+ * Old thumbnails and those at sizes which are no longer standard are eventually removed from
+ * the data storage by the garbage collection; see
+ * {@link PkgScreenshotThumbnailDataStorageInUseChecker}.</p>
+ */
+
+@Component
+public class PkgScreenshotThumbnailStore {
+
+    protected static final Logger LOGGER = LoggerFactory.getLogger(PkgScreenshotThumbnailStore.class);
+
+    static final String KEY_PREFIX = "pkg-screenshot-thumbnail/";
+
+    private static final String KEY_SEPARATOR = "/";
+
+    private final DataStorageService dataStorageService;
+
+    private final Cache<String, byte[]> cache;
+
+    private final List<Size> standardSizes;
+
+    public PkgScreenshotThumbnailStore(
+            DataStorageService dataStorageService,
+            @Value("${hds.pkg-screenshot.thumbnail.cache-max-weight:33554432}") long cacheMaxWeight,
+            @Value("${hds.pkg-screenshot.thumbnail.standard-sizes:320x240,1500x1500}") List<String> standardSizes) {
+        Preconditions.checkArgument(cacheMaxWeight > 0, "the cache max weight must be positive");
+        this.dataStorageService = Preconditions.checkNotNull(dataStorageService);
+        this.standardSizes = standardSizes.stream().map(Size::parse).distinct().toList();
+
+        cache = CacheBuilder
+                .newBuilder()
+                .maximumWeight(cacheMaxWeight)
+                .<String, byte[]>weigher((k, v) -> k.length() + v.length)
+                .expireAfterAccess(12, TimeUnit.HOURS)
+                .build();
+    }
+
+    static String createKey(String code, String hashSha256, int targetWidth, int targetHeight) {
+        return KEY_PREFIX + code
+                + KEY_SEPARATOR + hashSha256
+                + KEY_SEPARATOR + targetWidth + "x" + targetHeight + ".png";
+    }
+
+    /**
+     * <p>Returns the screenshot code and the hash joined with a separator or an empty value
+     * if the key is not for a screenshot thumbnail. This can be compared with the output of
+     * {@link #createCodeAndHash(String, String)}.</p>
+     */
+
+    static Optional<String> tryGetCodeAndHashFromKey(String key) {
+        if (!StringUtils.startsWith(key, KEY_PREFIX)) {
+            return Optional.empty();
+        }
+        String remainder = key.substring(KEY_PREFIX.length());
+        int lastSeparator = remainder.lastIndexOf(KEY_SEPARATOR);
+        if (lastSeparator <= 0) {
+            return Optional.empty();
+        }
+        return Optional.of(remainder.substring(0, lastSeparator));
+    }
+
+    static String createCodeAndHash(String code, String hashSha256) {
+        return code + KEY_SEPARATOR + hashSha256;
+    }
+
+    /**
+     * <p>Returns the target size from the key or an empty value if the key is not for a
+     * screenshot thumbnail.</p>
+     */
+
+    static Optional<Size> tryGetSizeFromKey(String key) {
+        if (!StringUtils.startsWith(key, KEY_PREFIX) || !StringUtils.endsWith(key, ".png")) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Size.parse(StringUtils.removeEnd(StringUtils.substringAfterLast(key, KEY_SEPARATOR), ".png")));
+        } catch (IllegalArgumentException iae) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * <p>These are the sizes at which thumbnails are kept in the data storage. Thumbnails at
+     * these sizes can be created ahead of time so that they are ready when they are first
+     * requested.</p>
+     */
+
+    public List<Size> getStandardSizes() {
+        return standardSizes;
+    }
+
+    public boolean isStandardSize(Size size) {
+        return standardSizes.contains(size);
+    }
+
+    /**
+     * <p>Returns the thumbnail for the screenshot. If the thumbnail is not already held
+     * in memory or in the storage then the supplied thumbnailer will be used to create
+     * it.</p>
+     */
+
+    public byte[] get(
+            String code,
+            String hashSha256,
+            int targetWidth,
+            int targetHeight,
+            Callable<byte[]> thumbnailer) throws IOException {
+        Preconditions.checkArgument(!Strings.isNullOrEmpty(code), "the code must be supplied");
+        Preconditions.checkArgument(!Strings.isNullOrEmpty(hashSha256), "the hash must be supplied");
+        Preconditions.checkArgument(targetWidth > 0, "the target width is <= 0");
+        Preconditions.checkArgument(targetHeight > 0, "the target height is <= 0");
+        Preconditions.checkArgument(null != thumbnailer, "the thumbnailer must be supplied");
+
+        String key = createKey(code, hashSha256, targetWidth, targetHeight);
+
+        // thumbnails at other sizes are only held in memory.
+
+        Callable<byte[]> loader = isStandardSize(new Size(targetWidth, targetHeight))
+                ? () -> loadOrCreateStored(key, thumbnailer)
+                : thumbnailer;
+
+        try {
+            return cache.get(key, loader);
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof IOException ioe) {
+                throw ioe;
+            }
+            throw new IllegalStateException("unable to obtain the thumbnail for screenshot [" + code + "]", ee.getCause());
+        }
+    }
+
+    private byte[] loadOrCreateStored(String key, Callable<byte[]> thumbnailer) throws Exception {
+        Optional<byte[]> storedOptional = DerivedDataStorageHelper.tryGet(dataStorageService, key);
+
+        if (storedOptional.isPresent()) {
+            return storedOptional.get();
+        }
+
+        byte[] pngData = thumbnailer.call();
+        DerivedDataStorageHelper.tryPut(dataStorageService, key, pngData);
+        return pngData;
+    }
+
+    /**
+     * <p>Removes the in-memory thumbnails for the screenshot. Thumbnails in the data
+     * storage are left for the garbage collection.</p>
+     */
+
+    public void evict(String code) {
+        Preconditions.checkArgument(!Strings.isNullOrEmpty(code), "the code must be supplied");
+        String keyPrefix = KEY_PREFIX + code + KEY_SEPARATOR;
+        cache.asMap().keySet().removeIf(k -> k.startsWith(keyPrefix));
+    }
+
+    /**
+     * <p>A target size for a thumbnail expressed as <code>&lt;width&gt;x&lt;height&gt;</code>.</p>
+     */
+
+    public record Size(int width, int height) {
+
+        public Size {
+            Preconditions.checkArgument(width > 0, "the width must be positive");
+            Preconditions.checkArgument(height > 0, "the height must be positive");
+        }
+
+        static Size parse(String value) {
+            List<String> parts = Splitter.on('x').trimResults().splitToList(value);
+            Preconditions.checkArgument(2 == parts.size(), "malformed thumbnail size [" + value + "]");
+            return new Size(Integer.parseInt(parts.get(0)), Integer.parseInt(parts.get(1)));
+        }
+
+    }
+
+}
@@ -9,14 +9,11 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.util.concurrent.Uninterruptibles;
 import org.apache.cayenne.DataRow;
 import org.apache.cayenne.ObjectContext;
 import org.apache.cayenne.ObjectId;
-import org.apache.cayenne.access.OptimisticLockException;
 import org.apache.cayenne.configuration.server.ServerRuntime;
 import org.apache.cayenne.query.MappedSelect;
-import org.apache.cayenne.query.ObjectIdQuery;
 import org.apache.cayenne.query.ObjectSelect;
 import org.apache.cayenne.query.SQLTemplate;
 import org.apache.commons.lang3.ObjectUtils;
@@ -38,7 +35,6 @@ import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -65,11 +61,15 @@ public class PkgServiceImpl implements PkgService {
 
     private final PkgSupplementModificationService pkgSupplementModificationService;
 
+    private final PkgVersionViewCounterBatcher pkgVersionViewCounterBatcher;
+
     public PkgServiceImpl(
             @Value("${hds.architecture.default.code}") String defaultArchitectureCode,
-            PkgSupplementModificationService pkgSupplementModificationService) {
+            PkgSupplementModificationService pkgSupplementModificationService,
+            PkgVersionViewCounterBatcher pkgVersionViewCounterBatcher) {
         this.defaultArchitectureCode = defaultArchitectureCode;
         this.pkgSupplementModificationService = Preconditions.checkNotNull(pkgSupplementModificationService);
+        this.pkgVersionViewCounterBatcher = Preconditions.checkNotNull(pkgVersionViewCounterBatcher);
     }
 
     // ------------------------------
@@ -283,11 +283,38 @@ public class PkgServiceImpl implements PkgService {
                 .collect(SingleCollector.single());
     }
 
+    /**
+     * <p>The pages are obtained by seeking past the last name of the previous page rather than by
+     * an offset so that each page costs the same to obtain however far through the packages it is.</p>
+     */
+
+    @Override
+    public List<String> findPkgNames(
+            ObjectContext context,
+            boolean includeDevelopment,
+            String afterPkgName,
+            int limit) {
+        Preconditions.checkArgument(null!=context, "the object context must be provided");
+        Preconditions.checkArgument(limit > 0, "the limit must be positive");
+
+        AllActivePkgNamesSpecification specification = new AllActivePkgNamesSpecification(false, includeDevelopment);
+
+        return MappedSelect.query(_HaikuDepot.ALL_ACTIVE_PKG_NAMES_QUERYNAME, DataRow.class)
+                .param("specification", specification)
+                .param("afterName", afterPkgName)
+                .param("limit", limit)
+                .select(context)
+                .stream()
+                .map(dr -> (String) dr.get("name"))
+                .toList();
+    }
+
     /**
      * <p>This will be called for each package in the system.</p>
      * @param c is the callback to invoke.
-     * @param includeDevelopment when true implies that a package can be processed which only has versions that are for
-     *                        the source architecture.
+     * @param includeDevelopment when false, packages with names ending in <code>_devel</code>,
+     *                           <code>_source</code> or <code>_debuginfo</code> and packages that only have
+     *                           active versions for the source architecture are not processed.
      * @return the quantity of packages processed.
      */
 
@@ -299,23 +326,14 @@ public class PkgServiceImpl implements PkgService {
         Preconditions.checkArgument(null!=c, "the callback should be provided to run for each package");
         Preconditions.checkArgument(null!=context, "the object context must be provided");
 
-        int offset = 0;
-
-        MappedSelect<DataRow> query = MappedSelect.query(_HaikuDepot.ALL_ACTIVE_PKG_NAMES_QUERYNAME, DataRow.class)
-                .param("isTotal", false)
-                .param("includeDevelopment", includeDevelopment)
-                .limit(BATCH_SIZE);
+        long count = 0;
+        String afterPkgName = null;
 
         while (true) {
-
-            var constrainedQuery = query.offset(offset);
-            List<String> pkgNames = constrainedQuery.select(context)
-                    .stream()
-                    .map(dr -> (String) dr.get("name"))
-                    .toList();
+            List<String> pkgNames = findPkgNames(context, includeDevelopment, afterPkgName, BATCH_SIZE);
 
             if (pkgNames.isEmpty()) {
-                return offset;
+                return count;
             }
 
             List<Pkg> pkgs = ObjectSelect.query(Pkg.class)
@@ -325,12 +343,12 @@ public class PkgServiceImpl implements PkgService {
 
             for (Pkg pkg : pkgs) {
                 if (!c.accept(pkg)) {
-                    return offset;
+                    return count;
                 }
-                offset++;
+                count++;
             }
 
-            offset += pkgs.size();
+            afterPkgName = pkgNames.getLast();
         }
     }
 
@@ -590,50 +608,15 @@ public class PkgServiceImpl implements PkgService {
     }
 
     /**
-     * <p>This method will increment the view counter on a package version.  If it encounters an optimistic
-     * locking problem then it will pause and it will try again in a moment.  It will attempt this a few
-     * times and then fail with a runtime exception.</p>
+     * <p>The view is counted in memory and is written to the database a short time later
+     * together with other views; see {@link PkgVersionViewCounterBatcher}.</p>
      */
 
     @Override
-    public void incrementViewCounter(ServerRuntime serverRuntime, ObjectId pkgVersionOid) {
-
-        Preconditions.checkArgument(null != serverRuntime, "the server runtime must be provided");
+    public void incrementViewCounter(ObjectId pkgVersionOid) {
         Preconditions.checkArgument(null != pkgVersionOid, "the pkg version oid must be provided");
         Preconditions.checkArgument(pkgVersionOid.getEntityName().equals(PkgVersion.class.getSimpleName()), "the oid must reference PkgVersion");
-
-        int attempts = 3;
-
-        while (true) {
-            ObjectContext contextEdit = serverRuntime.newContext();
-            PkgVersion pkgVersionEdit = ((List<PkgVersion>) contextEdit.performQuery(new ObjectIdQuery(pkgVersionOid)))
-                    .stream()
-                    .collect(SingleCollector.single());
-
-            if (null == pkgVersionEdit.getPkgVersionInteraction()) {
-                PkgVersionInteraction pkgVersionInteraction = contextEdit.newObject(PkgVersionInteraction.class);
-                pkgVersionEdit.setPkgVersionInteraction(pkgVersionInteraction);
-            }
-
-            pkgVersionEdit.getPkgVersionInteraction().incrementViewCounter();
-
-            try {
-                contextEdit.commitChanges();
-                LOGGER.info("did increment the view counter for '{}'", pkgVersionEdit.getPkg().toString());
-                return;
-            } catch (OptimisticLockException ole) {
-                contextEdit.invalidateObjects(pkgVersionEdit);
-
-                attempts--;
-
-                if (0 == attempts) {
-                    throw new RuntimeException("unable to increment the view counter for '"+pkgVersionEdit.getPkg().toString()+"' because of an optimistic locking failure; have exhausted attempts", ole);
-                } else {
-                    LOGGER.error("unable to increment the view counter for '{}' because of an optimistic locking failure; will try again...", pkgVersionEdit.getPkg().toString());
-                    Uninterruptibles.sleepUninterruptibly(250 + (System.currentTimeMillis() % 250), TimeUnit.MILLISECONDS);
-                }
-            }
-        }
+        pkgVersionViewCounterBatcher.increment(((Number) pkgVersionOid.getIdSnapshot().get(PkgVersion.ID_PK_COLUMN)).longValue());
     }
 
     @Override
@@ -686,6 +669,33 @@ public class PkgServiceImpl implements PkgService {
                         pkgSupplementMax.getTime())));
     }
 
+    @Override
+    public Optional<Date> tryGetPkgLastModifyTimestampSecondAccuracy(ObjectContext context, String pkgName) {
+        Preconditions.checkNotNull(context);
+        Preconditions.checkArgument(StringUtils.isNotBlank(pkgName));
+
+        return Pkg.tryGetByName(context, pkgName)
+                .map(pkg -> {
+                    Date pkgVersionMax = ObjectUtils.firstNonNull(
+                            ObjectSelect
+                                    .query(PkgVersion.class)
+                                    .where(PkgVersion.PKG.eq(pkg))
+                                    .max(PkgVersion.MODIFY_TIMESTAMP)
+                                    .sharedCache()
+                                    .cacheGroup(HaikuDepot.CacheGroup.PKG.name())
+                                    .selectFirst(context),
+                            new Date(0L));
+
+                    return DateTimeHelper.secondAccuracyDate(new Date(
+                            Math.max(
+                                    Math.max(
+                                            pkg.getModifyTimestamp().getTime(),
+                                            pkg.getPkgSupplement().getModifyTimestamp().getTime()
+                                    ),
+                                    pkgVersionMax.getTime())));
+                });
+    }
+
     @Override
     public String createVanityLinkUrl(Pkg pkg) {
         return "/" + pkg.getName();
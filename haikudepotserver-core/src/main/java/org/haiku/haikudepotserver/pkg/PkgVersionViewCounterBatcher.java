@@ -0,0 +1,221 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.pkg;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.AbstractScheduledService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.cayenne.ObjectContext;
+import org.apache.cayenne.configuration.server.ServerRuntime;
+import org.apache.cayenne.exp.ExpressionFactory;
+import org.apache.cayenne.query.MappedExec;
+import org.apache.cayenne.query.ObjectSelect;
+import org.haiku.haikudepotserver.dataobjects.PkgVersion;
+import org.haiku.haikudepotserver.dataobjects.PkgVersionInteraction;
+import org.haiku.haikudepotserver.dataobjects.auto._HaikuDepot;
+import org.haiku.haikudepotserver.metrics.MetricsConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Views of a {@link PkgVersion} are counted here in memory rather than each view being
+ * written to the database as it happens. Many viewers of a popular package would otherwise
+ * contend to update the same row. Periodically the views counted since the last time are
+ * added to the {@link PkgVersionInteraction}s with a single update for a batch of package
+ * versions.</p>
+ *
+ * <p>The views for a package version are counted in a {@link LongAdder} so that concurrent
+ * views of the same package version do not contend with each other. The adders are reset
+ * rather than removed when they are written so that a view which happens while the counts
+ * are being written is not lost; it is written the next time. There is only one adder for
+ * each package version that has been viewed so the number of adders is bounded.</p>
+ *
+ * <p>Any views which are still pending are written when the application stops. If the
+ * service is not running, for example during startup or shutdown, then the views are
+ * written immediately.</p>
+ */
+
+@Component
+public class PkgVersionViewCounterBatcher extends AbstractScheduledService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PkgVersionViewCounterBatcher.class);
+
+    private final static int BATCH_SIZE = 200;
+
+    private final ServerRuntime serverRuntime;
+
+    private final long flushIntervalMillis;
+
+    private final ConcurrentMap<Long, LongAdder> pendingViews = new ConcurrentHashMap<>();
+
+    /**
+     * <p>Prevents the scheduled flush from overlapping with one triggered from elsewhere.</p>
+     */
+
+    private final Object flushLock = new Object();
+
+    private final Counter viewsWrittenCounter;
+
+    public PkgVersionViewCounterBatcher(
+            ServerRuntime serverRuntime,
+            MeterRegistry meterRegistry,
+            @Value("${hds.pkg-version.view-counter.flush-interval-millis:15000}") long flushIntervalMillis) {
+        Preconditions.checkArgument(flushIntervalMillis > 0, "the flush interval millis must be positive");
+        this.serverRuntime = Preconditions.checkNotNull(serverRuntime);
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.viewsWrittenCounter = meterRegistry.counter(MetricsConstants.COUNTER_NAME_PKG_VERSION_VIEWS_WRITTEN);
+    }
+
+    @PostConstruct
+    public void init() {
+        startAsync();
+        awaitRunning();
+    }
+
+    @PreDestroy
+    public void tearDown() {
+        stopAsync();
+        awaitTerminated();
+    }
+
+    /**
+     * <p>Counts a view of the package version.</p>
+     */
+
+    public void increment(long pkgVersionId) {
+        pendingViews.computeIfAbsent(pkgVersionId, k -> new LongAdder()).increment();
+
+        if (!isRunning()) {
+            flush();
+        }
+    }
+
+    /**
+     * <p>Discards any views which have not yet been written.</p>
+     */
+
+    public void clear() {
+        pendingViews.clear();
+    }
+
+    /**
+     * <p>Writes the views counted since the last time to the database.</p>
+     */
+
+    public void flush() {
+        synchronized (flushLock) {
+            Map<Long, Long> views = new HashMap<>();
+
+            pendingViews.forEach((pkgVersionId, adder) -> {
+                long count = adder.sumThenReset();
+
+                if (count > 0) {
+                    views.put(pkgVersionId, count);
+                }
+            });
+
+            if (views.isEmpty()) {
+                return;
+            }
+
+            List<List<Long>> batches = Lists.partition(views.keySet().stream().sorted().toList(), BATCH_SIZE);
+
+            for (int i = 0; i < batches.size(); i++) {
+                try {
+                    write(batches.get(i), views);
+                } catch (RuntimeException re) {
+                    // put back the views which were not written so that they are tried again next time.
+
+                    batches.subList(i, batches.size())
+                            .stream()
+                            .flatMap(List::stream)
+                            .forEach(pkgVersionId -> pendingViews
+                                    .computeIfAbsent(pkgVersionId, k -> new LongAdder())
+                                    .add(views.get(pkgVersionId)));
+
+                    throw re;
+                }
+            }
+        }
+    }
+
+    private void write(List<Long> pkgVersionIds, Map<Long, Long> views) {
+        ObjectContext context = serverRuntime.newContext();
+
+        // a package version which has not been viewed before may not yet have somewhere to
+        // store its views.
+
+        List<PkgVersion> pkgVersionsWithoutInteraction = ObjectSelect.query(PkgVersion.class)
+                .where(ExpressionFactory.inDbExp(PkgVersion.ID_PK_COLUMN, pkgVersionIds))
+                .and(PkgVersion.PKG_VERSION_INTERACTION.isNull())
+                .select(context);
+
+        if (!pkgVersionsWithoutInteraction.isEmpty()) {
+            pkgVersionsWithoutInteraction.forEach(
+                    pv -> pv.setPkgVersionInteraction(context.newObject(PkgVersionInteraction.class)));
+            context.commitChanges();
+        }
+
+        List<Long> increments = new ArrayList<>(pkgVersionIds.size());
+        pkgVersionIds.forEach(pkgVersionId -> increments.add(views.get(pkgVersionId)));
+
+        MappedExec.query(_HaikuDepot.INCREMENT_PKG_VERSION_VIEW_COUNTERS_QUERYNAME)
+                .params(Map.of(
+                        "pkgVersionIds", pkgVersionIds,
+                        "increments", increments))
+                .update(context);
+
+        // the update bypasses the ORM so the package versions are fetched again in order that
+        // the cached snapshots of the interactions have the new counts.
+
+        ObjectSelect.query(PkgVersion.class)
+                .where(ExpressionFactory.inDbExp(PkgVersion.ID_PK_COLUMN, pkgVersionIds))
+                .prefetch(PkgVersion.PKG_VERSION_INTERACTION.joint())
+                .select(context);
+
+        long total = increments.stream().mapToLong(Long::longValue).sum();
+        viewsWrittenCounter.increment(total);
+        LOGGER.debug("did write {} views for {} package versions", total, pkgVersionIds.size());
+    }
+
+    // --------------
+    // AbstractScheduledService
+
+    @Override
+    protected void runOneIteration() {
+        try {
+            flush();
+        } catch (Throwable th) {
+            // an exception here would stop the service so it is logged instead.
+            LOGGER.error("unable to write the package version views", th);
+        }
+    }
+
+    @Override
+    protected void shutDown() {
+        flush();
+    }
+
+    @Override
+    protected Scheduler scheduler() {
+        return Scheduler.newFixedDelaySchedule(flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+}
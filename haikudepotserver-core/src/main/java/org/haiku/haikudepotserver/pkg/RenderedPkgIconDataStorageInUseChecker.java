@@ -0,0 +1,58 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.pkg;
+
+import org.apache.cayenne.configuration.server.ServerRuntime;
+import org.apache.cayenne.query.ObjectSelect;
+import org.apache.commons.collections4.CollectionUtils;
+import org.haiku.haikudepotserver.dataobjects.ImageBlob;
+import org.haiku.haikudepotserver.dataobjects.MediaType;
+import org.haiku.haikudepotserver.dataobjects.PkgIcon;
+import org.haiku.haikudepotserver.dataobjects.PkgIconImage;
+import org.haiku.haikudepotserver.storage.model.DataStorageInUseChecker;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Detects those rendered icons in the data storage that are for HVIF icons that are
+ * still in use by packages. Rendered icons for HVIF data which no longer belongs to any
+ * package are not in use and can be removed.</p>
+ */
+
+@Component
+public class RenderedPkgIconDataStorageInUseChecker implements DataStorageInUseChecker {
+
+    private final ServerRuntime serverRuntime;
+
+    public RenderedPkgIconDataStorageInUseChecker(ServerRuntime serverRuntime) {
+        this.serverRuntime = serverRuntime;
+    }
+
+    @Override
+    public Set<String> inUse(Collection<String> codes) {
+        Set<String> renderedCodes = codes.stream()
+                .filter(c -> RenderedPkgIconStore.tryGetHashFromKey(c).isPresent())
+                .collect(Collectors.toSet());
+
+        if (CollectionUtils.isEmpty(renderedCodes)) {
+            return Set.of();
+        }
+
+        // the hashes are stored with the image data so the data itself does not need to be loaded.
+
+        Set<String> inUseHashes = Set.copyOf(ObjectSelect.columnQuery(
+                        PkgIconImage.class, PkgIconImage.IMAGE_BLOB.dot(ImageBlob.HASH_SHA256))
+                .where(PkgIconImage.PKG_ICON.dot(PkgIcon.MEDIA_TYPE).dot(MediaType.CODE)
+                        .eq(MediaType.MEDIATYPE_HAIKUVECTORICONFILE))
+                .select(serverRuntime.newContext()));
+
+        return renderedCodes.stream()
+                .filter(c -> RenderedPkgIconStore.tryGetHashFromKey(c).map(inUseHashes::contains).orElse(false))
+                .collect(Collectors.toSet());
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2015-2019, Andrew Lindesay
+ * Copyright 2015-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
@@ -34,6 +34,15 @@ public interface RenderedPkgIconRepository {
 
     Optional<byte[]> render(int size, ObjectContext context, PkgSupplement pkgSupplement);
 
+    /**
+     * <p>Renders the supplied HVIF data in the background at commonly requested sizes so that
+     * the renders are ready before they are requested.</p>
+     *
+     * @param hash is the SHA-256 hash of the HVIF data.
+     */
+
+    void prewarm(String hash, byte[] hvifData);
+
     /**
      * <p>This renders a generic icon that is not for a specific package.</p>
      */
@@ -10,11 +10,15 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.io.ByteStreams;
 import org.apache.cayenne.ObjectContext;
+import org.haiku.haikudepotserver.dataobjects.HaikuDepot;
 import org.haiku.haikudepotserver.dataobjects.MediaType;
 import org.haiku.haikudepotserver.dataobjects.PkgIcon;
+import org.haiku.haikudepotserver.dataobjects.PkgIconImage;
 import org.haiku.haikudepotserver.dataobjects.PkgSupplement;
 import org.haiku.haikudepotserver.dataobjects.auto._PkgIcon;
 import org.haiku.haikudepotserver.graphics.hvif.HvifRenderingService;
+import org.haiku.haikudepotserver.support.cayenne.QueryCacheGroupVersions;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 import java.io.*;
@@ -23,11 +27,33 @@ import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * <p>The rendered icons are held in two tiers. The first is an in-memory cache which is
+ * bounded by the total size of the icon data. The second is the {@link RenderedPkgIconStore}
+ * which persists renders of HVIF data so that they survive restarts and are shared
+ * between instances.</p>
+ *
+ * <p>The key of the in-memory cache includes the version of the icon query cache group
+ * so that a change to an icon on another instance will also cause the in-memory entries
+ * to no longer be used.</p>
+ */
+
 @Repository
 public class RenderedPkgIconRepositoryImpl implements RenderedPkgIconRepository {
 
+    private final static String KEY_SEPARATOR = "/";
+
     private final HvifRenderingService hvifRenderingService;
-    private final Cache<String, Cache<Integer, Optional<byte[]>>> cache;
+
+    private final RenderedPkgIconStore renderedPkgIconStore;
+
+    private final QueryCacheGroupVersions groupVersions;
+
+    /**
+     * <p>This cache is keyed by the package name and the size; see {@link #createKey(String, int)}.</p>
+     */
+
+    private final Cache<String, Optional<byte[]>> cache;
 
     /**
      * <p>Holds a cache of generic icons rather than those that are specific to a given package.</p>
@@ -37,12 +63,19 @@ public class RenderedPkgIconRepositoryImpl implements RenderedPkgIconRepository
 
     private byte[] genericHvif;
 
-    public RenderedPkgIconRepositoryImpl(HvifRenderingService hvifRenderingService) {
+    public RenderedPkgIconRepositoryImpl(
+            HvifRenderingService hvifRenderingService,
+            RenderedPkgIconStore renderedPkgIconStore,
+            QueryCacheGroupVersions groupVersions,
+            @Value("${hds.pkg-icon.rendered.cache-max-weight:16777216}") long cacheMaxWeight) {
         this.hvifRenderingService = hvifRenderingService;
+        this.renderedPkgIconStore = renderedPkgIconStore;
+        this.groupVersions = groupVersions;
 
         cache = CacheBuilder
                 .newBuilder()
-                .maximumSize(256)
+                .maximumWeight(cacheMaxWeight)
+                .<String, Optional<byte[]>>weigher((k, v) -> k.length() + v.map(d -> d.length).orElse(0))
                 .expireAfterAccess(12, TimeUnit.HOURS)
                 .build();
 
@@ -54,24 +87,23 @@ public class RenderedPkgIconRepositoryImpl implements RenderedPkgIconRepository
 
     }
 
-    private Cache<Integer, Optional<byte[]>> getOrCreatePkgCache(String name) {
-        try {
-            return cache.get(name, () -> CacheBuilder
-                    .newBuilder()
-                    .maximumSize(10)
-                    .expireAfterAccess(30, TimeUnit.MINUTES)
-                    .build());
-        }
-        catch(Exception e) {
-            throw new RuntimeException("unable to get or create the package to icon cache.", e);
-        }
+    private String createKey(String name, int size) {
+        return name
+                + KEY_SEPARATOR + size
+                + KEY_SEPARATOR + groupVersions.getVersionsDescription(List.of(HaikuDepot.CacheGroup.PKG_ICON.name()));
     }
 
     @Override
     public void evict(ObjectContext context, PkgSupplement pkgSupplement) {
         Preconditions.checkArgument(null != context, "an object context is required");
         Preconditions.checkArgument(null != pkgSupplement, "a pkg supplement is required");
-        cache.invalidate(pkgSupplement.getBasePkgName());
+        String keyPrefix = pkgSupplement.getBasePkgName() + KEY_SEPARATOR;
+        cache.asMap().keySet().removeIf(k -> k.startsWith(keyPrefix));
+    }
+
+    @Override
+    public void prewarm(String hash, byte[] hvifData) {
+        renderedPkgIconStore.prewarm(hash, hvifData);
     }
 
     private synchronized byte[] getGenericHvif() {
@@ -114,10 +146,8 @@ public class RenderedPkgIconRepositoryImpl implements RenderedPkgIconRepository
         Preconditions.checkArgument(null != context, "an object context is required");
         Preconditions.checkArgument(null != pkgSupplement, "a pkg supplement is required");
 
-        Cache<Integer, Optional<byte[]>> pkgCache = getOrCreatePkgCache(pkgSupplement.getBasePkgName());
-
         try {
-            return pkgCache.get(size, () -> {
+            return cache.get(createKey(pkgSupplement.getBasePkgName(), size), () -> {
 
                 // first look for the HVIF icon and render the icon from that.
 
@@ -126,8 +156,9 @@ public class RenderedPkgIconRepositoryImpl implements RenderedPkgIconRepository
                     Optional<PkgIcon> hvifPkgIconOptional = pkgSupplement.tryGetPkgIcon(hvifMediaType, null);
 
                     if (hvifPkgIconOptional.isPresent()) {
-                        byte[] hvifData = hvifPkgIconOptional.get().getPkgIconImage().getData();
-                        byte[] pngData = hvifRenderingService.render(size, hvifData);
+                        PkgIconImage hvifPkgIconImage = hvifPkgIconOptional.get().getPkgIconImage();
+                        byte[] pngData = renderedPkgIconStore.render(
+                                size, hvifPkgIconImage.getHashSha256(), hvifPkgIconImage.getData());
                         return Optional.of(pngData);
                     }
                 }
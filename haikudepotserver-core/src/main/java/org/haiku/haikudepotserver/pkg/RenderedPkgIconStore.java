@@ -0,0 +1,214 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.pkg;
+
+import com.google.common.base.Preconditions;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.lang3.StringUtils;
+import org.haiku.haikudepotserver.dataobjects.ImageBlob;
+import org.haiku.haikudepotserver.graphics.hvif.HvifRenderRequest;
+import org.haiku.haikudepotserver.graphics.hvif.HvifRenderingBatcher;
+import org.haiku.haikudepotserver.graphics.hvif.HvifRenderingService;
+import org.haiku.haikudepotserver.storage.DerivedDataStorageHelper;
+import org.haiku.haikudepotserver.storage.model.DataStorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Stores HVIF icons that have been rendered to PNG in the {@link DataStorageService} so
+ * that the renders survive a restart of the application server and are shared between the
+ * instances. The renders are keyed by the SHA-256 hash of the HVIF data together with the
+ * size so that a render never needs to be invalidated; when a package's icon changes, the hash
+ * changes and the old render is simply no longer used. The hash is the same as that of the
+ * {@link ImageBlob} which stores the HVIF data so that the stored hash can be used without
+ * hashing the data again. Old renders are eventually removed
+ * by the data storage garbage collection; see
+ * {@link RenderedPkgIconDataStorageInUseChecker}.</p>
+ *
+ * <p>After an icon is stored, the sizes which are most often requested can be rendered
+ * ahead of time in the background. These renders are batched together so that an import of
+ * many icons does not need a request to the graphics server for each render.</p>
+ */
+
+@Component
+public class RenderedPkgIconStore {
+
+    protected static final Logger LOGGER = LoggerFactory.getLogger(RenderedPkgIconStore.class);
+
+    static final String KEY_PREFIX = "rendered-pkg-icon/";
+
+    private static final int PREWARM_QUEUE_SIZE = 1024;
+
+    private static final int PREWARM_BATCH_SIZE = 32;
+
+    private final HvifRenderingService hvifRenderingService;
+
+    private final DataStorageService dataStorageService;
+
+    private final List<Integer> defaultPrewarmSizes;
+
+    private final int prewarmSizeCount;
+
+    /**
+     * <p>Counts the requests for each size so that the most popular sizes can be pre-warmed.</p>
+     */
+
+    private final ConcurrentMap<Integer, LongAdder> sizeRequestCounts = new ConcurrentHashMap<>();
+
+    private final ExecutorService prewarmExecutor;
+
+    private final HvifRenderingBatcher prewarmBatcher;
+
+    public RenderedPkgIconStore(
+            HvifRenderingService hvifRenderingService,
+            DataStorageService dataStorageService,
+            @Value("${hds.pkg-icon.rendered.prewarm-sizes:32,64}") List<Integer> defaultPrewarmSizes,
+            @Value("${hds.pkg-icon.rendered.prewarm-size-count:3}") int prewarmSizeCount) {
+        Preconditions.checkArgument(prewarmSizeCount >= 0, "the prewarm size count must not be negative");
+        this.hvifRenderingService = Preconditions.checkNotNull(hvifRenderingService);
+        this.dataStorageService = Preconditions.checkNotNull(dataStorageService);
+        this.defaultPrewarmSizes = List.copyOf(defaultPrewarmSizes);
+        this.prewarmSizeCount = prewarmSizeCount;
+
+        // if the queue fills up, during a large import for example, then further pre-warming
+        // is discarded; the icons will be rendered as they are requested.
+        this.prewarmExecutor = new ThreadPoolExecutor(
+                1, 1,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(PREWARM_QUEUE_SIZE),
+                new ThreadPoolExecutor.DiscardPolicy());
+        this.prewarmBatcher = new HvifRenderingBatcher(
+                hvifRenderingService, PREWARM_BATCH_SIZE, PREWARM_QUEUE_SIZE);
+    }
+
+    @PreDestroy
+    public void tearDown() {
+        prewarmExecutor.shutdownNow();
+        prewarmBatcher.close();
+    }
+
+    static String createHash(byte[] hvifData) {
+        return ImageBlob.createHashSha256(hvifData);
+    }
+
+    static String createKey(String hash, int size) {
+        return KEY_PREFIX + hash + "/" + size + ".png";
+    }
+
+    /**
+     * <p>Returns the hash from the key or an empty value if the key is not for a rendered
+     * icon.</p>
+     */
+
+    static Optional<String> tryGetHashFromKey(String key) {
+        if (!StringUtils.startsWith(key, KEY_PREFIX)) {
+            return Optional.empty();
+        }
+        return Optional.of(StringUtils.substringBefore(key.substring(KEY_PREFIX.length()), "/"));
+    }
+
+    /**
+     * <p>Renders the HVIF data to a PNG image at the requested size. If the render was
+     * already done then it will be loaded from storage.</p>
+     */
+
+    public byte[] render(int size, byte[] hvifData) throws IOException {
+        Preconditions.checkArgument(null != hvifData && hvifData.length > 0, "the hvif data must be supplied");
+        return render(size, createHash(hvifData), hvifData);
+    }
+
+    /**
+     * <p>As {@link #render(int, byte[])} but with the hash of the HVIF data already known.</p>
+     */
+
+    public byte[] render(int size, String hash, byte[] hvifData) throws IOException {
+        Preconditions.checkArgument(StringUtils.isNotBlank(hash), "the hash must be supplied");
+        Preconditions.checkArgument(null != hvifData && hvifData.length > 0, "the hvif data must be supplied");
+        sizeRequestCounts.computeIfAbsent(size, s -> new LongAdder()).increment();
+        return renderAndStore(size, hash, hvifData);
+    }
+
+    /**
+     * <p>Renders the HVIF data in the background at the sizes that are most often
+     * requested.</p>
+     */
+
+    public void prewarm(String hash, byte[] hvifData) {
+        Preconditions.checkArgument(StringUtils.isNotBlank(hash), "the hash must be supplied");
+        Preconditions.checkArgument(null != hvifData && hvifData.length > 0, "the hvif data must be supplied");
+        byte[] hvifDataCopy = hvifData.clone();
+        List<Integer> sizes = getPrewarmSizes();
+
+        prewarmExecutor.execute(() -> {
+            Set<Integer> missingSizes = sizes.stream()
+                    .filter(size -> DerivedDataStorageHelper.tryGet(dataStorageService, createKey(hash, size)).isEmpty())
+                    .collect(Collectors.toSet());
+
+            if (missingSizes.isEmpty()) {
+                return;
+            }
+
+            prewarmBatcher.submit(new HvifRenderRequest(hvifDataCopy, missingSizes))
+                    .ifPresentOrElse(
+                            future -> future.whenComplete((result, throwable) -> {
+                                if (null != throwable) {
+                                    LOGGER.warn("unable to pre-warm the rendered icon [{}]", hash, throwable);
+                                } else {
+                                    result.renders().forEach((size, pngData) -> DerivedDataStorageHelper.tryPut(
+                                            dataStorageService, createKey(hash, size), pngData));
+                                    if (!result.failures().isEmpty()) {
+                                        LOGGER.warn("unable to pre-warm the rendered icon [{}] at sizes {}",
+                                                hash, result.failures().keySet());
+                                    }
+                                }
+                            }),
+                            () -> LOGGER.debug("too many icons are waiting to pre-warm; skipped [{}]", hash));
+        });
+    }
+
+    List<Integer> getPrewarmSizes() {
+        if (sizeRequestCounts.isEmpty()) {
+            return defaultPrewarmSizes;
+        }
+
+        return sizeRequestCounts.entrySet()
+                .stream()
+                .sorted(Comparator.comparingLong((Map.Entry<Integer, LongAdder> e) -> e.getValue().sum()).reversed())
+                .limit(prewarmSizeCount)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private byte[] renderAndStore(int size, String hash, byte[] hvifData) throws IOException {
+        String key = createKey(hash, size);
+        Optional<byte[]> storedOptional = DerivedDataStorageHelper.tryGet(dataStorageService, key);
+
+        if (storedOptional.isPresent()) {
+            return storedOptional.get();
+        }
+
+        byte[] pngData = hvifRenderingService.render(size, hvifData);
+        DerivedDataStorageHelper.tryPut(dataStorageService, key, pngData);
+        return pngData;
+    }
+
+}
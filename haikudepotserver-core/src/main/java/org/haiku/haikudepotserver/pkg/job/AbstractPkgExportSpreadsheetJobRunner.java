@@ -0,0 +1,151 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.pkg.job;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import com.google.common.net.MediaType;
+import org.apache.cayenne.ObjectContext;
+import org.apache.cayenne.configuration.server.ServerRuntime;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.haiku.haikudepotserver.job.AbstractJobRunner;
+import org.haiku.haikudepotserver.job.model.JobDataEncoding;
+import org.haiku.haikudepotserver.job.model.JobDataWithByteSink;
+import org.haiku.haikudepotserver.job.model.JobService;
+import org.haiku.haikudepotserver.job.model.JobSpecification;
+import org.haiku.haikudepotserver.pkg.model.PkgService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Produces a spreadsheet with rows for each package. The packages are taken a page at a time in order of
+ * their names; each page starts after the last name of the previous page. The rows for a page are produced by
+ * the subclass from a fixed number of queries covering all the packages in the page so that the number of
+ * queries and the memory used does not grow with the number of packages. The rows are written straight to the
+ * job's data as each page is produced. All of the active packages are exported, including development
+ * packages and those that only have versions for the source architecture.</p>
+ */
+
+abstract class AbstractPkgExportSpreadsheetJobRunner<T extends JobSpecification> extends AbstractJobRunner<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractPkgExportSpreadsheetJobRunner.class);
+
+    protected final ServerRuntime serverRuntime;
+    protected final PkgService pkgService;
+
+    private final int pageSize;
+
+    public AbstractPkgExportSpreadsheetJobRunner(
+            ServerRuntime serverRuntime,
+            PkgService pkgService,
+            int pageSize) {
+        Preconditions.checkArgument(pageSize > 0, "the page size must be positive");
+        this.serverRuntime = Preconditions.checkNotNull(serverRuntime);
+        this.pkgService = Preconditions.checkNotNull(pkgService);
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public void run(
+            JobService jobService,
+            T specification) throws IOException {
+
+        Preconditions.checkArgument(null != jobService);
+        Preconditions.checkArgument(null != specification);
+
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        final ObjectContext context = serverRuntime.newContext();
+        final PkgExport export = createExport(context, specification);
+
+        CSVFormat format = createFormatBuilder()
+                .setHeader(export.getHeaders())
+                .get();
+
+        // this will register the outbound data against the job.
+        JobDataWithByteSink jobDataWithByteSink = jobService.storeGeneratedData(
+                specification.getGuid(),
+                "download",
+                MediaType.CSV_UTF_8.toString(),
+                JobDataEncoding.NONE);
+
+        final long expectedTotal = pkgService.totalPkg(context, true);
+        long count = 0;
+
+        LOGGER.info("will produce spreadsheet [{}] for {} packages", getClass().getSimpleName(), expectedTotal);
+
+        try(
+                final OutputStream outputStream = jobDataWithByteSink.getByteSink().openBufferedStream();
+                final OutputStreamWriter outputStreamWriter = new OutputStreamWriter(outputStream);
+                final CSVPrinter printer = new CSVPrinter(outputStreamWriter, format)
+        ) {
+            String afterPkgName = null;
+
+            while (true) {
+                List<String> pkgNames = pkgService.findPkgNames(context, true, afterPkgName, pageSize);
+
+                if (pkgNames.isEmpty()) {
+                    break;
+                }
+
+                // a new context for each page means that the objects loaded for earlier pages are not retained.
+
+                for (List<String> row : export.createRows(serverRuntime.newContext(), pkgNames)) {
+                    printer.printRecord(row);
+                }
+
+                count += pkgNames.size();
+                afterPkgName = pkgNames.getLast();
+
+                if (expectedTotal > 0) {
+                    jobService.setJobProgressPercent(
+                            specification.getGuid(),
+                            (int) Math.min(100, (100 * count) / expectedTotal));
+                }
+            }
+
+            printer.flush();
+            outputStreamWriter.flush();
+        }
+
+        LOGGER.info(
+                "did produce spreadsheet [{}] for {} packages in {}ms",
+                getClass().getSimpleName(),
+                count,
+                stopwatch.elapsed(TimeUnit.MILLISECONDS));
+    }
+
+    CSVFormat.Builder createFormatBuilder() {
+        return CSVFormat.DEFAULT.builder();
+    }
+
+    /**
+     * <p>Sets up the export for a run of the job; for example, loading the reference data that determines the
+     * columns of the spreadsheet.</p>
+     */
+
+    abstract PkgExport createExport(ObjectContext context, T specification);
+
+    interface PkgExport {
+
+        String[] getHeaders();
+
+        /**
+         * <p>Produces the rows for the packages supplied in the order of the names supplied. A package may have
+         * any number of rows.</p>
+         */
+
+        List<List<String>> createRows(ObjectContext context, List<String> pkgNames);
+
+    }
+
+}
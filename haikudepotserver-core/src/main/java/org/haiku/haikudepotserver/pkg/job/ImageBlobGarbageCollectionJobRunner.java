@@ -0,0 +1,68 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.pkg.job;
+
+import com.google.common.base.Preconditions;
+import org.apache.cayenne.configuration.server.ServerRuntime;
+import org.apache.cayenne.query.MappedExec;
+import org.haiku.haikudepotserver.dataobjects.auto._HaikuDepot;
+import org.haiku.haikudepotserver.job.AbstractJobRunner;
+import org.haiku.haikudepotserver.job.model.JobService;
+import org.haiku.haikudepotserver.pkg.model.ImageBlobGarbageCollectionJobSpecification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * <p>An {@link org.haiku.haikudepotserver.dataobjects.ImageBlob} may be shared by many icons
+ * and screenshots. Rather than keeping a count of the references on the blob, which would be
+ * contended when many packages have the same image, the references are counted here and the
+ * blobs with none are deleted.</p>
+ *
+ * <p>A blob is stored before the icon or screenshot that refers to it is committed so a blob
+ * that was only recently created is left alone even if nothing refers to it yet.</p>
+ */
+
+@Component
+public class ImageBlobGarbageCollectionJobRunner extends AbstractJobRunner<ImageBlobGarbageCollectionJobSpecification> {
+
+    protected static final Logger LOGGER = LoggerFactory.getLogger(ImageBlobGarbageCollectionJobRunner.class);
+
+    /**
+     * <p>Blobs created more recently than this are not deleted.</p>
+     */
+
+    private static final Duration MIN_AGE = Duration.ofHours(1);
+
+    private final ServerRuntime serverRuntime;
+
+    public ImageBlobGarbageCollectionJobRunner(ServerRuntime serverRuntime) {
+        this.serverRuntime = Preconditions.checkNotNull(serverRuntime);
+    }
+
+    @Override
+    public Class<ImageBlobGarbageCollectionJobSpecification> getSupportedSpecificationClass() {
+        return ImageBlobGarbageCollectionJobSpecification.class;
+    }
+
+    @Override
+    public void run(JobService jobService, ImageBlobGarbageCollectionJobSpecification specification) {
+        Preconditions.checkNotNull(specification);
+
+        int[] counts = MappedExec.query(_HaikuDepot.DELETE_UNREFERENCED_IMAGE_BLOBS_QUERYNAME)
+                .params(Map.of(
+                        "createTimestampBefore", new Timestamp(Clock.systemUTC().millis() - MIN_AGE.toMillis())))
+                .update(serverRuntime.newContext());
+
+        LOGGER.info("did delete {} unreferenced image blobs", Arrays.stream(counts).sum());
+    }
+
+}
@@ -97,7 +97,7 @@ public class PkgCategoryCoverageExportSpreadsheetJobRunner extends AbstractPkgCa
 
             long count = pkgService.eachPkg(
                     context,
-                    false,
+                    true, // include development packages.
                     pkg -> {
                         PkgSupplement pkgSupplement = pkg.getPkgSupplement();
 
@@ -9,9 +9,13 @@ import com.google.common.base.Preconditions;
 import com.google.common.net.MediaType;
 import org.apache.cayenne.ObjectContext;
 import org.apache.cayenne.configuration.server.ServerRuntime;
+import org.apache.cayenne.query.ObjectSelect;
+import org.apache.cayenne.query.PrefetchTreeNode;
 import org.apache.commons.csv.*;
 import org.haiku.haikudepotserver.dataobjects.Pkg;
 import org.haiku.haikudepotserver.dataobjects.PkgCategory;
+import org.haiku.haikudepotserver.dataobjects.PkgPkgCategory;
+import org.haiku.haikudepotserver.dataobjects.PkgSupplement;
 import org.haiku.haikudepotserver.dataobjects.User;
 import org.haiku.haikudepotserver.job.AbstractJobRunner;
 import org.haiku.haikudepotserver.job.model.*;
@@ -20,10 +24,19 @@ import org.haiku.haikudepotserver.pkg.model.PkgService;
 import org.haiku.haikudepotserver.pkg.model.UserPkgSupplementModificationAgent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.*;
 import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Imports a spreadsheet that sets the categories of packages. The rows are processed in batches; for each
+ * batch the packages are loaded together with their categories in one go and the changes to the batch are
+ * written with a single commit. The outcome for each row is written to the output spreadsheet.</p>
+ */
 
 @Component
 public class PkgCategoryCoverageImportSpreadsheetJobRunner
@@ -42,10 +55,15 @@ public class PkgCategoryCoverageImportSpreadsheetJobRunner
         NOTFOUND
     }
 
+    private final int batchSize;
+
     public PkgCategoryCoverageImportSpreadsheetJobRunner(
             ServerRuntime serverRuntime,
-            PkgService pkgService) {
+            PkgService pkgService,
+            @Value("${hds.pkg-category.coverage-import.batch-size:250}") int batchSize) {
         super(serverRuntime, pkgService);
+        Preconditions.checkArgument(batchSize > 0, "the batch size must be positive");
+        this.batchSize = batchSize;
     }
 
     @Override
@@ -115,95 +133,169 @@ public class PkgCategoryCoverageImportSpreadsheetJobRunner
             serverRuntime.performInTransaction(() -> {
 
                 try {
+                    List<String[]> batch = new ArrayList<>();
+
                     while (csvIterator.hasNext()) {
                         String[] row = csvIterator.next().values();
                         if (0 != row.length) {
+                            batch.add(row);
 
-                            ObjectContext rowContext = serverRuntime.newContext();
-                            User user = User.getByNickname(rowContext, specification.getOwnerUserNickname());
+                            if (batch.size() >= batchSize) {
+                                importAndPrintBatch(specification, pkgCategoryCodes, headings, batch, printer);
+                                batch.clear();
+                            }
+                        }
+                    }
 
-                            Action action = Action.NOACTION;
+                    importAndPrintBatch(specification, pkgCategoryCodes, headings, batch, printer);
 
-                            if (row.length < headings.length - 1) { // -1 because it is possible to omit the action column.
-                                action = Action.INVALID;
-                                LOGGER.warn("inconsistent number of cells on line");
-                            } else {
-                                String pkgName = row[0];
-                                // 1; display
-                                boolean isNone = AbstractJobRunner.MARKER.equals(row[COLUMN_NONE]);
+                    printer.flush();
+                    outputStreamWriter.flush();
 
-                                Optional<Pkg> pkgOptional = Pkg.tryGetByName(rowContext, pkgName);
-                                List<String> selectedPkgCategoryCodes = new ArrayList<>();
+                } catch (Throwable th) {
+                    LOGGER.error("a problem has arisen importing package categories from a spreadsheet", th);
+                }
 
-                                if (pkgOptional.isPresent()) {
+                return null;
+            });
 
-                                    for (int i = 0; i < pkgCategoryCodes.size(); i++) {
-                                        if (AbstractJobRunner.MARKER.equals(row[COLUMN_NONE + 1 + i].trim())) {
+        }
 
-                                            if (isNone) {
-                                                action = Action.INVALID;
-                                                LOGGER.warn("line for package {} has 'none' marked as well as an actual category", row[0]);
-                                            }
+    }
 
-                                            selectedPkgCategoryCodes.add(pkgCategoryCodes.get(i));
-                                        }
-                                    }
+    private void importAndPrintBatch(
+            PkgCategoryCoverageImportSpreadsheetJobSpecification specification,
+            List<String> pkgCategoryCodes,
+            String[] headings,
+            List<String[]> rows,
+            CSVPrinter printer) throws IOException {
 
-                                    if (action == Action.NOACTION) {
-                                        List<PkgCategory> selectedPkgCategories = PkgCategory.getByCodes(rowContext, selectedPkgCategoryCodes);
+        if (rows.isEmpty()) {
+            return;
+        }
 
-                                        if (selectedPkgCategories.size() != selectedPkgCategoryCodes.size()) {
-                                            throw new IllegalStateException("one or more of the package category codes was not able to be found");
-                                        }
+        ObjectContext context = serverRuntime.newContext();
+        User user = User.getByNickname(context, specification.getOwnerUserNickname());
+        Map<String, PkgCategory> pkgCategoriesByCode = PkgCategory.getAll(context)
+                .stream()
+                .collect(Collectors.toMap(PkgCategory::getCode, Function.identity()));
+        Map<String, Pkg> pkgsByName = fetchPkgsByName(context, rows);
+        List<Action> actions = new ArrayList<>();
 
-                                        if (pkgService.updatePkgCategories(
-                                                rowContext,
-                                                new UserPkgSupplementModificationAgent(user),
-                                                pkgOptional.get(),
-                                                selectedPkgCategories)) {
-                                            action = Action.UPDATED;
-                                            rowContext.commitChanges();
-                                            LOGGER.debug("did update for package {}", row[0]);
-                                        }
-                                    }
+        for (String[] row : rows) {
+            actions.add(importRow(context, user, pkgCategoryCodes, pkgCategoriesByCode, pkgsByName, headings, row));
+        }
 
-                                } else {
-                                    action = Action.NOTFOUND;
-                                    LOGGER.debug("unable to find the package for {}", row[0]);
-                                }
+        if (context.hasChanges()) {
+            context.commitChanges();
+        }
 
-                            }
+        LOGGER.debug("did import a batch of {} rows", rows.size());
 
-                            // copy the row back verbatim, but with the action result at the
-                            // end.
+        for (int i = 0; i < rows.size(); i++) {
 
-                            List<String> rowOutput = new ArrayList<>();
-                            Collections.addAll(rowOutput, row);
+            // copy the row back verbatim, but with the action result at the
+            // end.
 
-                            while (rowOutput.size() < headings.length) {
-                                rowOutput.add("");
-                            }
+            List<String> rowOutput = new ArrayList<>();
+            Collections.addAll(rowOutput, rows.get(i));
 
-                            rowOutput.removeLast();
-                            rowOutput.add(action.name());
+            while (rowOutput.size() < headings.length) {
+                rowOutput.add("");
+            }
 
-                            printer.printRecord(rowOutput);
-                        }
+            rowOutput.removeLast();
+            rowOutput.add(actions.get(i).name());
 
-                    }
+            printer.printRecord(rowOutput);
+        }
+    }
 
-                    printer.flush();
-                    outputStreamWriter.flush();
+    private Action importRow(
+            ObjectContext context,
+            User user,
+            List<String> pkgCategoryCodes,
+            Map<String, PkgCategory> pkgCategoriesByCode,
+            Map<String, Pkg> pkgsByName,
+            String[] headings,
+            String[] row) {
+
+        if (row.length < headings.length - 1) { // -1 because it is possible to omit the action column.
+            LOGGER.warn("inconsistent number of cells on line");
+            return Action.INVALID;
+        }
 
-                } catch (Throwable th) {
-                    LOGGER.error("a problem has arisen importing package categories from a spreadsheet", th);
+        String pkgName = row[0];
+        // 1; display
+        boolean isNone = AbstractJobRunner.MARKER.equals(row[COLUMN_NONE]);
+        Pkg pkg = pkgsByName.get(pkgName);
+
+        if (null == pkg) {
+            LOGGER.debug("unable to find the package for {}", row[0]);
+            return Action.NOTFOUND;
+        }
+
+        List<PkgCategory> selectedPkgCategories = new ArrayList<>();
+
+        for (int i = 0; i < pkgCategoryCodes.size(); i++) {
+            if (AbstractJobRunner.MARKER.equals(row[COLUMN_NONE + 1 + i].trim())) {
+
+                if (isNone) {
+                    LOGGER.warn("line for package {} has 'none' marked as well as an actual category", row[0]);
+                    return Action.INVALID;
                 }
 
-                return null;
-            });
+                PkgCategory pkgCategory = pkgCategoriesByCode.get(pkgCategoryCodes.get(i));
+
+                if (null == pkgCategory) {
+                    throw new IllegalStateException("one or more of the package category codes was not able to be found");
+                }
 
+                selectedPkgCategories.add(pkgCategory);
+            }
+        }
+
+        if (pkgService.updatePkgCategories(
+                context,
+                new UserPkgSupplementModificationAgent(user),
+                pkg,
+                selectedPkgCategories)) {
+            LOGGER.debug("did update for package {}", row[0]);
+            return Action.UPDATED;
         }
 
+        return Action.NOACTION;
+    }
+
+    /**
+     * <p>Loads the packages named in the rows together with their categories.</p>
+     */
+
+    private static Map<String, Pkg> fetchPkgsByName(ObjectContext context, List<String[]> rows) {
+        List<String> pkgNames = rows.stream()
+                .filter(r -> r.length > 0)
+                .map(r -> r[0])
+                .filter(pn -> !pn.isEmpty())
+                .distinct()
+                .toList();
+
+        if (pkgNames.isEmpty()) {
+            return Map.of();
+        }
+
+        return ObjectSelect.query(Pkg.class)
+                .where(Pkg.NAME.in(pkgNames))
+                .prefetch(createPkgPrefetchTree())
+                .select(context)
+                .stream()
+                .collect(Collectors.toMap(Pkg::getName, Function.identity()));
+    }
+
+    private static PrefetchTreeNode createPkgPrefetchTree() {
+        PrefetchTreeNode node = Pkg.PKG_SUPPLEMENT.disjoint();
+        node.merge(Pkg.PKG_SUPPLEMENT.dot(PkgSupplement.PKG_PKG_CATEGORIES).disjoint());
+        node.merge(Pkg.PKG_SUPPLEMENT.dot(PkgSupplement.PKG_PKG_CATEGORIES).dot(PkgPkgCategory.PKG_CATEGORY).joint());
+        return node;
     }
 
 }
@@ -12,10 +12,13 @@ import com.google.common.base.Preconditions;
 import com.google.common.net.MediaType;
 import org.apache.cayenne.ObjectContext;
 import org.apache.cayenne.configuration.server.ServerRuntime;
+import org.apache.cayenne.query.ObjectSelect;
+import org.apache.cayenne.query.PrefetchTreeNode;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Strings;
 import org.haiku.haikudepotserver.dataobjects.Pkg;
 import org.haiku.haikudepotserver.dataobjects.PkgLocalization;
+import org.haiku.haikudepotserver.dataobjects.PkgSupplement;
 import org.haiku.haikudepotserver.job.AbstractAuthenticatedJobRunner;
 import org.haiku.haikudepotserver.job.model.*;
 import org.haiku.haikudepotserver.naturallanguage.model.NaturalLanguageCoded;
@@ -40,14 +43,26 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.zip.GZIPOutputStream;
 
 /**
  * <p>This runner will process a large block of JSON data that is coming in from another source such as Polygot
  * and contains updated localizations for HDS packages.</p>
+ *
+ * <p>The items are processed in batches. The packages of a batch are loaded together with their existing
+ * {@link PkgLocalization}s in one go and the changes for each item are worked out in memory before being
+ * applied. The changes for the whole batch are then written with a single commit. An item which fails is
+ * reported as such without any of its changes being applied so the other items in the batch are still
+ * written.</p>
  */
 
 @Component
@@ -55,6 +70,8 @@ public class PkgDumpLocalizationImportJobRunner extends AbstractAuthenticatedJob
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PkgDumpLocalizationImportJobRunner.class);
 
+    private static final int BATCH_SIZE = 50;
+
     private final RuntimeInformationService runtimeInformationService;
     private final ObjectMapper objectMapper;
     private final PkgLocalizationService localizationService;
@@ -183,15 +200,20 @@ public class PkgDumpLocalizationImportJobRunner extends AbstractAuthenticatedJob
 
         Preconditions.checkState(JsonToken.START_ARRAY == jsonParser.getCurrentToken());
 
+        List<DumpExportPkgLocalizations> batch = new ArrayList<>();
+
         while (true) {
             switch (jsonParser.nextToken()) {
                 case JsonToken.END_ARRAY:
                     // finished all the items
+                    importAndWriteBatch(specification, batch, jsonGenerator);
                     return;
                 case JsonToken.START_OBJECT:
-                    DumpExportPkgLocalizations importItem = jsonParser.readValueAs(DumpExportPkgLocalizations.class);
-                    DumpExportPkgLocalizations writeItem = importFromItem(specification, importItem);
-                    jsonGenerator.writeObject(writeItem);
+                    batch.add(jsonParser.readValueAs(DumpExportPkgLocalizations.class));
+                    if (batch.size() >= BATCH_SIZE) {
+                        importAndWriteBatch(specification, batch, jsonGenerator);
+                        batch.clear();
+                    }
                     break;
                 default:
                     throw new JobRunnerException("unexpected `items` top level token [" + jsonParser.getCurrentToken() + "]");
@@ -200,25 +222,63 @@ public class PkgDumpLocalizationImportJobRunner extends AbstractAuthenticatedJob
 
     }
 
+    private void importAndWriteBatch(
+            PkgDumpLocalizationImportJobSpecification specification,
+            List<DumpExportPkgLocalizations> items,
+            JsonGenerator jsonGenerator) throws IOException {
+        if (!items.isEmpty()) {
+            for (DumpExportPkgLocalizations writeItem : importFromItems(specification, items)) {
+                jsonGenerator.writeObject(writeItem);
+            }
+        }
+    }
+
     /**
-     * <p>This method will process the item and will then return the same data structure back to be serialized into the
-     * output.</p>
+     * <p>This method will process the items and will then return the same data structures back to be serialized
+     * into the output in the same order.</p>
      *
-     * <p>This will operate in a transaction so the whole record will be written or none of the record.</p>
+     * <p>The changes from all the items are written in a single transaction. An item that is unable to be imported
+     * does not have any of its changes applied.</p>
+     */
+    private List<DumpExportPkgLocalizations> importFromItems(
+            PkgDumpLocalizationImportJobSpecification specification,
+            List<DumpExportPkgLocalizations> items) {
+
+        ObjectContext context = serverRuntime.newContext();
+        Map<String, Pkg> pkgsByName = fetchPkgsByName(context, items);
+        List<DumpExportPkgLocalizations> results = new ArrayList<>();
+
+        for (DumpExportPkgLocalizations item : items) {
+            results.add(importFromItem(context, specification, pkgsByName, item));
+        }
+
+        if (context.hasChanges()) {
+            context.commitChanges();
+        }
+
+        LOGGER.info("did process a batch of {} items", items.size());
+
+        return results;
+    }
+
+    /**
+     * <p>This method will process the item and will then return the same data structure back to be serialized into the
+     * output. The changes are worked out before any of them are applied to the context so that either all or none of
+     * the changes for the item are applied.</p>
      */
     private DumpExportPkgLocalizations importFromItem(
+            ObjectContext context,
             PkgDumpLocalizationImportJobSpecification specification,
+            Map<String, Pkg> pkgsByName,
             DumpExportPkgLocalizations item) {
 
         Preconditions.checkArgument(null != item, "the item must be supplied");
 
         DumpExportPkgLocalizations result = createResultForItem(item);
-        ObjectContext context = serverRuntime.newContext();
 
         try {
-            Pkg pkg = Optional.of(item.getPkgName())
-                    .map(StringUtils::trimToNull)
-                    .flatMap(pn -> Pkg.tryGetByName(context, pn))
+            Pkg pkg = Optional.ofNullable(StringUtils.trimToNull(item.getPkgName()))
+                    .map(pkgsByName::get)
                     .orElse(null);
 
             LOGGER.info("will process data for pkg [{}]", pkg);
@@ -237,49 +297,24 @@ public class PkgDumpLocalizationImportJobRunner extends AbstractAuthenticatedJob
                 throw new FailedImportException("unauthorized to edit the localization for [" + pkg + "]");
             }
 
-            List<NaturalLanguageCoded> naturalLanguagesInItem = deriveUniqueNaturalLanguageCoordinates(item);
-            List<String> userDescriptionsInItem = deriveUniqueUserDescriptions(item);
-
-            LOGGER.info("did find {} natural languages and {} user description(s) to process", naturalLanguagesInItem.size(), userDescriptionsInItem.size());
-
-            for (NaturalLanguageCoded naturalLanguageInItem : naturalLanguagesInItem) {
-                // this is where we start from
-                CombinedLocalizationUpdates existing = deriveExistingLocalizationsForPkg(pkg, naturalLanguageInItem);
-                // this is where we want to get to
-                CombinedLocalizationUpdates finalState =
-                        deriveImportOverExistingCombinedLocalizationsNaturalLanguage(existing, naturalLanguageInItem, item);
-
-                // now go through all the authors getting to the final state applying the changes from each author
-                // to the data. This will mean there is a distinct change stored for each author.
-
-                for (String userDescription : userDescriptionsInItem) {
-                    CombinedLocalizationUpdates nextExisting = finalState.overrideByUserDescription(existing, userDescription);
-
-                    // if the next existing is the same then there is no change.
-
-                    if (!nextExisting.equals(existing)) {
-                        localizationService.updatePkgLocalization(
-                                context,
-                                new NonUserPkgSupplementModificationAgent(
-                                        String.format("%s (auth:%s)", userDescription, specification.getOwnerUserNickname()),
-                                        specification.getOriginSystemDescription()),
-                                pkg.getPkgSupplement(),
-                                naturalLanguageInItem,
-                                nextExisting.title().content(),
-                                nextExisting.summary().content(),
-                                nextExisting.description().content());
-                        existing = nextExisting;
-                    }
-                }
+            List<LocalizationChange> changes = deriveLocalizationChanges(pkg, item);
+
+            for (LocalizationChange change : changes) {
+                localizationService.updatePkgLocalization(
+                        context,
+                        new NonUserPkgSupplementModificationAgent(
+                                String.format("%s (auth:%s)", change.userDescription(), specification.getOwnerUserNickname()),
+                                specification.getOriginSystemDescription()),
+                        pkg.getPkgSupplement(),
+                        change.naturalLanguage(),
+                        change.updates().title().content(),
+                        change.updates().summary().content(),
+                        change.updates().description().content());
             }
 
-            if (context.hasChanges()) {
-                context.commitChanges();
-                result.setStatus(DumpExportPkgLocalizationStatus.UPDATED);
-            }
-            else {
-                result.setStatus(DumpExportPkgLocalizationStatus.UNCHANGED);
-            }
+            result.setStatus(changes.isEmpty()
+                    ? DumpExportPkgLocalizationStatus.UNCHANGED
+                    : DumpExportPkgLocalizationStatus.UPDATED);
 
         } catch (PkgNotFoundException pnfe) {
             LOGGER.error("unable to find the package [{}]", item.getPkgName());
@@ -294,6 +329,74 @@ public class PkgDumpLocalizationImportJobRunner extends AbstractAuthenticatedJob
         return result;
     }
 
+    /**
+     * <p>Works out the changes required to get from the existing localizations of the package to those in the
+     * item. Each author has a distinct change so that the modifications are recorded against the right author.</p>
+     */
+    private List<LocalizationChange> deriveLocalizationChanges(
+            Pkg pkg,
+            DumpExportPkgLocalizations item) throws FailedImportException {
+        List<NaturalLanguageCoded> naturalLanguagesInItem = deriveUniqueNaturalLanguageCoordinates(item);
+        List<String> userDescriptionsInItem = deriveUniqueUserDescriptions(item);
+        List<LocalizationChange> result = new ArrayList<>();
+
+        LOGGER.info("did find {} natural languages and {} user description(s) to process", naturalLanguagesInItem.size(), userDescriptionsInItem.size());
+
+        for (NaturalLanguageCoded naturalLanguageInItem : naturalLanguagesInItem) {
+            // this is where we start from
+            CombinedLocalizationUpdates existing = deriveExistingLocalizationsForPkg(pkg, naturalLanguageInItem);
+            // this is where we want to get to
+            CombinedLocalizationUpdates finalState =
+                    deriveImportOverExistingCombinedLocalizationsNaturalLanguage(existing, naturalLanguageInItem, item);
+
+            // now go through all the authors getting to the final state applying the changes from each author
+            // to the data. This will mean there is a distinct change stored for each author.
+
+            for (String userDescription : userDescriptionsInItem) {
+                CombinedLocalizationUpdates nextExisting = finalState.overrideByUserDescription(existing, userDescription);
+
+                // if the next existing is the same then there is no change.
+
+                if (!nextExisting.equals(existing)) {
+                    result.add(new LocalizationChange(naturalLanguageInItem, userDescription, nextExisting));
+                    existing = nextExisting;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * <p>Loads the packages for the items together with their existing localizations.</p>
+     */
+    private static Map<String, Pkg> fetchPkgsByName(ObjectContext context, Collection<DumpExportPkgLocalizations> items) {
+        List<String> pkgNames = items.stream()
+                .map(DumpExportPkgLocalizations::getPkgName)
+                .map(StringUtils::trimToNull)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+
+        if (pkgNames.isEmpty()) {
+            return Map.of();
+        }
+
+        return ObjectSelect.query(Pkg.class)
+                .where(Pkg.NAME.in(pkgNames))
+                .prefetch(createPkgPrefetchTree())
+                .select(context)
+                .stream()
+                .collect(Collectors.toMap(Pkg::getName, Function.identity()));
+    }
+
+    private static PrefetchTreeNode createPkgPrefetchTree() {
+        PrefetchTreeNode node = Pkg.PKG_SUPPLEMENT.disjoint();
+        node.merge(Pkg.PKG_SUPPLEMENT.dot(PkgSupplement.PKG_LOCALIZATIONS).disjoint());
+        node.merge(Pkg.PKG_SUPPLEMENT.dot(PkgSupplement.PKG_LOCALIZATIONS).dot(PkgLocalization.NATURAL_LANGUAGE).joint());
+        return node;
+    }
+
     private void writeInfo(JsonGenerator jsonGenerator) throws IOException {
         jsonGenerator.writeFieldName("info");
         objectMapper.writeValue(jsonGenerator, createArchiveInfo());
@@ -421,6 +524,11 @@ public class PkgDumpLocalizationImportJobRunner extends AbstractAuthenticatedJob
 
     private record LocalizationUpdate(String content, String userDescription) {}
 
+    private record LocalizationChange(
+            NaturalLanguageCoded naturalLanguage,
+            String userDescription,
+            CombinedLocalizationUpdates updates) {}
+
     private record CombinedLocalizationUpdates(
             LocalizationUpdate title,
             LocalizationUpdate summary,
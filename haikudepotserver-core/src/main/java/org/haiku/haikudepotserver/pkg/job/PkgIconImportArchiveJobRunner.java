@@ -43,7 +43,8 @@ import java.util.zip.GZIPInputStream;
 
 /**
  * <p>This importer will take a tar-ball of package icons and will import them into
- * the local database.</p>
+ * the local database.  The tar-ball is streamed through once; the icons for each package
+ * are committed together so that a package does not end up with only some of its icons.</p>
  */
 
 @Component
@@ -122,99 +123,48 @@ public class PkgIconImportArchiveJobRunner extends AbstractJobRunner<PkgIconImpo
             throw new IllegalStateException("the job data was not able to be found for guid; " + specification.getInputDataGuid());
         }
 
-        if (!serverRuntime.performInTransaction(() -> {
-
-            try (
-                    final OutputStream outputStream = jobDataWithByteSink.getByteSink().openBufferedStream();
-                    final OutputStreamWriter outputStreamWriter = new OutputStreamWriter(outputStream);
-                    final CSVPrinter printer = new CSVPrinter(outputStreamWriter, format)
-            ) {
-
-                // make a first sweep to delete all existing icons for packages in the spreadsheet.
-
-                try (
-                        InputStream inputStream = jobDataWithByteSourceOptional.get().getByteSource().openStream();
-                        GZIPInputStream gzipInputStream = new GZIPInputStream(inputStream);
-                        TarArchiveInputStream tarArchiveInputStream = new TarArchiveInputStream(gzipInputStream)
-                ) {
-                    clearPackagesIconsAppearingInArchive(specification, tarArchiveInputStream, printer);
-                }
-
-                // now load the icons in.
-
-                try (
-                        InputStream inputStream = jobDataWithByteSourceOptional.get().getByteSource().openStream();
-                        GZIPInputStream gzipInputStream = new GZIPInputStream(inputStream);
-                        TarArchiveInputStream tarArchiveInputStream = new TarArchiveInputStream(gzipInputStream)
-                ) {
-                    processEntriesFromArchive(specification, tarArchiveInputStream, printer);
-                }
-
-                return true;
-            } catch (IOException e) {
-                LOGGER.error("unable to complete job; ", e);
-            }
-
-            return false;
-        })) {
+        // the archive is read once; all of the entries for a package are imported together and
+        // committed before moving on to the next package so that the memory used does not grow
+        // with the size of the archive.
+
+        try (
+                final OutputStream outputStream = jobDataWithByteSink.getByteSink().openBufferedStream();
+                final OutputStreamWriter outputStreamWriter = new OutputStreamWriter(outputStream);
+                final CSVPrinter printer = new CSVPrinter(outputStreamWriter, format);
+                final InputStream inputStream = jobDataWithByteSourceOptional.get().getByteSource().openStream();
+                final GZIPInputStream gzipInputStream = new GZIPInputStream(inputStream);
+                final TarArchiveInputStream tarArchiveInputStream = new TarArchiveInputStream(gzipInputStream)
+        ) {
+            processEntriesFromArchive(specification, tarArchiveInputStream, printer);
+        } catch (IOException e) {
+            LOGGER.error("unable to complete job; ", e);
             throw new JobRunnerException("unable to complete job");
         }
     }
 
-    /**
-     * <p>All packages appearing in the archive should first have their icons removed.</p>
-     */
-
-    private void clearPackagesIconsAppearingInArchive(
+    private void processEntriesFromArchive(
             PkgIconImportArchiveJobSpecification specification,
             ArchiveInputStream<TarArchiveEntry> archiveInputStream,
             CSVPrinter printer) throws IOException {
-
         String[] row = new String[3];
         Set<String> pkgNamesProcessed = new HashSet<>();
+        PkgBatch batch = null;
+
         ArchiveEntry archiveEntry;
-        row[CSV_COLUMN_MESSAGE] = "";
 
         while (null != (archiveEntry = archiveInputStream.getNextEntry())) {
-            Matcher matcher = PATTERN_PKG_PATH.matcher(archiveEntry.getName());
-
-            if (matcher.matches()) {
-                String pkgName = matcher.group(GROUP_PKGNAME);
-
-                if (!pkgNamesProcessed.contains(pkgName)) {
-                    row[CSV_COLUMN_PKGNAME] = archiveEntry.getName();
-                    ObjectContext context = serverRuntime.newContext();
-                    Optional<Pkg> pkgOptional = Pkg.tryGetByName(context, pkgName);
-
-                    if (pkgOptional.isPresent()) {
-                        User user = User.getByNickname(context, specification.getOwnerUserNickname());
-                        pkgIconService.removePkgIcon(
-                                context,
-                                new UserPkgSupplementModificationAgent(user),
-                                pkgOptional.get().getPkgSupplement());
-                        LOGGER.info("removed icons for pkg; {}", pkgName);
-                        row[CSV_COLUMN_ACTION] = Action.REMOVED.name();
-                    } else {
-                        LOGGER.info("not able to find pkg; {}", pkgName);
-                        row[CSV_COLUMN_ACTION] = Action.NOTFOUND.name();
-                    }
+            Matcher pkgMatcher = PATTERN_PKG_PATH.matcher(archiveEntry.getName());
+
+            if (pkgMatcher.matches()) {
+                String pkgName = pkgMatcher.group(GROUP_PKGNAME);
 
-                    pkgNamesProcessed.add(pkgName);
-                    printer.printRecord(Arrays.stream(row));
+                if (null == batch || !batch.pkgName.equals(pkgName)) {
+                    commitBatch(batch);
+                    batch = startBatch(
+                            specification, pkgName, pkgNamesProcessed.add(pkgName), archiveEntry.getName(), printer);
                 }
             }
-        }
-    }
 
-    private void processEntriesFromArchive(
-            PkgIconImportArchiveJobSpecification specification,
-            ArchiveInputStream<TarArchiveEntry> archiveInputStream,
-            CSVPrinter printer) throws IOException {
-        String[] row = new String[3];
-
-        ArchiveEntry archiveEntry;
-
-        while (null != (archiveEntry = archiveInputStream.getNextEntry())) {
             if (!archiveEntry.isDirectory()) {
                 Matcher nameMatcher = PATTERN_PATH.matcher(archiveEntry.getName());
                 ArchiveEntryResult result;
@@ -224,9 +174,8 @@ public class PkgIconImportArchiveJobRunner extends AbstractJobRunner<PkgIconImpo
 
                     if (archiveEntry.getSize() <= MAX_ICON_PAYLOAD) {
                         result = processMatchingFileEntryFromArchive(
-                                specification,
+                                batch,
                                 archiveInputStream,
-                                nameMatcher.group(GROUP_PKGNAME),
                                 nameMatcher.group(GROUP_LEAFEXTENSION).toLowerCase());
                     } else {
                         result = new ArchiveEntryResult(
@@ -250,19 +199,61 @@ public class PkgIconImportArchiveJobRunner extends AbstractJobRunner<PkgIconImpo
             }
         }
 
+        commitBatch(batch);
     }
 
-    private ArchiveEntryResult processMatchingFileEntryFromArchive(
-            PkgIconImportArchiveJobSpecification specification,
-            ArchiveInputStream<TarArchiveEntry> archiveInputStream,
-            String pkgName, String leafnameExtension)
-            throws IOException {
+    /**
+     * <p>Starts importing the icons for a package.  The first time that a package is seen in the
+     * archive, any existing icons for the package are removed.</p>
+     */
 
+    private PkgBatch startBatch(
+            PkgIconImportArchiveJobSpecification specification,
+            String pkgName,
+            boolean isFirstForPkg,
+            String path,
+            CSVPrinter printer) throws IOException {
         ObjectContext context = serverRuntime.newContext();
         User user = User.getByNickname(context, specification.getOwnerUserNickname());
-        Optional<Pkg> pkgOptional = Pkg.tryGetByName(context, pkgName);
+        Pkg pkg = Pkg.tryGetByName(context, pkgName).orElse(null);
+
+        if (isFirstForPkg) {
+            String[] row = new String[3];
+            row[CSV_COLUMN_PKGNAME] = path;
+            row[CSV_COLUMN_MESSAGE] = "";
 
-        if (pkgOptional.isPresent()) {
+            if (null != pkg) {
+                pkgIconService.removePkgIcon(
+                        context,
+                        new UserPkgSupplementModificationAgent(user),
+                        pkg.getPkgSupplement());
+                LOGGER.info("removed icons for pkg; {}", pkgName);
+                row[CSV_COLUMN_ACTION] = Action.REMOVED.name();
+            } else {
+                LOGGER.info("not able to find pkg; {}", pkgName);
+                row[CSV_COLUMN_ACTION] = Action.NOTFOUND.name();
+            }
+
+            printer.printRecord(Arrays.stream(row));
+        }
+
+        return new PkgBatch(pkgName, context, user, pkg);
+    }
+
+    private void commitBatch(PkgBatch batch) {
+        if (null != batch) {
+            batch.context.commitChanges();
+        }
+    }
+
+    private ArchiveEntryResult processMatchingFileEntryFromArchive(
+            PkgBatch batch,
+            ArchiveInputStream<TarArchiveEntry> archiveInputStream,
+            String leafnameExtension)
+            throws IOException {
+
+        if (null != batch.pkg) {
+            ObjectContext context = batch.context;
 
             Optional<org.haiku.haikudepotserver.dataobjects.MediaType> mediaType =
                     org.haiku.haikudepotserver.dataobjects.MediaType.tryGetByExtension(context, leafnameExtension);
@@ -281,28 +272,50 @@ public class PkgIconImportArchiveJobRunner extends AbstractJobRunner<PkgIconImpo
                     return new ArchiveEntryResult(Action.INVALID, "bad media type for icon");
             }
 
+            // the icon is checked before anything is changed in the context so an invalid icon
+            // does not affect the other icons for the package.
+
             try {
                 pkgIconService.storePkgIconImage(
                         archiveInputStream,
                         mediaType.get(),
                         null, // there is no expected icon size
                         context,
-                        new UserPkgSupplementModificationAgent(user),
-                        pkgOptional.get().getPkgSupplement());
+                        new UserPkgSupplementModificationAgent(batch.user),
+                        batch.pkg.getPkgSupplement());
             } catch (BadPkgIconException e) {
                 return new ArchiveEntryResult(Action.INVALID, e.getMessage());
             }
 
         } else {
-            LOGGER.info("pkg not found; [{}]", pkgName);
+            LOGGER.info("pkg not found; [{}]", batch.pkgName);
             return new ArchiveEntryResult(Action.NOTFOUND, "unable to find the associated pkg");
         }
 
-        context.commitChanges();
-
         return new ArchiveEntryResult(Action.UPDATED, null);
     }
 
+    /**
+     * <p>Holds the state for importing the icons of one package; the changes are committed together
+     * once all of the package's entries in the archive have been processed.</p>
+     */
+
+    private static class PkgBatch {
+
+        final String pkgName;
+        final ObjectContext context;
+        final User user;
+        final Pkg pkg;
+
+        PkgBatch(String pkgName, ObjectContext context, User user, Pkg pkg) {
+            this.pkgName = pkgName;
+            this.context = context;
+            this.user = user;
+            this.pkg = pkg;
+        }
+
+    }
+
     /**
      * <p>This object models the result of having processed an icon-loading.</p>
      */
@@ -6,32 +6,28 @@
 package org.haiku.haikudepotserver.pkg.job;
 
 import com.google.common.base.Preconditions;
-import com.google.common.net.MediaType;
 import org.apache.cayenne.ObjectContext;
 import org.apache.cayenne.configuration.server.ServerRuntime;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVPrinter;
+import org.apache.cayenne.query.ObjectSelect;
+import org.haiku.haikudepotserver.dataobjects.MediaType;
+import org.haiku.haikudepotserver.dataobjects.Pkg;
+import org.haiku.haikudepotserver.dataobjects.PkgIcon;
 import org.haiku.haikudepotserver.dataobjects.PkgSupplement;
+import org.haiku.haikudepotserver.dataobjects.PkgVersion;
 import org.haiku.haikudepotserver.dataobjects.Repository;
-import org.haiku.haikudepotserver.job.AbstractJobRunner;
-import org.haiku.haikudepotserver.job.model.JobDataEncoding;
-import org.haiku.haikudepotserver.job.model.JobDataWithByteSink;
-import org.haiku.haikudepotserver.job.model.JobService;
+import org.haiku.haikudepotserver.dataobjects.RepositorySource;
 import org.haiku.haikudepotserver.pkg.model.PkgIconConfiguration;
 import org.haiku.haikudepotserver.pkg.model.PkgIconService;
 import org.haiku.haikudepotserver.pkg.model.PkgIconSpreadsheetJobSpecification;
 import org.haiku.haikudepotserver.pkg.model.PkgService;
-import org.haiku.haikudepotserver.repository.model.RepositoryService;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.io.IOException;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 /**
@@ -39,25 +35,18 @@ import java.util.stream.Collectors;
  */
 
 @Component
-public class PkgIconSpreadsheetJobRunner extends AbstractJobRunner<PkgIconSpreadsheetJobSpecification> {
-
-    private static final Logger LOGGER = LoggerFactory.getLogger(PkgIconSpreadsheetJobRunner.class);
+public class PkgIconSpreadsheetJobRunner extends AbstractPkgExportSpreadsheetJobRunner<PkgIconSpreadsheetJobSpecification> {
 
     private static final String MARKER = "*";
 
-    private final ServerRuntime serverRuntime;
-    private final RepositoryService repositoryService;
-    private final PkgService pkgService;
     private final PkgIconService pkgIconService;
 
     public PkgIconSpreadsheetJobRunner(
             ServerRuntime serverRuntime,
-            RepositoryService repositoryService,
             PkgService pkgService,
-            PkgIconService pkgIconService) {
-        this.serverRuntime = Preconditions.checkNotNull(serverRuntime);
-        this.repositoryService = Preconditions.checkNotNull(repositoryService);
-        this.pkgService = Preconditions.checkNotNull(pkgService);
+            PkgIconService pkgIconService,
+            @Value("${hds.pkg-export.page-size:250}") int pageSize) {
+        super(serverRuntime, pkgService, pageSize);
         this.pkgIconService = Preconditions.checkNotNull(pkgIconService);
     }
 
@@ -67,75 +56,76 @@ public class PkgIconSpreadsheetJobRunner extends AbstractJobRunner<PkgIconSpread
     }
 
     @Override
-    public void run(
-            JobService jobService,
-            PkgIconSpreadsheetJobSpecification specification) throws IOException {
-
-        Preconditions.checkArgument(null!= jobService);
-        Preconditions.checkArgument(null!=specification);
-
-        final ObjectContext context = serverRuntime.newContext();
+    PkgExport createExport(ObjectContext context, PkgIconSpreadsheetJobSpecification specification) {
         final List<PkgIconConfiguration> pkgIconConfigurations = pkgIconService.getInUsePkgIconConfigurations(context);
         final String[] headers = deriveHeaders(pkgIconConfigurations);
+        final List<IconKey> iconKeys = pkgIconConfigurations
+                .stream()
+                .map(pic -> new IconKey(pic.getMediaType().getCode(), pic.getSize()))
+                .toList();
 
-        final CSVFormat format = CSVFormat.DEFAULT.builder()
-                .setHeader(headers)
-                .get();
-
-        // this will register the outbound data against the job.
-        JobDataWithByteSink jobDataWithByteSink = jobService.storeGeneratedData(
-                specification.getGuid(),
-                "download",
-                MediaType.CSV_UTF_8.toString(),
-                JobDataEncoding.NONE);
-
-        try(
-                final OutputStream outputStream = jobDataWithByteSink.getByteSink().openBufferedStream();
-                final OutputStreamWriter outputStreamWriter = new OutputStreamWriter(outputStream);
-                final CSVPrinter printer = new CSVPrinter(outputStreamWriter, format)
-        ) {
-            // stream out the packages.
-
-            long startMs = System.currentTimeMillis();
-            LOGGER.info("will produce icon spreadsheet report");
-
-            long count = pkgService.eachPkg(
-                    context,
-                    false,
-                    pkg -> {
-                        PkgSupplement pkgSupplement = pkg.getPkgSupplement();
-
-                        List<String> cells = new ArrayList<>();
-                        cells.add(pkg.getName());
-                        cells.add(repositoryService.getRepositoriesForPkg(context, pkg)
-                                .stream()
-                                .map(Repository::getCode)
-                                .collect(Collectors.joining(";")));
-                        cells.add(pkg.getPkgSupplement().getPkgIcons().isEmpty() ? MARKER : "");
-
-                        for (PkgIconConfiguration pkgIconConfiguration : pkgIconConfigurations) {
-                            cells.add(
-                                    pkgSupplement.tryGetPkgIcon(
-                                            pkgIconConfiguration.getMediaType(),
-                                            pkgIconConfiguration.getSize()
-                                    ).map(pi -> MARKER).orElse(""));
-                        }
-
-                        try {
-                            printer.printRecord(cells);
-                        } catch (IOException e) {
-                            throw new UncheckedIOException("unable to write row", e);
-                        }
-
-                        return true;
-                    });
-
-            LOGGER.info(
-                    "did produce icon report for {} packages in {}ms",
-                    count,
-                    System.currentTimeMillis() - startMs);
-        }
+        return new PkgExport() {
+
+            @Override
+            public String[] getHeaders() {
+                return headers;
+            }
+
+            @Override
+            public List<List<String>> createRows(ObjectContext pageContext, List<String> pkgNames) {
+                Map<String, Set<String>> repositoryCodesByPkgName = findRepositoryCodes(pageContext, pkgNames);
+                Map<String, Set<IconKey>> iconKeysByPkgName = findIconKeys(pageContext, pkgNames);
+
+                return pkgNames.stream()
+                        .map(pkgName -> {
+                            Set<IconKey> pkgIconKeys = iconKeysByPkgName.getOrDefault(pkgName, Set.of());
+                            List<String> cells = new ArrayList<>();
+                            cells.add(pkgName);
+                            cells.add(String.join(";", repositoryCodesByPkgName.getOrDefault(pkgName, Set.of())));
+                            cells.add(pkgIconKeys.isEmpty() ? MARKER : "");
+
+                            for (IconKey iconKey : iconKeys) {
+                                cells.add(pkgIconKeys.contains(iconKey) ? MARKER : "");
+                            }
+
+                            return cells;
+                        })
+                        .toList();
+            }
+        };
+    }
+
+    /**
+     * <p>Finds the codes of the active repositories in which each package has versions.</p>
+     */
+
+    private Map<String, Set<String>> findRepositoryCodes(ObjectContext context, List<String> pkgNames) {
+        return ObjectSelect.columnQuery(
+                        PkgVersion.class,
+                        PkgVersion.PKG.dot(Pkg.NAME),
+                        PkgVersion.REPOSITORY_SOURCE.dot(RepositorySource.REPOSITORY).dot(Repository.CODE))
+                .where(PkgVersion.PKG.dot(Pkg.NAME).in(pkgNames))
+                .and(PkgVersion.REPOSITORY_SOURCE.dot(RepositorySource.REPOSITORY).dot(Repository.ACTIVE).isTrue())
+                .distinct()
+                .select(context)
+                .stream()
+                .collect(Collectors.groupingBy(
+                        row -> (String) row[0],
+                        Collectors.mapping(row -> (String) row[1], Collectors.toCollection(TreeSet::new))));
+    }
 
+    private Map<String, Set<IconKey>> findIconKeys(ObjectContext context, List<String> pkgNames) {
+        return ObjectSelect.columnQuery(
+                        PkgIcon.class,
+                        PkgIcon.PKG_SUPPLEMENT.dot(PkgSupplement.PKGS).dot(Pkg.NAME),
+                        PkgIcon.MEDIA_TYPE.dot(MediaType.CODE),
+                        PkgIcon.SIZE)
+                .where(PkgIcon.PKG_SUPPLEMENT.dot(PkgSupplement.PKGS).dot(Pkg.NAME).in(pkgNames))
+                .select(context)
+                .stream()
+                .collect(Collectors.groupingBy(
+                        row -> (String) row[0],
+                        Collectors.mapping(row -> new IconKey((String) row[1], (Integer) row[2]), Collectors.toSet())));
     }
 
     private String[] deriveHeaders(final List<PkgIconConfiguration> pkgIconConfigurations) {
@@ -162,4 +152,11 @@ public class PkgIconSpreadsheetJobRunner extends AbstractJobRunner<PkgIconSpread
         return headings;
     }
 
+    /**
+     * @param size is null if the icon is not a bitmap of a specific size.
+     */
+
+    private record IconKey(String mediaTypeCode, Integer size) {
+    }
+
 }
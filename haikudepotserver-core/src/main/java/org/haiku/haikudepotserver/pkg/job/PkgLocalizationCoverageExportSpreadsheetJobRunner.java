@@ -6,53 +6,38 @@
 package org.haiku.haikudepotserver.pkg.job;
 
 import com.google.common.base.Preconditions;
-import com.google.common.net.MediaType;
 import org.apache.cayenne.ObjectContext;
 import org.apache.cayenne.configuration.server.ServerRuntime;
 import org.apache.cayenne.query.ObjectSelect;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVPrinter;
 import org.haiku.haikudepotserver.dataobjects.NaturalLanguage;
+import org.haiku.haikudepotserver.dataobjects.Pkg;
+import org.haiku.haikudepotserver.dataobjects.PkgLocalization;
 import org.haiku.haikudepotserver.dataobjects.PkgSupplement;
-import org.haiku.haikudepotserver.job.AbstractJobRunner;
-import org.haiku.haikudepotserver.job.model.JobDataEncoding;
-import org.haiku.haikudepotserver.job.model.JobDataWithByteSink;
-import org.haiku.haikudepotserver.job.model.JobRunnerException;
-import org.haiku.haikudepotserver.job.model.JobService;
 import org.haiku.haikudepotserver.naturallanguage.model.NaturalLanguageCoordinates;
 import org.haiku.haikudepotserver.naturallanguage.model.NaturalLanguageService;
 import org.haiku.haikudepotserver.pkg.model.PkgLocalizationCoverageExportSpreadsheetJobSpecification;
 import org.haiku.haikudepotserver.pkg.model.PkgService;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.io.IOException;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.UncheckedIOException;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Component
 public class PkgLocalizationCoverageExportSpreadsheetJobRunner
-        extends AbstractJobRunner<PkgLocalizationCoverageExportSpreadsheetJobSpecification> {
+        extends AbstractPkgExportSpreadsheetJobRunner<PkgLocalizationCoverageExportSpreadsheetJobSpecification> {
 
-    private final static Logger LOGGER = LoggerFactory.getLogger(PkgLocalizationCoverageExportSpreadsheetJobRunner.class);
-
-    final private ServerRuntime serverRuntime;
-    final private PkgService pkgService;
     final private NaturalLanguageService naturalLanguageService;
 
     public PkgLocalizationCoverageExportSpreadsheetJobRunner(
             ServerRuntime serverRuntime,
             PkgService pkgService,
-            NaturalLanguageService naturalLanguageService) {
-        this.serverRuntime = Preconditions.checkNotNull(serverRuntime);
-        this.pkgService = Preconditions.checkNotNull(pkgService);
+            NaturalLanguageService naturalLanguageService,
+            @Value("${hds.pkg-export.page-size:250}") int pageSize) {
+        super(serverRuntime, pkgService, pageSize);
         this.naturalLanguageService = Preconditions.checkNotNull(naturalLanguageService);
     }
 
@@ -83,92 +68,70 @@ public class PkgLocalizationCoverageExportSpreadsheetJobRunner
     }
 
     @Override
-    public void run(
-            JobService jobService,
-            PkgLocalizationCoverageExportSpreadsheetJobSpecification specification)
-            throws IOException, JobRunnerException {
-
-        Preconditions.checkArgument(null != jobService);
-        Preconditions.checkArgument(null!=specification);
-
-        final ObjectContext context = serverRuntime.newContext();
-
-        final List<NaturalLanguage> naturalLanguages = getNaturalLanguages(context);
+    PkgExport createExport(ObjectContext context, PkgLocalizationCoverageExportSpreadsheetJobSpecification specification) {
+        final List<NaturalLanguageCoordinates> naturalLanguages = getNaturalLanguages(context)
+                .stream()
+                .map(NaturalLanguage::toCoordinates)
+                .toList();
 
         if(naturalLanguages.isEmpty()) {
             throw new RuntimeException("there appear to be no natural languages in the system");
         }
 
-        final String[] headers = deriveHeaders(naturalLanguages);
-
-        CSVFormat format = CSVFormat.DEFAULT.builder()
-                .setHeader(headers)
-                .get();
-
-        // this will register the outbound data against the job.
-        JobDataWithByteSink jobDataWithByteSink = jobService.storeGeneratedData(
-                specification.getGuid(),
-                "download",
-                MediaType.CSV_UTF_8.toString(),
-                JobDataEncoding.NONE);
-
-        try(
-                final OutputStream outputStream = jobDataWithByteSink.getByteSink().openBufferedStream();
-                final OutputStreamWriter outputStreamWriter = new OutputStreamWriter(outputStream);
-                final CSVPrinter printer = new CSVPrinter(outputStreamWriter, format)
-        ) {
-
-            final String[] cells = new String[1 + naturalLanguages.size()];
-            long startMs = System.currentTimeMillis();
-
-            // stream out the packages.
-
-            final long expectedTotal = pkgService.totalPkg(context, false);
-            final AtomicLong counter = new AtomicLong(0);
-
-            LOGGER.info("will produce package localization report for {} packages", expectedTotal);
-
-            long count = pkgService.eachPkg(
-                    context,
-                    false, // allow source only.
-                    pkg -> {
-
-                        PkgSupplement pkgSupplement = pkg.getPkgSupplement();
-                        int c = 0;
-                        cells[c++] = pkg.getName();
-
-                        for(NaturalLanguage naturalLanguage : naturalLanguages) {
-                            cells[c++] = pkgSupplement.getPkgLocalization(naturalLanguage).map(pl -> MARKER).orElse("");
-                        }
-
-                        try {
-                            printer.printRecord(Arrays.stream(cells));
-                        } catch (IOException ioe) {
-                            throw new UncheckedIOException("unable to write row", ioe);
-                        }
-
-                        jobService.setJobProgressPercent(
-                                specification.getGuid(),
-                                (int) ((100 * counter.incrementAndGet()) / expectedTotal));
-
-                        return true; // keep going!
-                    }
-            );
-
-            printer.flush();
-            outputStreamWriter.flush();
-
-            LOGGER.info(
-                    "did produce pkg localization coverage spreadsheet report for {} packages in {}ms",
-                    count,
-                    System.currentTimeMillis() - startMs);
-
-        }
+        return new PkgExport() {
+
+            @Override
+            public String[] getHeaders() {
+                return deriveHeaders(naturalLanguages);
+            }
+
+            @Override
+            public List<List<String>> createRows(ObjectContext pageContext, List<String> pkgNames) {
+                Map<String, Set<NaturalLanguageCoordinates>> localizedNaturalLanguagesByPkgName =
+                        findLocalizedNaturalLanguages(pageContext, pkgNames);
+
+                return pkgNames.stream()
+                        .map(pkgName -> {
+                            Set<NaturalLanguageCoordinates> localizedNaturalLanguages =
+                                    localizedNaturalLanguagesByPkgName.getOrDefault(pkgName, Set.of());
+                            List<String> cells = new ArrayList<>();
+                            cells.add(pkgName);
+
+                            for (NaturalLanguageCoordinates naturalLanguage : naturalLanguages) {
+                                cells.add(localizedNaturalLanguages.contains(naturalLanguage) ? MARKER : "");
+                            }
+
+                            return cells;
+                        })
+                        .toList();
+            }
+        };
+    }
 
+    /**
+     * <p>Finds the natural languages for which each of the packages has a localization.</p>
+     */
 
+    private Map<String, Set<NaturalLanguageCoordinates>> findLocalizedNaturalLanguages(
+            ObjectContext context,
+            List<String> pkgNames) {
+        return ObjectSelect.columnQuery(
+                        PkgLocalization.class,
+                        PkgLocalization.PKG_SUPPLEMENT.dot(PkgSupplement.PKGS).dot(Pkg.NAME),
+                        PkgLocalization.NATURAL_LANGUAGE.dot(NaturalLanguage.LANGUAGE_CODE),
+                        PkgLocalization.NATURAL_LANGUAGE.dot(NaturalLanguage.SCRIPT_CODE),
+                        PkgLocalization.NATURAL_LANGUAGE.dot(NaturalLanguage.COUNTRY_CODE))
+                .where(PkgLocalization.PKG_SUPPLEMENT.dot(PkgSupplement.PKGS).dot(Pkg.NAME).in(pkgNames))
+                .select(context)
+                .stream()
+                .collect(Collectors.groupingBy(
+                        row -> (String) row[0],
+                        Collectors.mapping(
+                                row -> new NaturalLanguageCoordinates((String) row[1], (String) row[2], (String) row[3]),
+                                Collectors.toSet())));
     }
 
-    private String[] deriveHeaders(List<NaturalLanguage> naturalLanguages) {
+    private String[] deriveHeaders(List<NaturalLanguageCoordinates> naturalLanguages) {
         String[] headers = new String[1 + naturalLanguages.size()];
 
         headers[0] = "pkg-name";
@@ -71,7 +71,7 @@ public class PkgNativeDesktopExportSpreadsheetJobRunner
                     final OutputStreamWriter outputStreamWriter = new OutputStreamWriter(outputStream);
                     final CSVPrinter printer = new CSVPrinter(outputStreamWriter, format)
             ) {
-                pkgServiceImpl.eachPkg(context, false, (pkg) -> {
+                pkgServiceImpl.eachPkg(context, true, (pkg) -> {
                     try {
                         printer.printRecord(
                                 pkg.getName(),
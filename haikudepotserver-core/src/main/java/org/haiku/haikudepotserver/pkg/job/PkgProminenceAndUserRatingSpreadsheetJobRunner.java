@@ -1,36 +1,29 @@
 /*
- * Copyright 2018-2025, Andrew Lindesay
+ * Copyright 2018-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
 package org.haiku.haikudepotserver.pkg.job;
 
-import com.google.common.base.Preconditions;
-import com.google.common.net.MediaType;
 import org.apache.cayenne.ObjectContext;
 import org.apache.cayenne.configuration.server.ServerRuntime;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVPrinter;
+import org.apache.cayenne.query.ObjectSelect;
+import org.haiku.haikudepotserver.dataobjects.Pkg;
 import org.haiku.haikudepotserver.dataobjects.PkgProminence;
 import org.haiku.haikudepotserver.dataobjects.PkgUserRatingAggregate;
+import org.haiku.haikudepotserver.dataobjects.Prominence;
 import org.haiku.haikudepotserver.dataobjects.Repository;
-import org.haiku.haikudepotserver.job.AbstractJobRunner;
-import org.haiku.haikudepotserver.job.model.JobDataEncoding;
-import org.haiku.haikudepotserver.job.model.JobDataWithByteSink;
-import org.haiku.haikudepotserver.job.model.JobService;
 import org.haiku.haikudepotserver.pkg.model.PkgProminenceAndUserRatingSpreadsheetJobSpecification;
 import org.haiku.haikudepotserver.pkg.model.PkgService;
-import org.haiku.haikudepotserver.support.SingleCollector;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.io.IOException;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -39,9 +32,7 @@ import java.util.stream.Stream;
 
 @Component
 public class PkgProminenceAndUserRatingSpreadsheetJobRunner
-        extends AbstractJobRunner<PkgProminenceAndUserRatingSpreadsheetJobSpecification> {
-
-    private static final Logger LOGGER = LoggerFactory.getLogger(PkgProminenceAndUserRatingSpreadsheetJobRunner.class);
+        extends AbstractPkgExportSpreadsheetJobRunner<PkgProminenceAndUserRatingSpreadsheetJobSpecification> {
 
     private static final String[] HEADERS = new String[]{
             "pkg-name",
@@ -52,14 +43,11 @@ public class PkgProminenceAndUserRatingSpreadsheetJobRunner
             "derived-rating-sample-size"
     };
 
-    private final ServerRuntime serverRuntime;
-    private final PkgService pkgService;
-
     public PkgProminenceAndUserRatingSpreadsheetJobRunner(
             ServerRuntime serverRuntime,
-            PkgService pkgService) {
-        this.serverRuntime = Preconditions.checkNotNull(serverRuntime);
-        this.pkgService = Preconditions.checkNotNull(pkgService);
+            PkgService pkgService,
+            @Value("${hds.pkg-export.page-size:250}") int pageSize) {
+        super(serverRuntime, pkgService, pageSize);
     }
 
     @Override
@@ -68,89 +56,89 @@ public class PkgProminenceAndUserRatingSpreadsheetJobRunner
     }
 
     @Override
-    public void run(JobService jobService, PkgProminenceAndUserRatingSpreadsheetJobSpecification specification) throws IOException {
-
-        Preconditions.checkArgument(null != jobService);
-        Preconditions.checkArgument(null != specification);
-
-        CSVFormat format = CSVFormat.DEFAULT.builder()
-                .setHeader(HEADERS)
-                .get();
-
-        final ObjectContext context = serverRuntime.newContext();
-
-        // this will register the outbound data against the job.
-        JobDataWithByteSink jobDataWithByteSink = jobService.storeGeneratedData(
-                specification.getGuid(),
-                "download",
-                MediaType.CSV_UTF_8.toString(),
-                JobDataEncoding.NONE);
-
-        try (
-                final OutputStream outputStream = jobDataWithByteSink.getByteSink().openBufferedStream();
-                final OutputStreamWriter outputStreamWriter = new OutputStreamWriter(outputStream);
-                final CSVPrinter printer = new CSVPrinter(outputStreamWriter, format)
-        ) {
-            // stream out the packages.
-
-            long startMs = System.currentTimeMillis();
-            LOGGER.info("will produce prominence spreadsheet report");
-
-            long count = pkgService.eachPkg(
-                    context,
-                    false,
-                    pkg -> {
-
-                        List<PkgProminence> pkgProminences = PkgProminence.findByPkg(context, pkg);
-                        List<PkgUserRatingAggregate> pkgUserRatingAggregates = PkgUserRatingAggregate.findByPkg(context, pkg);
-                        List<Repository> repositories = Stream.concat(
-                                pkgProminences.stream().map(PkgProminence::getRepository),
-                                pkgUserRatingAggregates.stream().map(PkgUserRatingAggregate::getRepository)
-                        ).distinct().sorted().toList();
-
-                        if (repositories.isEmpty()) {
-                            try {
-                                printer.printRecord(pkg.getName(), "", "", "", "", "");
-                            } catch (IOException e) {
-                                throw new UncheckedIOException("unable to write row", e);
-                            }
-                        } else {
-                            for (Repository repository : repositories) {
-
-                                Optional<PkgProminence> pkgProminenceOptional = pkgProminences
-                                        .stream()
-                                        .filter(pp -> pp.getRepository().equals(repository))
-                                        .collect(SingleCollector.optional());
-
-                                Optional<PkgUserRatingAggregate> pkgUserRatingAggregateOptional = pkgUserRatingAggregates
-                                        .stream()
-                                        .filter(pura -> pura.getRepository().equals(repository))
-                                        .collect(SingleCollector.optional());
-
-                                try {
-                                    printer.printRecord(
-                                            pkg.getName(),
-                                            repository.getCode(),
-                                            pkgProminenceOptional.map(p -> p.getProminence().getName()).orElse(""),
-                                            pkgProminenceOptional.map(p -> p.getProminence().getOrdering().toString()).orElse(""),
-                                            pkgUserRatingAggregateOptional.map(p -> p.getDerivedRating().toString()).orElse(""),
-                                            pkgUserRatingAggregateOptional.map(p -> p.getDerivedRatingSampleSize().toString()).orElse("")
-                                    );
-                                } catch (IOException ioe) {
-                                    throw new UncheckedIOException("unable to write row", ioe);
-                                }
-                            }
-                        }
-
-                        return true;
-                    });
-
-            LOGGER.info(
-                    "did produce prominence spreadsheet report for {} packages in {}ms",
-                    count,
-                    System.currentTimeMillis() - startMs);
+    PkgExport createExport(ObjectContext context, PkgProminenceAndUserRatingSpreadsheetJobSpecification specification) {
+        return new PkgExport() {
+
+            @Override
+            public String[] getHeaders() {
+                return HEADERS;
+            }
+
+            @Override
+            public List<List<String>> createRows(ObjectContext pageContext, List<String> pkgNames) {
+                return createRowsForPkgs(pageContext, pkgNames);
+            }
+        };
+    }
+
+    private List<List<String>> createRowsForPkgs(ObjectContext context, List<String> pkgNames) {
+        Map<PkgRepository, ProminenceCells> prominences = ObjectSelect.columnQuery(
+                        PkgProminence.class,
+                        PkgProminence.PKG.dot(Pkg.NAME),
+                        PkgProminence.REPOSITORY.dot(Repository.CODE),
+                        PkgProminence.PROMINENCE.dot(Prominence.NAME),
+                        PkgProminence.PROMINENCE.dot(Prominence.ORDERING))
+                .where(PkgProminence.PKG.dot(Pkg.NAME).in(pkgNames))
+                .select(context)
+                .stream()
+                .collect(Collectors.toMap(
+                        row -> new PkgRepository((String) row[0], (String) row[1]),
+                        row -> new ProminenceCells((String) row[2], row[3].toString())));
+
+        Map<PkgRepository, UserRatingCells> userRatings = ObjectSelect.columnQuery(
+                        PkgUserRatingAggregate.class,
+                        PkgUserRatingAggregate.PKG.dot(Pkg.NAME),
+                        PkgUserRatingAggregate.REPOSITORY.dot(Repository.CODE),
+                        PkgUserRatingAggregate.DERIVED_RATING,
+                        PkgUserRatingAggregate.DERIVED_RATING_SAMPLE_SIZE)
+                .where(PkgUserRatingAggregate.PKG.dot(Pkg.NAME).in(pkgNames))
+                .select(context)
+                .stream()
+                .collect(Collectors.toMap(
+                        row -> new PkgRepository((String) row[0], (String) row[1]),
+                        row -> new UserRatingCells(row[2].toString(), row[3].toString())));
+
+        Map<String, TreeSet<String>> repositoryCodesByPkgName = Stream.concat(
+                        prominences.keySet().stream(),
+                        userRatings.keySet().stream())
+                .collect(Collectors.groupingBy(
+                        PkgRepository::pkgName,
+                        Collectors.mapping(PkgRepository::repositoryCode, Collectors.toCollection(TreeSet::new))));
+
+        List<List<String>> result = new ArrayList<>();
+
+        for (String pkgName : pkgNames) {
+            TreeSet<String> repositoryCodes = repositoryCodesByPkgName.get(pkgName);
+
+            if (null == repositoryCodes) {
+                result.add(List.of(pkgName, "", "", "", "", ""));
+            } else {
+                for (String repositoryCode : repositoryCodes) {
+                    PkgRepository pkgRepository = new PkgRepository(pkgName, repositoryCode);
+                    Optional<ProminenceCells> prominenceOptional = Optional.ofNullable(prominences.get(pkgRepository));
+                    Optional<UserRatingCells> userRatingOptional = Optional.ofNullable(userRatings.get(pkgRepository));
+
+                    result.add(List.of(
+                            pkgName,
+                            repositoryCode,
+                            prominenceOptional.map(ProminenceCells::name).orElse(""),
+                            prominenceOptional.map(ProminenceCells::ordering).orElse(""),
+                            userRatingOptional.map(UserRatingCells::derivedRating).orElse(""),
+                            userRatingOptional.map(UserRatingCells::derivedRatingSampleSize).orElse("")));
+                }
+            }
         }
 
+        return result;
+    }
+
+    private record PkgRepository(String pkgName, String repositoryCode) {
+    }
+
+    private record ProminenceCells(String name, String ordering) {
+    }
+
+    private record UserRatingCells(String derivedRating, String derivedRatingSampleSize) {
     }
 
 }
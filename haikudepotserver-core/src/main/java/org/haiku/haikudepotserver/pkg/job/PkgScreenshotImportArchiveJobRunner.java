@@ -6,12 +6,6 @@
 package org.haiku.haikudepotserver.pkg.job;
 
 import com.google.common.base.Preconditions;
-import com.google.common.hash.HashCode;
-import com.google.common.hash.HashFunction;
-import com.google.common.hash.Hashing;
-import com.google.common.hash.HashingInputStream;
-import com.google.common.io.ByteSource;
-import com.google.common.io.ByteStreams;
 import com.google.common.net.MediaType;
 import org.apache.cayenne.ObjectContext;
 import org.apache.cayenne.configuration.server.ServerRuntime;
@@ -24,12 +18,12 @@ import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.csv.QuoteMode;
 import org.haiku.haikudepotserver.dataobjects.Pkg;
 import org.haiku.haikudepotserver.dataobjects.PkgScreenshot;
-import org.haiku.haikudepotserver.dataobjects.PkgScreenshotImage;
 import org.haiku.haikudepotserver.dataobjects.User;
 import org.haiku.haikudepotserver.job.AbstractJobRunner;
 import org.haiku.haikudepotserver.job.model.*;
 import org.haiku.haikudepotserver.pkg.model.BadPkgScreenshotException;
 import org.haiku.haikudepotserver.pkg.model.PkgScreenshotImportArchiveJobSpecification;
+import org.haiku.haikudepotserver.pkg.model.PkgScreenshotOptimizationJobSpecification;
 import org.haiku.haikudepotserver.pkg.model.PkgScreenshotService;
 import org.haiku.haikudepotserver.pkg.model.UserPkgSupplementModificationAgent;
 import org.slf4j.Logger;
@@ -38,11 +32,25 @@ import org.springframework.stereotype.Component;
 
 import java.io.*;
 import java.util.*;
-import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
 
+/**
+ * <p>This importer will take a tar-ball of package screenshots and will import them into the
+ * local database.  The tar-ball is streamed through once.  The screenshots for a package are
+ * imported together and, if the existing screenshots are being replaced, those which do not
+ * appear in the tar-ball are deleted at the end of the package's entries.  The changes for each
+ * package are then committed so that the memory used does not grow with the size of the
+ * tar-ball.</p>
+ *
+ * <p>This relies on the entries for a package appearing together in the tar-ball as they do in
+ * the tar-balls produced by {@link PkgScreenshotExportArchiveJobRunner}.  If the entries for a
+ * package are spread out, the existing screenshots are only replaced for the first group of
+ * entries.</p>
+ */
+
 @Component
 public class PkgScreenshotImportArchiveJobRunner extends AbstractJobRunner<PkgScreenshotImportArchiveJobSpecification> {
 
@@ -52,8 +60,6 @@ public class PkgScreenshotImportArchiveJobRunner extends AbstractJobRunner<PkgSc
             "path", "pkg-name", "action", "message", "code"
     };
 
-    private static final HashFunction HASH_FUNCTION = Hashing.sha1();
-
     private static final Pattern PATTERN_PATH = Pattern.compile("^/?" +
             PkgScreenshotExportArchiveJobRunner.PATH_COMPONENT_TOP +
             "/(" + Pkg.PATTERN_STRING_NAME_CHAR + "+)/([0-9]+)\\.png$");
@@ -119,507 +125,258 @@ public class PkgScreenshotImportArchiveJobRunner extends AbstractJobRunner<PkgSc
                 .setQuoteMode(QuoteMode.ALL)
                 .get();
 
-        if (!serverRuntime.performInTransaction(() -> {
-            try (
-                    final OutputStream outputStream = jobDataWithByteSink.getByteSink().openBufferedStream();
-                    final OutputStreamWriter outputStreamWriter = new OutputStreamWriter(outputStream);
-                    final CSVPrinter printer = new CSVPrinter(outputStreamWriter, format)
-            ) {
-
-                Map<String, ScreenshotImportMetadatas> metadatas = new HashMap<>();
-
-                // sweep through and collect meta-data about the packages in the tar file.
-                LOGGER.info("will collect data about packages' screenshots from the archive");
-                consumeScreenshotArchiveEntries(
-                        jobDataWithByteSourceOptional.get().getByteSource(),
-                        (ae) -> collectScreenshotMetadataFromArchive(
-                                metadatas,
-                                ae.getArchiveInputStream(),
-                                ae.getArchiveEntry(),
-                                ae.getPkgName(),
-                                ae.getOrder()));
-                LOGGER.info("did collect data about {} packages' screenshots from the archive", metadatas.size());
-
-                LOGGER.info("will collect data about persisted packages' screenshots");
-                collectPersistedScreenshotMetadata(metadatas);
-                LOGGER.info("did collect data about persisted packages' screenshots");
-
-                if (specification.getImportStrategy() == PkgScreenshotImportArchiveJobSpecification.ImportStrategy.REPLACE) {
-                    LOGGER.info("will delete persisted screenshots that are absent from the archive");
-                    int deleted = deletePersistedScreenshotsThatAreNotPresentInArchiveAndReport(
-                            specification, printer, metadatas.values());
-                    LOGGER.info("did delete {} persisted screenshots that are absent from the archive", deleted);
-                }
-
-                blendInArtificialOrderings(metadatas.values());
-
-                // sweep through the archive again and load in those screenshots that are not already present.
-                // The ordering of the inbound data should be preserved.
-                LOGGER.info("will load screenshots from archive");
-                consumeScreenshotArchiveEntries(
-                        jobDataWithByteSourceOptional.get().getByteSource(),
-                        (ae) -> {
-                            try {
-                                importScreenshotsFromArchiveAndReport(
-                                        specification,
-                                        printer,
-                                        metadatas.get(ae.getPkgName()),
-                                        ae.getArchiveInputStream(),
-                                        ae.getArchiveEntry(),
-                                        ae.getPkgName(),
-                                        ae.getOrder());
-                            } catch (IOException ioe) {
-                                throw new UncheckedIOException(ioe);
-                            }
-                        });
-                LOGGER.info("did load screenshots from archive");
-                return true;
-            } catch (IOException e) {
-                LOGGER.error("unable to complete the job", e);
-            }
-
-            return false;
-        })) {
-            throw new JobRunnerException("unable to complete job");
-        }
-    }
-
-    private int consumeScreenshotArchiveEntries(
-            ByteSource byteSource,
-            Consumer<ArchiveEntryWithPkgNameAndOrdering> archiveEntryConsumer) throws IOException {
-        int counter = 0;
+        Set<String> addedPkgScreenshotCodes = new HashSet<>();
+        boolean completed = false;
 
         try (
-                InputStream inputStream = byteSource.openStream();
-                GZIPInputStream gzipInputStream = new GZIPInputStream(inputStream);
-                ArchiveInputStream<TarArchiveEntry> tarArchiveInputStream = new TarArchiveInputStream(gzipInputStream)
+                final OutputStream outputStream = jobDataWithByteSink.getByteSink().openBufferedStream();
+                final OutputStreamWriter outputStreamWriter = new OutputStreamWriter(outputStream);
+                final CSVPrinter printer = new CSVPrinter(outputStreamWriter, format);
+                final InputStream inputStream = jobDataWithByteSourceOptional.get().getByteSource().openStream();
+                final GZIPInputStream gzipInputStream = new GZIPInputStream(inputStream);
+                final TarArchiveInputStream tarArchiveInputStream = new TarArchiveInputStream(gzipInputStream)
         ) {
-            ArchiveEntry archiveEntry;
-
-            while (null != (archiveEntry = tarArchiveInputStream.getNextEntry())) {
-
-                Matcher matcher = PATTERN_PATH.matcher(archiveEntry.getName());
-
-                if (matcher.matches()) {
-                    archiveEntryConsumer.accept(new ArchiveEntryWithPkgNameAndOrdering(
-                            tarArchiveInputStream, archiveEntry,
-                            matcher.group(GROUP_PKGNAME), Integer.parseInt(matcher.group(GROUP_LEAFNAME))
-                    ));
-
-                    counter++;
-                }
+            LOGGER.info("will load screenshots from archive");
+            int pkgCount = importScreenshotsFromArchiveAndReport(
+                    specification, printer, addedPkgScreenshotCodes, tarArchiveInputStream);
+            LOGGER.info("did load screenshots for {} packages from archive", pkgCount);
+            completed = true;
+        } catch (IOException e) {
+            LOGGER.error("unable to complete the job", e);
+        } finally {
+
+            // the added screenshots are optimized once they have been committed.  Optimizing may
+            // change the image data and so the thumbnails are only created after the optimization;
+            // see PkgScreenshotOptimizationJobRunner.  The packages committed before any failure,
+            // including a failure to commit a later batch, still need to be optimized.
+
+            if (!addedPkgScreenshotCodes.isEmpty()) {
+                jobService.submit(
+                        new PkgScreenshotOptimizationJobSpecification(Set.copyOf(addedPkgScreenshotCodes)),
+                        JobSnapshot.COALESCE_STATUSES_NONE);
             }
         }
 
-        return counter;
-    }
-
-
-    /**
-     * if the screenshots from the archive are to replace those already persisted then the old
-     * screenshots that are no longer required can be deleted.  Go through those ones persisted
-     * and if nothing from the inbound screenshots match then delete it.
-     */
-
-    private int deletePersistedScreenshotsThatAreNotPresentInArchiveAndReport(
-            PkgScreenshotImportArchiveJobSpecification specification,
-            final CSVPrinter printer,
-            Collection<ScreenshotImportMetadatas> metadatas) {
-        return metadatas
-                .stream()
-                .mapToInt((m) -> deletePersistedScreenshotsThatAreNotPresentInArchiveAndReport(specification, printer, m))
-                .sum();
-    }
-
-    private int deletePersistedScreenshotsThatAreNotPresentInArchiveAndReport(
-            PkgScreenshotImportArchiveJobSpecification specification,
-            final CSVPrinter printer,
-            ScreenshotImportMetadatas metadata) {
-        return metadata.getExistingScreenshots()
-                .stream()
-                .mapToInt((es) -> {
-                    try {
-                        return deletePersistedScreenshotsThatAreNotPresentInArchiveAndReport(
-                                specification, printer, metadata, es);
-                    } catch (IOException ioe) {
-                        throw new UncheckedIOException(ioe);
-                    }
-                })
-                .sum();
-    }
-
-    private int deletePersistedScreenshotsThatAreNotPresentInArchiveAndReport(
-            PkgScreenshotImportArchiveJobSpecification specification,
-            final CSVPrinter printer,
-            ScreenshotImportMetadatas metadata,
-            ExistingScreenshotMetadata existingScreenshot) throws IOException {
-        boolean fromArchiveScreenshotMatches = metadata.getFromArchiveScreenshots()
-                .stream()
-                .filter((as) -> as.getLength() == existingScreenshot.getLength())
-                .anyMatch((as) -> as.getDataHash().equals(existingScreenshot.getDataHash()));
-
-        if (!fromArchiveScreenshotMatches) {
-            ObjectContext context = serverRuntime.newContext();
-            PkgScreenshot pkgScreenshot = PkgScreenshot.getByCode(context, existingScreenshot.getCode());
-            String[] row = new String[]{
-                    "",
-                    pkgScreenshot.getPkgSupplement().getBasePkgName(),
-                    Action.REMOVED.name(),
-                    "",
-                    pkgScreenshot.getCode()
-            };
-
-            pkgScreenshotService.deleteScreenshot(
-                    context,
-                    new UserPkgSupplementModificationAgent(User.getByNickname(context, specification.getOwnerUserNickname())),
-                    pkgScreenshot);
-
-            printer.printRecord(Arrays.stream(row));
-            context.commitChanges(); // job-length txn so won't *actually* be committed here.
-
-            return 1;
+        if (!completed) {
+            throw new JobRunnerException("unable to complete job");
         }
-
-        return 0;
     }
 
     /**
-     * <p>Goes through the archive and captures information about each screenshot.</p>
+     * <p>Goes through the archive, importing the screenshots for each package in turn.</p>
+     *
+     * @return the number of packages that were processed.
      */
 
-    private void collectScreenshotMetadataFromArchive(
-            Map<String, ScreenshotImportMetadatas> data,
-            ArchiveInputStream<TarArchiveEntry> archiveInputStream,
-            ArchiveEntry archiveEntry,
-            String pkgName,
-            int order) {
-
-        ScreenshotImportMetadatas metadatas = data.get(pkgName);
-
-        if (null == metadatas) {
-            metadatas = new ScreenshotImportMetadatas();
-            ObjectContext context = serverRuntime.newContext();
-            Optional<Pkg> pkgOptional = Pkg.tryGetByName(context, pkgName);
+    private int importScreenshotsFromArchiveAndReport(
+            PkgScreenshotImportArchiveJobSpecification specification,
+            CSVPrinter printer,
+            Set<String> addedPkgScreenshotCodes,
+            ArchiveInputStream<TarArchiveEntry> archiveInputStream) throws IOException {
+        Set<String> pkgNamesProcessed = new HashSet<>();
+        PkgBatch batch = null;
+        ArchiveEntry archiveEntry;
+
+        while (null != (archiveEntry = archiveInputStream.getNextEntry())) {
+            Matcher matcher = PATTERN_PATH.matcher(archiveEntry.getName());
+
+            if (matcher.matches()) {
+                String pkgName = matcher.group(GROUP_PKGNAME);
+
+                if (null == batch || !batch.pkgName.equals(pkgName)) {
+                    finishBatchAndReport(printer, addedPkgScreenshotCodes, batch);
+                    batch = startBatch(specification, pkgName, pkgNamesProcessed.add(pkgName));
+                }
 
-            if (pkgOptional.isEmpty()) {
-                metadatas.setNotFound();
+                importScreenshotFromArchive(
+                        batch,
+                        archiveInputStream,
+                        archiveEntry,
+                        Integer.parseInt(matcher.group(GROUP_LEAFNAME)));
             }
-
-            data.put(pkgName, metadatas);
         }
 
-        if (!metadatas.isNotFound()) {
-            HashingInputStream hashingInputStream = new HashingInputStream(HASH_FUNCTION, archiveInputStream);
+        finishBatchAndReport(printer, addedPkgScreenshotCodes, batch);
 
-            try {
-                hashingInputStream.transferTo(ByteStreams.nullOutputStream());
-            } catch (IOException ioe) {
-                throw new UncheckedIOException(ioe);
-            }
-
-            metadatas.add(new FromArchiveScreenshotMetadata(
-                    order,
-                    archiveEntry.getSize(),
-                    hashingInputStream.hash(),
-                    archiveEntry.getName()));
-        }
+        return pkgNamesProcessed.size();
     }
 
     /**
-     * <p>Go through the database and collect information about the screenshots that are persisted.</p>
+     * <p>Collects information about the screenshots that are already persisted for the package.  The
+     * screenshots from the archive are ordered after those already persisted.</p>
      */
 
-    private void collectPersistedScreenshotMetadata(Map<String, ScreenshotImportMetadatas> data) {
-        data.forEach((k, v) -> {
-            if (!v.isNotFound()) {
-                ObjectContext context = serverRuntime.newContext();
-                Pkg pkg = Pkg.getByName(context, k);
-                pkg.getPkgSupplement().getPkgScreenshots().forEach((ps) -> v.add(createPersistedScreenshotMetadata(ps)));
-            }
-        });
-    }
-
-    private ExistingScreenshotMetadata createPersistedScreenshotMetadata(PkgScreenshot pkgScreenshot) {
-        return new ExistingScreenshotMetadata(
-                pkgScreenshot.getOrdering(),
-                pkgScreenshot.getLength(),
-                pkgScreenshot.getCode());
-    }
-
-
-    /**
-     * <p>This method will re-order the inbound screenshots such that they appear in the same order as inbound</p>
-     */
-
-    private void blendInArtificialOrderings(Collection<ScreenshotImportMetadatas> metadatas) {
-        metadatas.forEach(this::blendInArtificialOrderings);
-    }
-
-
-    private void blendInArtificialOrderings(ScreenshotImportMetadatas metadata) {
-        int maxExistingOrderOptional = metadata.getExistingScreenshots()
-                .stream()
-                .mapToInt(ExistingScreenshotMetadata::getOrder)
-                .max()
-                .orElse(0) // dummy value
-                + 1000;
-
-        metadata.getFromArchiveScreenshots()
-                .stream()
-                .sorted(Comparator.comparingInt(FromArchiveScreenshotMetadata::getOrder))
-                .forEach((fa) -> fa.setDerivedOrder(fa.getOrder() + maxExistingOrderOptional));
+    private PkgBatch startBatch(
+            PkgScreenshotImportArchiveJobSpecification specification,
+            String pkgName,
+            boolean isFirstForPkg) {
+        ObjectContext context = serverRuntime.newContext();
+        User user = User.getByNickname(context, specification.getOwnerUserNickname());
+        Pkg pkg = Pkg.tryGetByName(context, pkgName).orElse(null);
+        List<PkgScreenshot> existingScreenshots = null == pkg
+                ? List.of()
+                : pkg.getPkgSupplement().getPkgScreenshots();
+
+        return new PkgBatch(
+                pkgName,
+                context,
+                user,
+                pkg,
+                existingScreenshots.stream().map(PkgScreenshot::getCode).collect(Collectors.toUnmodifiableSet()),
+                existingScreenshots.stream().mapToInt(PkgScreenshot::getOrdering).max().orElse(0) + 1000,
+                isFirstForPkg && specification.getImportStrategy()
+                        == PkgScreenshotImportArchiveJobSpecification.ImportStrategy.REPLACE);
     }
 
-
     /**
-     * <p>If this screenshot coming in from the archive does not exist persisted then load it in.</p>
+     * <p>Stores the screenshot from the archive.  If the same image is already persisted for the
+     * package then the persisted screenshot is returned from the service and nothing is stored.</p>
      */
 
-    private void importScreenshotsFromArchiveAndReport(
-            PkgScreenshotImportArchiveJobSpecification specification,
-            final CSVPrinter printer,
-            ScreenshotImportMetadatas data,
+    private void importScreenshotFromArchive(
+            PkgBatch batch,
             ArchiveInputStream<TarArchiveEntry> archiveInputStream,
             ArchiveEntry archiveEntry,
-            String pkgName,
-            int order
-    ) throws IOException {
+            int order) throws IOException {
 
         String[] row = new String[]{
                 archiveEntry.getName(), // path
-                pkgName, // pkg
+                batch.pkgName, // pkg
                 "", // action
                 "", // message
                 "", // code
         };
 
-        if (data.isNotFound()) {
+        if (null == batch.pkg) {
             row[CSV_COLUMN_ACTION] = Action.NOTFOUND.name();
         } else {
-            FromArchiveScreenshotMetadata fromArchiveScreenshotMetadata =
-                    data.getFromArchiveScreenshots()
-                            .stream()
-                            .filter((as) -> as.getLength() == archiveEntry.getSize())
-                            .filter((as) -> as.getOrder() == order)
-                            .findAny()
-                            .orElseThrow(() -> new IllegalStateException("unable to find the from-archive screenshot metadata"));
-
-            Optional<ExistingScreenshotMetadata> existingScreenshotMetadata = data.getExistingScreenshots()
-                    .stream()
-                    .filter((es) -> archiveEntry.getSize() == es.getLength())
-                    .filter((es) -> fromArchiveScreenshotMetadata.getDataHash().equals(es.getDataHash()))
-                    .findAny();
-
-            if (existingScreenshotMetadata.isPresent()) {
-                row[CSV_COLUMN_ACTION] = Action.PRESENT.name();
-                row[CSV_COLUMN_CODE] = existingScreenshotMetadata.get().getCode();
-            } else {
-                ObjectContext context = serverRuntime.newContext();
-
-                try {
-                    PkgScreenshot screenshot = pkgScreenshotService.storePkgScreenshotImage(
-                            archiveInputStream,
-                            context,
-                            new UserPkgSupplementModificationAgent(
-                                    User.getByNickname(context, specification.getOwnerUserNickname())),
-                            Pkg.getByName(context, pkgName).getPkgSupplement(),
-                            fromArchiveScreenshotMetadata.getDerivedOrder());
-
-                    row[CSV_COLUMN_CODE] = screenshot.getCode();
+
+            // the screenshot is checked before anything is changed in the context so an invalid
+            // screenshot does not affect the other screenshots for the package.
+
+            try {
+                PkgScreenshot screenshot = pkgScreenshotService.storePkgScreenshotImage(
+                        archiveInputStream,
+                        batch.context,
+                        new UserPkgSupplementModificationAgent(batch.user),
+                        batch.pkg.getPkgSupplement(),
+                        order + batch.derivedOrderBase);
+
+                row[CSV_COLUMN_CODE] = screenshot.getCode();
+
+                if (batch.existingPkgScreenshotCodes.contains(screenshot.getCode())) {
+                    row[CSV_COLUMN_ACTION] = Action.PRESENT.name();
+                    batch.presentPkgScreenshotCodes.add(screenshot.getCode());
+                } else {
                     row[CSV_COLUMN_ACTION] = Action.ADDED.name();
-                } catch (IOException ioe) {
-                    throw new UncheckedIOException(ioe);
-                } catch (BadPkgScreenshotException e) {
-                    row[CSV_COLUMN_ACTION] = Action.INVALID.name();
-                    row[CSV_COLUMN_MESSAGE] = e.getMessage();
+                    batch.addedPkgScreenshotCodes.add(screenshot.getCode());
                 }
-
-                context.commitChanges();
+            } catch (BadPkgScreenshotException e) {
+                row[CSV_COLUMN_ACTION] = Action.INVALID.name();
+                row[CSV_COLUMN_MESSAGE] = e.getMessage();
             }
         }
 
-        printer.printRecord(Arrays.stream(row));
+        batch.rows.add(row);
     }
 
-
-    private HashCode generateHashCode(String pkgScreenshotCode) {
-        ObjectContext context = serverRuntime.newContext();
-        PkgScreenshot pkgScreenshot = PkgScreenshot.getByCode(context, pkgScreenshotCode);
-        PkgScreenshotImage pkgScreenshotImage = pkgScreenshot.getPkgScreenshotImage();
-        return HASH_FUNCTION.hashBytes(pkgScreenshotImage.getData());
-    }
-
-
     /**
-     * <p>This class captures the details of the entry as well as a couple of elements that are parsed
-     * from the path of the archive entry.</p>
+     * <p>If the screenshots from the archive are to replace those already persisted then the old
+     * screenshots that did not appear in the archive are deleted.  The changes for the package are
+     * then committed and reported.</p>
      */
 
-    private static class ArchiveEntryWithPkgNameAndOrdering {
-
-        private final ArchiveInputStream<TarArchiveEntry> archiveInputStream;
-
-        private final ArchiveEntry archiveEntry;
-
-        private final String pkgName;
-
-        private final int order;
-
-        ArchiveEntryWithPkgNameAndOrdering(
-                ArchiveInputStream<TarArchiveEntry> archiveInputStream,
-                ArchiveEntry archiveEntry,
-                String pkgName,
-                int order) {
-            this.archiveInputStream = archiveInputStream;
-            this.archiveEntry = archiveEntry;
-            this.pkgName = pkgName;
-            this.order = order;
-        }
-
-        ArchiveInputStream<TarArchiveEntry> getArchiveInputStream() {
-            return archiveInputStream;
-        }
-
-        ArchiveEntry getArchiveEntry() {
-            return archiveEntry;
-        }
-
-        public String getPkgName() {
-            return pkgName;
-        }
-
-        public int getOrder() {
-            return order;
-        }
-    }
-
-
-    /**
-     * <p>This class clumps together data related to a package's screenshots from both what is
-     * presently available as well as what is available from the tar-ball.</p>
-     */
-
-    private class ScreenshotImportMetadatas {
-
-        private final List<ExistingScreenshotMetadata> existingScreenshots = new ArrayList<>();
-
-        private final List<FromArchiveScreenshotMetadata> fromArchiveScreenshots = new ArrayList<>();
-
-        private boolean notFound = false;
-
-        Collection<ExistingScreenshotMetadata> getExistingScreenshots() {
-            return existingScreenshots;
-        }
-
-        Collection<FromArchiveScreenshotMetadata> getFromArchiveScreenshots() {
-            return fromArchiveScreenshots;
-        }
-
-        public void add(ExistingScreenshotMetadata value) {
-            existingScreenshots.add(value);
-        }
-
-        public void add(FromArchiveScreenshotMetadata value) {
-            fromArchiveScreenshots.add(value);
-        }
-
-        void setNotFound() {
-            notFound = true;
+    private void finishBatchAndReport(
+            CSVPrinter printer,
+            Set<String> addedPkgScreenshotCodes,
+            PkgBatch batch) throws IOException {
+        if (null == batch) {
+            return;
         }
 
-        boolean isNotFound() {
-            return notFound;
-        }
-    }
-
-    /**
-     * <p>This model object collects data about each relevant screenshot that is persisted
-     * in the database.</p>
-     */
-
-    private class ExistingScreenshotMetadata {
-
-        private final int order;
-
-        private final long length;
+        List<String[]> removedRows = new ArrayList<>();
 
-        private final String code;
+        if (batch.deleteAbsentScreenshots && null != batch.pkg) {
+            UserPkgSupplementModificationAgent agent = new UserPkgSupplementModificationAgent(batch.user);
 
-        private HashCode dataHash = null;
+            for (PkgScreenshot pkgScreenshot : List.copyOf(batch.pkg.getPkgSupplement().getPkgScreenshots())) {
+                String code = pkgScreenshot.getCode();
 
-        ExistingScreenshotMetadata(int order, long length, String code) {
-            this.order = order;
-            this.length = length;
-            this.code = code;
+                if (batch.existingPkgScreenshotCodes.contains(code)
+                        && !batch.presentPkgScreenshotCodes.contains(code)) {
+                    removedRows.add(new String[]{
+                            "",
+                            pkgScreenshot.getPkgSupplement().getBasePkgName(),
+                            Action.REMOVED.name(),
+                            "",
+                            code
+                    });
+                    pkgScreenshotService.deleteScreenshot(batch.context, agent, pkgScreenshot);
+                }
+            }
         }
 
-        public int getOrder() {
-            return order;
-        }
+        batch.context.commitChanges();
+        addedPkgScreenshotCodes.addAll(batch.addedPkgScreenshotCodes);
 
-        public long getLength() {
-            return length;
+        for (String[] row : removedRows) {
+            printer.printRecord(Arrays.stream(row));
         }
 
-        public String getCode() {
-            return code;
+        for (String[] row : batch.rows) {
+            printer.printRecord(Arrays.stream(row));
         }
 
-        HashCode getDataHash() {
-            if (null == dataHash) {
-                dataHash = generateHashCode(code);
-            }
-
-            return dataHash;
+        if (!removedRows.isEmpty()) {
+            LOGGER.info("did delete {} persisted screenshots for [{}] that are absent from the archive",
+                    removedRows.size(), batch.pkgName);
         }
     }
 
     /**
-     * <p>This model object collects data about each screenshot from the archive.</p>
+     * <p>This class holds the state of importing the screenshots for one package.  Only the
+     * screenshot codes and the report rows are retained; not the image data.</p>
      */
 
-    private static class FromArchiveScreenshotMetadata {
+    private static class PkgBatch {
 
-        private final int order;
+        private final String pkgName;
 
-        private int derivedOrder;
+        private final ObjectContext context;
 
-        private final long length;
+        private final User user;
 
-        private final HashCode dataHash;
+        private final Pkg pkg;
 
-        private final String path;
+        private final Set<String> existingPkgScreenshotCodes;
 
-        FromArchiveScreenshotMetadata(int order, long length, HashCode dataHash, String path) {
-            this.order = order;
-            this.length = length;
-            this.dataHash = dataHash;
-            this.path = path;
-        }
+        private final int derivedOrderBase;
 
-        public int getOrder() {
-            return order;
-        }
+        private final boolean deleteAbsentScreenshots;
 
-        public long getLength() {
-            return length;
-        }
+        private final Set<String> presentPkgScreenshotCodes = new HashSet<>();
 
-        HashCode getDataHash() {
-            return dataHash;
-        }
+        private final Set<String> addedPkgScreenshotCodes = new HashSet<>();
 
-        public String getPath() {
-            return path;
-        }
+        private final List<String[]> rows = new ArrayList<>();
 
-        int getDerivedOrder() {
-            return derivedOrder;
+        PkgBatch(
+                String pkgName,
+                ObjectContext context,
+                User user,
+                Pkg pkg,
+                Set<String> existingPkgScreenshotCodes,
+                int derivedOrderBase,
+                boolean deleteAbsentScreenshots) {
+            this.pkgName = pkgName;
+            this.context = context;
+            this.user = user;
+            this.pkg = pkg;
+            this.existingPkgScreenshotCodes = existingPkgScreenshotCodes;
+            this.derivedOrderBase = derivedOrderBase;
+            this.deleteAbsentScreenshots = deleteAbsentScreenshots;
         }
 
-        void setDerivedOrder(int derivedOrder) {
-            this.derivedOrder = derivedOrder;
-        }
     }
 
 }
@@ -1,32 +1,65 @@
 /*
- * Copyright 2018-2025, Andrew Lindesay
+ * Copyright 2018-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
 package org.haiku.haikudepotserver.pkg.job;
 
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Striped;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
 import org.apache.cayenne.ObjectContext;
 import org.apache.cayenne.configuration.server.ServerRuntime;
+import org.apache.cayenne.exp.Expression;
+import org.apache.cayenne.query.ObjectSelect;
 import org.haiku.haikudepotserver.dataobjects.PkgScreenshot;
+import org.haiku.haikudepotserver.graphics.bitmap.PngOptimizationService;
 import org.haiku.haikudepotserver.job.AbstractJobRunner;
 import org.haiku.haikudepotserver.job.model.JobRunnerException;
 import org.haiku.haikudepotserver.job.model.JobService;
+import org.haiku.haikudepotserver.job.model.JobSnapshot;
+import org.haiku.haikudepotserver.metrics.MetricsConstants;
 import org.haiku.haikudepotserver.pkg.model.BadPkgScreenshotException;
 import org.haiku.haikudepotserver.pkg.model.PkgScreenshotOptimizationJobSpecification;
 import org.haiku.haikudepotserver.pkg.model.PkgScreenshotService;
+import org.haiku.haikudepotserver.pkg.model.PkgScreenshotThumbnailJobSpecification;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
 
 /**
  * <p>This job runner is able to optimize the screenshot images by using the PNG optimizer.  It is triggered
- * from the &quot;PkgScreenshotController&quot; so that the HTTP
- * import of the image can happen quickly, but the optimization can take its time in the background.</p>
+ * from the &quot;PkgScreenshotController&quot; and from the {@link PkgScreenshotImportArchiveJobRunner} so
+ * that the import of the image can happen quickly, but the optimization can take its time in the background.
+ * It is also triggered by the daily maintenance without any screenshot codes in which case all of
+ * the screenshots that have not yet been optimized are processed.</p>
+ *
+ * <p>A number of screenshots are optimized at the same time; each one is loaded, sent to the optimizer,
+ * compared with the original and then written back in its own transaction. Once written back, the
+ * screenshot is marked with the time it was optimized so that if the job is stopped part way through, a
+ * later job will only process those screenshots which were not reached. To optimize all of the
+ * screenshots again, a job is run with a cutoff time and then those marked before the cutoff are
+ * processed. Screenshots that are requested by their codes are always processed.</p>
+ *
+ * <p>Optimizing a screenshot changes its data and so the thumbnails are created only after the
+ * optimization has been done. If there is no PNG optimizer configured then nothing is optimized
+ * but the thumbnails of any requested screenshots are still created.</p>
  */
 
 @Component
@@ -34,14 +67,36 @@ public class PkgScreenshotOptimizationJobRunner extends AbstractJobRunner<PkgScr
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PkgScreenshotOptimizationJobRunner.class);
 
+    private final static String RESULT_OPTIMIZED = "optimized";
+    private final static String RESULT_UNCHANGED = "unchanged";
+    private final static String RESULT_FAILURE = "failure";
+
     private final ServerRuntime serverRuntime;
     private final PkgScreenshotService screenshotService;
+    private final PngOptimizationService pngOptimizationService;
+    private final MeterRegistry meterRegistry;
+    private final int parallelism;
+
+    /**
+     * <p>Screenshots may share the same image data.  Two screenshots with the same data should not be
+     * optimized at the same time because both would try to store the same optimized data.</p>
+     */
+
+    private final Striped<Lock> hashLocks;
 
     public PkgScreenshotOptimizationJobRunner(
             ServerRuntime serverRuntime,
-            PkgScreenshotService screenshotService) {
+            PkgScreenshotService screenshotService,
+            PngOptimizationService pngOptimizationService,
+            MeterRegistry meterRegistry,
+            @Value("${hds.pkg-screenshot.optimization.parallelism:4}") int parallelism) {
+        Preconditions.checkArgument(parallelism > 0, "the parallelism must be greater than zero");
         this.serverRuntime = Preconditions.checkNotNull(serverRuntime);
         this.screenshotService = Preconditions.checkNotNull(screenshotService);
+        this.pngOptimizationService = Preconditions.checkNotNull(pngOptimizationService);
+        this.meterRegistry = Preconditions.checkNotNull(meterRegistry);
+        this.parallelism = parallelism;
+        this.hashLocks = Striped.lock(parallelism * 4);
     }
 
     @Override
@@ -57,32 +112,207 @@ public class PkgScreenshotOptimizationJobRunner extends AbstractJobRunner<PkgScr
         Preconditions.checkArgument(null!= jobService);
         Preconditions.checkArgument(null!=specification);
 
+        if (pngOptimizationService.identityOptimization()) {
+            LOGGER.info("no png optimizer is configured; will not optimize screenshot images");
+            submitThumbnails(jobService, specification, Set.of());
+            return;
+        }
+
         long startMs = System.currentTimeMillis();
+        List<String> pkgScreenshotCodes = getPkgScreenshotCodesToOptimize(specification);
 
-        LOGGER.info("will optimize {} screenshot images", specification.getPkgScreenshotCodes().size());
+        LOGGER.info("will optimize {} screenshot images; {} at a time", pkgScreenshotCodes.size(), parallelism);
 
-        for (String pkgScreenshotCode : specification.getPkgScreenshotCodes()) {
+        Semaphore permits = new Semaphore(parallelism);
+        AtomicInteger completedCount = new AtomicInteger(0);
+        AtomicInteger progressPercent = new AtomicInteger(0);
+        AtomicLong bytesSaved = new AtomicLong(0);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Set<String> optimizedPkgScreenshotCodes = ConcurrentHashMap.newKeySet();
 
-            ObjectContext context = serverRuntime.newContext();
-            Optional<PkgScreenshot> pkgScreenshotOptional = PkgScreenshot.tryGetByCode(context, pkgScreenshotCode);
+        try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String pkgScreenshotCode : pkgScreenshotCodes) {
 
-            if (pkgScreenshotOptional.isPresent()) {
-                try {
-                    if (screenshotService.optimizeScreenshot(context, pkgScreenshotOptional.get())) {
-                        context.commitChanges();
-                    }
-                } catch (IOException ioe) {
-                    throw new UncheckedIOException(ioe);
-                } catch (BadPkgScreenshotException bpse) {
-                    throw new JobRunnerException("unable to process a screenshot image", bpse);
+                // a problem with the optimizer is likely to affect all of the screenshots so stop
+                // taking on more work; the screenshots not reached will be picked up again later.
+
+                if (null != failure.get()) {
+                    break;
                 }
+
+                permits.acquire();
+
+                executorService.execute(() -> {
+                    try {
+                        long saved = optimize(specification, pkgScreenshotCode);
+
+                        if (saved > 0) {
+                            bytesSaved.addAndGet(saved);
+                            optimizedPkgScreenshotCodes.add(pkgScreenshotCode);
+                        }
+                    } catch (Throwable th) {
+                        LOGGER.error("unable to optimize the screenshot [{}]", pkgScreenshotCode, th);
+                        failure.compareAndSet(null, th);
+                        incrementOptimizationsCounter(RESULT_FAILURE);
+                    } finally {
+                        permits.release();
+                        updateProgress(
+                                jobService,
+                                specification.getGuid(),
+                                progressPercent,
+                                completedCount.incrementAndGet(),
+                                pkgScreenshotCodes.size());
+                    }
+                });
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new JobRunnerException("interrupted while optimizing screenshot images", ie);
+        }
+
+        long durationMs = Math.max(1L, System.currentTimeMillis() - startMs);
+
+        LOGGER.info(
+                "did optimize {} of {} screenshot images in {}ms saving {} bytes ({} bytes per minute)",
+                optimizedPkgScreenshotCodes.size(),
+                completedCount.get(),
+                durationMs,
+                bytesSaved.get(),
+                (bytesSaved.get() * 60_000L) / durationMs);
+
+        submitThumbnails(jobService, specification, optimizedPkgScreenshotCodes);
+
+        if (null != failure.get()) {
+            throw new JobRunnerException("unable to optimize screenshot images", failure.get());
+        }
+    }
+
+    /**
+     * <p>Where specific screenshots were requested, they are new and need their thumbnails created
+     * whether they changed or not. Otherwise only those which did change need new thumbnails.</p>
+     */
+
+    private static void submitThumbnails(
+            JobService jobService,
+            PkgScreenshotOptimizationJobSpecification specification,
+            Set<String> optimizedPkgScreenshotCodes) {
+        Set<String> thumbnailPkgScreenshotCodes = null != specification.getPkgScreenshotCodes()
+                ? specification.getPkgScreenshotCodes()
+                : optimizedPkgScreenshotCodes;
+
+        if (!thumbnailPkgScreenshotCodes.isEmpty()) {
+            jobService.submit(
+                    new PkgScreenshotThumbnailJobSpecification(Set.copyOf(thumbnailPkgScreenshotCodes)),
+                    JobSnapshot.COALESCE_STATUSES_QUEUED);
+        }
+    }
+
+    private List<String> getPkgScreenshotCodesToOptimize(PkgScreenshotOptimizationJobSpecification specification) {
+        if (null != specification.getPkgScreenshotCodes()) {
+            return specification.getPkgScreenshotCodes().stream().sorted().toList();
+        }
+
+        Expression where = PkgScreenshot.OPTIMIZATION_TIMESTAMP.isNull();
+
+        if (null != specification.getOptimizedBeforeMillis()) {
+            where = where.orExp(PkgScreenshot.OPTIMIZATION_TIMESTAMP.lt(
+                    new Timestamp(specification.getOptimizedBeforeMillis())));
+        }
+
+        return ObjectSelect.columnQuery(PkgScreenshot.class, PkgScreenshot.CODE)
+                .where(where)
+                .orderBy(PkgScreenshot.CODE.asc())
+                .select(serverRuntime.newContext());
+    }
+
+    /**
+     * <p>A screenshot requested by its code is always optimized. Otherwise, the screenshot may
+     * have been optimized by another job since the codes were gathered.</p>
+     */
+
+    private static boolean isDue(PkgScreenshotOptimizationJobSpecification specification, PkgScreenshot pkgScreenshot) {
+        if (null != specification.getPkgScreenshotCodes() || null == pkgScreenshot.getOptimizationTimestamp()) {
+            return true;
+        }
+
+        return null != specification.getOptimizedBeforeMillis()
+                && pkgScreenshot.getOptimizationTimestamp().getTime() < specification.getOptimizedBeforeMillis();
+    }
+
+    /**
+     * <p>Optimizes the screenshot and writes the result back in its own transaction.</p>
+     *
+     * @return the number of bytes that were saved by the optimization.
+     */
+
+    private long optimize(
+            PkgScreenshotOptimizationJobSpecification specification,
+            String pkgScreenshotCode) throws IOException {
+        ObjectContext context = serverRuntime.newContext();
+        Optional<PkgScreenshot> pkgScreenshotOptional = PkgScreenshot.tryGetByCode(context, pkgScreenshotCode);
+
+        // the screenshot may have been deleted since the job was submitted.
+
+        if (pkgScreenshotOptional.isEmpty()) {
+            return 0;
+        }
+
+        PkgScreenshot pkgScreenshot = pkgScreenshotOptional.get();
+
+        if (!isDue(specification, pkgScreenshot)) {
+            LOGGER.debug("screenshot [{}] is already optimized", pkgScreenshotCode);
+            return 0;
+        }
+
+        Lock lock = hashLocks.get(pkgScreenshot.getHashSha256());
+        lock.lock();
+
+        try {
+            int originalLength = pkgScreenshot.getLength();
+            boolean changed = screenshotService.optimizeScreenshot(context, pkgScreenshot);
+            context.commitChanges();
+
+            if (!changed) {
+                incrementOptimizationsCounter(RESULT_UNCHANGED);
+                return 0;
             }
 
-            LOGGER.info(
-                    "did optimize {} screenshot images in {}ms",
-                    specification.getPkgScreenshotCodes().size(),
-                    System.currentTimeMillis() - startMs);
+            long saved = originalLength - pkgScreenshot.getLength();
+            incrementOptimizationsCounter(RESULT_OPTIMIZED);
+            meterRegistry.counter(MetricsConstants.COUNTER_NAME_PKG_SCREENSHOT_OPTIMIZATION_BYTES_SAVED).increment(saved);
+            return saved;
+        } catch (BadPkgScreenshotException bpse) {
+            // this screenshot is not able to be optimized but the others may still be.
+            LOGGER.warn("unable to optimize the screenshot [{}]", pkgScreenshotCode, bpse);
+            incrementOptimizationsCounter(RESULT_FAILURE);
+            return 0;
+        } finally {
+            lock.unlock();
         }
+    }
 
+    private void incrementOptimizationsCounter(String result) {
+        meterRegistry.counter(
+                        MetricsConstants.COUNTER_NAME_PKG_SCREENSHOT_OPTIMIZATIONS,
+                        Set.of(Tag.of(MetricsConstants.TAG_NAME_RESULT, result)))
+                .increment();
     }
+
+    /**
+     * <p>The tasks complete out of order so the progress is only reported when it has moved forward.</p>
+     */
+
+    private static void updateProgress(
+            JobService jobService,
+            String guid,
+            AtomicInteger progressPercent,
+            int completedCount,
+            int totalCount) {
+        int percent = (100 * completedCount) / totalCount;
+
+        if (progressPercent.getAndAccumulate(percent, Math::max) < percent) {
+            jobService.setJobProgressPercent(guid, percent);
+        }
+    }
+
 }
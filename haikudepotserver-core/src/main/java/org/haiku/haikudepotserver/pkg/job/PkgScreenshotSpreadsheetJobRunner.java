@@ -101,7 +101,7 @@ public class PkgScreenshotSpreadsheetJobRunner extends AbstractJobRunner<PkgScre
 
             long count = pkgService.eachPkg(
                     context,
-                    false,
+                    true, // include development packages.
                     pkg -> {
                         PkgSupplement pkgSupplement = pkg.getPkgSupplement();
 
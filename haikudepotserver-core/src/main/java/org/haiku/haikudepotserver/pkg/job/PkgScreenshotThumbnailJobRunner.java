@@ -0,0 +1,87 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.pkg.job;
+
+import com.google.common.base.Preconditions;
+import org.apache.cayenne.ObjectContext;
+import org.apache.cayenne.configuration.server.ServerRuntime;
+import org.haiku.haikudepotserver.dataobjects.PkgScreenshot;
+import org.haiku.haikudepotserver.job.AbstractJobRunner;
+import org.haiku.haikudepotserver.job.model.JobService;
+import org.haiku.haikudepotserver.pkg.PkgScreenshotThumbnailStore;
+import org.haiku.haikudepotserver.pkg.model.PkgScreenshotService;
+import org.haiku.haikudepotserver.pkg.model.PkgScreenshotThumbnailJobSpecification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * <p>This job runner creates thumbnails of screenshots at the standard sizes that clients most
+ * often request so that the first request for a new screenshot does not need to wait for the
+ * thumbnail to be created. Because the jobs run one after the other, the load on the
+ * graphics server is spread out rather than arriving all at once when a new package
+ * becomes popular.</p>
+ */
+
+@Component
+public class PkgScreenshotThumbnailJobRunner extends AbstractJobRunner<PkgScreenshotThumbnailJobSpecification> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PkgScreenshotThumbnailJobRunner.class);
+
+    private final ServerRuntime serverRuntime;
+    private final PkgScreenshotService screenshotService;
+    private final PkgScreenshotThumbnailStore pkgScreenshotThumbnailStore;
+
+    public PkgScreenshotThumbnailJobRunner(
+            ServerRuntime serverRuntime,
+            PkgScreenshotService screenshotService,
+            PkgScreenshotThumbnailStore pkgScreenshotThumbnailStore) {
+        this.serverRuntime = Preconditions.checkNotNull(serverRuntime);
+        this.screenshotService = Preconditions.checkNotNull(screenshotService);
+        this.pkgScreenshotThumbnailStore = Preconditions.checkNotNull(pkgScreenshotThumbnailStore);
+    }
+
+    @Override
+    public Class<PkgScreenshotThumbnailJobSpecification> getSupportedSpecificationClass() {
+        return PkgScreenshotThumbnailJobSpecification.class;
+    }
+
+    @Override
+    public void run(
+            JobService jobService,
+            PkgScreenshotThumbnailJobSpecification specification) throws IOException {
+
+        Preconditions.checkArgument(null != jobService);
+        Preconditions.checkArgument(null != specification);
+
+        long startMs = System.currentTimeMillis();
+
+        LOGGER.info("will create thumbnails for {} screenshot images", specification.getPkgScreenshotCodes().size());
+
+        for (String pkgScreenshotCode : specification.getPkgScreenshotCodes()) {
+            ObjectContext context = serverRuntime.newContext();
+            Optional<PkgScreenshot> pkgScreenshotOptional = PkgScreenshot.tryGetByCode(context, pkgScreenshotCode);
+
+            // the screenshot may have been deleted since the job was submitted.
+
+            if (pkgScreenshotOptional.isPresent()) {
+                for (PkgScreenshotThumbnailStore.Size size : pkgScreenshotThumbnailStore.getStandardSizes()) {
+                    screenshotService.getPkgScreenshotThumbnail(
+                            context, pkgScreenshotOptional.get(), size.width(), size.height());
+                }
+            }
+        }
+
+        LOGGER.info(
+                "did create thumbnails for {} screenshot images in {}ms",
+                specification.getPkgScreenshotCodes().size(),
+                System.currentTimeMillis() - startMs);
+    }
+
+}
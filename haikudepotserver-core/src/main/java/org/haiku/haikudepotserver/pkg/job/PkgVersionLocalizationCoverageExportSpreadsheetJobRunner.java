@@ -6,40 +6,30 @@
 package org.haiku.haikudepotserver.pkg.job;
 
 import com.google.common.base.Preconditions;
-import com.google.common.net.MediaType;
 import org.apache.cayenne.ObjectContext;
 import org.apache.cayenne.configuration.server.ServerRuntime;
 import org.apache.cayenne.query.ObjectSelect;
 import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.csv.QuoteMode;
 import org.haiku.haikudepotserver.dataobjects.Architecture;
 import org.haiku.haikudepotserver.dataobjects.NaturalLanguage;
+import org.haiku.haikudepotserver.dataobjects.Pkg;
+import org.haiku.haikudepotserver.dataobjects.PkgVersion;
 import org.haiku.haikudepotserver.dataobjects.PkgVersionLocalization;
 import org.haiku.haikudepotserver.dataobjects.Repository;
-import org.haiku.haikudepotserver.job.AbstractJobRunner;
-import org.haiku.haikudepotserver.job.model.JobDataEncoding;
-import org.haiku.haikudepotserver.job.model.JobDataWithByteSink;
-import org.haiku.haikudepotserver.job.model.JobRunnerException;
-import org.haiku.haikudepotserver.job.model.JobService;
+import org.haiku.haikudepotserver.dataobjects.RepositorySource;
 import org.haiku.haikudepotserver.naturallanguage.model.NaturalLanguageCoordinates;
 import org.haiku.haikudepotserver.naturallanguage.model.NaturalLanguageService;
 import org.haiku.haikudepotserver.pkg.model.PkgService;
 import org.haiku.haikudepotserver.pkg.model.PkgVersionLocalizationCoverageExportSpreadsheetJobSpecification;
-import org.haiku.haikudepotserver.repository.model.RepositoryService;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.io.IOException;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.UncheckedIOException;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -49,24 +39,20 @@ import java.util.stream.Collectors;
 
 @Component
 public class PkgVersionLocalizationCoverageExportSpreadsheetJobRunner
-extends AbstractJobRunner<PkgVersionLocalizationCoverageExportSpreadsheetJobSpecification> {
+extends AbstractPkgExportSpreadsheetJobRunner<PkgVersionLocalizationCoverageExportSpreadsheetJobSpecification> {
 
-    private final static Logger LOGGER = LoggerFactory.getLogger(PkgVersionLocalizationCoverageExportSpreadsheetJobRunner.class);
-
-    private final ServerRuntime serverRuntime;
-    private final PkgService pkgService;
-    private final RepositoryService repositoryService;
     private final NaturalLanguageService naturalLanguageService;
+    private final String defaultArchitectureCode;
 
     public PkgVersionLocalizationCoverageExportSpreadsheetJobRunner(
             ServerRuntime serverRuntime,
             PkgService pkgService,
-            RepositoryService repositoryService,
-            NaturalLanguageService naturalLanguageService) {
-        this.serverRuntime = Preconditions.checkNotNull(serverRuntime);
-        this.pkgService = Preconditions.checkNotNull(pkgService);
-        this.repositoryService = Preconditions.checkNotNull(repositoryService);
+            NaturalLanguageService naturalLanguageService,
+            @Value("${hds.architecture.default.code}") String defaultArchitectureCode,
+            @Value("${hds.pkg-export.page-size:250}") int pageSize) {
+        super(serverRuntime, pkgService, pageSize);
         this.naturalLanguageService = Preconditions.checkNotNull(naturalLanguageService);
+        this.defaultArchitectureCode = Preconditions.checkNotNull(defaultArchitectureCode);
     }
 
     @Override
@@ -96,107 +82,110 @@ extends AbstractJobRunner<PkgVersionLocalizationCoverageExportSpreadsheetJobSpec
     }
 
     @Override
-    public void run(
-            final JobService jobService,
-            final PkgVersionLocalizationCoverageExportSpreadsheetJobSpecification specification)
-            throws IOException, JobRunnerException {
-
-        Preconditions.checkArgument(null != jobService);
-        Preconditions.checkArgument(null != specification);
-
-        final ObjectContext context = serverRuntime.newContext();
+    CSVFormat.Builder createFormatBuilder() {
+        return super.createFormatBuilder().setQuoteMode(QuoteMode.ALL);
+    }
 
-        final List<NaturalLanguage> naturalLanguages = getNaturalLanguages(context);
+    @Override
+    PkgExport createExport(ObjectContext context, PkgVersionLocalizationCoverageExportSpreadsheetJobSpecification specification) {
+        final List<NaturalLanguageCoordinates> naturalLanguages = getNaturalLanguages(context)
+                .stream()
+                .map(NaturalLanguage::toCoordinates)
+                .toList();
 
         if(naturalLanguages.isEmpty()) {
             throw new RuntimeException("there appear to be no natural languages in the system");
         }
 
-        final List<Architecture> architectures = Architecture.getAllExceptByCode(
+        final List<String> architectureCodes = Architecture.getAllExceptByCode(
                 context,
-                List.of(Architecture.CODE_SOURCE, Architecture.CODE_ANY));
-
-        // this will register the outbound data against the job.
-        JobDataWithByteSink jobDataWithByteSink = jobService.storeGeneratedData(
-                specification.getGuid(),
-                "download",
-                MediaType.CSV_UTF_8.toString(),
-                JobDataEncoding.NONE);
-
-        CSVFormat format = CSVFormat.DEFAULT.builder()
-                .setHeader(deriveHeaders(naturalLanguages))
-                .setQuoteMode(QuoteMode.ALL)
-                .get();
-
-        try(
-                final OutputStream outputStream = jobDataWithByteSink.getByteSink().openBufferedStream();
-                final OutputStreamWriter outputStreamWriter = new OutputStreamWriter(outputStream);
-                final CSVPrinter printer = new CSVPrinter(outputStreamWriter, format)
-        ) {
-
-            final String[] cells = new String[4 + naturalLanguages.size()];
-            long startMs = System.currentTimeMillis();
-
-            // stream out the packages.
-
-            final long expectedTotal = pkgService.totalPkg(context, false);
-            final AtomicLong counter = new AtomicLong(0);
-
-            LOGGER.info("will produce package version localization report for {} packages", expectedTotal);
-
-            long count = pkgService.eachPkg(
-                    context,
-                    false, // allow source only.
-                    pkg -> {
-
-                        for(Repository repository : repositoryService.getRepositoriesForPkg(context, pkg)) {
-
-                            architectures.stream()
-                                    .map(repository::tryGetRepositorySourceForArchitecture)
-                                    .filter(Optional::isPresent)
-                                    .map(Optional::get)
-                                    .map(rs -> pkgService.getLatestPkgVersionForPkg(context, pkg, rs))
-                                    .filter(Optional::isPresent)
-                                    .map(Optional::get)
-                                    .forEach(pv -> {
-                                        int c = 0;
-
-                                        cells[c++] = pkg.getName();
-                                        cells[c++] = pv.getRepositorySource().getRepository().getCode();
-                                        cells[c++] = pv.getArchitecture().getCode();
-                                        cells[c++] = pv.toVersionCoordinates().toString();
-
-                                        for (NaturalLanguage naturalLanguage : naturalLanguages) {
-                                            Optional<PkgVersionLocalization> pkgVersionLocalizationOptional = pv.getPkgVersionLocalization(naturalLanguage);
-                                            cells[c++] = pkgVersionLocalizationOptional.isPresent() ? MARKER : "";
-                                        }
-
-                                        try {
-                                            printer.printRecord(Arrays.stream(cells));
-                                        } catch (IOException ioe) {
-                                            throw new UncheckedIOException("cannot write row", ioe);
-                                        }
-                                    });
-                        }
-
-                        jobService.setJobProgressPercent(
-                                specification.getGuid(),
-                                (int) ((100 * counter.incrementAndGet()) / expectedTotal));
-
-                        return true; // keep going!
-                    }
-            );
+                List.of(Architecture.CODE_SOURCE, Architecture.CODE_ANY))
+                .stream()
+                .map(Architecture::getCode)
+                .toList();
 
-            LOGGER.info(
-                    "did produce pkg version localization coverage spreadsheet report for {} packages in {}ms",
-                    count,
-                    System.currentTimeMillis() - startMs);
+        return new PkgExport() {
 
-        }
+            @Override
+            public String[] getHeaders() {
+                return deriveHeaders(naturalLanguages);
+            }
 
+            @Override
+            public List<List<String>> createRows(ObjectContext pageContext, List<String> pkgNames) {
+                return createRowsForPkgs(pageContext, pkgNames, architectureCodes, naturalLanguages);
+            }
+        };
     }
 
-    private String[] deriveHeaders(List<NaturalLanguage> naturalLanguages) {
+    /**
+     * <p>Produces a row for the latest version of each package in each repository source. The repository sources
+     * are those of the architectures supplied. A repository source may have latest versions for more than one
+     * architecture, for example "any" as well as the repository source's own architecture, in which case the
+     * default architecture is preferred and then the others in order of their codes.</p>
+     */
+
+    private List<List<String>> createRowsForPkgs(
+            ObjectContext context,
+            List<String> pkgNames,
+            List<String> architectureCodes,
+            List<NaturalLanguageCoordinates> naturalLanguages) {
+
+        List<PkgVersion> pkgVersions = ObjectSelect.query(PkgVersion.class)
+                .where(PkgVersion.PKG.dot(Pkg.NAME).in(pkgNames))
+                .and(PkgVersion.ACTIVE.isTrue())
+                .and(PkgVersion.IS_LATEST.isTrue())
+                .and(PkgVersion.ARCHITECTURE.dot(Architecture.CODE).ne(Architecture.CODE_SOURCE))
+                .and(PkgVersion.REPOSITORY_SOURCE.dot(RepositorySource.ACTIVE).isTrue())
+                .and(PkgVersion.REPOSITORY_SOURCE.dot(RepositorySource.REPOSITORY).dot(Repository.ACTIVE).isTrue())
+                .and(PkgVersion.REPOSITORY_SOURCE.dot(RepositorySource.ARCHITECTURE).dot(Architecture.CODE).in(architectureCodes))
+                .prefetch(PkgVersion.PKG.joint())
+                .prefetch(PkgVersion.ARCHITECTURE.joint())
+                .prefetch(PkgVersion.REPOSITORY_SOURCE.joint())
+                .prefetch(PkgVersion.REPOSITORY_SOURCE.dot(RepositorySource.REPOSITORY).joint())
+                .prefetch(PkgVersion.REPOSITORY_SOURCE.dot(RepositorySource.ARCHITECTURE).joint())
+                .prefetch(PkgVersion.PKG_VERSION_LOCALIZATIONS.disjoint())
+                .prefetch(PkgVersion.PKG_VERSION_LOCALIZATIONS.dot(PkgVersionLocalization.NATURAL_LANGUAGE).joint())
+                .select(context);
+
+        Comparator<PkgVersion> preferenceComparator = Comparator
+                .comparing((PkgVersion pv) -> !pv.getArchitecture().getCode().equals(defaultArchitectureCode))
+                .thenComparing(pv -> pv.getArchitecture().getCode());
+
+        Map<RowKey, PkgVersion> pkgVersionByRowKey = pkgVersions.stream()
+                .collect(Collectors.toMap(
+                        pv -> new RowKey(
+                                pkgNames.indexOf(pv.getPkg().getName()),
+                                pv.getRepositorySource().getRepository().getCode(),
+                                architectureCodes.indexOf(pv.getRepositorySource().getArchitecture().getCode())),
+                        pv -> pv,
+                        (pv1, pv2) -> preferenceComparator.compare(pv1, pv2) <= 0 ? pv1 : pv2));
+
+        return pkgVersionByRowKey.entrySet()
+                .stream()
+                .sorted(Map.Entry.comparingByKey(Comparator
+                        .comparingInt(RowKey::pkgNameIndex)
+                        .thenComparing(RowKey::repositoryCode)
+                        .thenComparingInt(RowKey::architectureIndex)))
+                .map(Map.Entry::getValue)
+                .map(pv -> {
+                    List<String> cells = new ArrayList<>();
+
+                    cells.add(pv.getPkg().getName());
+                    cells.add(pv.getRepositorySource().getRepository().getCode());
+                    cells.add(pv.getArchitecture().getCode());
+                    cells.add(pv.toVersionCoordinates().toString());
+
+                    for (NaturalLanguageCoordinates naturalLanguage : naturalLanguages) {
+                        cells.add(pv.getPkgVersionLocalization(naturalLanguage).isPresent() ? MARKER : "");
+                    }
+
+                    return cells;
+                })
+                .toList();
+    }
+
+    private String[] deriveHeaders(List<NaturalLanguageCoordinates> naturalLanguages) {
         String[] headers = new String[4 + naturalLanguages.size()];
         headers[0] = "pkg-name";
         headers[1] = "repository";
@@ -210,4 +199,7 @@ extends AbstractJobRunner<PkgVersionLocalizationCoverageExportSpreadsheetJobSpec
         return headers;
     }
 
+    private record RowKey(int pkgNameIndex, String repositoryCode, int architectureIndex) {
+    }
+
 }
@@ -0,0 +1,23 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.pkg.model;
+
+import org.haiku.haikudepotserver.job.model.AbstractJobSpecification;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Removes the stored image data which is no longer used by any icon or screenshot.</p>
+ */
+
+public class ImageBlobGarbageCollectionJobSpecification extends AbstractJobSpecification {
+
+    @Override
+    public Optional<Long> tryGetTimeToLiveMillis() {
+        return Optional.of(TimeUnit.SECONDS.toMillis(120)); // only stay around for a short while
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2015, Andrew Lindesay
+ * Copyright 2015-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
@@ -12,10 +12,27 @@ import java.util.Collections;
 import java.util.Objects;
 import java.util.Set;
 
+/**
+ * <p>Requests that the images of screenshots are optimized.  If screenshot codes are supplied
+ * then those screenshots are optimized even if they were optimized before. If no screenshot
+ * codes are supplied then all of the screenshots that have not yet been optimized will be
+ * processed; and also those that were last optimized before the
+ * {@link #getOptimizedBeforeMillis()} if it is supplied.</p>
+ */
+
 public class PkgScreenshotOptimizationJobSpecification extends AbstractJobSpecification {
 
     private Set<String> pkgScreenshotCodes;
 
+    /**
+     * <p>Screenshots that were last optimized before this time are optimized again. Because the
+     * time is fixed for the run, the screenshots optimized in the run are not optimized again if
+     * the run is stopped part way through and then started again with the same
+     * specification.</p>
+     */
+
+    private Long optimizedBeforeMillis;
+
     public PkgScreenshotOptimizationJobSpecification() {
     }
 
@@ -35,13 +52,22 @@ public class PkgScreenshotOptimizationJobSpecification extends AbstractJobSpecif
         this.pkgScreenshotCodes = pkgScreenshotCodes;
     }
 
+    public Long getOptimizedBeforeMillis() {
+        return optimizedBeforeMillis;
+    }
+
+    public void setOptimizedBeforeMillis(Long optimizedBeforeMillis) {
+        this.optimizedBeforeMillis = optimizedBeforeMillis;
+    }
+
     @Override
     public boolean isEquivalent(JobSpecification other) {
         if (super.isEquivalent(other)) {
             PkgScreenshotOptimizationJobSpecification spec = (PkgScreenshotOptimizationJobSpecification) other;
             return
                     Objects.equals(spec.getOwnerUserNickname(), getOwnerUserNickname()) &&
-                    Objects.equals(spec.getPkgScreenshotCodes(), getPkgScreenshotCodes());
+                    Objects.equals(spec.getPkgScreenshotCodes(), getPkgScreenshotCodes()) &&
+                    Objects.equals(spec.getOptimizedBeforeMillis(), getOptimizedBeforeMillis());
         }
 
         return false;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2018-2019, Andrew Lindesay
+ * Copyright 2018-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
@@ -17,6 +17,11 @@ import java.util.List;
 public interface PkgScreenshotService {
 
     /**
+     * <p>Runs the screenshot's image through the PNG optimizer and keeps the result if it is
+     * smaller.  Once the optimizer has considered the screenshot, it is marked as having been
+     * optimized so that it is not considered again; the caller should commit the context even
+     * if the image was not changed.</p>
+     *
      * @return true if the image was changed.
      */
 
@@ -34,6 +39,20 @@ public interface PkgScreenshotService {
             PkgScreenshot screenshot,
             int targetWidth,
             int targetHeight) throws IOException;
+
+    /**
+     * <p>Returns a thumbnail of the package's screenshot as PNG data.  The thumbnails are retained so that
+     * subsequent requests for the same screenshot at the same size do not need to thumbnail the screenshot
+     * again.  The thumbnail is keyed by the screenshot's hash so if the image data changes then a new
+     * thumbnail is created.</p>
+     */
+
+    byte[] getPkgScreenshotThumbnail(
+            ObjectContext context,
+            PkgScreenshot screenshot,
+            int targetWidth,
+            int targetHeight) throws IOException;
+
     /**
      * <p>This method will write the PNG data supplied in the input to the package as a screenshot.  Note that the icon
      * must comply with necessary characteristics.  If it is not compliant then an images of
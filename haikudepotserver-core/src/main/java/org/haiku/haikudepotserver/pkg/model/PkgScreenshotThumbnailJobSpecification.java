@@ -0,0 +1,50 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.pkg.model;
+
+import org.haiku.haikudepotserver.job.model.AbstractJobSpecification;
+import org.haiku.haikudepotserver.job.model.JobSpecification;
+
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * <p>Specifies that thumbnails of the screenshots should be created at the standard sizes so
+ * that they are ready before they are first requested.</p>
+ */
+
+public class PkgScreenshotThumbnailJobSpecification extends AbstractJobSpecification {
+
+    private Set<String> pkgScreenshotCodes;
+
+    public PkgScreenshotThumbnailJobSpecification() {
+    }
+
+    public PkgScreenshotThumbnailJobSpecification(Set<String> pkgScreenshotCodes) {
+        this.pkgScreenshotCodes = pkgScreenshotCodes;
+    }
+
+    public Set<String> getPkgScreenshotCodes() {
+        return pkgScreenshotCodes;
+    }
+
+    public void setPkgScreenshotCodes(Set<String> pkgScreenshotCodes) {
+        this.pkgScreenshotCodes = pkgScreenshotCodes;
+    }
+
+    @Override
+    public boolean isEquivalent(JobSpecification other) {
+        if (super.isEquivalent(other)) {
+            PkgScreenshotThumbnailJobSpecification spec = (PkgScreenshotThumbnailJobSpecification) other;
+            return
+                    Objects.equals(spec.getOwnerUserNickname(), getOwnerUserNickname()) &&
+                    Objects.equals(spec.getPkgScreenshotCodes(), getPkgScreenshotCodes());
+        }
+
+        return false;
+    }
+
+}
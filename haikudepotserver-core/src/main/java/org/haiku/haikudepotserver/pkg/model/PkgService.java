@@ -7,7 +7,6 @@ package org.haiku.haikudepotserver.pkg.model;
 
 import org.apache.cayenne.ObjectContext;
 import org.apache.cayenne.ObjectId;
-import org.apache.cayenne.configuration.server.ServerRuntime;
 import org.haiku.haikudepotserver.dataobjects.*;
 import org.haiku.haikudepotserver.support.StoppableConsumer;
 
@@ -98,23 +97,43 @@ public interface PkgService {
 
     /**
      * <p>This method will provide a total of the packages.</p>
+     * @param includeDevelopment when false, packages with names ending in <code>_devel</code>,
+     *                           <code>_source</code> or <code>_debuginfo</code> and packages that only have
+     *                           active versions for the source architecture are not counted.
      */
 
     long totalPkg(
             ObjectContext context,
-            boolean allowSourceOnly);
+            boolean includeDevelopment);
+
+    /**
+     * <p>Returns a page of the names of the packages in the system ordered by name. The next page is obtained by
+     * supplying the last name from the previous page as the <code>afterPkgName</code>.</p>
+     * @param includeDevelopment when false, packages with names ending in <code>_devel</code>,
+     *                           <code>_source</code> or <code>_debuginfo</code> and packages that only have
+     *                           active versions for the source architecture are not returned.
+     * @param afterPkgName only names after this one are returned; null to obtain the first page.
+     * @param limit the greatest number of names to return.
+     */
+
+    List<String> findPkgNames(
+            ObjectContext context,
+            boolean includeDevelopment,
+            String afterPkgName,
+            int limit);
 
     /**
      * <p>This will be called for each package in the system.</p>
      * @param c is the callback to invoke.
-     * @param allowSourceOnly when true implies that a package can be processed which only has versions that are for
-     *                        the source architecture.
+     * @param includeDevelopment when false, packages with names ending in <code>_devel</code>,
+     *                           <code>_source</code> or <code>_debuginfo</code> and packages that only have
+     *                           active versions for the source architecture are not processed.
      * @return the quantity of packages processed.
      */
 
     long eachPkg(
             ObjectContext context,
-            boolean allowSourceOnly,
+            boolean includeDevelopment,
             StoppableConsumer<Pkg> c);
 
     /**
@@ -204,12 +223,11 @@ public interface PkgService {
             List<PkgCategory> pkgCategories);
 
     /**
-     * <p>This method will increment the view counter on a package version.  If it encounters an optimistic
-     * locking problem then it will pause and it will try again in a moment.  It will attempt this a few
-     * times and then fail with a runtime exception.</p>
+     * <p>This method will count a view of a package version.  The view is not written to the database
+     * straight away so the view counter of the package version will not change immediately.</p>
      */
 
-    void incrementViewCounter(ServerRuntime serverRuntime, ObjectId pkgVersionOid);
+    void incrementViewCounter(ObjectId pkgVersionOid);
 
     /**
      * <p>This method will return the highest modify timestamp on the {@link PkgVersion} in the database.
@@ -218,6 +236,15 @@ public interface PkgService {
 
     Date getLastModifyTimestampSecondAccuracy(ObjectContext context, String repositorySourceCode);
 
+    /**
+     * <p>This method will return the highest modify timestamp for the {@link Pkg}, its
+     * {@link PkgSupplement} and any of its {@link PkgVersion}s. Changes to the supplement
+     * such as screenshots, icons and localizations are reflected in the supplement's
+     * modify timestamp. If the package does not exist then an empty value is returned.</p>
+     */
+
+    Optional<Date> tryGetPkgLastModifyTimestampSecondAccuracy(ObjectContext context, String pkgName);
+
     /**
      * <p>This is a URL that is nice to look at for the package.</p>
      */
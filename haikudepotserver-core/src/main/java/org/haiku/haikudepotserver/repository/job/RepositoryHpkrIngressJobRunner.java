@@ -18,6 +18,7 @@ import org.haiku.haikudepotserver.dataobjects.Repository;
 import org.haiku.haikudepotserver.dataobjects.RepositorySource;
 import org.haiku.haikudepotserver.job.AbstractJobRunner;
 import org.haiku.haikudepotserver.job.model.JobService;
+import org.haiku.haikudepotserver.job.model.JobSnapshot;
 import org.haiku.haikudepotserver.pkg.model.PkgImportService;
 import org.haiku.haikudepotserver.pkg.model.PkgService;
 import org.haiku.haikudepotserver.repository.model.RepositoryHpkrIngressException;
@@ -27,6 +28,7 @@ import org.haiku.haikudepotserver.support.progress.CompositeProgressImpl;
 import org.haiku.haikudepotserver.support.progress.Progress;
 import org.haiku.haikudepotserver.support.progress.SimpleProgressImpl;
 import org.haiku.haikudepotserver.support.progress.WeightedProgressImpl;
+import org.haiku.haikudepotserver.userrating.model.UserRatingDerivationJobSpecification;
 import org.haiku.pkg.HpkrFileExtractor;
 import org.haiku.pkg.PkgIterator;
 import org.haiku.pkg.model.Pkg;
@@ -136,6 +138,13 @@ public class RepositoryHpkrIngressJobRunner extends AbstractJobRunner<Repository
                 return null;
             });
         }
+
+        // the package versions which were changed by the import will have marked their packages
+        // as needing to have their user ratings derived again.
+
+        UserRatingDerivationJobSpecification userRatingDerivationJobSpecification = new UserRatingDerivationJobSpecification();
+        userRatingDerivationJobSpecification.setDirtyPkgs(true);
+        jobService.submit(userRatingDerivationJobSpecification, JobSnapshot.COALESCE_STATUSES_QUEUED);
     }
 
     private void runForRepositorySource(
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.base.Preconditions;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.apache.cayenne.ObjectContext;
+import org.apache.cayenne.configuration.server.ServerRuntime;
+import org.apache.cayenne.query.ObjectSelect;
+import org.haiku.haikudepotserver.dataobjects.PermissionUserPkg;
+import org.haiku.haikudepotserver.dataobjects.Pkg;
+import org.haiku.haikudepotserver.dataobjects.User;
+import org.haiku.haikudepotserver.metrics.MetricsConstants;
+import org.haiku.haikudepotserver.security.model.AuthorizationPkgRulesChangedEvent;
+import org.haiku.haikudepotserver.security.model.Permission;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * <p>Holds the {@link PermissionUserPkg} rules of each user for a short while so that checking the
+ * permissions of a user over many packages does not need to fetch the rules each time.  The rules
+ * for a user are forgotten when a {@link AuthorizationPkgRulesChangedEvent} arrives for that user;
+ * this event is emitted once a change to one of the user's rules is committed and is relayed
+ * between the instances of the application.</p>
+ */
+
+@Component
+public class AuthorizationPkgRuleCache {
+
+    protected static final Logger LOGGER = LoggerFactory.getLogger(AuthorizationPkgRuleCache.class);
+
+    private final ServerRuntime serverRuntime;
+
+    private final Cache<String, List<PkgRule>> cache;
+
+    public AuthorizationPkgRuleCache(
+            ServerRuntime serverRuntime,
+            MeterRegistry meterRegistry,
+            @Value("${hds.authorization.pkg-rule-cache.max-size:1000}") long maxSize,
+            @Value("${hds.authorization.pkg-rule-cache.expiry-seconds:60}") long expirySeconds) {
+        Preconditions.checkArgument(maxSize > 0, "the max size must be positive");
+        Preconditions.checkArgument(expirySeconds > 0, "the expiry seconds must be positive");
+        this.serverRuntime = Preconditions.checkNotNull(serverRuntime);
+        this.cache = CaffeineCacheMetrics.monitor(
+                meterRegistry,
+                Caffeine.newBuilder()
+                        .maximumSize(maxSize)
+                        .expireAfterWrite(Duration.ofSeconds(expirySeconds))
+                        .recordStats()
+                        .build(),
+                MetricsConstants.CACHE_NAME_AUTHORIZATION_PKG_RULES,
+                Tags.empty());
+    }
+
+    /**
+     * <p>Returns true if the user has a rule that affords them the permission over the package.  A
+     * rule without a package applies to all packages.</p>
+     */
+
+    public boolean hasRule(User user, Permission permission, Pkg pkg) {
+        Preconditions.checkArgument(null != user, "the user must be supplied");
+        Preconditions.checkArgument(null != permission, "the permission must be supplied");
+        Preconditions.checkArgument(null != pkg, "the pkg must be supplied");
+        return cache.get(user.getNickname(), this::fetchRules)
+                .stream()
+                .anyMatch(r -> r.permissionCode().equalsIgnoreCase(permission.name())
+                        && (null == r.pkgName() || r.pkgName().equals(pkg.getName())));
+    }
+
+    public void invalidate(String nickname) {
+        Preconditions.checkArgument(null != nickname, "the nickname must be supplied");
+        cache.invalidate(nickname);
+        LOGGER.debug("did invalidate authorization pkg rules for user [{}]", nickname);
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    @EventListener
+    public void onApplicationEvent(AuthorizationPkgRulesChangedEvent event) {
+        invalidate(event.getNickname());
+    }
+
+    private List<PkgRule> fetchRules(String nickname) {
+        ObjectContext context = serverRuntime.newContext();
+        return ObjectSelect.query(PermissionUserPkg.class)
+                .where(PermissionUserPkg.USER.dot(User.NICKNAME).eq(nickname))
+                .prefetch(PermissionUserPkg.PERMISSION.joint())
+                .prefetch(PermissionUserPkg.PKG.joint())
+                .select(context)
+                .stream()
+                .map(pup -> new PkgRule(
+                        pup.getPermission().getCode(),
+                        Optional.ofNullable(pup.getPkg()).map(Pkg::getName).orElse(null)))
+                .toList();
+    }
+
+    /**
+     * @param pkgName is null if the rule applies to all packages.
+     */
+
+    private record PkgRule(String permissionCode, String pkgName) {
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2020-2023, Andrew Lindesay
+ * Copyright 2020-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
@@ -21,15 +21,28 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import java.io.Serializable;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * <p>When the permission is checked as part of handling a request, the decision is remembered for the rest of
+ * the request.  This is because the same check is often made many times in a request; for example for each
+ * package in a list of packages.  Outside of a request, such as in a job, the decision is not remembered.</p>
+ */
 
 @Component
 public class PermissionEvaluator implements org.springframework.security.access.PermissionEvaluator {
 
     protected static final Logger LOGGER = LoggerFactory.getLogger(PermissionEvaluator.class);
 
+    private static final String ATTRIBUTE_DECISIONS = PermissionEvaluator.class.getName() + ".decisions";
+
     private final UserAuthorizationService userAuthorizationService;
 
     private final ServerRuntime serverRuntime;
@@ -47,9 +60,19 @@ public class PermissionEvaluator implements org.springframework.security.access.
             Object targetDomainObject,
             Object permissionObject) {
         Preconditions.checkArgument(null != permissionObject, "the permission is not provided");
+        Permission permission = toPermission(permissionObject);
+        DecisionKey key = new DecisionKey(
+                derivePrincipal(authentication),
+                Optional.ofNullable((DataObject) targetDomainObject).map(DataObject::getObjectId).orElse(null),
+                permission);
+        return decide(key, () -> evaluate(authentication, targetDomainObject, permission));
+    }
 
+    private boolean evaluate(
+            Authentication authentication,
+            Object targetDomainObject,
+            Permission permission) {
         ObjectContext context = serverRuntime.newContext();
-        Permission permission = toPermission(permissionObject);
 
         if (userAuthorizationService.check(
                 context,
@@ -84,6 +107,18 @@ public class PermissionEvaluator implements org.springframework.security.access.
                 .map(StringUtils::trimToNull)
                 .map(TargetType::valueOf)
                 .orElse(null);
+        DecisionKey key = new DecisionKey(
+                derivePrincipal(authentication),
+                new TargetIdentifier(targetType, Optional.ofNullable(targetId).map(Object::toString).orElse(null)),
+                permission);
+        return decide(key, () -> evaluate(authentication, targetId, targetType, permission));
+    }
+
+    private boolean evaluate(
+            Authentication authentication,
+            Serializable targetId,
+            TargetType targetType,
+            Permission permission) {
         ObjectContext context = serverRuntime.newContext();
 
         if (userAuthorizationService.check(
@@ -108,6 +143,50 @@ public class PermissionEvaluator implements org.springframework.security.access.
                 .isPresent();
     }
 
+    private boolean decide(DecisionKey key, BooleanSupplier evaluation) {
+        Optional<Map<DecisionKey, Boolean>> decisionsOptional = tryGetRequestDecisions();
+
+        if (decisionsOptional.isEmpty()) {
+            return evaluation.getAsBoolean();
+        }
+
+        Map<DecisionKey, Boolean> decisions = decisionsOptional.get();
+        Boolean decision = decisions.get(key);
+
+        if (null == decision) {
+            decision = evaluation.getAsBoolean();
+            decisions.put(key, decision);
+        }
+
+        return decision;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Optional<Map<DecisionKey, Boolean>> tryGetRequestDecisions() {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+
+        if (null == requestAttributes) {
+            return Optional.empty();
+        }
+
+        Map<DecisionKey, Boolean> decisions = (Map<DecisionKey, Boolean>) requestAttributes.getAttribute(
+                ATTRIBUTE_DECISIONS, RequestAttributes.SCOPE_REQUEST);
+
+        if (null == decisions) {
+            decisions = new ConcurrentHashMap<>();
+            requestAttributes.setAttribute(ATTRIBUTE_DECISIONS, decisions, RequestAttributes.SCOPE_REQUEST);
+        }
+
+        return Optional.of(decisions);
+    }
+
+    private Object derivePrincipal(Authentication authentication) {
+        return Optional.ofNullable(authentication)
+                .filter(Authentication::isAuthenticated)
+                .map(Authentication::getPrincipal)
+                .orElse(null);
+    }
+
     private Permission toPermission(Object permission) {
         Preconditions.checkArgument(null != permission, "permission is required");
         if (permission instanceof Permission) {
@@ -127,4 +206,15 @@ public class PermissionEvaluator implements org.springframework.security.access.
                 .isPresent();
     }
 
+    private record TargetIdentifier(TargetType targetType, String identifier) {
+    }
+
+    /**
+     * @param principal identifies the authenticated entity or is null if there is none.
+     * @param target identifies the target of the permission or is null if there is none.
+     */
+
+    private record DecisionKey(Object principal, Object target, Permission permission) {
+    }
+
 }
@@ -53,6 +53,8 @@ public class UserAuthenticationServiceImpl implements UserAuthenticationService
 
     private final UserService userService;
 
+    private final VerifiedTokenCache verifiedTokenCache;
+
     /**
      * <p>This secret is used to sign a token containing username / password / time for token-based authentication.
      * </p>
@@ -70,11 +72,13 @@ public class UserAuthenticationServiceImpl implements UserAuthenticationService
     public UserAuthenticationServiceImpl(
             ServerRuntime serverRuntime,
             UserService userService,
+            VerifiedTokenCache verifiedTokenCache,
             PasswordEncoder passwordEncoder,
             @Value("${hds.authentication.jws.shared-key:}") String jsonWebTokenSharedKey,
             @Value("${hds.authentication.jws.expiry-seconds:300}") Integer jsonWebTokenExpirySeconds,
             @Value("${hds.authentication.jws.issuer}") String jsonWebTokenIssuer) {
         this.userService = userService;
+        this.verifiedTokenCache = Preconditions.checkNotNull(verifiedTokenCache);
         this.passwordEncoder = passwordEncoder;
         this.serverRuntime = Preconditions.checkNotNull(serverRuntime);
         this.jsonWebTokenExpirySeconds = Preconditions.checkNotNull(jsonWebTokenExpirySeconds);
@@ -238,23 +242,40 @@ public class UserAuthenticationServiceImpl implements UserAuthenticationService
     // ---------------------------
     // JSON WEB TOKEN
 
+    /**
+     * <p>Clients will typically present the same token many times and so once a token has been
+     * verified, the outcome is remembered until the token expires or the user changes.</p>
+     */
+
     @Override
     public Optional<ObjectId> authenticateByToken(String payload) {
-        Optional<SignedJWT> signedJwtOptional = verifyToken(payload);
+        if (null == payload || payload.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Optional<VerifiedTokenCache.VerifiedToken> verifiedTokenOptional = verifiedTokenCache.tryGet(payload);
 
-        if (signedJwtOptional.isPresent()) {
-            return authenticate(signedJwtOptional.get());
+        if (verifiedTokenOptional.isEmpty()) {
+            verifiedTokenOptional = verifyToken(payload).flatMap(signedJwt -> authenticate(payload, signedJwt));
         }
 
-        return Optional.empty();
+        return verifiedTokenOptional
+                .filter(vt -> {
+                    if (!vt.active()) {
+                        LOGGER.info("rejected jwt authentication; the user [{}] is not active", vt.nickname());
+                    }
+                    return vt.active();
+                })
+                .map(VerifiedTokenCache.VerifiedToken::userObjectId);
     }
 
     /**
      * <p>This method will validate the json web token and assuming that everything is OK, it will return
-     * an ObjectId that refers to the </p>
+     * the details of the user that the token refers to.  The details are remembered so that the
+     * token need not be validated again.</p>
      */
 
-    private Optional<ObjectId> authenticate(SignedJWT signedJwt) {
+    private Optional<VerifiedTokenCache.VerifiedToken> authenticate(String payload, SignedJWT signedJwt) {
 
         Preconditions.checkArgument(null != signedJwt, "the JWT must be provided");
 
@@ -296,11 +317,19 @@ public class UserAuthenticationServiceImpl implements UserAuthenticationService
                 else {
 
                     String nickname = subject.substring(0,subject.length() - SUFFIX_JSONWEBTOKEN_SUBJECT.length());
+                    long generation = verifiedTokenCache.getGeneration(nickname);
                     ObjectContext context = serverRuntime.newContext();
                     Optional<User> userOptional = User.tryGetByNickname(context, nickname);
 
                     if (userOptional.isPresent()) {
-                        return Optional.of(userOptional.get().getObjectId());
+                        User user = userOptional.get();
+                        VerifiedTokenCache.VerifiedToken verifiedToken = new VerifiedTokenCache.VerifiedToken(
+                                user.getObjectId(),
+                                user.getNickname(),
+                                user.getActive(),
+                                expirationTime.toInstant());
+                        verifiedTokenCache.put(payload, verifiedToken, generation);
+                        return Optional.of(verifiedToken);
                     }
                 }
             }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2018-2025, Andrew Lindesay
+ * Copyright 2018-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
@@ -12,16 +12,13 @@ import org.apache.cayenne.ObjectContext;
 import org.haiku.haikudepotserver.dataobjects.*;
 import org.haiku.haikudepotserver.dataobjects.auto._UserUsageConditions;
 import org.haiku.haikudepotserver.dataobjects.auto._UserUsageConditionsAgreement;
-import org.haiku.haikudepotserver.security.model.AuthorizationPkgRule;
 import org.haiku.haikudepotserver.security.model.UserAuthorizationService;
 import org.haiku.haikudepotserver.security.model.Permission;
 import org.haiku.haikudepotserver.security.model.TargetType;
-import org.haiku.haikudepotserver.support.SingleCollector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -29,6 +26,12 @@ public class UserAuthorizationServiceImpl implements UserAuthorizationService {
 
     protected static Logger LOGGER = LoggerFactory.getLogger(UserAuthorizationServiceImpl.class);
 
+    private final AuthorizationPkgRuleCache authorizationPkgRuleCache;
+
+    public UserAuthorizationServiceImpl(AuthorizationPkgRuleCache authorizationPkgRuleCache) {
+        this.authorizationPkgRuleCache = Preconditions.checkNotNull(authorizationPkgRuleCache);
+    }
+
     private TargetType deriveTargetType(DataObject dataObject) {
         if(null==dataObject)
             return null;
@@ -182,7 +185,8 @@ public class UserAuthorizationServiceImpl implements UserAuthorizationService {
         }
 
         // it could be that permission is afforded based on rules stored in the user.  Check for
-        // this situation first.
+        // this situation first.  The rules are cached because a user's permissions are often
+        // checked over many packages.
 
         if (null != authenticatedUser) {
             switch (permission) {
@@ -193,11 +197,7 @@ public class UserAuthorizationServiceImpl implements UserAuthorizationService {
                         PKG_EDITCHANGELOG,
                         PKG_EDITNATIVEDESKTOP,
                         PKG_EDITLOCALIZATION -> {
-                    List<? extends AuthorizationPkgRule> rules = authenticatedUser.getAuthorizationPkgRules((Pkg) target);
-                    if (rules
-                            .stream()
-                            .filter(r -> r.getPermission().getCode().equalsIgnoreCase(permission.name()))
-                            .collect(SingleCollector.optional()).isPresent()) {
+                    if (authorizationPkgRuleCache.hasRule(authenticatedUser, permission, (Pkg) target)) {
                         return true;
                     }
                 }
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.apache.cayenne.ObjectId;
+import org.haiku.haikudepotserver.metrics.MetricsConstants;
+import org.haiku.haikudepotserver.security.model.UserAuthenticationChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Remembers the tokens that have been verified so that a client which presents the same token
+ * many times does not need to have the token's signature checked and the user looked up on each
+ * request.  The tokens are keyed by a digest of the token so that the tokens themselves are not
+ * held in memory.  A token is forgotten once it expires or when a
+ * {@link UserAuthenticationChangedEvent} arrives for its user; this event is relayed between the
+ * instances of the application.</p>
+ *
+ * <p>The event may arrive while a token for the user is being verified; after the user has been
+ * read but before the outcome has been remembered. To avoid remembering an outcome that is
+ * already out of date, each event for a user moves the user on to a new generation. The
+ * generation is obtained before the user is read and the outcome is only retained if the
+ * generation is the same once it has been remembered.</p>
+ */
+
+@Component
+public class VerifiedTokenCache {
+
+    protected static final Logger LOGGER = LoggerFactory.getLogger(VerifiedTokenCache.class);
+
+    private final Cache<String, VerifiedToken> cache;
+
+    /**
+     * <p>Holds the generation of each user that has changed. A user that has not changed is at
+     * generation zero.</p>
+     */
+
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+
+    public VerifiedTokenCache(
+            MeterRegistry meterRegistry,
+            @Value("${hds.authentication.jws.verified-token-cache-max-size:10000}") long maxSize) {
+        Preconditions.checkArgument(maxSize > 0, "the max size must be positive");
+        cache = CaffeineCacheMetrics.monitor(
+                meterRegistry,
+                Caffeine.newBuilder()
+                        .maximumSize(maxSize)
+                        .expireAfter(new VerifiedTokenExpiry())
+                        .recordStats()
+                        .build(),
+                MetricsConstants.CACHE_NAME_VERIFIED_TOKENS,
+                Tags.empty());
+    }
+
+    public Optional<VerifiedToken> tryGet(String token) {
+        return Optional.ofNullable(cache.getIfPresent(createKey(token)))
+                .filter(vt -> vt.expiry().isAfter(Instant.now()));
+    }
+
+    /**
+     * <p>This should be obtained before the user is read in order to verify a token and then
+     * supplied when the outcome is remembered.</p>
+     */
+
+    public long getGeneration(String nickname) {
+        Preconditions.checkArgument(null != nickname, "the nickname must be supplied");
+        return generations.getOrDefault(nickname, 0L);
+    }
+
+    /**
+     * <p>Remembers the outcome of verifying a token unless the user has changed since the
+     * generation was obtained.</p>
+     *
+     * @return true if the outcome was remembered.
+     */
+
+    public boolean put(String token, VerifiedToken verifiedToken, long generation) {
+        Preconditions.checkArgument(null != verifiedToken, "the verified token must be supplied");
+        String key = createKey(token);
+        cache.put(key, verifiedToken);
+
+        // the generation is moved on before the tokens are forgotten; if the user changes after
+        // this check then the token just put will be forgotten along with the others.
+
+        if (getGeneration(verifiedToken.nickname()) != generation) {
+            cache.invalidate(key);
+            LOGGER.debug("did not retain verified token for user [{}] as the user has changed", verifiedToken.nickname());
+            return false;
+        }
+
+        return true;
+    }
+
+    public void invalidate(String nickname) {
+        Preconditions.checkArgument(null != nickname, "the nickname must be supplied");
+        generations.merge(nickname, 1L, Long::sum);
+        cache.asMap().values().removeIf(vt -> vt.nickname().equals(nickname));
+        LOGGER.debug("did invalidate verified tokens for user [{}]", nickname);
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    @EventListener
+    public void onApplicationEvent(UserAuthenticationChangedEvent event) {
+        invalidate(event.getNickname());
+    }
+
+    private static String createKey(String token) {
+        Preconditions.checkArgument(null != token, "the token must be supplied");
+        return Hashing.sha256().hashString(token, StandardCharsets.UTF_8).toString();
+    }
+
+    /**
+     * <p>The outcome of verifying a token.</p>
+     *
+     * @param expiry is the time at which the token expires.
+     */
+
+    public record VerifiedToken(ObjectId userObjectId, String nickname, boolean active, Instant expiry) {
+    }
+
+    /**
+     * <p>Each token is retained only until it expires.</p>
+     */
+
+    private static class VerifiedTokenExpiry implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            return Math.max(0L, Duration.between(Instant.now(), value.expiry()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+    }
+
+}
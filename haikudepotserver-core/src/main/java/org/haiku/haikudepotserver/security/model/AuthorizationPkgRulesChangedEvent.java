@@ -0,0 +1,33 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.security.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Preconditions;
+import org.apache.commons.lang3.StringUtils;
+import org.haiku.haikudepotserver.support.eventing.model.InterProcessApplicationEvent;
+
+/**
+ * <p>This event indicates that the package authorization rules for a user have been created,
+ * changed or removed.  Any rules for the user that have already been fetched and remembered
+ * must be fetched again.</p>
+ */
+
+public class AuthorizationPkgRulesChangedEvent extends InterProcessApplicationEvent {
+
+    private final String nickname;
+
+    @JsonCreator
+    public AuthorizationPkgRulesChangedEvent(@JsonProperty("nickname") String nickname) {
+        Preconditions.checkArgument(StringUtils.isNotBlank(nickname), "the nickname is required");
+        this.nickname = nickname;
+    }
+
+    public String getNickname() {
+        return nickname;
+    }
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.security.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Preconditions;
+import org.apache.commons.lang3.StringUtils;
+import org.haiku.haikudepotserver.support.eventing.model.InterProcessApplicationEvent;
+
+/**
+ * <p>This event indicates that a user has changed in a way which may affect how they are able to
+ * authenticate; for example they have been deactivated or their password has changed.  Any
+ * tokens for the user that have already been verified and remembered must be verified again.</p>
+ */
+
+public class UserAuthenticationChangedEvent extends InterProcessApplicationEvent {
+
+    private final String nickname;
+
+    @JsonCreator
+    public UserAuthenticationChangedEvent(@JsonProperty("nickname") String nickname) {
+        Preconditions.checkArgument(StringUtils.isNotBlank(nickname), "the nickname is required");
+        this.nickname = nickname;
+    }
+
+    public String getNickname() {
+        return nickname;
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.storage;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteSource;
+import org.apache.commons.lang3.StringUtils;
+import org.haiku.haikudepotserver.storage.model.DataStorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+
+/**
+ * <p>Helpers for data in the {@link DataStorageService} which is derived from other data and so
+ * can be created again if it is missing; rendered icons and screenshot thumbnails for example.
+ * Storing such data is an optimization so problems reading or writing it are logged rather
+ * than failing the request.</p>
+ */
+
+public class DerivedDataStorageHelper {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DerivedDataStorageHelper.class);
+
+    /**
+     * <p>Returns the stored data or an empty value if it is not stored or could not be read.</p>
+     */
+
+    public static Optional<byte[]> tryGet(DataStorageService dataStorageService, String key) {
+        Preconditions.checkArgument(null != dataStorageService, "the data storage service must be supplied");
+        Preconditions.checkArgument(StringUtils.isNotBlank(key), "the key must be supplied");
+
+        try {
+            Optional<? extends ByteSource> byteSourceOptional = dataStorageService.get(key);
+            if (byteSourceOptional.isPresent()) {
+                byte[] data = byteSourceOptional.get().read();
+
+                // the data could be empty if it is still being written by another instance.
+                if (0 != data.length) {
+                    return Optional.of(data);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.warn("unable to read the derived data [{}] from storage", key, e);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * <p>Another instance may be storing the same data at the same time in which case storing
+     * will fail; this is not a problem because the data is equivalent.</p>
+     */
+
+    public static void tryPut(DataStorageService dataStorageService, String key, byte[] data) {
+        Preconditions.checkArgument(null != dataStorageService, "the data storage service must be supplied");
+        Preconditions.checkArgument(StringUtils.isNotBlank(key), "the key must be supplied");
+        Preconditions.checkArgument(null != data, "the data must be supplied");
+
+        try {
+            dataStorageService.put(key).write(data);
+        } catch (Exception e) {
+            LOGGER.warn("unable to store the derived data [{}]", key, e);
+        }
+    }
+
+}
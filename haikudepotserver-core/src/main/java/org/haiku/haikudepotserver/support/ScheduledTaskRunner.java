@@ -0,0 +1,134 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.support;
+
+import com.google.common.base.Preconditions;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.lang3.StringUtils;
+import org.haiku.haikudepotserver.metrics.MetricsConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Runs periodic work on the shared {@link TaskScheduler} so that a slow task does not hold up the
+ * others. Each task belongs to a named group and has a name. A task is not started again while an
+ * earlier run of the same task is still queued or running; such a request is skipped instead.</p>
+ *
+ * <p>The time that each task spends waiting to start and the time that it takes to run are recorded
+ * in timers tagged with the group and the name of the task.</p>
+ */
+
+@Component
+public class ScheduledTaskRunner {
+
+    protected static final Logger LOGGER = LoggerFactory.getLogger(ScheduledTaskRunner.class);
+
+    private final static String RESULT_SUCCESS = "success";
+    private final static String RESULT_FAILURE = "failure";
+
+    private final TaskScheduler taskScheduler;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Set<TaskKey> activeTasks = ConcurrentHashMap.newKeySet();
+
+    public ScheduledTaskRunner(TaskScheduler taskScheduler, MeterRegistry meterRegistry) {
+        this.taskScheduler = Preconditions.checkNotNull(taskScheduler);
+        this.meterRegistry = Preconditions.checkNotNull(meterRegistry);
+    }
+
+    /**
+     * <p>Starts the task as soon as the scheduler has capacity.</p>
+     *
+     * @return false if the task was not started because it is already queued or running.
+     */
+
+    public boolean submit(String group, String name, Runnable task) {
+        Preconditions.checkArgument(StringUtils.isNotBlank(group), "the group must be supplied");
+        Preconditions.checkArgument(StringUtils.isNotBlank(name), "the name must be supplied");
+        Preconditions.checkArgument(null != task, "the task must be supplied");
+
+        TaskKey key = new TaskKey(group, name);
+
+        if (!activeTasks.add(key)) {
+            LOGGER.warn("the task [{}] is already queued or running --> will skip", key);
+            meterRegistry.counter(MetricsConstants.COUNTER_NAME_SCHEDULED_TASKS_SKIPPED, createTags(key)).increment();
+            return false;
+        }
+
+        Instant submitted = Instant.now();
+
+        try {
+            taskScheduler.schedule(() -> run(key, submitted, task), submitted);
+        } catch (TaskRejectedException tre) {
+            activeTasks.remove(key);
+            throw tre;
+        }
+
+        return true;
+    }
+
+    /**
+     * <p>Returns true if the task is queued or running.</p>
+     */
+
+    public boolean isActive(String group, String name) {
+        return activeTasks.contains(new TaskKey(group, name));
+    }
+
+    private void run(TaskKey key, Instant submitted, Runnable task) {
+        String threadNamePrior = Thread.currentThread().getName();
+        long startNanos = System.nanoTime();
+        boolean success = false;
+
+        Timer.builder(MetricsConstants.TIMER_NAME_SCHEDULED_TASK_LAG)
+                .tags(createTags(key))
+                .register(meterRegistry)
+                .record(Duration.between(submitted, Instant.now()));
+
+        try {
+            Thread.currentThread().setName(key.toString());
+            task.run();
+            success = true;
+        } catch (Throwable th) {
+            LOGGER.error("the task [{}] has failed", key, th);
+        } finally {
+            Thread.currentThread().setName(threadNamePrior);
+            Timer.builder(MetricsConstants.TIMER_NAME_SCHEDULED_TASK_DURATION)
+                    .tags(createTags(key).and(
+                            Tag.of(MetricsConstants.TAG_NAME_RESULT, success ? RESULT_SUCCESS : RESULT_FAILURE)))
+                    .register(meterRegistry)
+                    .record(Duration.ofNanos(System.nanoTime() - startNanos));
+            activeTasks.remove(key);
+        }
+    }
+
+    private static Tags createTags(TaskKey key) {
+        return Tags.of(
+                Tag.of(MetricsConstants.TAG_NAME_GROUP, key.group()),
+                Tag.of(MetricsConstants.TAG_NAME_TASK, key.name()));
+    }
+
+    private record TaskKey(String group, String name) {
+
+        @Override
+        public String toString() {
+            return group + "-" + name;
+        }
+
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.support.cayenne;
+
+import com.google.common.base.Preconditions;
+import jakarta.annotation.PostConstruct;
+import org.apache.cayenne.LifecycleListener;
+import org.apache.cayenne.ObjectId;
+import org.apache.cayenne.configuration.server.ServerRuntime;
+import org.apache.cayenne.reflect.LifecycleCallbackRegistry;
+import org.haiku.haikudepotserver.dataobjects.PermissionUserPkg;
+import org.haiku.haikudepotserver.dataobjects.User;
+import org.haiku.haikudepotserver.security.model.AuthorizationPkgRulesChangedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>This listener will detect package authorization rules being created, changed or removed and
+ * will then emit an event so that any rules for the user that have been remembered on this or
+ * other instances are fetched again.  The event is only emitted once the change is committed so
+ * that the rules are not fetched again before the change is able to be seen.</p>
+ *
+ * <p>By the time that a removal is committed, the rule may no longer refer to its user and so
+ * the user is noted as the rule is deleted.</p>
+ */
+
+@Component
+public class AuthorizationPkgRulesChangedTriggerListener implements LifecycleListener {
+
+    private final ServerRuntime serverRuntime;
+
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    /**
+     * <p>The nicknames of the users of the rules that have been deleted but not yet committed.</p>
+     */
+
+    private final Map<ObjectId, String> removedRuleNicknames = new ConcurrentHashMap<>();
+
+    public AuthorizationPkgRulesChangedTriggerListener(
+            ServerRuntime serverRuntime,
+            ApplicationEventPublisher applicationEventPublisher) {
+        this.serverRuntime = Preconditions.checkNotNull(serverRuntime);
+        this.applicationEventPublisher = Preconditions.checkNotNull(applicationEventPublisher);
+    }
+
+    @PostConstruct
+    public void init() {
+        LifecycleCallbackRegistry callbackRegistry = serverRuntime.getDataDomain().getEntityResolver().getCallbackRegistry();
+        callbackRegistry.addListener(PermissionUserPkg.class, this);
+    }
+
+    @Override
+    public void postAdd(Object entity) {
+    }
+
+    @Override
+    public void prePersist(Object entity) {
+    }
+
+    @Override
+    public void postPersist(Object entity) {
+        tryGetNickname((PermissionUserPkg) entity).ifPresent(this::publish);
+    }
+
+    @Override
+    public void preRemove(Object entity) {
+        PermissionUserPkg rule = (PermissionUserPkg) entity;
+        tryGetNickname(rule).ifPresent(n -> removedRuleNicknames.put(rule.getObjectId(), n));
+    }
+
+    @Override
+    public void postRemove(Object entity) {
+        PermissionUserPkg rule = (PermissionUserPkg) entity;
+        Optional.ofNullable(removedRuleNicknames.remove(rule.getObjectId())).ifPresent(this::publish);
+    }
+
+    @Override
+    public void preUpdate(Object entity) {
+    }
+
+    @Override
+    public void postUpdate(Object entity) {
+        tryGetNickname((PermissionUserPkg) entity).ifPresent(this::publish);
+    }
+
+    @Override
+    public void postLoad(Object entity) {
+    }
+
+    private void publish(String nickname) {
+        applicationEventPublisher.publishEvent(new AuthorizationPkgRulesChangedEvent(nickname));
+    }
+
+    private static Optional<String> tryGetNickname(PermissionUserPkg rule) {
+        return Optional.ofNullable(rule.getUser()).map(User::getNickname);
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.support.cayenne;
+
+import com.google.common.base.Preconditions;
+import org.apache.cayenne.DataRow;
+import org.apache.cayenne.Persistent;
+import org.apache.cayenne.access.DataContext;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * <p>Helps a lifecycle listener to find out, before an update is committed, which of an
+ * object's values are being changed by comparing them with the values that were last read
+ * from the database.</p>
+ */
+
+public class CommittedSnapshotHelper {
+
+    /**
+     * <p>Returns true if any of the supplied values differs from the value last read from the
+     * database. If the values last read from the database are not known then it is assumed
+     * that the values have changed.</p>
+     *
+     * @param currentValues are keyed by the name of the database column.
+     */
+
+    public static boolean isAnyChanged(Persistent object, Map<String, ?> currentValues) {
+        Preconditions.checkArgument(null != object, "the object must be supplied");
+        Preconditions.checkArgument(null != currentValues, "the current values must be supplied");
+
+        if (!(object.getObjectContext() instanceof DataContext dataContext)) {
+            return true;
+        }
+
+        DataRow snapshot = dataContext.getObjectStore().getSnapshot(object.getObjectId());
+
+        if (null == snapshot) {
+            return true;
+        }
+
+        return currentValues.entrySet()
+                .stream()
+                .anyMatch(e -> !Objects.equals(snapshot.get(e.getKey()), e.getValue()));
+    }
+
+}
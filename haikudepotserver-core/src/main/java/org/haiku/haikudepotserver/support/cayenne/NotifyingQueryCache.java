@@ -1,5 +1,5 @@
 /*
- * Copyright 2025, Andrew Lindesay
+ * Copyright 2025-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 package org.haiku.haikudepotserver.support.cayenne;
@@ -10,7 +10,6 @@ import org.apache.cayenne.cache.QueryCacheEntryFactory;
 import org.apache.cayenne.di.Inject;
 import org.apache.cayenne.query.QueryMetadata;
 import org.apache.commons.lang3.StringUtils;
-import org.haiku.haikudepotserver.support.eventing.model.NotifyService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,6 +25,14 @@ import java.util.List;
  * want to send the notification if a notification is already being processed from
  * remote because then it would simply send out and yoyo back and forward between
  * the servers echoing endlessly.</p>
+ *
+ * <p>The notifications are not sent immediately; they are handed to the
+ * {@link QueryCacheRemoveEventBatcher} which will coalesce them with others.</p>
+ *
+ * <p>As groups are removed, the {@link #groupVersions} are incremented so that
+ * other caches holding data derived from the database are able to detect that
+ * their data is no longer current. This happens for removals that originate
+ * locally and also for those that arrive from other instances.</p>
  */
 
 public class NotifyingQueryCache implements QueryCache {
@@ -34,21 +41,25 @@ public class NotifyingQueryCache implements QueryCache {
 
     private final QueryCache delegate;
 
-    private final NotifyService notifyService;
+    private final QueryCacheRemoveEventBatcher removeEventBatcher;
 
     private final QueryCacheRemoveEventNotifyControl notifyControl;
 
+    private final QueryCacheGroupVersions groupVersions;
+
     // The @Inject here is to fit into the Cayenne dependency injection framework
     // which is a bit like Guice. It interfaces with the Spring world via
     // `PersistenceConfig`.
     public NotifyingQueryCache(
             @Inject QueryCache delegate,
-            @Inject NotifyService notifyService,
-            @Inject QueryCacheRemoveEventNotifyControl notifyControl
+            @Inject QueryCacheRemoveEventBatcher removeEventBatcher,
+            @Inject QueryCacheRemoveEventNotifyControl notifyControl,
+            @Inject QueryCacheGroupVersions groupVersions
     ) {
         this.delegate = delegate;
-        this.notifyService = notifyService;
+        this.removeEventBatcher = removeEventBatcher;
         this.notifyControl = notifyControl;
+        this.groupVersions = groupVersions;
     }
 
     @Override
@@ -76,11 +87,7 @@ public class NotifyingQueryCache implements QueryCache {
 
         if (notifyControl.isEnabled()) {
             LOGGER.debug("notifying remove [{}]", key);
-            notifyService.publishEvent(
-                    new QueryCacheRemoveEvent(
-                            List.of(new QueryCacheRemoveEvent.KeyRemove(key))
-                    )
-            );
+            removeEventBatcher.add(new QueryCacheRemoveEvent.KeyRemove(key));
         }
     }
 
@@ -91,14 +98,11 @@ public class NotifyingQueryCache implements QueryCache {
         LOGGER.debug("remove group [{}]", groupKey);
 
         delegate.removeGroup(groupKey);
+        groupVersions.incrementGroup(groupKey);
 
         if (notifyControl.isEnabled()) {
             LOGGER.debug("notifying remove group [{}]", groupKey);
-            notifyService.publishEvent(
-                    new QueryCacheRemoveEvent(
-                            List.of(new QueryCacheRemoveEvent.GroupRemove(groupKey))
-                    )
-            );
+            removeEventBatcher.add(new QueryCacheRemoveEvent.GroupRemove(groupKey));
         }
     }
 
@@ -118,6 +122,7 @@ public class NotifyingQueryCache implements QueryCache {
         }
 
         delegate.removeGroup(groupKey, keyType, valueType);
+        groupVersions.incrementGroup(groupKey);
 
         if (notifyControl.isEnabled()) {
             if (LOGGER.isDebugEnabled()) {
@@ -129,15 +134,11 @@ public class NotifyingQueryCache implements QueryCache {
                 );
             }
 
-            notifyService.publishEvent(
-                    new QueryCacheRemoveEvent(
-                            List.of(new QueryCacheRemoveEvent.GroupWithTypesRemove(
-                                    groupKey,
-                                    keyType.getName(),
-                                    valueType.getName()
-                            ))
-                    )
-            );
+            removeEventBatcher.add(new QueryCacheRemoveEvent.GroupWithTypesRemove(
+                    groupKey,
+                    keyType.getName(),
+                    valueType.getName()
+            ));
         }
     }
 
@@ -145,13 +146,10 @@ public class NotifyingQueryCache implements QueryCache {
     public void clear() {
         LOGGER.debug("clear");
         delegate.clear();
+        groupVersions.incrementAll();
         if (notifyControl.isEnabled()) {
             LOGGER.debug("notifying clear");
-            notifyService.publishEvent(
-                    new QueryCacheRemoveEvent(
-                            List.of(new QueryCacheRemoveEvent.ClearRemove())
-                    )
-            );
+            removeEventBatcher.add(new QueryCacheRemoveEvent.ClearRemove());
         }
     }
 
@@ -0,0 +1,26 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.support.cayenne;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>Describes how the entries for a single query cache group should be held in the
+ * {@link WeighingQueryCache}.</p>
+ *
+ * @param maxWeight is the maximum total weight of the entries in the group. The weight is
+ *                  an approximation of the size of the results in bytes.
+ * @param expirySeconds is the time after which an entry is expired. If this value is
+ *                      zero then the entries will not expire on the basis of time.
+ */
+
+public record QueryCacheGroupSpecification(long maxWeight, long expirySeconds) {
+
+    public QueryCacheGroupSpecification {
+        Preconditions.checkArgument(maxWeight > 0, "the max weight must be positive");
+        Preconditions.checkArgument(expirySeconds >= 0, "the expiry seconds must not be negative");
+    }
+
+}
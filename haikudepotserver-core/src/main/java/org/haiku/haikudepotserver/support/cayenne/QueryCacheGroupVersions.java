@@ -0,0 +1,64 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.support.cayenne;
+
+import com.google.common.base.Preconditions;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Keeps a version number for each query cache group. Each time that a group is
+ * removed from the {@link NotifyingQueryCache} the version of the group is
+ * incremented. Because the removal of a group is also relayed to the other instances
+ * of the application server, the version numbers will also move when the data changes
+ * on another instance. Other caches that hold data derived from the database are then
+ * able to use the version numbers to know if their data is still current.</p>
+ */
+
+public class QueryCacheGroupVersions {
+
+    /**
+     * <p>This version is incremented when the whole cache is cleared so that all of the
+     * groups' versions are effectively changed at once.</p>
+     */
+
+    private final AtomicLong clearVersion = new AtomicLong(0L);
+
+    private final ConcurrentMap<String, AtomicLong> groupVersions = new ConcurrentHashMap<>();
+
+    public void incrementGroup(String groupKey) {
+        Preconditions.checkArgument(StringUtils.isNotBlank(groupKey), "the group key must be supplied");
+        groupVersions.computeIfAbsent(groupKey, k -> new AtomicLong(0L)).incrementAndGet();
+    }
+
+    public void incrementAll() {
+        clearVersion.incrementAndGet();
+    }
+
+    public long getVersion(String groupKey) {
+        Preconditions.checkArgument(StringUtils.isNotBlank(groupKey), "the group key must be supplied");
+        AtomicLong groupVersion = groupVersions.get(groupKey);
+        return null == groupVersion ? 0L : groupVersion.get();
+    }
+
+    /**
+     * <p>Produces a string that describes the versions of the supplied groups. If any of
+     * the groups has changed then the resultant string will also be different.</p>
+     */
+
+    public String getVersionsDescription(Collection<String> groupKeys) {
+        Preconditions.checkArgument(null != groupKeys, "the group keys must be supplied");
+        return clearVersion.get() + ":" + groupKeys.stream()
+                .sorted()
+                .map(gk -> gk + "=" + getVersion(gk))
+                .collect(Collectors.joining(","));
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2025, Andrew Lindesay
+ * Copyright 2025-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 package org.haiku.haikudepotserver.support.cayenne;
@@ -15,10 +15,14 @@ import org.haiku.haikudepotserver.support.eventing.model.InterProcessEvent;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * <p>This event is triggering a Cayenne cache drop. It is sent when a cache is evicted
  * and will cause other instances of HDS to likewise drop their caches too.</p>
+ *
+ * <p>The {@link Remove}s implement equality so that duplicate removes can be coalesced
+ * before they are sent.</p>
  */
 
 public class QueryCacheRemoveEvent extends InterProcessEvent {
@@ -56,6 +60,16 @@ public class QueryCacheRemoveEvent extends InterProcessEvent {
         @JsonCreator
         public ClearRemove() {
         }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ClearRemove;
+        }
+
+        @Override
+        public int hashCode() {
+            return ClearRemove.class.hashCode();
+        }
     }
 
     public static final class KeyRemove extends Remove {
@@ -73,6 +87,16 @@ public class QueryCacheRemoveEvent extends InterProcessEvent {
         public String getKey() {
             return key;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof KeyRemove other && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode();
+        }
     }
 
     public static final class GroupRemove extends Remove {
@@ -90,6 +114,16 @@ public class QueryCacheRemoveEvent extends InterProcessEvent {
             return groupKey;
         }
 
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof GroupRemove other && groupKey.equals(other.groupKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return groupKey.hashCode();
+        }
+
     }
 
     public static final class GroupWithTypesRemove extends Remove {
@@ -123,6 +157,19 @@ public class QueryCacheRemoveEvent extends InterProcessEvent {
         public String getValueTypeClassName() {
             return valueTypeClassName;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof GroupWithTypesRemove other
+                    && groupKey.equals(other.groupKey)
+                    && keyTypeClassName.equals(other.keyTypeClassName)
+                    && valueTypeClassName.equals(other.valueTypeClassName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(groupKey, keyTypeClassName, valueTypeClassName);
+        }
     }
 
 }
\ No newline at end of file
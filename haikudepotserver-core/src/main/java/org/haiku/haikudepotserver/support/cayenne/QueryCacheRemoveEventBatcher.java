@@ -0,0 +1,182 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.support.cayenne;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.AbstractScheduledService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.haiku.haikudepotserver.metrics.MetricsConstants;
+import org.haiku.haikudepotserver.support.eventing.model.NotifyService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Rather than the {@link NotifyingQueryCache} sending a notification to the other
+ * instances for each and every cache removal, the removals are collected here over a
+ * short window of time. At the end of the window, duplicate removals are discarded
+ * and the remainder are sent as a single {@link QueryCacheRemoveEvent}. This means
+ * that a large import, which may remove the same group many times, does not flood
+ * the other instances with notifications.</p>
+ *
+ * <p>Postgres limits the size of the payload of a notification so a very large
+ * number of removals is split over a number of events.</p>
+ *
+ * <p>If the service is not running, for example during startup or shutdown, then
+ * the removals are sent immediately. Removals which could not be sent at the end of a
+ * window are retained and sent with those of the next window.</p>
+ */
+
+public class QueryCacheRemoveEventBatcher extends AbstractScheduledService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryCacheRemoveEventBatcher.class);
+
+    private final NotifyService notifyService;
+
+    private final long windowMillis;
+
+    private final int maxRemovesPerEvent;
+
+    private final Set<QueryCacheRemoveEvent.Remove> pendingRemoves = new LinkedHashSet<>();
+
+    private final Counter eventsSentCounter;
+
+    private final Counter removesSentCounter;
+
+    private final Counter removesCoalescedCounter;
+
+    public QueryCacheRemoveEventBatcher(
+            NotifyService notifyService,
+            MeterRegistry meterRegistry,
+            long windowMillis,
+            int maxRemovesPerEvent) {
+        Preconditions.checkArgument(windowMillis > 0, "the window millis must be positive");
+        Preconditions.checkArgument(maxRemovesPerEvent > 0, "the max removes per event must be positive");
+        this.notifyService = Preconditions.checkNotNull(notifyService);
+        this.windowMillis = windowMillis;
+        this.maxRemovesPerEvent = maxRemovesPerEvent;
+        this.eventsSentCounter = meterRegistry.counter(MetricsConstants.COUNTER_NAME_QUERY_CACHE_REMOVE_EVENTS_SENT);
+        this.removesSentCounter = meterRegistry.counter(MetricsConstants.COUNTER_NAME_QUERY_CACHE_REMOVES_SENT);
+        this.removesCoalescedCounter = meterRegistry.counter(MetricsConstants.COUNTER_NAME_QUERY_CACHE_REMOVES_COALESCED);
+    }
+
+    @PostConstruct
+    public void init() {
+        startAsync();
+        awaitRunning();
+    }
+
+    @PreDestroy
+    public void tearDown() {
+        stopAsync();
+        awaitTerminated();
+    }
+
+    /**
+     * <p>Adds the remove to those that are to be sent to other instances.</p>
+     */
+
+    public void add(QueryCacheRemoveEvent.Remove remove) {
+        Preconditions.checkArgument(null != remove, "the remove must be supplied");
+
+        if (!isRunning()) {
+            publish(List.of(remove));
+            return;
+        }
+
+        synchronized (pendingRemoves) {
+            if (!pendingRemoves.add(remove)) {
+                removesCoalescedCounter.increment();
+            }
+        }
+    }
+
+    /**
+     * <p>Sends any pending removes to the other instances.</p>
+     */
+
+    public void flush() {
+        List<QueryCacheRemoveEvent.Remove> removes;
+
+        synchronized (pendingRemoves) {
+            if (pendingRemoves.isEmpty()) {
+                return;
+            }
+
+            // a clear will remove everything so there is no need to send any other removes.
+
+            if (pendingRemoves.contains(new QueryCacheRemoveEvent.ClearRemove())) {
+                removesCoalescedCounter.increment(pendingRemoves.size() - 1);
+                removes = List.of(new QueryCacheRemoveEvent.ClearRemove());
+            } else {
+                removes = List.copyOf(pendingRemoves);
+            }
+
+            pendingRemoves.clear();
+        }
+
+        List<List<QueryCacheRemoveEvent.Remove>> partitions = Lists.partition(removes, maxRemovesPerEvent);
+
+        for (int i = 0; i < partitions.size(); i++) {
+            try {
+                publishPartition(partitions.get(i));
+            } catch (RuntimeException re) {
+                // put back the removes which were not sent so that they are tried again next time.
+
+                synchronized (pendingRemoves) {
+                    partitions.subList(i, partitions.size())
+                            .stream()
+                            .flatMap(List::stream)
+                            .forEach(pendingRemoves::add);
+                }
+
+                throw re;
+            }
+        }
+    }
+
+    private void publish(List<QueryCacheRemoveEvent.Remove> removes) {
+        Lists.partition(removes, maxRemovesPerEvent).forEach(this::publishPartition);
+    }
+
+    private void publishPartition(List<QueryCacheRemoveEvent.Remove> partition) {
+        LOGGER.debug("will notify {} query cache removes", partition.size());
+        notifyService.publishEvent(new QueryCacheRemoveEvent(partition));
+        eventsSentCounter.increment();
+        removesSentCounter.increment(partition.size());
+    }
+
+    // --------------
+    // AbstractScheduledService
+
+    @Override
+    protected void runOneIteration() {
+        try {
+            flush();
+        } catch (Throwable th) {
+            // an exception here would stop the service so it is logged instead.
+            LOGGER.error("unable to notify query cache removes", th);
+        }
+    }
+
+    @Override
+    protected void shutDown() {
+        flush();
+    }
+
+    @Override
+    protected Scheduler scheduler() {
+        return Scheduler.newFixedDelaySchedule(windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+}
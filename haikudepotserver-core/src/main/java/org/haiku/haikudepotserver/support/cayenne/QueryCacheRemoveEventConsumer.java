@@ -1,12 +1,15 @@
 /*
- * Copyright 2025, Andrew Lindesay
+ * Copyright 2025-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 package org.haiku.haikudepotserver.support.cayenne;
 
 import com.google.common.base.Preconditions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.cayenne.cache.QueryCache;
 import org.apache.cayenne.configuration.server.ServerRuntime;
+import org.haiku.haikudepotserver.metrics.MetricsConstants;
 import org.haiku.haikudepotserver.support.eventing.model.InterProcessEvent;
 
 import java.util.function.Consumer;
@@ -17,16 +20,28 @@ public class QueryCacheRemoveEventConsumer implements Consumer<InterProcessEvent
 
     private final QueryCacheRemoveEventNotifyControl notifyControl;
 
-    public QueryCacheRemoveEventConsumer(ServerRuntime serverRuntime, QueryCacheRemoveEventNotifyControl notifyControl) {
+    private final Counter eventsReceivedCounter;
+
+    private final Counter removesReceivedCounter;
+
+    public QueryCacheRemoveEventConsumer(
+            ServerRuntime serverRuntime,
+            QueryCacheRemoveEventNotifyControl notifyControl,
+            MeterRegistry meterRegistry) {
         Preconditions.checkArgument(null != serverRuntime);
         Preconditions.checkArgument(null != notifyControl);
+        Preconditions.checkArgument(null != meterRegistry);
         this.serverRuntime = serverRuntime;
         this.notifyControl = notifyControl;
+        this.eventsReceivedCounter = meterRegistry.counter(MetricsConstants.COUNTER_NAME_QUERY_CACHE_REMOVE_EVENTS_RECEIVED);
+        this.removesReceivedCounter = meterRegistry.counter(MetricsConstants.COUNTER_NAME_QUERY_CACHE_REMOVES_RECEIVED);
     }
 
     @Override
     public void accept(InterProcessEvent interProcessEvent) {
         if (interProcessEvent instanceof QueryCacheRemoveEvent queryCacheRemoveEvent) {
+            eventsReceivedCounter.increment();
+            removesReceivedCounter.increment(queryCacheRemoveEvent.getRemoves().size());
             try {
                 // Disable the downstream notify because if we get an event in then it is not necessary to send the
                 // event back out again.
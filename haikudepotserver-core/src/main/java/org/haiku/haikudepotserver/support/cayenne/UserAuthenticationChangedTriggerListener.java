@@ -0,0 +1,116 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.support.cayenne;
+
+import com.google.common.base.Preconditions;
+import jakarta.annotation.PostConstruct;
+import org.apache.cayenne.LifecycleListener;
+import org.apache.cayenne.ObjectId;
+import org.apache.cayenne.configuration.server.ServerRuntime;
+import org.apache.cayenne.reflect.LifecycleCallbackRegistry;
+import org.haiku.haikudepotserver.dataobjects.User;
+import org.haiku.haikudepotserver.security.model.UserAuthenticationChangedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>This listener will detect changes to users, such as being deactivated or having their password
+ * changed, and will then emit an event so that any tokens for the user that have been verified and
+ * remembered on this or other instances are verified again.</p>
+ *
+ * <p>Users are updated for reasons that do not affect authentication too; for example each time
+ * the user authenticates. So that these updates do not cause the tokens to be verified again,
+ * the fields that matter are compared with those last read from the database before the update
+ * and the event is only emitted, after the update is committed, if one of them has changed.</p>
+ */
+
+@Component
+public class UserAuthenticationChangedTriggerListener implements LifecycleListener {
+
+    private final ServerRuntime serverRuntime;
+
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    /**
+     * <p>The users whose authentication is changed by an update that is being committed.</p>
+     */
+
+    private final Set<ObjectId> authenticationChangedUserObjectIds = ConcurrentHashMap.newKeySet();
+
+    public UserAuthenticationChangedTriggerListener(
+            ServerRuntime serverRuntime,
+            ApplicationEventPublisher applicationEventPublisher) {
+        this.serverRuntime = Preconditions.checkNotNull(serverRuntime);
+        this.applicationEventPublisher = Preconditions.checkNotNull(applicationEventPublisher);
+    }
+
+    @PostConstruct
+    public void init() {
+        LifecycleCallbackRegistry callbackRegistry = serverRuntime.getDataDomain().getEntityResolver().getCallbackRegistry();
+        callbackRegistry.addListener(User.class, this);
+    }
+
+    @Override
+    public void postAdd(Object entity) {
+    }
+
+    @Override
+    public void prePersist(Object entity) {
+    }
+
+    @Override
+    public void postPersist(Object entity) {
+    }
+
+    @Override
+    public void preRemove(Object entity) {
+    }
+
+    @Override
+    public void postRemove(Object entity) {
+    }
+
+    @Override
+    public void preUpdate(Object entity) {
+        User user = (User) entity;
+
+        if (isAuthenticationChanged(user)) {
+            authenticationChangedUserObjectIds.add(user.getObjectId());
+        }
+    }
+
+    @Override
+    public void postUpdate(Object entity) {
+        User user = (User) entity;
+
+        if (authenticationChangedUserObjectIds.remove(user.getObjectId())) {
+            applicationEventPublisher.publishEvent(new UserAuthenticationChangedEvent(user.getNickname()));
+        }
+    }
+
+    @Override
+    public void postLoad(Object entity) {
+    }
+
+    /**
+     * <p>The values are keyed by the names of the database columns.</p>
+     */
+
+    private static boolean isAuthenticationChanged(User user) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("active", user.getActive());
+        values.put("nickname", user.getNickname());
+        values.put("password_hash", user.getPasswordHash());
+        values.put("password_salt", user.getPasswordSalt());
+        return CommittedSnapshotHelper.isAnyChanged(user, values);
+    }
+
+}
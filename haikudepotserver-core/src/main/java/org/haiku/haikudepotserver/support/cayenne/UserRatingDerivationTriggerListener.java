@@ -1,74 +1,160 @@
 /*
- * Copyright 2018-2023, Andrew Lindesay
+ * Copyright 2018-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
 package org.haiku.haikudepotserver.support.cayenne;
 
 import com.google.common.base.Preconditions;
+import org.apache.cayenne.DataChannel;
+import org.apache.cayenne.DataChannelFilter;
+import org.apache.cayenne.DataChannelFilterChain;
 import org.apache.cayenne.LifecycleListener;
+import org.apache.cayenne.ObjectContext;
+import org.apache.cayenne.Persistent;
+import org.apache.cayenne.QueryResponse;
 import org.apache.cayenne.configuration.server.ServerRuntime;
+import org.apache.cayenne.graph.GraphDiff;
+import org.apache.cayenne.query.Query;
 import org.apache.cayenne.reflect.LifecycleCallbackRegistry;
+import org.haiku.haikudepotserver.dataobjects.PkgVersion;
 import org.haiku.haikudepotserver.dataobjects.UserRating;
 import org.haiku.haikudepotserver.job.model.JobService;
 import org.haiku.haikudepotserver.job.model.JobSnapshot;
 import org.haiku.haikudepotserver.userrating.model.UserRatingDerivationJobSpecification;
+import org.haiku.haikudepotserver.userrating.model.UserRatingService;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * <p>This listener will detect changes in the user rating entities and will then trigger a process (probably
  * async) that is able to update the derived user rating on the package involved.</p>
+ *
+ * <p>Changes to package versions also have a bearing on the derived user rating; for example when a new version
+ * is added, older ratings may no longer be considered.  In this case the package is marked as requiring
+ * derivation, but no process is triggered because many package versions are changed together during an import
+ * of a repository.  The import triggers the process once it has finished.  Only a change to whether a package
+ * version is active or is the latest has a bearing on the derivation so other changes are ignored.</p>
+ *
+ * <p>The packages involved are collected on the context while the changes are committed and then, in the same
+ * way as {@link QueryCacheRemoveGroupDataChannelFilter}, they are marked together once the commit has
+ * succeeded rather than once for each object.</p>
  */
 
 @Component
-public class UserRatingDerivationTriggerListener implements LifecycleListener {
+public class UserRatingDerivationTriggerListener implements LifecycleListener, DataChannelFilter {
+
+    private final static String KEY_USERRATINGDERIVATIONPKGNAMES = "org.haiku.haikudepotserver.UserRatingDerivationPkgNames";
+
+    private final static String KEY_USERRATINGCHANGED = "org.haiku.haikudepotserver.UserRatingChanged";
 
     private final ServerRuntime serverRuntime;
 
     private final JobService jobService;
 
+    private final UserRatingService userRatingService;
+
     public UserRatingDerivationTriggerListener(
             ServerRuntime serverRuntime,
-            JobService jobService) {
+            JobService jobService,
+            UserRatingService userRatingService) {
         this.serverRuntime = Preconditions.checkNotNull(serverRuntime);
         this.jobService = Preconditions.checkNotNull(jobService);
+        this.userRatingService = Preconditions.checkNotNull(userRatingService);
     }
 
     @PostConstruct
     public void init() {
         LifecycleCallbackRegistry callbackRegistry = serverRuntime.getDataDomain().getEntityResolver().getCallbackRegistry();
         callbackRegistry.addListener(UserRating.class, this);
+        callbackRegistry.addListener(PkgVersion.class, this);
+        serverRuntime.getDataDomain().addFilter(this);
     }
 
     private String derivePkgName(Object entity) {
         Preconditions.checkNotNull(entity);
+
+        if (entity instanceof PkgVersion pkgVersion) {
+            return pkgVersion.getPkg().getName();
+        }
+
         UserRating userRating = (UserRating) entity;
         return userRating.getPkgVersion().getPkg().getName();
     }
 
-    private void triggerUpdateUserRatingDerivationForAssociatedPkg(Object entity) {
-        triggerUpdateUserRatingDerivationForPkgName(derivePkgName(entity));
+    /**
+     * <p>The values are keyed by the names of the database columns.</p>
+     */
+
+    private static boolean isDerivationAffectingChange(PkgVersion pkgVersion) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("active", pkgVersion.getActive());
+        values.put("is_latest", pkgVersion.getIsLatest());
+        return CommittedSnapshotHelper.isAnyChanged(pkgVersion, values);
     }
 
-    private void triggerUpdateUserRatingDerivationForPkgName(String pkgName) {
-        UserRatingDerivationJobSpecification specification = new UserRatingDerivationJobSpecification();
-        specification.setPkgName(pkgName);
-        jobService.submit(specification, JobSnapshot.COALESCE_STATUSES_QUEUED);
+    private void registerAssociatedPkg(Object entity) {
+        ObjectContext context = ((Persistent) entity).getObjectContext();
+
+        if (null == context) {
+            throw new IllegalStateException("an entity was encountered with no context");
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<String> pkgNames = (Set<String>) context.getUserProperty(KEY_USERRATINGDERIVATIONPKGNAMES);
+
+        if (null == pkgNames) {
+            pkgNames = new HashSet<>();
+            context.setUserProperty(KEY_USERRATINGDERIVATIONPKGNAMES, pkgNames);
+        }
+
+        pkgNames.add(derivePkgName(entity));
+
+        if (entity instanceof UserRating) {
+            context.setUserProperty(KEY_USERRATINGCHANGED, Boolean.TRUE);
+        }
     }
 
+    private void triggerUpdateUserRatingDerivations(ObjectContext context) {
+        @SuppressWarnings("unchecked")
+        Set<String> pkgNames = (Set<String>) context.getUserProperty(KEY_USERRATINGDERIVATIONPKGNAMES);
+
+        if (null == pkgNames || pkgNames.isEmpty()) {
+            return;
+        }
+
+        userRatingService.markUserRatingDerivationsDirty(pkgNames);
+
+        if (Boolean.TRUE.equals(context.getUserProperty(KEY_USERRATINGCHANGED))) {
+            UserRatingDerivationJobSpecification specification = new UserRatingDerivationJobSpecification();
+            specification.setDirtyPkgs(true);
+            jobService.submit(specification, JobSnapshot.COALESCE_STATUSES_QUEUED);
+        }
+    }
+
+    // --------------
+    // LifecycleListener
+
     @Override
     public void postAdd(Object entity) {
     }
 
     @Override
     public void prePersist(Object entity) {
+        if (entity instanceof UserRating
+                || (entity instanceof PkgVersion pkgVersion
+                        && (Boolean.TRUE.equals(pkgVersion.getActive()) || Boolean.TRUE.equals(pkgVersion.getIsLatest())))) {
+            registerAssociatedPkg(entity);
+        }
     }
 
     @Override
     public void postPersist(Object entity) {
-        triggerUpdateUserRatingDerivationForAssociatedPkg(entity);
     }
 
     @Override
@@ -81,15 +167,48 @@ public class UserRatingDerivationTriggerListener implements LifecycleListener {
 
     @Override
     public void preUpdate(Object entity) {
+        if (entity instanceof UserRating
+                || (entity instanceof PkgVersion pkgVersion && isDerivationAffectingChange(pkgVersion))) {
+            registerAssociatedPkg(entity);
+        }
     }
 
     @Override
     public void postUpdate(Object entity) {
-        triggerUpdateUserRatingDerivationForAssociatedPkg(entity);
     }
 
     @Override
     public void postLoad(Object entity) {
     }
 
+    // --------------
+    // DataChannelFilter
+
+    @Override
+    public void init(DataChannel channel) {
+    }
+
+    @Override
+    public QueryResponse onQuery(ObjectContext originatingContext, Query query, DataChannelFilterChain filterChain) {
+        return filterChain.onQuery(originatingContext, query);
+    }
+
+    @Override
+    public GraphDiff onSync(ObjectContext originatingContext, GraphDiff changes, int syncType, DataChannelFilterChain filterChain) {
+        try {
+            GraphDiff result = filterChain.onSync(originatingContext, changes, syncType);
+
+            switch (syncType) {
+                case DataChannel.FLUSH_NOCASCADE_SYNC,
+                        DataChannel.FLUSH_CASCADE_SYNC -> triggerUpdateUserRatingDerivations(originatingContext);
+            }
+
+            return result;
+        }
+        finally {
+            originatingContext.setUserProperty(KEY_USERRATINGDERIVATIONPKGNAMES, new HashSet<String>());
+            originatingContext.setUserProperty(KEY_USERRATINGCHANGED, Boolean.FALSE);
+        }
+    }
+
 }
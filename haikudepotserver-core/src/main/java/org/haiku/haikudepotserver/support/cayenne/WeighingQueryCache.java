@@ -0,0 +1,223 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.support.cayenne;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.base.Preconditions;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.apache.cayenne.CayenneRuntimeException;
+import org.apache.cayenne.cache.QueryCache;
+import org.apache.cayenne.cache.QueryCacheEntryFactory;
+import org.apache.cayenne.query.QueryMetadata;
+import org.apache.commons.lang3.StringUtils;
+import org.haiku.haikudepotserver.metrics.MetricsConstants;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>This is an implementation of the Cayenne {@link QueryCache} which holds a separate
+ * cache for each query cache group. Each group is able to have its own capacity and
+ * expiry so that, for example, large lists of results for one group are not able to
+ * push out the small lookups of reference data from another group. The capacity is
+ * expressed as a <em>weight</em> which is an approximation of the size of the results
+ * in bytes rather than as a count of entries.</p>
+ *
+ * <p>The hits, misses and evictions for each group's cache are exported to the
+ * {@link MeterRegistry}.</p>
+ *
+ * <p>This cache is expected to be decorated by the {@link NotifyingQueryCache}.</p>
+ */
+
+public class WeighingQueryCache implements QueryCache {
+
+    /**
+     * <p>This is the name of the group in which queries that have no cache group are
+     * stored.</p>
+     */
+
+    private final static String GROUP_NONE = "_none";
+
+    private final static int WEIGHT_OVERHEAD = 16;
+
+    private final MeterRegistry meterRegistry;
+
+    private final QueryCacheGroupSpecification defaultSpecification;
+
+    private final Map<String, QueryCacheGroupSpecification> groupSpecifications;
+
+    private final ConcurrentMap<String, Cache<String, List<?>>> groupCaches = new ConcurrentHashMap<>();
+
+    public WeighingQueryCache(
+            MeterRegistry meterRegistry,
+            QueryCacheGroupSpecification defaultSpecification,
+            Map<String, QueryCacheGroupSpecification> groupSpecifications) {
+        this.meterRegistry = Preconditions.checkNotNull(meterRegistry);
+        this.defaultSpecification = Preconditions.checkNotNull(defaultSpecification);
+        this.groupSpecifications = Map.copyOf(Preconditions.checkNotNull(groupSpecifications));
+    }
+
+    @Override
+    public List get(QueryMetadata metadata) {
+        Preconditions.checkArgument(null != metadata, "the metadata must be supplied");
+        String key = metadata.getCacheKey();
+
+        if (null == key) {
+            return null;
+        }
+
+        return getOrCreateGroupCache(metadata.getCacheGroup()).getIfPresent(key);
+    }
+
+    /**
+     * <p>This follows the same logic as Cayenne's own implementations; the factory is
+     * invoked outside of any lock on the cache so that a slow query does not block
+     * other use of the cache.</p>
+     */
+
+    @Override
+    public List get(QueryMetadata metadata, QueryCacheEntryFactory factory) {
+        List result = get(metadata);
+
+        if (null == result) {
+            Object newObject = factory.createObject();
+
+            if (!(newObject instanceof List)) {
+                if (null == newObject) {
+                    throw new CayenneRuntimeException("null object created: " + metadata.getCacheKey());
+                }
+                throw new CayenneRuntimeException("invalid query result, expected List, got "
+                        + newObject.getClass().getName());
+            }
+
+            result = (List) newObject;
+            put(metadata, result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void put(QueryMetadata metadata, List results) {
+        Preconditions.checkArgument(null != metadata, "the metadata must be supplied");
+        String key = metadata.getCacheKey();
+
+        if (null != key && null != results) {
+            getOrCreateGroupCache(metadata.getCacheGroup()).put(key, results);
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        if (null != key) {
+            groupCaches.values().forEach(c -> c.invalidate(key));
+        }
+    }
+
+    @Override
+    public void removeGroup(String groupKey) {
+        if (null != groupKey) {
+            Cache<String, List<?>> cache = groupCaches.get(groupKey);
+
+            if (null != cache) {
+                cache.invalidateAll();
+            }
+        }
+    }
+
+    /**
+     * <p>The entries for a group are held together so there is no need to consider
+     * the types.</p>
+     */
+
+    @Override
+    public void removeGroup(String groupKey, Class<?> keyType, Class<?> valueType) {
+        removeGroup(groupKey);
+    }
+
+    @Override
+    public void clear() {
+        groupCaches.values().forEach(Cache::invalidateAll);
+    }
+
+    private Cache<String, List<?>> getOrCreateGroupCache(String groupKey) {
+        return groupCaches.computeIfAbsent(
+                StringUtils.isBlank(groupKey) ? GROUP_NONE : groupKey,
+                this::createGroupCache);
+    }
+
+    private Cache<String, List<?>> createGroupCache(String groupKey) {
+        QueryCacheGroupSpecification specification = groupSpecifications.getOrDefault(groupKey, defaultSpecification);
+
+        Caffeine<String, List<?>> builder = Caffeine.newBuilder()
+                .maximumWeight(specification.maxWeight())
+                .<String, List<?>>weigher((k, v) -> weigh(v))
+                .recordStats();
+
+        if (specification.expirySeconds() > 0) {
+            builder = builder.expireAfterWrite(Duration.ofSeconds(specification.expirySeconds()));
+        }
+
+        return CaffeineCacheMetrics.monitor(
+                meterRegistry,
+                builder.build(),
+                MetricsConstants.CACHE_NAME_CAYENNE_QUERY,
+                Tags.of(MetricsConstants.TAG_NAME_GROUP, groupKey));
+    }
+
+    /**
+     * <p>Approximates the size of the results in bytes. In the case of shared caching,
+     * the results are typically {@link org.apache.cayenne.DataRow}s and in the case of
+     * column queries they are arrays or scalar values.</p>
+     */
+
+    static int weigh(List<?> results) {
+        long weight = WEIGHT_OVERHEAD;
+
+        for (Object result : results) {
+            weight += weighValue(result);
+        }
+
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    private static long weighValue(Object value) {
+        return switch (value) {
+            case null -> 0L;
+            case byte[] bytes -> WEIGHT_OVERHEAD + bytes.length;
+            case CharSequence charSequence -> WEIGHT_OVERHEAD + 2L * charSequence.length();
+            case Object[] values -> {
+                long weight = WEIGHT_OVERHEAD;
+                for (Object v : values) {
+                    weight += weighValue(v);
+                }
+                yield weight;
+            }
+            case Map<?, ?> map -> {
+                long weight = WEIGHT_OVERHEAD;
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    weight += WEIGHT_OVERHEAD + weighValue(entry.getValue());
+                }
+                yield weight;
+            }
+            case Collection<?> collection -> {
+                long weight = WEIGHT_OVERHEAD;
+                for (Object v : collection) {
+                    weight += weighValue(v);
+                }
+                yield weight;
+            }
+            default -> WEIGHT_OVERHEAD;
+        };
+    }
+
+}
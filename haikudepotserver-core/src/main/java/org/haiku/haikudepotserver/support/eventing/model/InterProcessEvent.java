@@ -1,5 +1,5 @@
 /*
- * Copyright 2025, Andrew Lindesay
+ * Copyright 2025-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 package org.haiku.haikudepotserver.support.eventing.model;
@@ -12,6 +12,8 @@ import com.google.common.base.Preconditions;
 import org.apache.commons.lang3.StringUtils;
 import org.haiku.haikudepotserver.deployment.model.ShutdownAllInstancesEvent;
 import org.haiku.haikudepotserver.job.model.JobAvailableEvent;
+import org.haiku.haikudepotserver.security.model.AuthorizationPkgRulesChangedEvent;
+import org.haiku.haikudepotserver.security.model.UserAuthenticationChangedEvent;
 import org.haiku.haikudepotserver.support.cayenne.QueryCacheRemoveEvent;
 
 /**
@@ -24,7 +26,9 @@ import org.haiku.haikudepotserver.support.cayenne.QueryCacheRemoveEvent;
 @JsonSubTypes({
         @JsonSubTypes.Type(value = ShutdownAllInstancesEvent.class, name = "ShutdownAllInstancesEvent"),
         @JsonSubTypes.Type(value = JobAvailableEvent.class, name = "JobAvailableEvent"),
-        @JsonSubTypes.Type(value = QueryCacheRemoveEvent.class, name = "QueryCacheDropEvent")
+        @JsonSubTypes.Type(value = QueryCacheRemoveEvent.class, name = "QueryCacheDropEvent"),
+        @JsonSubTypes.Type(value = UserAuthenticationChangedEvent.class, name = "UserAuthenticationChangedEvent"),
+        @JsonSubTypes.Type(value = AuthorizationPkgRulesChangedEvent.class, name = "AuthorizationPkgRulesChangedEvent")
 })
 public abstract class InterProcessEvent {
 
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+
+package org.haiku.haikudepotserver.userrating;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ComparisonChain;
+import org.apache.cayenne.ObjectContext;
+import org.apache.cayenne.query.ObjectSelect;
+import org.haiku.haikudepotserver.dataobjects.Architecture;
+import org.haiku.haikudepotserver.dataobjects.Pkg;
+import org.haiku.haikudepotserver.dataobjects.PkgVersion;
+import org.haiku.haikudepotserver.dataobjects.Repository;
+import org.haiku.haikudepotserver.dataobjects.RepositorySource;
+import org.haiku.haikudepotserver.dataobjects.User;
+import org.haiku.haikudepotserver.dataobjects.UserRating;
+import org.haiku.haikudepotserver.support.VersionCoordinates;
+import org.haiku.haikudepotserver.support.VersionCoordinatesComparator;
+import org.haiku.haikudepotserver.userrating.model.DerivedUserRating;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Derives the user ratings for a number of packages at once.  This produces the same
+ * results as {@link UserRatingServiceImpl#tryCreateUserRatingDerivation} but rather than
+ * querying the ratings of each user for each package, the active package versions and the
+ * ratings for all of the packages are each fetched with a single query.  The ratings are
+ * ordered by package, repository and user so that the latest rating from each user within
+ * the most recent versions can be found in a single pass over the ratings.</p>
+ *
+ * <p>As with the original algorithm, only the active package versions in active repositories
+ * are considered so that no rating is derived for a package in an inactive repository.</p>
+ */
+
+public class UserRatingDerivationEngine {
+
+    private final static VersionCoordinatesComparator VERSION_COORDINATES_COMPARATOR =
+            new VersionCoordinatesComparator();
+
+    private final static VersionCoordinatesComparator MAIN_PARTS_VERSION_COORDINATES_COMPARATOR =
+            new VersionCoordinatesComparator(true);
+
+    /**
+     * <p>Orders the ratings from a single user in the same way as the original algorithm so that
+     * the last one is the one that is used.</p>
+     */
+
+    private final static Comparator<RatingRow> RATING_ROW_COMPARATOR = (o1, o2) -> ComparisonChain.start()
+            .compare(o1.versionCoordinates(), o2.versionCoordinates(), VERSION_COORDINATES_COMPARATOR)
+            .compare(o1.createTimestamp(), o2.createTimestamp())
+            .compare(o1.architectureCode(), o2.architectureCode())
+            .result();
+
+    private final int versionsBack;
+
+    private final int minRatings;
+
+    public UserRatingDerivationEngine(int versionsBack, int minRatings) {
+        Preconditions.checkArgument(versionsBack >= 0, "the versions back must not be negative");
+        this.versionsBack = versionsBack;
+        this.minRatings = minRatings;
+    }
+
+    /**
+     * <p>Derives the user ratings for the packages.  Only those combinations of package and
+     * repository for which a rating can be derived are present in the result.</p>
+     */
+
+    public Map<PkgRepository, DerivedUserRating> derive(ObjectContext context, Collection<String> pkgNames) {
+        Preconditions.checkArgument(null != context, "the context must be supplied");
+        Preconditions.checkArgument(null != pkgNames, "the pkg names must be supplied");
+
+        if (pkgNames.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<PkgRepository, VersionCoordinates> oldestVersionCoordinates = deriveOldestVersionCoordinates(context, pkgNames);
+        Map<PkgRepository, DerivedUserRating> result = new HashMap<>();
+        Accumulator accumulator = new Accumulator(oldestVersionCoordinates, result);
+
+        ObjectSelect.columnQuery(
+                        UserRating.class,
+                        UserRating.PKG_VERSION.dot(PkgVersion.PKG).dot(Pkg.NAME),
+                        UserRating.PKG_VERSION.dot(PkgVersion.REPOSITORY_SOURCE).dot(RepositorySource.REPOSITORY).dot(Repository.CODE),
+                        UserRating.USER.dot(User.NICKNAME),
+                        UserRating.PKG_VERSION.dot(PkgVersion.MAJOR),
+                        UserRating.PKG_VERSION.dot(PkgVersion.MINOR),
+                        UserRating.PKG_VERSION.dot(PkgVersion.MICRO),
+                        UserRating.PKG_VERSION.dot(PkgVersion.PRE_RELEASE),
+                        UserRating.PKG_VERSION.dot(PkgVersion.REVISION),
+                        UserRating.PKG_VERSION.dot(PkgVersion.ARCHITECTURE).dot(Architecture.CODE),
+                        UserRating.CREATE_TIMESTAMP,
+                        UserRating.RATING)
+                .where(UserRating.ACTIVE.isTrue())
+                .and(UserRating.USER.dot(User.ACTIVE).isTrue())
+                .and(UserRating.PKG_VERSION.dot(PkgVersion.ACTIVE).isTrue())
+                .and(UserRating.PKG_VERSION.dot(PkgVersion.REPOSITORY_SOURCE).dot(RepositorySource.REPOSITORY).dot(Repository.ACTIVE).isTrue())
+                .and(UserRating.PKG_VERSION.dot(PkgVersion.PKG).dot(Pkg.NAME).in(pkgNames))
+                .orderBy(
+                        UserRating.PKG_VERSION.dot(PkgVersion.PKG).dot(Pkg.NAME).asc(),
+                        UserRating.PKG_VERSION.dot(PkgVersion.REPOSITORY_SOURCE).dot(RepositorySource.REPOSITORY).dot(Repository.CODE).asc(),
+                        UserRating.USER.dot(User.NICKNAME).asc())
+                .iterate(context, row -> accumulator.accept(new RatingRow(
+                        new PkgRepository((String) row[0], (String) row[1]),
+                        (String) row[2],
+                        new VersionCoordinates(
+                                (String) row[3],
+                                (String) row[4],
+                                (String) row[5],
+                                (String) row[6],
+                                (Integer) row[7]),
+                        (String) row[8],
+                        (Timestamp) row[9],
+                        (Short) row[10])));
+
+        accumulator.finish();
+
+        // if no ratings are required then there is a rating wherever there are package versions.
+
+        if (minRatings <= 0) {
+            oldestVersionCoordinates.keySet().forEach(
+                    pkgRepository -> result.putIfAbsent(pkgRepository, DerivedUserRating.fromRatings(List.of())));
+        }
+
+        return result;
+    }
+
+    /**
+     * <p>Works back from the latest version of each package in each repository in order to find
+     * the oldest version from which ratings are taken.</p>
+     */
+
+    private Map<PkgRepository, VersionCoordinates> deriveOldestVersionCoordinates(
+            ObjectContext context,
+            Collection<String> pkgNames) {
+        List<Object[]> rows = ObjectSelect.columnQuery(
+                        PkgVersion.class,
+                        PkgVersion.PKG.dot(Pkg.NAME),
+                        PkgVersion.REPOSITORY_SOURCE.dot(RepositorySource.REPOSITORY).dot(Repository.CODE),
+                        PkgVersion.MAJOR,
+                        PkgVersion.MINOR,
+                        PkgVersion.MICRO)
+                .where(PkgVersion.ACTIVE.isTrue())
+                .and(PkgVersion.REPOSITORY_SOURCE.dot(RepositorySource.REPOSITORY).dot(Repository.ACTIVE).isTrue())
+                .and(PkgVersion.PKG.dot(Pkg.NAME).in(pkgNames))
+                .distinct()
+                .select(context);
+
+        Map<PkgRepository, List<VersionCoordinates>> versionCoordinatesByPkgRepository = rows.stream()
+                .collect(Collectors.groupingBy(
+                        row -> new PkgRepository((String) row[0], (String) row[1]),
+                        Collectors.mapping(
+                                row -> new VersionCoordinates((String) row[2], (String) row[3], (String) row[4], null, null),
+                                Collectors.toList())));
+
+        Map<PkgRepository, VersionCoordinates> result = new HashMap<>();
+
+        versionCoordinatesByPkgRepository.forEach((pkgRepository, versionCoordinates) -> {
+            List<VersionCoordinates> sorted = versionCoordinates.stream()
+                    .distinct()
+                    .sorted(VERSION_COORDINATES_COMPARATOR)
+                    .toList();
+            result.put(pkgRepository, sorted.get(Math.max(0, sorted.size() - (versionsBack + 1))));
+        });
+
+        return result;
+    }
+
+    /**
+     * <p>Receives the ratings in order and keeps only the latest rating from each user.  When all
+     * of the ratings for a package in a repository have been received, the derived rating is
+     * created.</p>
+     */
+
+    private class Accumulator {
+
+        private final Map<PkgRepository, VersionCoordinates> oldestVersionCoordinates;
+
+        private final Map<PkgRepository, DerivedUserRating> result;
+
+        private PkgRepository currentPkgRepository = null;
+
+        private String currentNickname = null;
+
+        private RatingRow currentLatestRow = null;
+
+        private final List<Short> currentRatings = new ArrayList<>();
+
+        Accumulator(
+                Map<PkgRepository, VersionCoordinates> oldestVersionCoordinates,
+                Map<PkgRepository, DerivedUserRating> result) {
+            this.oldestVersionCoordinates = oldestVersionCoordinates;
+            this.result = result;
+        }
+
+        void accept(RatingRow row) {
+            VersionCoordinates oldest = oldestVersionCoordinates.get(row.pkgRepository());
+
+            if (null == oldest
+                    || MAIN_PARTS_VERSION_COORDINATES_COMPARATOR.compare(row.versionCoordinates(), oldest) < 0) {
+                return;
+            }
+
+            if (!row.pkgRepository().equals(currentPkgRepository)) {
+                finishPkgRepository();
+                currentPkgRepository = row.pkgRepository();
+            }
+
+            if (!row.nickname().equals(currentNickname)) {
+                finishUser();
+                currentNickname = row.nickname();
+            }
+
+            if (null == currentLatestRow || RATING_ROW_COMPARATOR.compare(row, currentLatestRow) >= 0) {
+                currentLatestRow = row;
+            }
+        }
+
+        void finish() {
+            finishPkgRepository();
+        }
+
+        private void finishUser() {
+            if (null != currentLatestRow && null != currentLatestRow.rating()) {
+                currentRatings.add(currentLatestRow.rating());
+            }
+
+            currentNickname = null;
+            currentLatestRow = null;
+        }
+
+        private void finishPkgRepository() {
+            finishUser();
+
+            if (null != currentPkgRepository && currentRatings.size() >= minRatings) {
+                result.put(currentPkgRepository, DerivedUserRating.fromRatings(currentRatings));
+            }
+
+            currentPkgRepository = null;
+            currentRatings.clear();
+        }
+
+    }
+
+    public record PkgRepository(String pkgName, String repositoryCode) {
+
+        public PkgRepository {
+            Objects.requireNonNull(pkgName);
+            Objects.requireNonNull(repositoryCode);
+        }
+
+    }
+
+    private record RatingRow(
+            PkgRepository pkgRepository,
+            String nickname,
+            VersionCoordinates versionCoordinates,
+            String architectureCode,
+            Timestamp createTimestamp,
+            Short rating) {
+    }
+
+}
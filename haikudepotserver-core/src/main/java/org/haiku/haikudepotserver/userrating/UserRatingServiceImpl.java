@@ -1,5 +1,5 @@
 /*
- * Copyright 2018-2024, Andrew Lindesay
+ * Copyright 2018-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
@@ -8,12 +8,17 @@ package org.haiku.haikudepotserver.userrating;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.Lists;
+import org.apache.cayenne.DataRow;
 import org.apache.cayenne.ObjectContext;
 import org.apache.cayenne.configuration.server.ServerRuntime;
 import org.apache.cayenne.exp.ExpressionFactory;
+import org.apache.cayenne.query.MappedExec;
+import org.apache.cayenne.query.MappedSelect;
 import org.apache.cayenne.query.ObjectSelect;
 import org.apache.commons.lang3.StringUtils;
 import org.haiku.haikudepotserver.dataobjects.*;
+import org.haiku.haikudepotserver.dataobjects.auto._HaikuDepot;
 import org.haiku.haikudepotserver.support.StoppableConsumer;
 import org.haiku.haikudepotserver.support.VersionCoordinates;
 import org.haiku.haikudepotserver.support.VersionCoordinatesComparator;
@@ -25,10 +30,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.sql.Timestamp;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 // Implementation note; the search query here is done using raw SQL as a Cayenne template. This is done in this
 // way because the aggregation logic is complex enough to need to be done in SQL and the search query needs to
@@ -39,10 +44,12 @@ public class UserRatingServiceImpl implements UserRatingService {
 
     protected final static Logger LOGGER = LoggerFactory.getLogger(UserRatingServiceImpl.class);
 
+    private final static int DERIVATION_BATCH_SIZE = 100;
+
     private final ServerRuntime serverRuntime;
     private final int userRatingDerivationVersionsBack;
     private final int userRatingsDerivationMinRatings;
-
+    private final UserRatingDerivationEngine userRatingDerivationEngine;
 
     public UserRatingServiceImpl(
             ServerRuntime serverRuntime,
@@ -51,6 +58,8 @@ public class UserRatingServiceImpl implements UserRatingService {
         this.serverRuntime = Preconditions.checkNotNull(serverRuntime);
         this.userRatingDerivationVersionsBack = userRatingDerivationVersionsBack;
         this.userRatingsDerivationMinRatings = userRatingsDerivationMinRatings;
+        this.userRatingDerivationEngine = new UserRatingDerivationEngine(
+                userRatingDerivationVersionsBack, userRatingsDerivationMinRatings);
     }
 
     // -------------------------------------
@@ -178,30 +187,11 @@ public class UserRatingServiceImpl implements UserRatingService {
         Preconditions.checkNotNull(user);
         return ObjectSelect.query(UserRating.class)
                 .where(UserRating.USER.eq(user))
-                .column(UserRating.PKG_VERSION.dot(Pkg.NAME))
+                .column(UserRating.PKG_VERSION.dot(PkgVersion.PKG).dot(Pkg.NAME))
                 .distinct()
                 .select(context);
     }
 
-    private float averageAsFloat(Collection<Short> ratings) {
-        Preconditions.checkNotNull(ratings);
-
-        if(ratings.isEmpty()) {
-            return 0f;
-        }
-
-        int sum = 0;
-
-        for(short rating : ratings) {
-            sum += rating;
-        }
-
-        sum *= 100;
-        sum /= ratings.size();
-
-        return ((float) sum) / 100f;
-    }
-
     private List<String> getUserNicknamesWhoHaveRatedPkgVersions(ObjectContext context, List<PkgVersion> pkgVersions) {
         Preconditions.checkNotNull(context);
         Preconditions.checkNotNull(pkgVersions);
@@ -223,7 +213,8 @@ public class UserRatingServiceImpl implements UserRatingService {
     }
 
     /**
-     * <p>This method will go through all of the relevant packages and will derive their user ratings.</p>
+     * <p>This method will go through all of the relevant packages and will derive their user ratings.
+     * The packages are processed in batches; see {@link UserRatingDerivationEngine}.</p>
      */
 
     @Override
@@ -231,15 +222,13 @@ public class UserRatingServiceImpl implements UserRatingService {
         ObjectContext context = serverRuntime.newContext();
         List<String> pkgNames = ObjectSelect.query(Pkg.class)
                 .where(Pkg.ACTIVE.isTrue())
-                .orderBy(Pkg.NAME.desc())
+                .orderBy(Pkg.NAME.asc())
                 .column(Pkg.NAME)
                 .select(context);
 
         LOGGER.info("will derive and store user ratings for {} packages", pkgNames.size());
 
-        for (String pkgName : pkgNames) {
-            updateUserRatingDerivationsForPkg(pkgName);
-        }
+        Lists.partition(pkgNames, DERIVATION_BATCH_SIZE).forEach(this::updateUserRatingDerivations);
 
         LOGGER.info("did derive and store user ratings for {} packages", pkgNames.size());
     }
@@ -251,20 +240,8 @@ public class UserRatingServiceImpl implements UserRatingService {
 
     @Override
     public void updateUserRatingDerivationsForPkg(String pkgName) {
-         Preconditions.checkArgument(!Strings.isNullOrEmpty(pkgName), "the name of the package is required");
-
-        ObjectContext context = serverRuntime.newContext();
-
-        List<String> repositoryCodes = ObjectSelect.query(PkgVersion.class)
-                .where(PkgVersion.PKG.dot(Pkg.NAME).eq(pkgName))
-                .column(PkgVersion.REPOSITORY_SOURCE.dot(RepositorySource.REPOSITORY).dot(Repository.CODE))
-                .orderBy(PkgVersion.REPOSITORY_SOURCE.dot(RepositorySource.REPOSITORY).dot(Repository.CODE).desc())
-                .distinct()
-                .select(context);
-
-        for(String repositoryCode : repositoryCodes) {
-            updateUserRatingDerivation(pkgName, repositoryCode);
-        }
+        Preconditions.checkArgument(!Strings.isNullOrEmpty(pkgName), "the name of the package is required");
+        updateUserRatingDerivations(List.of(pkgName));
     }
 
     @Override
@@ -275,71 +252,153 @@ public class UserRatingServiceImpl implements UserRatingService {
         List<String> pkgNames = pkgNamesEffectedByUserActiveStateChange(context, user);
         LOGGER.info("will update user rating derivations for user [{}] including {} pkgs",
                 user, pkgNames.size());
-        pkgNames.forEach(this::updateUserRatingDerivationsForPkg);
+        Lists.partition(pkgNames, DERIVATION_BATCH_SIZE).forEach(this::updateUserRatingDerivations);
+    }
+
+    @Override
+    public void markUserRatingDerivationsDirty(Collection<String> pkgNames) {
+        Preconditions.checkArgument(null != pkgNames, "the pkg names must be supplied");
+
+        if (pkgNames.isEmpty()) {
+            return;
+        }
+
+        ObjectContext context = serverRuntime.newContext();
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<String> distinctPkgNames = pkgNames.stream().distinct().sorted().toList();
+
+        for (List<String> batch : Lists.partition(distinctPkgNames, DERIVATION_BATCH_SIZE)) {
+            MappedExec.query(_HaikuDepot.MARK_USER_RATING_DERIVATION_DIRTY_PKGS_QUERYNAME)
+                    .params(Map.of(
+                            "now", now,
+                            "pkgNames", batch))
+                    .update(context);
+        }
+
+        LOGGER.debug("did mark {} pkgs as requiring user rating derivation", distinctPkgNames.size());
     }
 
     /**
-     * <p>This method will update the stored user rating aggregate (average) for the package for the
-     * specified repository.</p>
+     * <p>The dirty packages are taken in batches.  Each batch is taken and derived in a single
+     * transaction so that, should the derivation fail, the packages remain dirty.  A package
+     * which is marked dirty again while it is being derived waits for the transaction and so
+     * will be derived again later.</p>
      */
 
-    private void updateUserRatingDerivation(String pkgName, String repositoryCode) {
-        Preconditions.checkState(!Strings.isNullOrEmpty(pkgName));
-        Preconditions.checkState(!Strings.isNullOrEmpty(repositoryCode));
+    @Override
+    public void updateUserRatingDerivationsForDirtyPkgs() {
+        int total = 0;
+
+        while (true) {
+            List<String> pkgNames = serverRuntime.performInTransaction(() -> {
+                List<String> takenPkgNames = MappedSelect.query(
+                                _HaikuDepot.TAKE_USER_RATING_DERIVATION_DIRTY_PKGS_QUERYNAME, DataRow.class)
+                        .param("limit", DERIVATION_BATCH_SIZE)
+                        .select(serverRuntime.newContext())
+                        .stream()
+                        .map(dr -> (String) dr.get("name"))
+                        .toList();
 
-        ObjectContext context = serverRuntime.newContext();
-        Pkg pkg = Pkg.tryGetByName(context, pkgName)
-                .orElseThrow(() -> new IllegalStateException("user derivation job submitted, but no pkg was found; " + pkgName));
-        Repository repository = Repository.tryGetByCode(context, repositoryCode)
-                .orElseThrow(() -> new IllegalStateException("user derivation job submitted, but no repository was found; " + repositoryCode));
+                if (!takenPkgNames.isEmpty()) {
+                    updateUserRatingDerivations(takenPkgNames);
+                }
 
-        long beforeMillis = System.currentTimeMillis();
-        Optional<DerivedUserRating> rating = tryCreateUserRatingDerivation(context, pkg, repository);
+                return takenPkgNames;
+            });
 
-        LOGGER.info("calculated the user rating for {} in {} in {}ms", pkg, repository, System.currentTimeMillis() - beforeMillis);
+            if (pkgNames.isEmpty()) {
+                break;
+            }
 
-        if(rating.isEmpty()) {
-            LOGGER.info("unable to establish a user rating for {} in {}", pkg, repository);
-        }
-        else {
-            LOGGER.info(
-                    "user rating established for {} in {}; {} (sample {})",
-                    pkg,
-                    repository,
-                    rating.get().rating(),
-                    rating.get().sampleSize());
+            total += pkgNames.size();
         }
 
-        Optional<PkgUserRatingAggregate> pkgUserRatingAggregateOptional = pkg.getPkgUserRatingAggregate(repository);
+        LOGGER.info("did derive and store user ratings for {} dirty pkgs", total);
+    }
 
-        if(rating.isPresent()) {
+    /**
+     * <p>Derives the user ratings for the packages without storing them.</p>
+     */
 
-            PkgUserRatingAggregate pkgUserRatingAggregate = pkgUserRatingAggregateOptional.orElseGet(() -> {
-                PkgUserRatingAggregate value = context.newObject(PkgUserRatingAggregate.class);
-                value.setRepository(repository);
-                value.setPkg(pkg);
-                return value;
-            });
+    public Map<UserRatingDerivationEngine.PkgRepository, DerivedUserRating> deriveUserRatings(
+            ObjectContext context,
+            Collection<String> pkgNames) {
+        return userRatingDerivationEngine.derive(context, pkgNames);
+    }
 
-            pkgUserRatingAggregate.setDerivedRating(rating.get().rating());
-            pkgUserRatingAggregate.setDerivedRatingSampleSize((int) rating.get().sampleSize());
-            pkg.setModifyTimestamp();
-        }
-        else {
+    /**
+     * <p>This method will update the stored user rating aggregates (averages) for the packages
+     * across all of the repositories in a single transaction.  Where a rating is not able to be
+     * derived, any stored user rating aggregate is removed.</p>
+     */
 
-            // if there is no derived user rating then there should also be no database record
-            // for the user rating.
+    private void updateUserRatingDerivations(Collection<String> pkgNames) {
+        ObjectContext context = serverRuntime.newContext();
 
-            if(pkgUserRatingAggregateOptional.isPresent()) {
-                pkg.removeFromPkgUserRatingAggregates(pkgUserRatingAggregateOptional.get());
-                context.deleteObject(pkgUserRatingAggregateOptional.get());
+        long beforeMillis = System.currentTimeMillis();
+        Map<UserRatingDerivationEngine.PkgRepository, DerivedUserRating> ratings =
+                userRatingDerivationEngine.derive(context, pkgNames);
+
+        LOGGER.info("calculated the user ratings for {} packages in {}ms",
+                pkgNames.size(), System.currentTimeMillis() - beforeMillis);
+
+        Map<String, Pkg> pkgs = ObjectSelect.query(Pkg.class)
+                .where(Pkg.NAME.in(pkgNames))
+                .select(context)
+                .stream()
+                .collect(Collectors.toMap(Pkg::getName, p -> p));
+        Map<String, Repository> repositories = Repository.getAll(context)
+                .stream()
+                .collect(Collectors.toMap(Repository::getCode, r -> r));
+        Map<UserRatingDerivationEngine.PkgRepository, PkgUserRatingAggregate> pkgUserRatingAggregates =
+                ObjectSelect.query(PkgUserRatingAggregate.class)
+                        .where(PkgUserRatingAggregate.PKG.dot(Pkg.NAME).in(pkgNames))
+                        .select(context)
+                        .stream()
+                        .collect(Collectors.toMap(
+                                pura -> new UserRatingDerivationEngine.PkgRepository(
+                                        pura.getPkg().getName(), pura.getRepository().getCode()),
+                                pura -> pura));
+
+        // if there is no derived user rating then there should also be no database record
+        // for the user rating.
+
+        pkgUserRatingAggregates.forEach((pkgRepository, pkgUserRatingAggregate) -> {
+            if (!ratings.containsKey(pkgRepository)) {
+                Pkg pkg = pkgUserRatingAggregate.getPkg();
+                pkg.removeFromPkgUserRatingAggregates(pkgUserRatingAggregate);
+                context.deleteObject(pkgUserRatingAggregate);
                 pkg.setModifyTimestamp();
+                LOGGER.info("unable to establish a user rating for {}", pkgRepository);
             }
-        }
+        });
+
+        ratings.forEach((pkgRepository, rating) -> {
+            Pkg pkg = pkgs.get(pkgRepository.pkgName());
+            PkgUserRatingAggregate pkgUserRatingAggregate = pkgUserRatingAggregates.get(pkgRepository);
+
+            if (null == pkgUserRatingAggregate) {
+                pkgUserRatingAggregate = context.newObject(PkgUserRatingAggregate.class);
+                pkgUserRatingAggregate.setRepository(repositories.get(pkgRepository.repositoryCode()));
+                pkgUserRatingAggregate.setPkg(pkg);
+            }
+
+            if (!Objects.equals(pkgUserRatingAggregate.getDerivedRating(), rating.rating())
+                    || !Objects.equals(pkgUserRatingAggregate.getDerivedRatingSampleSize(), (int) rating.sampleSize())) {
+                pkgUserRatingAggregate.setDerivedRating(rating.rating());
+                pkgUserRatingAggregate.setDerivedRatingSampleSize((int) rating.sampleSize());
+                pkg.setModifyTimestamp();
+                LOGGER.info(
+                        "user rating established for {}; {} (sample {})",
+                        pkgRepository,
+                        rating.rating(),
+                        rating.sampleSize());
+            }
+        });
 
         context.commitChanges();
 
-        LOGGER.info("did update user rating for {} in {}", pkg, repository);
+        LOGGER.info("did update user ratings for {} packages", pkgNames.size());
     }
 
     /**
@@ -402,10 +461,6 @@ public class UserRatingServiceImpl implements UserRatingService {
 
             List<Short> ratings = new ArrayList<>();
             List<String> userNicknames = getUserNicknamesWhoHaveRatedPkgVersions(context, pkgVersions);
-            Map<Short, Long> ratingDistribution = new HashMap<>();
-
-            // write zero values which can be incremented in the algorithm.
-            IntStream.range(0, 6).forEach(i -> ratingDistribution.put((short) i, 0L));
 
             for (String nickname : userNicknames) {
                 User user = User.getByNickname(context, nickname);
@@ -429,9 +484,7 @@ public class UserRatingServiceImpl implements UserRatingService {
                     UserRating latestUserRatingForUser = userRatingsForUser.getLast();
 
                     if (null != latestUserRatingForUser.getRating()) {
-                        Short rating = latestUserRatingForUser.getRating();
-                        ratings.add(rating);
-                        ratingDistribution.put(rating, ratingDistribution.get(rating) + 1);
+                        ratings.add(latestUserRatingForUser.getRating());
                     }
                 }
 
@@ -440,15 +493,7 @@ public class UserRatingServiceImpl implements UserRatingService {
             // now generate an average from those ratings found.
 
             if (ratings.size() >= userRatingsDerivationMinRatings) {
-
-                ratings.forEach(rating -> ratingDistribution.put(
-                        rating,
-                        ratingDistribution.getOrDefault(rating, 0L)));
-
-                return Optional.of(new DerivedUserRating(
-                        averageAsFloat(ratings),
-                        ratings.size(),
-                        ratingDistribution));
+                return Optional.of(DerivedUserRating.fromRatings(ratings));
             }
         }
 
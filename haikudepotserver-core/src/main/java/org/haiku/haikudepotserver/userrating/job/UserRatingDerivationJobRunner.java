@@ -1,5 +1,5 @@
 /*
- * Copyright 2018-2025, Andrew Lindesay
+ * Copyright 2018-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
@@ -40,7 +40,9 @@ public class UserRatingDerivationJobRunner
     public void run(JobService jobService, UserRatingDerivationJobSpecification job) {
         Preconditions.checkNotNull(job);
 
-        if (StringUtils.isNotBlank(job.getUserNickname())) {
+        if (job.isDirtyPkgs()) {
+            userRatingService.updateUserRatingDerivationsForDirtyPkgs();
+        } else if (StringUtils.isNotBlank(job.getUserNickname())) {
             userRatingService.updateUserRatingDerivationsForUser(job.getUserNickname());
         } else {
             if (StringUtils.isNotBlank(job.getPkgName())) {
@@ -1,13 +1,52 @@
 /*
- * Copyright 2024, Andrew Lindesay
+ * Copyright 2024-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 package org.haiku.haikudepotserver.userrating.model;
 
+import com.google.common.base.Preconditions;
+
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.stream.IntStream;
 
 public record DerivedUserRating(
         float rating,
         long sampleSize,
         Map<Short, Long> ratingDistribution) {
+
+    /**
+     * <p>Derives the rating from the ratings supplied; one from each user.</p>
+     */
+
+    public static DerivedUserRating fromRatings(Collection<Short> ratings) {
+        Preconditions.checkArgument(null != ratings, "the ratings must be supplied");
+        Map<Short, Long> ratingDistribution = new HashMap<>();
+
+        // write zero values which can be incremented in the algorithm.
+        IntStream.range(0, 6).forEach(i -> ratingDistribution.put((short) i, 0L));
+
+        ratings.forEach(rating -> ratingDistribution.merge(rating, 1L, Long::sum));
+
+        return new DerivedUserRating(averageAsFloat(ratings), ratings.size(), ratingDistribution);
+    }
+
+    private static float averageAsFloat(Collection<Short> ratings) {
+        if (ratings.isEmpty()) {
+            return 0f;
+        }
+
+        int sum = 0;
+
+        for (short rating : ratings) {
+            sum += rating;
+        }
+
+        sum *= 100;
+        sum /= ratings.size();
+
+        return ((float) sum) / 100f;
+    }
+
 }
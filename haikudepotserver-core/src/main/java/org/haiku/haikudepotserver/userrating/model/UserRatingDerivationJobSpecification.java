@@ -16,6 +16,10 @@ import java.util.concurrent.TimeUnit;
  * <p>An instance of this job can be submitted in order to get the
  * aggregated user rating re-calculated for the package.  It is possible that the job can also be configured
  * such that the derivation is undertaken not for just one package, but for every package in the system.</p>
+ *
+ * <p>If the job is configured for the dirty packages then only those packages which have been marked as
+ * requiring derivation are derived.  Submitting the job in this way while another is still queued is
+ * coalesced so that a burst of changes ends up as a single derivation.</p>
  */
 
 public class UserRatingDerivationJobSpecification extends AbstractJobSpecification {
@@ -24,6 +28,8 @@ public class UserRatingDerivationJobSpecification extends AbstractJobSpecificati
 
     private String pkgName;
 
+    private boolean dirtyPkgs;
+
     public UserRatingDerivationJobSpecification() {
     }
 
@@ -43,12 +49,20 @@ public class UserRatingDerivationJobSpecification extends AbstractJobSpecificati
         this.userNickname = userNickname;
     }
 
+    public boolean isDirtyPkgs() {
+        return dirtyPkgs;
+    }
+
+    public void setDirtyPkgs(boolean dirtyPkgs) {
+        this.dirtyPkgs = dirtyPkgs;
+    }
+
     public Optional<Long> tryGetTimeToLiveMillis() {
         return Optional.of(TimeUnit.MILLISECONDS.convert(120, TimeUnit.SECONDS)); // only stay around for a short while
     }
 
     public boolean appliesToAllPkgs() {
-        return null == getPkgName();
+        return null == getPkgName() && null == getUserNickname() && !isDirtyPkgs();
     }
 
     @Override
@@ -57,7 +71,8 @@ public class UserRatingDerivationJobSpecification extends AbstractJobSpecificati
             UserRatingDerivationJobSpecification other2 = (UserRatingDerivationJobSpecification) other;
             return
                     Strings.CS.equals(other2.getUserNickname(), getUserNickname())
-                    && Strings.CS.equals(other2.getPkgName(), getPkgName());
+                    && Strings.CS.equals(other2.getPkgName(), getPkgName())
+                    && other2.isDirtyPkgs() == isDirtyPkgs();
         }
 
         return false;
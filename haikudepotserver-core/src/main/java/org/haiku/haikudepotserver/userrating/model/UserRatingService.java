@@ -1,5 +1,5 @@
 /*
- * Copyright 2016-2024, Andrew Lindesay
+ * Copyright 2016-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
@@ -12,6 +12,7 @@ import org.haiku.haikudepotserver.dataobjects.User;
 import org.haiku.haikudepotserver.dataobjects.UserRating;
 import org.haiku.haikudepotserver.support.StoppableConsumer;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -58,6 +59,21 @@ public interface UserRatingService {
      */
     void updateUserRatingDerivationsForUser(String userNickname);
 
+    /**
+     * <p>Records that the user ratings for the nominated packages need to be derived again.  A
+     * package is only recorded once no matter how many times it is marked before it is derived.
+     * The derivation itself happens later in {@link #updateUserRatingDerivationsForDirtyPkgs()}.</p>
+     */
+
+    void markUserRatingDerivationsDirty(Collection<String> pkgNames);
+
+    /**
+     * <p>This method will update the user rating aggregates for only those packages that have been
+     * marked as requiring derivation.</p>
+     */
+
+    void updateUserRatingDerivationsForDirtyPkgs();
+
     /**
      * <p>This method will delete the {@link UserRating}.</p>
      */
@@ -0,0 +1,87 @@
+-- The data for icon and screenshot images is moved into a table keyed by the SHA-256
+-- hash of the data so that identical images are stored only once.
+
+CREATE SEQUENCE haikudepot.image_blob_seq
+    START WITH 45121
+    INCREMENT BY 1
+    NO MINVALUE
+    NO MAXVALUE
+    CACHE 1;
+
+CREATE TABLE haikudepot.image_blob
+(
+    id               BIGINT      NOT NULL,
+    hash_sha256      VARCHAR(64) NOT NULL,
+    length           INTEGER     NOT NULL,
+    data             BYTEA       NOT NULL,
+    create_timestamp TIMESTAMP   NOT NULL
+);
+
+ALTER TABLE ONLY haikudepot.image_blob
+    ADD CONSTRAINT image_blob_pkey PRIMARY KEY (id);
+
+CREATE UNIQUE INDEX image_blob_idx01 ON haikudepot.image_blob USING btree (hash_sha256);
+
+-- copy the existing image data into the new table; there is only one row for each
+-- distinct image.
+
+INSERT INTO haikudepot.image_blob (id, hash_sha256, length, data, create_timestamp)
+SELECT nextval('haikudepot.image_blob_seq'), d.hash_sha256, LENGTH(d.data), d.data, now()
+FROM (
+    SELECT DISTINCT ON (u.hash_sha256) u.hash_sha256, u.data
+    FROM (
+        SELECT encode(sha256(pii.data), 'hex') AS hash_sha256, pii.data
+        FROM haikudepot.pkg_icon_image pii
+        UNION ALL
+        SELECT encode(sha256(psi.data), 'hex') AS hash_sha256, psi.data
+        FROM haikudepot.pkg_screenshot_image psi
+    ) u
+) d;
+
+-- point the icon images at the new table.
+
+ALTER TABLE haikudepot.pkg_icon_image
+    ADD COLUMN image_blob_id BIGINT;
+
+UPDATE haikudepot.pkg_icon_image pii
+SET image_blob_id = (
+    SELECT ib.id FROM haikudepot.image_blob ib
+    WHERE ib.hash_sha256 = encode(sha256(pii.data), 'hex'));
+
+ALTER TABLE haikudepot.pkg_icon_image
+    ALTER COLUMN image_blob_id SET NOT NULL;
+
+ALTER TABLE haikudepot.pkg_icon_image
+    DROP COLUMN data;
+
+ALTER TABLE ONLY haikudepot.pkg_icon_image
+    ADD CONSTRAINT pkg_icon_image_image_blob_id_fkey
+        FOREIGN KEY (image_blob_id)
+            REFERENCES haikudepot.image_blob (id)
+            DEFERRABLE INITIALLY DEFERRED;
+
+CREATE INDEX pkg_icon_image_idx01 ON haikudepot.pkg_icon_image USING btree (image_blob_id);
+
+-- point the screenshot images at the new table.
+
+ALTER TABLE haikudepot.pkg_screenshot_image
+    ADD COLUMN image_blob_id BIGINT;
+
+UPDATE haikudepot.pkg_screenshot_image psi
+SET image_blob_id = (
+    SELECT ib.id FROM haikudepot.image_blob ib
+    WHERE ib.hash_sha256 = encode(sha256(psi.data), 'hex'));
+
+ALTER TABLE haikudepot.pkg_screenshot_image
+    ALTER COLUMN image_blob_id SET NOT NULL;
+
+ALTER TABLE haikudepot.pkg_screenshot_image
+    DROP COLUMN data;
+
+ALTER TABLE ONLY haikudepot.pkg_screenshot_image
+    ADD CONSTRAINT pkg_screenshot_image_image_blob_id_fkey
+        FOREIGN KEY (image_blob_id)
+            REFERENCES haikudepot.image_blob (id)
+            DEFERRABLE INITIALLY DEFERRED;
+
+CREATE INDEX pkg_screenshot_image_idx01 ON haikudepot.pkg_screenshot_image USING btree (image_blob_id);
@@ -0,0 +1,5 @@
+-- Records when a screenshot's image was last put through the optimizer so that an
+-- interrupted optimization of many screenshots is able to carry on from where it stopped.
+
+ALTER TABLE haikudepot.pkg_screenshot
+    ADD COLUMN optimization_timestamp TIMESTAMP;
@@ -0,0 +1,19 @@
+-- Records those packages for which the user ratings need to be derived again because a
+-- rating, a user's active state or a package version has changed. There is only ever
+-- one record for each package so that many changes to a package's ratings are derived
+-- once.
+
+CREATE TABLE haikudepot.user_rating_derivation_dirty_pkg
+(
+    pkg_id           BIGINT    NOT NULL,
+    create_timestamp TIMESTAMP NOT NULL
+);
+
+ALTER TABLE ONLY haikudepot.user_rating_derivation_dirty_pkg
+    ADD CONSTRAINT user_rating_derivation_dirty_pkg_pkg_fkey
+        FOREIGN KEY (pkg_id)
+            REFERENCES haikudepot.pkg (id)
+            DEFERRABLE INITIALLY DEFERRED;
+
+ALTER TABLE ONLY haikudepot.user_rating_derivation_dirty_pkg
+    ADD CONSTRAINT user_rating_derivation_dirty_pkg_pkey PRIMARY KEY (pkg_id);
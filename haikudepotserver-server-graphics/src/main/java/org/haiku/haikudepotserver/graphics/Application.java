@@ -1,14 +1,16 @@
 /*
- * Copyright 2024, Andrew Lindesay
+ * Copyright 2024-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 package org.haiku.haikudepotserver.graphics;
 
+import com.google.common.net.HttpHeaders;
 import io.avaje.config.Config;
 import io.avaje.inject.BeanScope;
 import io.avaje.inject.BeanScopeBuilder;
 import io.avaje.jex.Jex;
 import io.avaje.jex.Routing;
+import org.haiku.haikudepotserver.graphics.support.ToolSchedulerSaturatedException;
 
 import java.util.Collection;
 
@@ -33,6 +35,11 @@ public class Application {
                         });
                     })
                     .routing(httpServices)
+                    // A full queue is reported straight away so that the client can back off.
+                    .error(ToolSchedulerSaturatedException.class, (ctx, e) -> ctx
+                            .header(HttpHeaders.RETRY_AFTER, Integer.toString(e.getRetryAfterSeconds()))
+                            .status(503)
+                            .text(e.getMessage()))
                     .start();
         }
     }
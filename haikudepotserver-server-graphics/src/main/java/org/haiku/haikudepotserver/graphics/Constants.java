@@ -1,5 +1,5 @@
 /*
- * Copyright 2024-2025, Andrew Lindesay
+ * Copyright 2024-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 package org.haiku.haikudepotserver.graphics;
@@ -10,7 +10,18 @@ public class Constants {
 
     public final static long TIMEOUT_TOOL_EXEC_SECONDS = 10;
 
-    public final static long TIMEOUT_ACQUIRE_PERMIT_SECONDS = 10;
+    /**
+     * <p>This is the longest that a request will wait in a queue for its turn to run a tool.</p>
+     */
+
+    public final static long TIMEOUT_QUEUED_SECONDS = 30;
+
+    /**
+     * <p>When a request is rejected because a queue is full, the client is told to try again
+     * after a delay estimated from the queue; the delay is capped at this value.</p>
+     */
+
+    public final static int MAX_RETRY_AFTER_SECONDS = 60;
 
     public final static String SEGMENT_GRAPHICS = "__gfx";
 
@@ -48,8 +59,33 @@ public class Constants {
 
     public final static String MEDIA_TYPE_PNG = "image/png";
 
+    public final static String MEDIA_TYPE_TAR = "application/x-tar";
+
+    public final static String MEDIA_TYPE_PROMETHEUS_TEXT = "text/plain; version=0.0.4";
+
+    /**
+     * <p>This is the maximum number of renders; icons multiplied by sizes, that may be
+     * requested in a single batch.</p>
+     */
+
+    public final static int MAX_BATCH_RENDERS = 1024;
+
+    /**
+     * <p>Each item in a batch is identified by a key that is chosen by the client.</p>
+     */
+
+    public final static String PATTERN_BATCH_KEY = "[A-Za-z0-9_-]{1,64}";
+
+    public final static String SUFFIX_BATCH_HVIF = ".hvif";
+    public final static String SUFFIX_BATCH_PNG = ".png";
+    public final static String SUFFIX_BATCH_ERROR = ".error";
+
     public final static String KEY_CONFIG_HVIF2PNG_PERMITS = "hds.gfx.controller.hvif2png.permits";
+    public final static String KEY_CONFIG_HVIF2PNG_MAX_QUEUED = "hds.gfx.controller.hvif2png.max-queued";
     public final static String KEY_CONFIG_THUMBNAIL_PERMITS = "hds.gfx.controller.thumbnail.permits";
+    public final static String KEY_CONFIG_THUMBNAIL_MAX_QUEUED = "hds.gfx.controller.thumbnail.max-queued";
+    public final static String KEY_CONFIG_OPTIMIZE_PERMITS = "hds.gfx.controller.optimize.permits";
+    public final static String KEY_CONFIG_OPTIMIZE_MAX_QUEUED = "hds.gfx.controller.optimize.max-queued";
     public final static String KEY_CONFIG_HVIF2PNG_PATH = "hds.tool.hvif2png.path";
     public final static String KEY_CONFIG_PNGQUANT_PATH = "hds.tool.pngquant.path";
     public final static String KEY_CONFIG_CONVERT_PATH = "hds.tool.convert.path";
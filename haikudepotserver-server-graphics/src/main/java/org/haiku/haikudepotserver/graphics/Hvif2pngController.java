@@ -1,18 +1,19 @@
 /*
- * Copyright 2024-2025, Andrew Lindesay
+ * Copyright 2024-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 package org.haiku.haikudepotserver.graphics;
 
-import io.avaje.config.Config;
 import io.avaje.http.api.*;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import org.haiku.haikudepotserver.graphics.support.Hvif2pngBatchHelper;
 import org.haiku.haikudepotserver.graphics.support.ToolHelper;
+import org.haiku.haikudepotserver.graphics.support.ToolScheduler;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.concurrent.Semaphore;
+import java.util.List;
 
 //@Validated
 @Controller("/" + Constants.SEGMENT_GRAPHICS)
@@ -20,11 +21,11 @@ public class Hvif2pngController {
 
     private final ToolService toolService;
 
-    private final Semaphore semaphore;
+    private final ToolScheduler scheduler;
 
-    public Hvif2pngController(ToolService toolService) {
+    public Hvif2pngController(ToolService toolService, ToolSchedulerService toolSchedulerService) {
         this.toolService = toolService;
-        this.semaphore = new Semaphore(Config.getInt(Constants.KEY_CONFIG_HVIF2PNG_PERMITS));
+        this.scheduler = toolSchedulerService.getHvif2pngScheduler();
     }
 
     /**
@@ -38,11 +39,36 @@ public class Hvif2pngController {
             InputStream inputStream,
             @QueryParam(Constants.KEY_SIZE) @Min(1) @Max(Constants.MAX_SIZE) Integer size
     ) throws IOException {
-        return ToolHelper.runToolsPipelineWithPermitsAsStreamingOutput(
-                semaphore,
+        return ToolHelper.runToolsPipelineScheduledAsStreamingOutput(
+                scheduler,
                 toolService.getHvif2pngToolsPipeline(size),
                 inputStream
         );
     }
 
+    /**
+     * <p>Renders many HVIF icons, each at a number of sizes, supplied as a tar archive and
+     * streams out a tar archive of the resultant PNG files. The renders share the scheduler
+     * with single renders but queue behind them. The batch takes its places in the queue
+     * before the response is started so that, if there is no room, it is rejected as a whole.
+     * See {@link Hvif2pngBatchHelper} for the format of the data.</p>
+     */
+
+    @Post("hvif2png-batch")
+    @Produces(value = Constants.MEDIA_TYPE_TAR, statusCode = 200)
+    public StreamingOutput batch(
+            InputStream inputStream
+    ) throws IOException {
+        List<Hvif2pngBatchHelper.Item> items = Hvif2pngBatchHelper.readItems(inputStream);
+        ToolScheduler.Reservation reservation = scheduler.reserve(
+                ToolScheduler.Priority.BULK,
+                Math.max(1, Hvif2pngBatchHelper.countRenders(items)));
+        return (dataForResponse) -> Hvif2pngBatchHelper.renderItems(
+                items,
+                reservation,
+                toolService::getHvif2pngToolsPipeline,
+                dataForResponse
+        );
+    }
+
 }
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.graphics;
+
+import io.avaje.http.api.Controller;
+import io.avaje.http.api.Get;
+import io.avaje.http.api.Produces;
+import org.haiku.haikudepotserver.graphics.support.MetricsHelper;
+
+@Controller("/" + Constants.SEGMENT_GRAPHICS)
+public class MetricsController {
+
+    private final ToolSchedulerService toolSchedulerService;
+
+    public MetricsController(ToolSchedulerService toolSchedulerService) {
+        this.toolSchedulerService = toolSchedulerService;
+    }
+
+    /**
+     * <p>Provides the queue depths, latencies and counts for each tool in the Prometheus text
+     * format.</p>
+     */
+
+    @Get("metrics")
+    @Produces(value = Constants.MEDIA_TYPE_PROMETHEUS_TEXT, statusCode = 200)
+    public String metrics() {
+        return MetricsHelper.toPrometheusText(toolSchedulerService.getSchedulers());
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2025, Andrew Lindesay
+ * Copyright 2025-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 package org.haiku.haikudepotserver.graphics;
@@ -9,6 +9,7 @@ import io.avaje.http.api.Post;
 import io.avaje.http.api.Produces;
 import io.avaje.http.api.StreamingOutput;
 import org.haiku.haikudepotserver.graphics.support.ToolHelper;
+import org.haiku.haikudepotserver.graphics.support.ToolScheduler;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -19,8 +20,11 @@ public class OptimizeController {
 
     private final ToolService toolService;
 
-    public OptimizeController(ToolService toolService) {
+    private final ToolScheduler scheduler;
+
+    public OptimizeController(ToolService toolService, ToolSchedulerService toolSchedulerService) {
         this.toolService = toolService;
+        this.scheduler = toolSchedulerService.getOptimizeScheduler();
     }
 
     /**
@@ -32,8 +36,8 @@ public class OptimizeController {
     public StreamingOutput optimize(
             InputStream inputStream
     ) throws IOException {
-        return ToolHelper.runToolsPipelineWithPermitsAsStreamingOutput(
-                null,
+        return ToolHelper.runToolsPipelineScheduledAsStreamingOutput(
+                scheduler,
                 toolService.getOptimizeToolsPipeline(),
                 inputStream
         );
@@ -1,18 +1,17 @@
 /*
- * Copyright 2024-2025, Andrew Lindesay
+ * Copyright 2024-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 package org.haiku.haikudepotserver.graphics;
 
-import io.avaje.config.Config;
 import io.avaje.http.api.*;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import org.haiku.haikudepotserver.graphics.support.ToolHelper;
+import org.haiku.haikudepotserver.graphics.support.ToolScheduler;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.concurrent.Semaphore;
 
 //@Validated
 @Controller("/" + Constants.SEGMENT_GRAPHICS)
@@ -20,13 +19,14 @@ public class ThumbnailController {
 
     private final ToolService toolService;
 
-    private final Semaphore semaphore;
+    private final ToolScheduler scheduler;
 
     public ThumbnailController(
-            ToolService toolService
+            ToolService toolService,
+            ToolSchedulerService toolSchedulerService
     ) {
         this.toolService = toolService;
-        this.semaphore = new Semaphore(Config.getInt(Constants.KEY_CONFIG_THUMBNAIL_PERMITS));
+        this.scheduler = toolSchedulerService.getThumbnailScheduler();
     }
 
     /**
@@ -41,8 +41,8 @@ public class ThumbnailController {
             @QueryParam(Constants.KEY_WIDTH) @Min(1) @Max(Constants.MAX_SIZE) Integer width,
             @QueryParam(Constants.KEY_HEIGHT) @Min(1) @Max(Constants.MAX_SIZE) Integer height
     ) throws IOException {
-        return ToolHelper.runToolsPipelineWithPermitsAsStreamingOutput(
-                semaphore,
+        return ToolHelper.runToolsPipelineScheduledAsStreamingOutput(
+                scheduler,
                 toolService.getThumbnailToolsPipeline(width, height),
                 inputStream
         );
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.graphics;
+
+import io.avaje.config.Config;
+import io.avaje.inject.Component;
+import org.haiku.haikudepotserver.graphics.support.ToolScheduler;
+
+import java.util.List;
+
+/**
+ * <p>Holds a {@link ToolScheduler} for each kind of tool invocation so that each is limited and
+ * measured separately.</p>
+ */
+
+@Component
+public class ToolSchedulerService {
+
+    private final ToolScheduler hvif2pngScheduler;
+
+    private final ToolScheduler thumbnailScheduler;
+
+    private final ToolScheduler optimizeScheduler;
+
+    public ToolSchedulerService() {
+        hvif2pngScheduler = new ToolScheduler(
+                "hvif2png",
+                Config.getInt(Constants.KEY_CONFIG_HVIF2PNG_PERMITS),
+                Config.getInt(Constants.KEY_CONFIG_HVIF2PNG_MAX_QUEUED, 64));
+        thumbnailScheduler = new ToolScheduler(
+                "thumbnail",
+                Config.getInt(Constants.KEY_CONFIG_THUMBNAIL_PERMITS),
+                Config.getInt(Constants.KEY_CONFIG_THUMBNAIL_MAX_QUEUED, 8));
+        optimizeScheduler = new ToolScheduler(
+                "optimize",
+                Config.getInt(Constants.KEY_CONFIG_OPTIMIZE_PERMITS, Runtime.getRuntime().availableProcessors()),
+                Config.getInt(Constants.KEY_CONFIG_OPTIMIZE_MAX_QUEUED, 16));
+    }
+
+    public ToolScheduler getHvif2pngScheduler() {
+        return hvif2pngScheduler;
+    }
+
+    public ToolScheduler getThumbnailScheduler() {
+        return thumbnailScheduler;
+    }
+
+    public ToolScheduler getOptimizeScheduler() {
+        return optimizeScheduler;
+    }
+
+    public List<ToolScheduler> getSchedulers() {
+        return List.of(hvif2pngScheduler, thumbnailScheduler, optimizeScheduler);
+    }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.graphics.support;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.haiku.haikudepotserver.graphics.Constants;
+import org.haiku.haikudepotserver.graphics.model.Tool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Supports rendering many HVIF icons at many sizes in a single request. The request is a
+ * tar archive in which each entry is an HVIF icon named <code>{key}/{size},{size},...hvif</code>.
+ * The response is a tar archive in which each entry is named <code>{key}/{size}.png</code> or,
+ * if the render failed, <code>{key}/{size}.error</code> containing a description of the
+ * problem. The entries of the response are in the same order as the request.</p>
+ *
+ * <p>The <code>hvif2png</code> tool is only able to render a single size on each invocation so
+ * each size is a separate invocation, but the invocations run concurrently within the places
+ * of a {@link ToolScheduler.Reservation} and the cost of a request for each render is
+ * avoided.</p>
+ */
+
+public class Hvif2pngBatchHelper {
+
+    protected static final Logger LOGGER = LoggerFactory.getLogger(Hvif2pngBatchHelper.class);
+
+    private static final Pattern PATTERN_REQUEST_ENTRY_NAME = Pattern.compile(
+            "^(" + Constants.PATTERN_BATCH_KEY + ")/([0-9]+(,[0-9]+)*)"
+                    + Pattern.quote(Constants.SUFFIX_BATCH_HVIF) + "$");
+
+    public record Item(String key, byte[] data, List<Integer> sizes) {
+    }
+
+    public static int countRenders(List<Item> items) {
+        return items.stream().mapToInt(item -> item.sizes().size()).sum();
+    }
+
+    private record Render(String key, int size, Future<byte[]> future) {
+    }
+
+    /**
+     * <p>Reads all of the items from the request before any rendering starts so that the
+     * request is validated up-front.</p>
+     */
+
+    public static List<Item> readItems(InputStream dataFromRequest) throws IOException {
+        Preconditions.checkArgument(null != dataFromRequest);
+        List<Item> result = new ArrayList<>();
+        int renderCount = 0;
+
+        TarArchiveInputStream tarInputStream = new TarArchiveInputStream(dataFromRequest);
+        TarArchiveEntry entry;
+
+        while (null != (entry = tarInputStream.getNextEntry())) {
+            if (!entry.isFile()) {
+                continue;
+            }
+
+            Matcher matcher = PATTERN_REQUEST_ENTRY_NAME.matcher(entry.getName());
+
+            if (!matcher.matches()) {
+                throw new IOException("bad batch entry name [" + entry.getName() + "]");
+            }
+
+            List<Integer> sizes = Splitter.on(',').splitToStream(matcher.group(2))
+                    .map(Integer::parseInt)
+                    .distinct()
+                    .toList();
+
+            for (int size : sizes) {
+                if (size < 1 || size > Constants.MAX_SIZE) {
+                    throw new IOException("bad size [" + size + "] in batch entry [" + entry.getName() + "]");
+                }
+            }
+
+            renderCount += sizes.size();
+
+            if (renderCount > Constants.MAX_BATCH_RENDERS) {
+                throw new IOException("the batch exceeds the maximum of " + Constants.MAX_BATCH_RENDERS + " renders");
+            }
+
+            result.add(new Item(matcher.group(1), tarInputStream.readAllBytes(), sizes));
+        }
+
+        LOGGER.info("did read batch of {} items with {} renders", result.size(), renderCount);
+        return result;
+    }
+
+    /**
+     * <p>Renders each item at each of its sizes and writes the results to the response as a tar
+     * archive. The renders run concurrently but only in the places of the supplied reservation
+     * so that a large batch does not flood the scheduler's queue. The reservation should have
+     * been taken for {@link #countRenders(List)} invocations and is closed once the renders
+     * are finished.</p>
+     */
+
+    public static void renderItems(
+            List<Item> items,
+            ToolScheduler.Reservation reservation,
+            IntFunction<Tool[]> toolsForSize,
+            OutputStream dataForResponse) throws IOException {
+        Preconditions.checkArgument(null != items);
+        Preconditions.checkArgument(null != reservation);
+        Preconditions.checkArgument(null != toolsForSize);
+        Preconditions.checkArgument(null != dataForResponse);
+
+        try (
+                reservation;
+                ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+                TarArchiveOutputStream tarOutputStream = new TarArchiveOutputStream(dataForResponse)
+        ) {
+            tarOutputStream.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            List<Render> renders = new ArrayList<>();
+
+            for (Item item : items) {
+                for (int size : item.sizes()) {
+                    renders.add(new Render(item.key(), size, executorService.submit(() -> {
+                        ByteArrayOutputStream pngOutputStream = new ByteArrayOutputStream();
+                        reservation.enqueue().run(
+                                toolsForSize.apply(size),
+                                new ByteArrayInputStream(item.data()),
+                                pngOutputStream);
+                        return pngOutputStream.toByteArray();
+                    })));
+                }
+            }
+
+            // the results are written in order as they become available.
+
+            for (Render render : renders) {
+                String entryNamePrefix = render.key() + "/" + render.size();
+
+                try {
+                    writeEntry(tarOutputStream, entryNamePrefix + Constants.SUFFIX_BATCH_PNG, render.future().get());
+                } catch (ExecutionException ee) {
+                    LOGGER.warn("failed to render batch item [{}] at size {}", render.key(), render.size(), ee.getCause());
+                    writeEntry(
+                            tarOutputStream,
+                            entryNamePrefix + Constants.SUFFIX_BATCH_ERROR,
+                            String.valueOf(ee.getCause().getMessage()).getBytes(StandardCharsets.UTF_8));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted waiting for a batch render", ie);
+                }
+            }
+
+            tarOutputStream.finish();
+        }
+    }
+
+    private static void writeEntry(TarArchiveOutputStream tarOutputStream, String name, byte[] data) throws IOException {
+        TarArchiveEntry entry = new TarArchiveEntry(name);
+        entry.setSize(data.length);
+        tarOutputStream.putArchiveEntry(entry);
+        tarOutputStream.write(data);
+        tarOutputStream.closeArchiveEntry();
+    }
+
+}
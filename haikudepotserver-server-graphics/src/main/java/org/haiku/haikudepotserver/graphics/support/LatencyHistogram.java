@@ -0,0 +1,96 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.graphics.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Records durations into fixed buckets so that they can be reported in the form of a
+ * Prometheus histogram. Recording is lock-free so it is cheap to record from many threads.</p>
+ */
+
+public class LatencyHistogram {
+
+    private final static long[] BUCKET_UPPER_BOUNDS_MILLIS = {
+            5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000 };
+
+    /**
+     * <p>The last count is for those durations that exceed all of the bounds.</p>
+     */
+
+    private final LongAdder[] bucketCounts = new LongAdder[BUCKET_UPPER_BOUNDS_MILLIS.length + 1];
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < bucketCounts.length; i++) {
+            bucketCounts[i] = new LongAdder();
+        }
+    }
+
+    public record Bucket(double upperBoundSeconds, long cumulativeCount) {
+    }
+
+    public void record(long durationNanos) {
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+        int i = 0;
+
+        while (i < BUCKET_UPPER_BOUNDS_MILLIS.length && durationMillis > BUCKET_UPPER_BOUNDS_MILLIS[i]) {
+            i++;
+        }
+
+        bucketCounts[i].increment();
+        count.increment();
+        sumNanos.add(durationNanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getSumSeconds() {
+        return sumNanos.sum() / 1_000_000_000.0;
+    }
+
+    /**
+     * <p>Returns the mean duration or zero if nothing has been recorded yet.</p>
+     */
+
+    public long getMeanMillis() {
+        long c = count.sum();
+
+        if (0 == c) {
+            return 0;
+        }
+
+        return TimeUnit.NANOSECONDS.toMillis(sumNanos.sum() / c);
+    }
+
+    /**
+     * <p>Returns the buckets with the counts accumulated as Prometheus expects. The last bucket
+     * has an infinite upper bound.</p>
+     */
+
+    public List<Bucket> getBuckets() {
+        List<Bucket> result = new ArrayList<>(bucketCounts.length);
+        long cumulativeCount = 0;
+
+        for (int i = 0; i < bucketCounts.length; i++) {
+            cumulativeCount += bucketCounts[i].sum();
+            double upperBoundSeconds = i < BUCKET_UPPER_BOUNDS_MILLIS.length
+                    ? BUCKET_UPPER_BOUNDS_MILLIS[i] / 1000.0
+                    : Double.POSITIVE_INFINITY;
+            result.add(new Bucket(upperBoundSeconds, cumulativeCount));
+        }
+
+        return result;
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.graphics.support;
+
+import java.util.Collection;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * <p>Writes out the metrics of the {@link ToolScheduler}s in the Prometheus text format.</p>
+ */
+
+public class MetricsHelper {
+
+    private final static String PREFIX = "hds_gfx_tool_";
+
+    public static String toPrometheusText(Collection<ToolScheduler> schedulers) {
+        StringBuilder result = new StringBuilder();
+
+        appendGauge(result, schedulers, "running", "Invocations of the tool currently running",
+                ToolScheduler::getRunningCount);
+
+        appendType(result, "queued", "Requests currently waiting to run the tool", "gauge");
+        for (ToolScheduler scheduler : schedulers) {
+            for (ToolScheduler.Priority priority : ToolScheduler.Priority.values()) {
+                result.append(PREFIX).append("queued{tool=\"").append(scheduler.getName())
+                        .append("\",priority=\"").append(priority.name().toLowerCase())
+                        .append("\"} ").append(scheduler.getQueuedCount(priority)).append('\n');
+            }
+        }
+
+        appendCounter(result, schedulers, "rejected_total", "Requests rejected because the queue was full",
+                ToolScheduler::getRejectedCount);
+        appendCounter(result, schedulers, "completed_total", "Invocations of the tool that succeeded",
+                ToolScheduler::getCompletedCount);
+        appendCounter(result, schedulers, "failed_total", "Invocations of the tool that failed",
+                ToolScheduler::getFailedCount);
+
+        appendHistogram(result, schedulers, "queued_seconds", "Time spent waiting to run the tool",
+                ToolScheduler::getQueuedLatencyHistogram);
+        appendHistogram(result, schedulers, "run_seconds", "Time spent running the tool",
+                ToolScheduler::getRunLatencyHistogram);
+
+        return result.toString();
+    }
+
+    private static void appendType(StringBuilder result, String name, String help, String type) {
+        result.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        result.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void appendGauge(
+            StringBuilder result,
+            Collection<ToolScheduler> schedulers,
+            String name,
+            String help,
+            ToLongFunction<ToolScheduler> valueFn) {
+        appendType(result, name, help, "gauge");
+        appendValues(result, schedulers, name, valueFn);
+    }
+
+    private static void appendCounter(
+            StringBuilder result,
+            Collection<ToolScheduler> schedulers,
+            String name,
+            String help,
+            ToLongFunction<ToolScheduler> valueFn) {
+        appendType(result, name, help, "counter");
+        appendValues(result, schedulers, name, valueFn);
+    }
+
+    private static void appendValues(
+            StringBuilder result,
+            Collection<ToolScheduler> schedulers,
+            String name,
+            ToLongFunction<ToolScheduler> valueFn) {
+        for (ToolScheduler scheduler : schedulers) {
+            result.append(PREFIX).append(name).append("{tool=\"").append(scheduler.getName()).append("\"} ")
+                    .append(valueFn.applyAsLong(scheduler)).append('\n');
+        }
+    }
+
+    private static void appendHistogram(
+            StringBuilder result,
+            Collection<ToolScheduler> schedulers,
+            String name,
+            String help,
+            Function<ToolScheduler, LatencyHistogram> histogramFn) {
+        appendType(result, name, help, "histogram");
+
+        for (ToolScheduler scheduler : schedulers) {
+            LatencyHistogram histogram = histogramFn.apply(scheduler);
+            String toolLabel = "tool=\"" + scheduler.getName() + "\"";
+
+            for (LatencyHistogram.Bucket bucket : histogram.getBuckets()) {
+                String upperBound = Double.isInfinite(bucket.upperBoundSeconds())
+                        ? "+Inf" : Double.toString(bucket.upperBoundSeconds());
+                result.append(PREFIX).append(name).append("_bucket{").append(toolLabel)
+                        .append(",le=\"").append(upperBound).append("\"} ")
+                        .append(bucket.cumulativeCount()).append('\n');
+            }
+
+            result.append(PREFIX).append(name).append("_sum{").append(toolLabel).append("} ")
+                    .append(histogram.getSumSeconds()).append('\n');
+            result.append(PREFIX).append(name).append("_count{").append(toolLabel).append("} ")
+                    .append(histogram.getCount()).append('\n');
+        }
+    }
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2024-2025, Andrew Lindesay
+ * Copyright 2024-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 package org.haiku.haikudepotserver.graphics.support;
@@ -8,7 +8,6 @@ import com.google.common.base.Preconditions;
 import com.google.common.io.CountingOutputStream;
 import com.google.common.util.concurrent.Uninterruptibles;
 import io.avaje.http.api.StreamingOutput;
-import jakarta.annotation.Nullable;
 import org.haiku.haikudepotserver.graphics.Constants;
 import org.haiku.haikudepotserver.graphics.model.Tool;
 import org.slf4j.Logger;
@@ -22,8 +21,6 @@ import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Semaphore;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -32,40 +29,21 @@ public class ToolHelper {
     protected static final Logger LOGGER = LoggerFactory.getLogger(ToolHelper.class);
 
     /**
-     * <p>Runs a tool or pipeline of tools. If a semaphore is supplied then it will run if a
-     * permit can be obtained from the {@link Semaphore} in a reasonable timeframe.
-     * </p>
+     * <p>Takes a place in the scheduler's queue straight away so that, if the queue is full,
+     * the request is rejected before any response is started. The tools are then run from the
+     * returned {@link StreamingOutput} once it is the request's turn.</p>
+     *
+     * @throws ToolSchedulerSaturatedException if the scheduler's queue is full.
      */
 
-    public static StreamingOutput runToolsPipelineWithPermitsAsStreamingOutput(
-            @Nullable Semaphore semaphore,
+    public static StreamingOutput runToolsPipelineScheduledAsStreamingOutput(
+            ToolScheduler scheduler,
             Tool[] tools,
             InputStream dataFromRequest
-    ) throws IOException {
-        return (dataForResponse) -> {
-            if (null != semaphore) {
-                try {
-                    if (!semaphore.tryAcquire(Constants.TIMEOUT_ACQUIRE_PERMIT_SECONDS, TimeUnit.SECONDS)) {
-                        throw new IOException("unable to acquire a permit to run a tool");
-                    }
-                    LOGGER.debug("permit acquired");
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    throw new IOException("thread was interrupted obtaining a permit to run a tool");
-                }
-            } else {
-                LOGGER.debug("permit skipped");
-            }
-
-            try {
-                runToolsPipeline(tools, dataFromRequest, dataForResponse);
-            } finally {
-                if (null != semaphore) {
-                    semaphore.release();
-                    LOGGER.debug("permit released");
-                }
-            }
-        };
+    ) {
+        Preconditions.checkArgument(null != scheduler, "the scheduler must be supplied");
+        ToolScheduler.Slot slot = scheduler.enqueue(ToolScheduler.Priority.INTERACTIVE);
+        return (dataForResponse) -> slot.run(tools, dataFromRequest, dataForResponse);
     }
 
     public static void runToolsPipeline(
@@ -0,0 +1,466 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.graphics.support;
+
+import com.google.common.base.Preconditions;
+import org.haiku.haikudepotserver.graphics.Constants;
+import org.haiku.haikudepotserver.graphics.model.Tool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>Schedules the invocations of a tool so that no more than a fixed number run at once.
+ * Further requests wait in a queue from which interactive requests are always taken ahead of
+ * bulk requests such as the renders of a batch. If the queue is already full then a request is
+ * rejected straight away with {@link ToolSchedulerSaturatedException} rather than being left to
+ * wait so that the client is able to back off and try again later.</p>
+ *
+ * <p>A request that runs the tool many times, such as a batch, first takes a {@link Reservation}
+ * of a bounded number of places in the queue. Its invocations then only ever occupy those
+ * places so that however large the request is, it is admitted or rejected as a whole and cannot
+ * crowd out other requests. The places are given back as the invocations finish.</p>
+ *
+ * <p>The scheduler also records metrics for the tool; the depth of the queues, the time spent
+ * waiting in a queue and the time spent running the tool.</p>
+ */
+
+public class ToolScheduler {
+
+    protected static final Logger LOGGER = LoggerFactory.getLogger(ToolScheduler.class);
+
+    public enum Priority {
+        INTERACTIVE,
+        BULK
+    }
+
+    private final String name;
+
+    private final int maxRunning;
+
+    private final int maxQueued;
+
+    private final Duration queuedTimeout;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Map<Priority, Deque<Slot>> queues = new EnumMap<>(Priority.class);
+
+    /**
+     * <p>The number of places in each queue that are held by reservations; guarded by the
+     * lock.</p>
+     */
+
+    private final Map<Priority, Integer> reservedCounts = new EnumMap<>(Priority.class);
+
+    private int runningCount = 0;
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private final LongAdder completedCount = new LongAdder();
+
+    private final LongAdder failedCount = new LongAdder();
+
+    private final LatencyHistogram queuedLatencyHistogram = new LatencyHistogram();
+
+    private final LatencyHistogram runLatencyHistogram = new LatencyHistogram();
+
+    /**
+     * @param maxRunning is the largest number of invocations of the tool that may run at once.
+     * @param maxQueued is the largest number of requests of each priority that may wait to run.
+     */
+
+    public ToolScheduler(String name, int maxRunning, int maxQueued) {
+        this(name, maxRunning, maxQueued, Duration.ofSeconds(Constants.TIMEOUT_QUEUED_SECONDS));
+    }
+
+    /**
+     * @param queuedTimeout is the longest that a request will wait in the queue for its turn.
+     */
+
+    ToolScheduler(String name, int maxRunning, int maxQueued, Duration queuedTimeout) {
+        Preconditions.checkArgument(null != name, "the name must be supplied");
+        Preconditions.checkArgument(maxRunning > 0, "the max running must be positive");
+        Preconditions.checkArgument(maxQueued >= 0, "the max queued must not be negative");
+        Preconditions.checkArgument(null != queuedTimeout, "the queued timeout must be supplied");
+        this.name = name;
+        this.maxRunning = maxRunning;
+        this.maxQueued = maxQueued;
+        this.queuedTimeout = queuedTimeout;
+
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new ArrayDeque<>());
+            reservedCounts.put(priority, 0);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxRunning() {
+        return maxRunning;
+    }
+
+    public int getRunningCount() {
+        lock.lock();
+        try {
+            return runningCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueuedCount(Priority priority) {
+        lock.lock();
+        try {
+            return queues.get(priority).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public long getCompletedCount() {
+        return completedCount.sum();
+    }
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    public LatencyHistogram getQueuedLatencyHistogram() {
+        return queuedLatencyHistogram;
+    }
+
+    public LatencyHistogram getRunLatencyHistogram() {
+        return runLatencyHistogram;
+    }
+
+    public int getReservedCount(Priority priority) {
+        lock.lock();
+        try {
+            return reservedCounts.get(priority);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * <p>Takes a place in the queue for the priority. The returned {@link Slot} must then be
+     * run.</p>
+     *
+     * @throws ToolSchedulerSaturatedException if the queue for the priority is already full.
+     */
+
+    public Slot enqueue(Priority priority) {
+        Preconditions.checkArgument(null != priority, "the priority must be supplied");
+        lock.lock();
+        try {
+            checkCapacity(priority, 1);
+            return enqueue(priority, null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * <p>Takes places in the queue for the priority for a request that will run the tool
+     * <code>invocationCount</code> times. The number of places taken is bounded by the number
+     * of invocations that are able to run at once so that a large request does not take all
+     * of the places in the queue. The places are given back as the invocations finish or when
+     * the reservation is closed.</p>
+     *
+     * @throws ToolSchedulerSaturatedException if there are not enough places left in the
+     * queue for the priority.
+     */
+
+    public Reservation reserve(Priority priority, int invocationCount) {
+        Preconditions.checkArgument(null != priority, "the priority must be supplied");
+        Preconditions.checkArgument(invocationCount > 0, "the invocation count must be positive");
+        lock.lock();
+        try {
+            int places = Math.max(1, Math.min(invocationCount, Math.min(maxRunning, maxQueued)));
+            checkCapacity(priority, places);
+            reservedCounts.merge(priority, places, Integer::sum);
+            return new Reservation(priority, places, invocationCount);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * <p>Slots that belong to a reservation occupy the reservation's places so they are not
+     * counted again here. Must be called with the lock held.</p>
+     */
+
+    private void checkCapacity(Priority priority, int places) {
+        long unreservedQueuedCount = queues.get(priority).stream()
+                .filter(slot -> null == slot.reservation)
+                .count();
+
+        if (unreservedQueuedCount + reservedCounts.get(priority) + places > maxQueued) {
+            rejectedCount.increment();
+            int retryAfterSeconds = deriveRetryAfterSeconds();
+            LOGGER.info("rejected request to run tool [{}]; retry after {}s", name, retryAfterSeconds);
+            throw new ToolSchedulerSaturatedException(name, retryAfterSeconds);
+        }
+    }
+
+    /**
+     * <p>Must be called with the lock held.</p>
+     */
+
+    private Slot enqueue(Priority priority, Reservation reservation) {
+        Slot slot = new Slot(reservation);
+
+        if (runningCount < maxRunning) {
+            runningCount++;
+            slot.grant();
+        } else {
+            queues.get(priority).addLast(slot);
+        }
+
+        return slot;
+    }
+
+    /**
+     * <p>Estimates how long it will be before the queue has room by considering how long the
+     * tool usually takes to run and how many requests are ahead.</p>
+     */
+
+    private int deriveRetryAfterSeconds() {
+        long queuedCount = queues.values().stream().mapToInt(Deque::size).sum();
+        long estimateMillis = runLatencyHistogram.getMeanMillis() * (queuedCount + 1) / maxRunning;
+        return Math.clamp(TimeUnit.MILLISECONDS.toSeconds(estimateMillis) + 1, 1, Constants.MAX_RETRY_AFTER_SECONDS);
+    }
+
+    /**
+     * <p>Called when a slot is finished with. If the slot was running then its place is handed
+     * on to the next waiting slot, otherwise it is simply removed from its queue.</p>
+     */
+
+    private void relinquish(Slot slot) {
+        lock.lock();
+        try {
+            if (null != slot.reservation) {
+                slot.reservation.finished();
+            }
+
+            if (!slot.granted) {
+                queues.values().forEach(q -> q.remove(slot));
+                return;
+            }
+
+            Slot nextSlot = queues.get(Priority.INTERACTIVE).pollFirst();
+
+            if (null == nextSlot) {
+                nextSlot = queues.get(Priority.BULK).pollFirst();
+            }
+
+            if (null != nextSlot) {
+                nextSlot.grant();
+            } else {
+                runningCount--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * <p>Places in the queue held by a request that runs the tool many times. Each invocation
+     * takes a {@link Slot} from the reservation; no more of these are outstanding at once than
+     * there are places reserved. The reservation must be closed once the request is
+     * finished with it.</p>
+     */
+
+    public final class Reservation implements AutoCloseable {
+
+        private final Priority priority;
+
+        private final Semaphore outstandingSemaphore;
+
+        /**
+         * <p>Guarded by the scheduler's lock.</p>
+         */
+
+        private int places;
+
+        /**
+         * <p>Guarded by the scheduler's lock.</p>
+         */
+
+        private int unfinishedCount;
+
+        private Reservation(Priority priority, int places, int invocationCount) {
+            this.priority = priority;
+            this.places = places;
+            this.unfinishedCount = invocationCount;
+            this.outstandingSemaphore = new Semaphore(places);
+        }
+
+        public int getPlaces() {
+            lock.lock();
+            try {
+                return places;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * <p>Waits until one of the reservation's places is free and then takes a slot in it.
+         * The returned {@link Slot} must then be run.</p>
+         */
+
+        public Slot enqueue() throws InterruptedException {
+            outstandingSemaphore.acquire();
+            lock.lock();
+            try {
+                Preconditions.checkState(places > 0, "the reservation is closed");
+                return ToolScheduler.this.enqueue(priority, this);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * <p>Once there are fewer invocations left to finish than there are places, the spare
+         * places are given back. Must be called with the lock held.</p>
+         */
+
+        private void finished() {
+            outstandingSemaphore.release();
+            unfinishedCount--;
+
+            if (unfinishedCount < places) {
+                release(places - Math.max(unfinishedCount, 0));
+            }
+        }
+
+        private void release(int count) {
+            places -= count;
+            reservedCounts.merge(priority, -count, Integer::sum);
+        }
+
+        /**
+         * <p>Gives back any places that are still held; for example if the request failed before
+         * all of the invocations were run.</p>
+         */
+
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                release(places);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+    }
+
+    /**
+     * <p>A place in the queue to run the tool once.</p>
+     */
+
+    public final class Slot {
+
+        private final long enqueuedNanos = System.nanoTime();
+
+        private final Reservation reservation;
+
+        private final CountDownLatch grantedLatch = new CountDownLatch(1);
+
+        /**
+         * <p>Guarded by the scheduler's lock.</p>
+         */
+
+        private boolean granted = false;
+
+        private boolean used = false;
+
+        private Slot(Reservation reservation) {
+            this.reservation = reservation;
+        }
+
+        private void grant() {
+            granted = true;
+            grantedLatch.countDown();
+        }
+
+        /**
+         * <p>Waits for this slot's turn and then runs the tools. The slot is always relinquished
+         * afterward, even if the wait or the tools fail.</p>
+         */
+
+        public void run(Tool[] tools, InputStream dataFromRequest, OutputStream dataForResponse) throws IOException {
+            run(() -> ToolHelper.runToolsPipeline(tools, dataFromRequest, dataForResponse));
+        }
+
+        void run(Action action) throws IOException {
+            Preconditions.checkState(!used, "the slot has already been used");
+            used = true;
+
+            try {
+                awaitGranted();
+
+                long startedNanos = System.nanoTime();
+                queuedLatencyHistogram.record(startedNanos - enqueuedNanos);
+
+                try {
+                    action.run();
+                    completedCount.increment();
+                } catch (IOException | RuntimeException e) {
+                    failedCount.increment();
+                    throw e;
+                } finally {
+                    runLatencyHistogram.record(System.nanoTime() - startedNanos);
+                }
+            } finally {
+                relinquish(this);
+            }
+        }
+
+        private void awaitGranted() throws IOException {
+            try {
+                if (!grantedLatch.await(queuedTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                    throw new IOException("timed out waiting in the queue to run the tool [" + name + "]");
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted waiting in the queue to run the tool [" + name + "]");
+            }
+        }
+
+    }
+
+    /**
+     * <p>The work that a {@link Slot} runs once it is its turn.</p>
+     */
+
+    @FunctionalInterface
+    interface Action {
+        void run() throws IOException;
+    }
+
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.graphics.support;
+
+/**
+ * <p>Thrown when a request to run a tool cannot be queued because the queue is already full.
+ * The client should try again after the suggested delay.</p>
+ */
+
+public class ToolSchedulerSaturatedException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public ToolSchedulerSaturatedException(String toolName, int retryAfterSeconds) {
+        super("the queue for the tool [" + toolName + "] is full; retry after " + retryAfterSeconds + "s");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+}
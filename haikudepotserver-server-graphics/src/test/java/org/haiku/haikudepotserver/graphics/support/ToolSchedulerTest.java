@@ -0,0 +1,204 @@
+/*
+ * Copyright 2026, Andrew Lindesay
+ * Distributed under the terms of the MIT License.
+ */
+package org.haiku.haikudepotserver.graphics.support;
+
+import org.fest.assertions.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ToolSchedulerTest {
+
+    private static ToolScheduler createScheduler(int maxRunning, int maxQueued) {
+        return new ToolScheduler("test", maxRunning, maxQueued, Duration.ofSeconds(10));
+    }
+
+    /**
+     * <p>When a place to run is freed up, a waiting interactive request should run ahead of a
+     * bulk request even if the bulk request was waiting first.</p>
+     */
+
+    @Test
+    public void testEnqueue_interactiveBeforeBulk() throws Exception {
+        ToolScheduler scheduler = createScheduler(1, 4);
+        List<String> ran = new CopyOnWriteArrayList<>();
+        CountDownLatch releaseLatch = new CountDownLatch(1);
+
+        try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+            ToolScheduler.Slot runningSlot = scheduler.enqueue(ToolScheduler.Priority.INTERACTIVE);
+            ToolScheduler.Slot bulkSlot = scheduler.enqueue(ToolScheduler.Priority.BULK);
+            ToolScheduler.Slot interactiveSlot = scheduler.enqueue(ToolScheduler.Priority.INTERACTIVE);
+
+            Assertions.assertThat(scheduler.getRunningCount()).isEqualTo(1);
+            Assertions.assertThat(scheduler.getQueuedCount(ToolScheduler.Priority.BULK)).isEqualTo(1);
+            Assertions.assertThat(scheduler.getQueuedCount(ToolScheduler.Priority.INTERACTIVE)).isEqualTo(1);
+
+            // ---------------------------------
+            Future<?> runningFuture = executorService.submit(() -> {
+                runningSlot.run(() -> {
+                    try {
+                        releaseLatch.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException ie) {
+                        throw new IOException(ie);
+                    }
+                    ran.add("first");
+                });
+                return null;
+            });
+            Future<?> bulkFuture = executorService.submit(() -> {
+                bulkSlot.run(() -> ran.add("bulk"));
+                return null;
+            });
+            Future<?> interactiveFuture = executorService.submit(() -> {
+                interactiveSlot.run(() -> ran.add("interactive"));
+                return null;
+            });
+            releaseLatch.countDown();
+            runningFuture.get(10, TimeUnit.SECONDS);
+            bulkFuture.get(10, TimeUnit.SECONDS);
+            interactiveFuture.get(10, TimeUnit.SECONDS);
+            // ---------------------------------
+        }
+
+        Assertions.assertThat(ran).containsExactly("first", "interactive", "bulk");
+        Assertions.assertThat(scheduler.getRunningCount()).isEqualTo(0);
+        Assertions.assertThat(scheduler.getCompletedCount()).isEqualTo(3L);
+    }
+
+    @Test
+    public void testEnqueue_rejected() {
+        ToolScheduler scheduler = createScheduler(1, 1);
+        scheduler.enqueue(ToolScheduler.Priority.BULK); // runs straight away
+        scheduler.enqueue(ToolScheduler.Priority.BULK); // waits in the queue
+
+        // ---------------------------------
+        ToolSchedulerSaturatedException exception = org.junit.jupiter.api.Assertions.assertThrows(
+                ToolSchedulerSaturatedException.class,
+                () -> scheduler.enqueue(ToolScheduler.Priority.BULK));
+        // ---------------------------------
+
+        Assertions.assertThat(exception.getRetryAfterSeconds()).isGreaterThan(0);
+        Assertions.assertThat(scheduler.getRejectedCount()).isEqualTo(1L);
+
+        // the interactive queue is separate so there is still room there.
+        scheduler.enqueue(ToolScheduler.Priority.INTERACTIVE);
+        Assertions.assertThat(scheduler.getQueuedCount(ToolScheduler.Priority.INTERACTIVE)).isEqualTo(1);
+    }
+
+    /**
+     * <p>A request that waits too long in the queue should fail without running and should
+     * give up its place in the queue.</p>
+     */
+
+    @Test
+    public void testRun_timeout() {
+        ToolScheduler scheduler = new ToolScheduler("test", 1, 1, Duration.ofMillis(50));
+        scheduler.enqueue(ToolScheduler.Priority.BULK); // runs straight away and is never finished
+        ToolScheduler.Slot slot = scheduler.enqueue(ToolScheduler.Priority.BULK);
+        List<String> ran = new CopyOnWriteArrayList<>();
+
+        // ---------------------------------
+        org.junit.jupiter.api.Assertions.assertThrows(
+                IOException.class,
+                () -> slot.run(() -> ran.add("timed out")));
+        // ---------------------------------
+
+        Assertions.assertThat(ran).isEmpty();
+        Assertions.assertThat(scheduler.getQueuedCount(ToolScheduler.Priority.BULK)).isEqualTo(0);
+        Assertions.assertThat(scheduler.getRunningCount()).isEqualTo(1);
+    }
+
+    /**
+     * <p>Even if the work fails, the place to run should be handed on to the next waiting
+     * request.</p>
+     */
+
+    @Test
+    public void testRun_relinquishedOnFailure() throws Exception {
+        ToolScheduler scheduler = createScheduler(1, 1);
+        ToolScheduler.Slot failingSlot = scheduler.enqueue(ToolScheduler.Priority.BULK);
+        ToolScheduler.Slot waitingSlot = scheduler.enqueue(ToolScheduler.Priority.BULK);
+        List<String> ran = new CopyOnWriteArrayList<>();
+
+        // ---------------------------------
+        org.junit.jupiter.api.Assertions.assertThrows(
+                IOException.class,
+                () -> failingSlot.run(() -> {
+                    throw new IOException("test");
+                }));
+        waitingSlot.run(() -> ran.add("waiting"));
+        // ---------------------------------
+
+        Assertions.assertThat(ran).containsExactly("waiting");
+        Assertions.assertThat(scheduler.getFailedCount()).isEqualTo(1L);
+        Assertions.assertThat(scheduler.getCompletedCount()).isEqualTo(1L);
+        Assertions.assertThat(scheduler.getRunningCount()).isEqualTo(0);
+        Assertions.assertThat(scheduler.getQueuedCount(ToolScheduler.Priority.BULK)).isEqualTo(0);
+    }
+
+    /**
+     * <p>However many invocations a reservation is for, it should only take as many places as
+     * can run at once and those places should count against the queue.</p>
+     */
+
+    @Test
+    public void testReserve_bounded() {
+        ToolScheduler scheduler = createScheduler(2, 4);
+
+        // ---------------------------------
+        ToolScheduler.Reservation reservation1 = scheduler.reserve(ToolScheduler.Priority.BULK, 1000);
+        ToolScheduler.Reservation reservation2 = scheduler.reserve(ToolScheduler.Priority.BULK, 1000);
+        // ---------------------------------
+
+        Assertions.assertThat(reservation1.getPlaces()).isEqualTo(2);
+        Assertions.assertThat(reservation2.getPlaces()).isEqualTo(2);
+        Assertions.assertThat(scheduler.getReservedCount(ToolScheduler.Priority.BULK)).isEqualTo(4);
+
+        org.junit.jupiter.api.Assertions.assertThrows(
+                ToolSchedulerSaturatedException.class,
+                () -> scheduler.reserve(ToolScheduler.Priority.BULK, 1));
+        org.junit.jupiter.api.Assertions.assertThrows(
+                ToolSchedulerSaturatedException.class,
+                () -> scheduler.enqueue(ToolScheduler.Priority.BULK));
+
+        reservation1.close();
+
+        Assertions.assertThat(scheduler.getReservedCount(ToolScheduler.Priority.BULK)).isEqualTo(2);
+        scheduler.enqueue(ToolScheduler.Priority.BULK);
+    }
+
+    /**
+     * <p>As the invocations of a reservation finish, the places that it no longer needs should
+     * be given back.</p>
+     */
+
+    @Test
+    public void testReserve_releasedAsFinished() throws Exception {
+        ToolScheduler scheduler = createScheduler(2, 4);
+        ToolScheduler.Reservation reservation = scheduler.reserve(ToolScheduler.Priority.BULK, 3);
+        List<Integer> placesAfterEachRun = new CopyOnWriteArrayList<>();
+
+        // ---------------------------------
+        for (int i = 0; i < 3; i++) {
+            reservation.enqueue().run(() -> {});
+            placesAfterEachRun.add(scheduler.getReservedCount(ToolScheduler.Priority.BULK));
+        }
+        reservation.close();
+        // ---------------------------------
+
+        Assertions.assertThat(placesAfterEachRun).containsExactly(2, 1, 0);
+        Assertions.assertThat(scheduler.getReservedCount(ToolScheduler.Priority.BULK)).isEqualTo(0);
+        Assertions.assertThat(scheduler.getRunningCount()).isEqualTo(0);
+    }
+
+}
@@ -1,17 +1,20 @@
 /*
- * Copyright 2022-2023, Andrew Lindesay
+ * Copyright 2022-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 package org.haiku.haikudepotserver.api2;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.Throwables;
+import jakarta.servlet.http.HttpServletRequest;
 import org.apache.cayenne.validation.BeanValidationFailure;
 import org.apache.cayenne.validation.SimpleValidationFailure;
 import org.apache.cayenne.validation.ValidationFailure;
 import org.haiku.haikudepotserver.api1.support.Constants;
 import org.haiku.haikudepotserver.api2.model.Error;
 import org.haiku.haikudepotserver.api2.model.ErrorDataInner;
+import org.haiku.haikudepotserver.api2.support.ApiRequestHelper;
+import org.haiku.haikudepotserver.support.ControllerHelper;
 import org.haiku.haikudepotserver.support.exception.AuthorizationRuleConflictException;
 import org.haiku.haikudepotserver.support.exception.BadPkgIconException;
 import org.haiku.haikudepotserver.support.exception.CaptchaBadResponseException;
@@ -20,10 +23,19 @@ import org.haiku.haikudepotserver.support.exception.ObjectNotFoundException;
 import org.haiku.haikudepotserver.support.exception.ValidationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 public abstract class AbstractApiImpl {
 
@@ -35,6 +47,51 @@ public abstract class AbstractApiImpl {
         return ResponseEntity.ok(new Envelope(resolveError((Throwables.getRootCause(t)))));
     }
 
+    /**
+     * <p>Produces a response for a read-only endpoint which supports the <code>If-None-Match</code>
+     * HTTP header. If a revision is available for the data then an entity tag is derived
+     * from the endpoint, the request and the revision. If the client already has the
+     * current entity tag then a <code>304 (Not Modified)</code> response is returned and
+     * the result is not assembled at all.</p>
+     *
+     * @param revision is a timestamp that moves each time the data changes; if it is empty
+     *                 then the response is not conditional.
+     */
+
+    protected <T> ResponseEntity<T> conditionalResponse(
+            String endpoint,
+            Object request,
+            Optional<Date> revision,
+            Supplier<T> bodySupplier) {
+
+        if (revision.isEmpty()) {
+            return ResponseEntity.ok(bodySupplier.get());
+        }
+
+        String entityTag = ApiRequestHelper.createEntityTag(endpoint, request, revision.get());
+
+        if (isEntityTagMatchingIfNoneMatchHeader(entityTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(entityTag).build();
+        }
+
+        return ResponseEntity.ok().eTag(entityTag).body(bodySupplier.get());
+    }
+
+    private static boolean isEntityTagMatchingIfNoneMatchHeader(String entityTag) {
+        return tryGetCurrentRequest()
+                .map(r -> ControllerHelper.isEntityTagMatchingIfNoneMatchHeader(
+                        r.getHeader(HttpHeaders.IF_NONE_MATCH), entityTag))
+                .orElse(false);
+    }
+
+    private static Optional<HttpServletRequest> tryGetCurrentRequest() {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes instanceof ServletRequestAttributes servletRequestAttributes) {
+            return Optional.of(servletRequestAttributes.getRequest());
+        }
+        return Optional.empty();
+    }
+
     public Error resolveError(Throwable t) {
 
         if (t instanceof InvalidUserUsageConditionsException) {
@@ -1,14 +1,17 @@
 /*
- * Copyright 2022-2025, Andrew Lindesay
+ * Copyright 2022-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 package org.haiku.haikudepotserver.api2;
 
 import com.google.common.base.Preconditions;
 import org.haiku.haikudepotserver.api2.model.*;
+import org.haiku.haikudepotserver.api2.support.ApiResponseCache;
+import org.haiku.haikudepotserver.dataobjects.HaikuDepot;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 
+import java.util.List;
 import java.util.Map;
 
 @Controller
@@ -16,8 +19,13 @@ public class MiscellaneousApiImpl extends AbstractApiImpl implements Miscellaneo
 
     private final MiscellaneousApiService miscellaneousApiService;
 
-    public MiscellaneousApiImpl(MiscellaneousApiService miscellaneousApiService) {
+    private final ApiResponseCache apiResponseCache;
+
+    public MiscellaneousApiImpl(
+            MiscellaneousApiService miscellaneousApiService,
+            ApiResponseCache apiResponseCache) {
         this.miscellaneousApiService = Preconditions.checkNotNull(miscellaneousApiService);
+        this.apiResponseCache = Preconditions.checkNotNull(apiResponseCache);
     }
 
     @Override
@@ -59,14 +67,22 @@ public class MiscellaneousApiImpl extends AbstractApiImpl implements Miscellaneo
     public ResponseEntity<GetAllNaturalLanguagesResponseEnvelope> getAllNaturalLanguages(GetAllNaturalLanguagesRequestEnvelope getAllNaturalLanguagesRequestEnvelope) {
         return ResponseEntity.ok(
                 new GetAllNaturalLanguagesResponseEnvelope()
-                        .result(miscellaneousApiService.getAllNaturalLanguages(getAllNaturalLanguagesRequestEnvelope)));
+                        .result(apiResponseCache.get(
+                                "getAllNaturalLanguages",
+                                getAllNaturalLanguagesRequestEnvelope,
+                                List.of(HaikuDepot.CacheGroup.NATURAL_LANGUAGE),
+                                () -> miscellaneousApiService.getAllNaturalLanguages(getAllNaturalLanguagesRequestEnvelope))));
     }
 
     @Override
     public ResponseEntity<GetAllPkgCategoriesResponseEnvelope> getAllPkgCategories(GetAllPkgCategoriesRequestEnvelope getAllPkgCategoriesRequestEnvelope) {
         return ResponseEntity.ok(
                 new GetAllPkgCategoriesResponseEnvelope()
-                        .result(miscellaneousApiService.getAllPkgCategories(getAllPkgCategoriesRequestEnvelope)));
+                        .result(apiResponseCache.get(
+                                "getAllPkgCategories",
+                                getAllPkgCategoriesRequestEnvelope,
+                                List.of(), // reference data that is only changed by a schema migration
+                                () -> miscellaneousApiService.getAllPkgCategories(getAllPkgCategoriesRequestEnvelope))));
     }
 
     @Override
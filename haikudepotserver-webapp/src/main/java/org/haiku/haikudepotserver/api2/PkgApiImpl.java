@@ -1,23 +1,38 @@
 /*
- * Copyright 2021-2023, Andrew Lindesay
+ * Copyright 2021-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 package org.haiku.haikudepotserver.api2;
 
+import com.google.common.base.Preconditions;
+import org.apache.commons.lang3.BooleanUtils;
 import org.haiku.haikudepotserver.api2.model.*;
+import org.haiku.haikudepotserver.api2.support.ApiResponseCache;
+import org.haiku.haikudepotserver.dataobjects.HaikuDepot;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 
 import jakarta.validation.Valid;
+import java.util.List;
 import java.util.Map;
 
 @Controller
 public class PkgApiImpl extends AbstractApiImpl implements PkgApi {
 
+    private final static List<HaikuDepot.CacheGroup> CACHE_GROUPS_PKG = List.of(
+            HaikuDepot.CacheGroup.PKG,
+            HaikuDepot.CacheGroup.PKG_LOCALIZATION,
+            HaikuDepot.CacheGroup.PKG_VERSION_LOCALIZATION,
+            HaikuDepot.CacheGroup.PKG_USER_RATING_AGGREGATE,
+            HaikuDepot.CacheGroup.REPOSITORY);
+
     private final PkgApiService pkgApiService;
 
-    public PkgApiImpl(PkgApiService pkgApiService) {
+    private final ApiResponseCache apiResponseCache;
+
+    public PkgApiImpl(PkgApiService pkgApiService, ApiResponseCache apiResponseCache) {
         this.pkgApiService = pkgApiService;
+        this.apiResponseCache = Preconditions.checkNotNull(apiResponseCache);
     }
 
     @Override
@@ -48,7 +63,9 @@ public class PkgApiImpl extends AbstractApiImpl implements PkgApi {
     public ResponseEntity<SearchPkgsResponseEnvelope> searchPkgs(SearchPkgsRequestEnvelope request) {
         return ResponseEntity.ok(
                 new SearchPkgsResponseEnvelope()
-                        .result(pkgApiService.searchPkgs(request)));
+                        .result(apiResponseCache.get(
+                                "searchPkgs", request, CACHE_GROUPS_PKG,
+                                () -> pkgApiService.searchPkgs(request))));
     }
 
     @Override
@@ -89,9 +106,23 @@ public class PkgApiImpl extends AbstractApiImpl implements PkgApi {
 
     @Override
     public ResponseEntity<GetPkgResponseEnvelope> getPkg(GetPkgRequestEnvelope request) {
-        return ResponseEntity.ok(
-                new GetPkgResponseEnvelope()
-                        .result(pkgApiService.getPkg(request)));
+        // incrementing the view counter is a side effect of the request so the cache
+        // cannot be used in this case.
+        if (BooleanUtils.isTrue(request.getIncrementViewCounter())) {
+            return ResponseEntity.ok(
+                    new GetPkgResponseEnvelope()
+                            .result(pkgApiService.getPkg(request)));
+        }
+
+        // the view counters are written in bulk and are not covered by any of the cache groups so
+        // the view counter in a cached response is approximate; see the API documentation.
+
+        return conditionalResponse(
+                "getPkg", request, pkgApiService.tryGetPkgRevision(request.getName()),
+                () -> new GetPkgResponseEnvelope()
+                        .result(apiResponseCache.get(
+                                "getPkg", request, CACHE_GROUPS_PKG,
+                                () -> pkgApiService.getPkg(request))));
     }
 
     @Override
@@ -102,22 +133,25 @@ public class PkgApiImpl extends AbstractApiImpl implements PkgApi {
 
     @Override
     public ResponseEntity<GetPkgChangelogResponseEnvelope> getPkgChangelog(GetPkgChangelogRequestEnvelope request) {
-        return ResponseEntity.ok(
-                new GetPkgChangelogResponseEnvelope()
+        return conditionalResponse(
+                "getPkgChangelog", request, pkgApiService.tryGetPkgRevision(request.getPkgName()),
+                () -> new GetPkgChangelogResponseEnvelope()
                         .result(pkgApiService.getPkgChangelog(request)));
     }
 
     @Override
     public ResponseEntity<GetPkgIconsResponseEnvelope> getPkgIcons(GetPkgIconsRequestEnvelope request) {
-        return ResponseEntity.ok(
-                new GetPkgIconsResponseEnvelope()
+        return conditionalResponse(
+                "getPkgIcons", request, pkgApiService.tryGetPkgRevision(request.getPkgName()),
+                () -> new GetPkgIconsResponseEnvelope()
                         .result(pkgApiService.getPkgIcons(request)));
     }
 
     @Override
     public ResponseEntity<GetPkgLocalizationsResponseEnvelope> getPkgLocalizations(GetPkgLocalizationsRequestEnvelope request) {
-        return ResponseEntity.ok(
-                new GetPkgLocalizationsResponseEnvelope()
+        return conditionalResponse(
+                "getPkgLocalizations", request, pkgApiService.tryGetPkgRevision(request.getPkgName()),
+                () -> new GetPkgLocalizationsResponseEnvelope()
                         .result(pkgApiService.getPkgLocalizations(request)));
     }
 
@@ -130,15 +164,21 @@ public class PkgApiImpl extends AbstractApiImpl implements PkgApi {
 
     @Override
     public ResponseEntity<GetPkgScreenshotsResponseEnvelope> getPkgScreenshots(GetPkgScreenshotsRequestEnvelope request) {
-        return ResponseEntity.ok(
-                new GetPkgScreenshotsResponseEnvelope()
-                        .result(pkgApiService.getPkgScreenshots(request)));
+        return conditionalResponse(
+                "getPkgScreenshots", request, pkgApiService.tryGetPkgRevision(request.getPkgName()),
+                () -> new GetPkgScreenshotsResponseEnvelope()
+                        .result(apiResponseCache.get(
+                                "getPkgScreenshots",
+                                request,
+                                List.of(HaikuDepot.CacheGroup.PKG, HaikuDepot.CacheGroup.PKG_SCREENSHOT),
+                                () -> pkgApiService.getPkgScreenshots(request))));
     }
 
     @Override
     public ResponseEntity<GetPkgVersionLocalizationsResponseEnvelope> getPkgVersionLocalizations(GetPkgVersionLocalizationsRequestEnvelope request) {
-        return ResponseEntity.ok(
-                new GetPkgVersionLocalizationsResponseEnvelope()
+        return conditionalResponse(
+                "getPkgVersionLocalizations", request, pkgApiService.tryGetPkgRevision(request.getPkgName()),
+                () -> new GetPkgVersionLocalizationsResponseEnvelope()
                         .result(pkgApiService.getPkgVersionLocalizations(request)));
     }
 
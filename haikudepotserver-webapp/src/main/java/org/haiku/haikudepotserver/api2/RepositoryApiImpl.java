@@ -1,5 +1,5 @@
 /*
- * Copyright 2022, Andrew Lindesay
+ * Copyright 2022-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 package org.haiku.haikudepotserver.api2;
@@ -35,6 +35,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 
 import java.util.Map;
+import java.util.Optional;
 
 @Controller
 public class RepositoryApiImpl extends AbstractApiImpl implements RepositoryApi {
@@ -67,8 +68,11 @@ public class RepositoryApiImpl extends AbstractApiImpl implements RepositoryApi
 
     @Override
     public ResponseEntity<GetRepositoriesResponseEnvelope> getRepositories(GetRepositoriesRequestEnvelope getRepositoriesRequestEnvelope) {
-        return ResponseEntity.ok(
-                new GetRepositoriesResponseEnvelope()
+        return conditionalResponse(
+                "getRepositories",
+                getRepositoriesRequestEnvelope,
+                Optional.of(repositoryApiService.getRepositoriesRevision()),
+                () -> new GetRepositoriesResponseEnvelope()
                         .result(repositoryApiService.getRepositories(getRepositoriesRequestEnvelope)));
     }
 
@@ -1,14 +1,18 @@
 /*
- * Copyright 2021-2023, Andrew Lindesay
+ * Copyright 2021-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 package org.haiku.haikudepotserver.api2;
 
+import com.google.common.base.Preconditions;
 import org.haiku.haikudepotserver.api2.model.*;
+import org.haiku.haikudepotserver.api2.support.ApiResponseCache;
+import org.haiku.haikudepotserver.dataobjects.HaikuDepot;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 
 import jakarta.validation.Valid;
+import java.util.List;
 import java.util.Map;
 
 @Controller
@@ -16,8 +20,11 @@ public class UserRatingApiImpl extends AbstractApiImpl implements UserRatingApi
 
     private final UserRatingApiService userRatingApiService;
 
-    public UserRatingApiImpl(UserRatingApiService userRatingApiService) {
+    private final ApiResponseCache apiResponseCache;
+
+    public UserRatingApiImpl(UserRatingApiService userRatingApiService, ApiResponseCache apiResponseCache) {
         this.userRatingApiService = userRatingApiService;
+        this.apiResponseCache = Preconditions.checkNotNull(apiResponseCache);
     }
 
     @Override
@@ -76,6 +83,13 @@ public class UserRatingApiImpl extends AbstractApiImpl implements UserRatingApi
     public ResponseEntity<GetSummaryByPkgResponseEnvelope> getSummaryByPkg(GetSummaryByPkgRequestEnvelope request) {
         return ResponseEntity.ok(
                 new GetSummaryByPkgResponseEnvelope()
-                        .result(userRatingApiService.getSummaryByPkg(request)));
+                        .result(apiResponseCache.get(
+                                "getSummaryByPkg",
+                                request,
+                                List.of(
+                                        HaikuDepot.CacheGroup.USER_RATING,
+                                        HaikuDepot.CacheGroup.USER,
+                                        HaikuDepot.CacheGroup.PKG),
+                                () -> userRatingApiService.getSummaryByPkg(request))));
     }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2018-2023, Andrew Lindesay
+ * Copyright 2018-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
@@ -7,7 +7,6 @@ package org.haiku.haikudepotserver.pkg.controller;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
-import com.google.common.io.ByteStreams;
 import com.google.common.net.HttpHeaders;
 import com.google.common.net.MediaType;
 import jakarta.mail.internet.MimeUtility;
@@ -22,10 +21,11 @@ import org.haiku.haikudepotserver.job.model.JobService;
 import org.haiku.haikudepotserver.job.model.JobSnapshot;
 import org.haiku.haikudepotserver.pkg.model.*;
 import org.haiku.haikudepotserver.security.model.Permission;
-import org.haiku.haikudepotserver.support.ByteCounterOutputStream;
+import org.haiku.haikudepotserver.support.ControllerHelper;
 import org.haiku.haikudepotserver.support.web.AbstractController;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.PermissionEvaluator;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -65,20 +65,36 @@ public class PkgScreenshotController extends AbstractController {
     private final PkgScreenshotService pkgScreenshotService;
     private final JobService jobService;
     private final PermissionEvaluator permissionEvaluator;
+    private final long thumbnailMaxAgeSeconds;
 
     public PkgScreenshotController(
             ServerRuntime serverRuntime,
             PkgScreenshotService pkgScreenshotService,
             JobService jobService,
-            PermissionEvaluator permissionEvaluator) {
+            PermissionEvaluator permissionEvaluator,
+            @Value("${hds.pkg-screenshot.thumbnail.max-age-seconds:604800}") long thumbnailMaxAgeSeconds) {
+        Preconditions.checkArgument(thumbnailMaxAgeSeconds >= 0, "the thumbnail max age must not be negative");
         this.serverRuntime = Preconditions.checkNotNull(serverRuntime);
         this.pkgScreenshotService = Preconditions.checkNotNull(pkgScreenshotService);
         this.jobService = Preconditions.checkNotNull(jobService);
         this.permissionEvaluator = Preconditions.checkNotNull(permissionEvaluator);
+        this.thumbnailMaxAgeSeconds = thumbnailMaxAgeSeconds;
+    }
+
+    /**
+     * <p>The entity tag is derived from the hash of the screenshot's image data and the
+     * size so it changes only when the thumbnail would change.  It is weak because two
+     * thumbnails of the same screenshot at the same size are equivalent but may not be
+     * byte-for-byte identical.</p>
+     */
+
+    private static String createEntityTag(PkgScreenshot screenshot, int targetWidth, int targetHeight) {
+        return String.format("W/\"%s-%dx%d\"", screenshot.getHashSha256(), targetWidth, targetHeight);
     }
 
     private void handleHeadOrGet(
             RequestMethod requestMethod,
+            HttpServletRequest request,
             HttpServletResponse response,
             Integer targetWidth,
             Integer targetHeight,
@@ -105,22 +121,34 @@ public class PkgScreenshotController extends AbstractController {
         ObjectContext context = serverRuntime.newContext();
         PkgScreenshot screenshot = PkgScreenshot.tryGetByCode(context, screenshotCode).orElseThrow(ScreenshotNotFound::new);
 
-        response.setContentType(MediaType.PNG.toString());
-        response.setHeader(HttpHeaders.CACHE_CONTROL, "max-age=3600");
+        String entityTag = createEntityTag(screenshot, targetWidth, targetHeight);
 
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=" + thumbnailMaxAgeSeconds);
+        response.setHeader(HttpHeaders.ETAG, entityTag);
         response.setDateHeader(
                 HttpHeaders.LAST_MODIFIED,
                 screenshot.getPkgSupplement().getLatestPkgModifyTimestampSecondAccuracy().getTime());
 
+        if (ControllerHelper.isEntityTagMatchingIfNoneMatchHeader(
+                request.getHeader(HttpHeaders.IF_NONE_MATCH), entityTag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        // the thumbnail is retained once it has been created so a HEAD request is able
+        // to obtain the length cheaply as well.
+
+        byte[] data = pkgScreenshotService.getPkgScreenshotThumbnail(context, screenshot, targetWidth, targetHeight);
+
+        response.setContentType(MediaType.PNG.toString());
+        response.setContentLength(data.length);
+
         switch (requestMethod) {
             case HEAD -> {
-                ByteCounterOutputStream byteCounter = new ByteCounterOutputStream(ByteStreams.nullOutputStream());
-                pkgScreenshotService.writePkgScreenshotImage(byteCounter, context, screenshot, targetWidth, targetHeight);
-                response.setContentLength((int) byteCounter.getCounter());
             }
             case GET -> {
                 OutputStream outputStream = response.getOutputStream();
-                pkgScreenshotService.writePkgScreenshotImage(outputStream, context, screenshot, targetWidth, targetHeight);
+                outputStream.write(data);
                 outputStream.flush();
             }
             default -> throw new IllegalStateException("unhandled request method; " + requestMethod);
@@ -130,6 +158,7 @@ public class PkgScreenshotController extends AbstractController {
 
     @RequestMapping(value = "/{"+KEY_SCREENSHOTCODE+"}.{"+KEY_FORMAT+"}", method = RequestMethod.HEAD)
     public void handleHead(
+            HttpServletRequest request,
             HttpServletResponse response,
             @RequestParam(value = KEY_TARGETWIDTH) Integer targetWidth,
             @RequestParam(value = KEY_TARGETHEIGHT) Integer targetHeight,
@@ -139,6 +168,7 @@ public class PkgScreenshotController extends AbstractController {
 
         handleHeadOrGet(
                 RequestMethod.HEAD,
+                request,
                 response,
                 targetWidth,
                 targetHeight,
@@ -149,6 +179,7 @@ public class PkgScreenshotController extends AbstractController {
 
     @RequestMapping(value = "/{"+KEY_SCREENSHOTCODE+"}.{"+KEY_FORMAT+"}", method = RequestMethod.GET)
     public void handleGet(
+            HttpServletRequest request,
             HttpServletResponse response,
             @RequestParam(value = KEY_TARGETWIDTH) int targetWidth,
             @RequestParam(value = KEY_TARGETHEIGHT) int targetHeight,
@@ -158,6 +189,7 @@ public class PkgScreenshotController extends AbstractController {
 
         handleHeadOrGet(
                 RequestMethod.GET,
+                request,
                 response,
                 targetWidth,
                 targetHeight,
@@ -5,6 +5,7 @@
 package org.haiku.haikudepotserver.support;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
 import com.google.common.net.HttpHeaders;
 import jakarta.servlet.http.HttpServletResponse;
 import org.apache.commons.lang3.StringUtils;
@@ -200,6 +201,27 @@ public class ControllerHelper {
         response.sendRedirect(destinationLocationUrl);
     }
 
+    /**
+     * <p>Returns true if the <code>If-None-Match</code> HTTP header value lists the supplied entity tag
+     * or is <code>*</code>. The entity tags are compared using the weak comparison so the weak prefix is not
+     * significant.</p>
+     */
+
+    public static boolean isEntityTagMatchingIfNoneMatchHeader(String ifNoneMatchHeader, String entityTag) {
+        Preconditions.checkArgument(StringUtils.isNotBlank(entityTag), "the entity tag must be provided");
+
+        if (StringUtils.isBlank(ifNoneMatchHeader)) {
+            return false;
+        }
+
+        return Splitter.on(',').trimResults().omitEmptyStrings().splitToStream(ifNoneMatchHeader)
+                .anyMatch(t -> t.equals("*") || stripWeakPrefix(t).equals(stripWeakPrefix(entityTag)));
+    }
+
+    private static String stripWeakPrefix(String entityTag) {
+        return entityTag.startsWith("W/") ? entityTag.substring(2) : entityTag;
+    }
+
     /**
      * @return {@code true} if the supplied Job is newer than the header timestamp. If there's no header then it will
      * return true.
@@ -1,5 +1,5 @@
 /*
- * Copyright 2018-2025, Andrew Lindesay
+ * Copyright 2018-2026, Andrew Lindesay
  * Distributed under the terms of the MIT License.
  */
 
@@ -7,8 +7,10 @@ package org.haiku.haikudepotserver.pkg.controller;
 
 import com.google.common.hash.HashCode;
 import com.google.common.hash.Hashing;
+import com.google.common.net.HttpHeaders;
 import com.google.common.net.MediaType;
 import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletResponse;
 import org.apache.cayenne.ObjectContext;
 import org.fest.assertions.Assertions;
 import org.haiku.haikudepotserver.AbstractIntegrationTest;
@@ -100,10 +102,12 @@ public class PkgScreenshotControllerIT extends AbstractIntegrationTest {
         IntegrationTestSupportService.StandardTestData data = integrationTestSupportService.createStandardTestData();
         byte[] imageData = getScreenshotDataA();
 
+        MockHttpServletRequest request = new MockHttpServletRequest();
         MockHttpServletResponse response = new MockHttpServletResponse();
 
         // ------------------------------------
         pkgScreenshotController.handleGet(
+                request,
                 response,
                 640, 480,
                 "png",
@@ -121,10 +125,12 @@ public class PkgScreenshotControllerIT extends AbstractIntegrationTest {
 
         IntegrationTestSupportService.StandardTestData data = integrationTestSupportService.createStandardTestData();
 
+        MockHttpServletRequest request = new MockHttpServletRequest();
         MockHttpServletResponse response = new MockHttpServletResponse();
 
         // ------------------------------------
         pkgScreenshotController.handleGet(
+                request,
                 response,
                 160, 120,
                 "png",
@@ -140,4 +146,28 @@ public class PkgScreenshotControllerIT extends AbstractIntegrationTest {
 
     }
 
+    @Test
+    public void testGet_notModified() throws Exception {
+
+        IntegrationTestSupportService.StandardTestData data = integrationTestSupportService.createStandardTestData();
+        String code = data.pkg1.getPkgSupplement().getSortedPkgScreenshots().get(0).getCode();
+
+        MockHttpServletResponse firstResponse = new MockHttpServletResponse();
+        pkgScreenshotController.handleGet(new MockHttpServletRequest(), firstResponse, 160, 120, "png", code);
+        String entityTag = firstResponse.getHeader(HttpHeaders.ETAG);
+        Assertions.assertThat(entityTag).isNotEmpty();
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, entityTag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // ------------------------------------
+        pkgScreenshotController.handleGet(request, response, 160, 120, "png", code);
+        // -----------------------------------
+
+        Assertions.assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_MODIFIED);
+        Assertions.assertThat(response.getContentAsByteArray()).isEmpty();
+
+    }
+
 }
@@ -228,4 +228,16 @@ public class ControllerHelperTest {
         return specification;
     }
 
+    @Test
+    public void testIsEntityTagMatchingIfNoneMatchHeader() {
+        String entityTag = "W/\"9f86d081-320x240\"";
+
+        Assertions.assertThat(ControllerHelper.isEntityTagMatchingIfNoneMatchHeader(null, entityTag)).isFalse();
+        Assertions.assertThat(ControllerHelper.isEntityTagMatchingIfNoneMatchHeader("\"a1\", \"b2\"", entityTag)).isFalse();
+        Assertions.assertThat(ControllerHelper.isEntityTagMatchingIfNoneMatchHeader("\"a1\", W/\"9f86d081-320x240\"", entityTag)).isTrue();
+        // the weak comparison disregards the weak prefix.
+        Assertions.assertThat(ControllerHelper.isEntityTagMatchingIfNoneMatchHeader("\"9f86d081-320x240\"", entityTag)).isTrue();
+        Assertions.assertThat(ControllerHelper.isEntityTagMatchingIfNoneMatchHeader("*", entityTag)).isTrue();
+    }
+
 }